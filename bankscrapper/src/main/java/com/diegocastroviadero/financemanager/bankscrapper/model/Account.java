@@ -1,6 +1,8 @@
 package com.diegocastroviadero.financemanager.bankscrapper.model;
 
-import com.diegocastroviadero.financemanager.cryptoutils.CsvSerializationUtils;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvFieldReader;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvFieldWriter;
+import com.diegocastroviadero.financemanager.cryptoutils.RowCodec;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
@@ -14,6 +16,8 @@ import java.util.UUID;
 @Setter
 @ToString
 public class Account {
+    public static final RowCodec<Account> CSV_ROW_CODEC = RowCodec.of(Account::toCsvRow, Account::fromCsvRow);
+
     private final Bank bank;
     private final UUID id;
     private final String accountNumber;
@@ -23,28 +27,26 @@ public class Account {
     private LocalDate balanceDate;
     private Long balance;
 
-    public String[] toStringArray() {
-        return new String[] {
-                CsvSerializationUtils.serializeEnumToCsv(bank),
-                CsvSerializationUtils.serializeUUIDToCsv(id),
-                accountNumber,
-                alias,
-                CsvSerializationUtils.serializeEnumToCsv(type),
-                CsvSerializationUtils.serializeEnumToCsv(scope),
-                CsvSerializationUtils.serializeDateToCsv(balanceDate),
-                CsvSerializationUtils.serializeLongToCsv(balance)
-        };
+    public void toCsvRow(final CsvFieldWriter writer) {
+        writer.writeEnum(bank);
+        writer.writeUUID(id);
+        writer.writeString(accountNumber);
+        writer.writeString(alias);
+        writer.writeEnum(type);
+        writer.writeEnum(scope);
+        writer.writeDate(balanceDate);
+        writer.writeLong(balance);
     }
 
-    public static Account fromStringArray(String[] rawData) {
-        final Bank bank = CsvSerializationUtils.parseEnumFromCsv(rawData[0], Bank.class);
-        final UUID id = CsvSerializationUtils.parseUUIDFromCsv(rawData[1]);
-        final String account = rawData[2];
-        final String alias = rawData[3];
-        final AccountType type = CsvSerializationUtils.parseEnumFromCsv(rawData[4], AccountType.class);
-        final AccountScope scope = CsvSerializationUtils.parseEnumFromCsv(rawData[5], AccountScope.class);
-        final LocalDate balanceDate = CsvSerializationUtils.parseDateFromCsv(rawData[6]);
-        final Long balanceQuantity = CsvSerializationUtils.parseLongFromCsv(rawData[7]);
+    public static Account fromCsvRow(final CsvFieldReader reader) {
+        final Bank bank = reader.readEnum(Bank.class);
+        final UUID id = reader.readUUID();
+        final String account = reader.readString();
+        final String alias = reader.readString();
+        final AccountType type = reader.readEnum(AccountType.class);
+        final AccountScope scope = reader.readEnum(AccountScope.class);
+        final LocalDate balanceDate = reader.readDate();
+        final Long balanceQuantity = reader.readLong();
 
         return new Account(bank, id, account, alias, type, scope, balanceDate, balanceQuantity);
     }
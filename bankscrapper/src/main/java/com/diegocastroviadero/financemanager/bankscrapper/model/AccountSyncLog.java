@@ -1,7 +1,9 @@
 package com.diegocastroviadero.financemanager.bankscrapper.model;
 
 import com.diegocastroviadero.financemanager.bankscrapper.utils.Utils;
-import com.diegocastroviadero.financemanager.cryptoutils.CsvSerializationUtils;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvFieldReader;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvFieldWriter;
+import com.diegocastroviadero.financemanager.cryptoutils.RowCodec;
 import lombok.*;
 
 import java.time.YearMonth;
@@ -14,6 +16,8 @@ import java.util.UUID;
 @AllArgsConstructor(access = AccessLevel.PACKAGE)
 @ToString
 public class AccountSyncLog {
+    public static final RowCodec<AccountSyncLog> CSV_ROW_CODEC = RowCodec.of(AccountSyncLog::toCsvRow, AccountSyncLog::fromCsvRow);
+
     private final Bank bank;
     private final UUID accountId;
     private final YearMonth yearMonth;
@@ -21,24 +25,22 @@ public class AccountSyncLog {
     private ZonedDateTime syncStatusTimestamp;
     private String syncErrorMessage;
 
-    public String[] toStringArray() {
-        return new String[] {
-                CsvSerializationUtils.serializeEnumToCsv(bank),
-                CsvSerializationUtils.serializeUUIDToCsv(accountId),
-                CsvSerializationUtils.serializeYearMonthToCsv(yearMonth),
-                CsvSerializationUtils.serializeEnumToCsv(syncStatus),
-                CsvSerializationUtils.serializeDateToCsv(syncStatusTimestamp),
-                syncErrorMessage
-        };
+    public void toCsvRow(final CsvFieldWriter writer) {
+        writer.writeEnum(bank);
+        writer.writeUUID(accountId);
+        writer.writeYearMonth(yearMonth);
+        writer.writeEnum(syncStatus);
+        writer.writeTimestamp(syncStatusTimestamp);
+        writer.writeString(syncErrorMessage);
     }
 
-    public static AccountSyncLog fromStringArray(String[] rawData) {
-        final Bank bank = CsvSerializationUtils.parseEnumFromCsv(rawData[0], Bank.class);
-        final UUID accountId = CsvSerializationUtils.parseUUIDFromCsv(rawData[1]);
-        final YearMonth yearMonth = CsvSerializationUtils.parseYearMonthFromCsv(rawData[2]);
-        final SyncStatus syncStatus = CsvSerializationUtils.parseEnumFromCsv(rawData[3], SyncStatus.class);
-        final ZonedDateTime syncStatusTimestamp = CsvSerializationUtils.parseTimestampFromCsv(rawData[4], Utils.getZone());
-        final String syncErrorMessage = rawData[5];
+    public static AccountSyncLog fromCsvRow(final CsvFieldReader reader) {
+        final Bank bank = reader.readEnum(Bank.class);
+        final UUID accountId = reader.readUUID();
+        final YearMonth yearMonth = reader.readYearMonth();
+        final SyncStatus syncStatus = reader.readEnum(SyncStatus.class);
+        final ZonedDateTime syncStatusTimestamp = reader.readTimestamp(Utils.getZone());
+        final String syncErrorMessage = reader.readString();
 
         return new AccountSyncLog(bank, accountId, yearMonth, syncStatus, syncStatusTimestamp, syncErrorMessage);
     }
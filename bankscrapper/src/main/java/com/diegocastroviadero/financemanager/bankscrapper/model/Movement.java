@@ -1,6 +1,8 @@
 package com.diegocastroviadero.financemanager.bankscrapper.model;
 
-import com.diegocastroviadero.financemanager.cryptoutils.CsvSerializationUtils;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvFieldReader;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvFieldWriter;
+import com.diegocastroviadero.financemanager.cryptoutils.RowCodec;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.ToString;
@@ -12,6 +14,8 @@ import java.util.UUID;
 @Getter
 @ToString
 public class Movement {
+    public static final RowCodec<Movement> CSV_ROW_CODEC = RowCodec.of(Movement::toCsvRow, Movement::fromCsvRow);
+
     private final Bank bank;
     private final UUID accountId;
     private final String account;
@@ -20,27 +24,25 @@ public class Movement {
     private final LocalDate dateValue;
     private final Long quantity;
 
-    public String[] toStringArray() {
-        return new String[] {
-                CsvSerializationUtils.serializeEnumToCsv(bank),
-                CsvSerializationUtils.serializeUUIDToCsv(accountId),
-                account,
-                CsvSerializationUtils.serializeDateToCsv(date),
-                concept,
-                CsvSerializationUtils.serializeDateToCsv(dateValue),
-                CsvSerializationUtils.serializeLongToCsv(quantity)
-        };
+    public void toCsvRow(final CsvFieldWriter writer) {
+        writer.writeEnum(bank);
+        writer.writeUUID(accountId);
+        writer.writeString(account);
+        writer.writeDate(date);
+        writer.writeString(concept);
+        writer.writeDate(dateValue);
+        writer.writeLong(quantity);
     }
 
-    public static Movement fromStringArray(String[] rawData) {
-        final Bank bank = CsvSerializationUtils.parseEnumFromCsv(rawData[0], Bank.class);
-        final UUID accountId = CsvSerializationUtils.parseUUIDFromCsv(rawData[1]);
-        final String account = rawData[2];
-        final LocalDate parsedDate = CsvSerializationUtils.parseDateFromCsv(rawData[3]);
-        final String concept = rawData[4];
-        final LocalDate parsedDateValue = CsvSerializationUtils.parseDateFromCsv(rawData[5]);
-        final Long parsedQuantity = CsvSerializationUtils.parseLongFromCsv(rawData[6]);
+    public static Movement fromCsvRow(final CsvFieldReader reader) {
+        final Bank bank = reader.readEnum(Bank.class);
+        final UUID accountId = reader.readUUID();
+        final String account = reader.readString();
+        final LocalDate date = reader.readDate();
+        final String concept = reader.readString();
+        final LocalDate dateValue = reader.readDate();
+        final Long quantity = reader.readLong();
 
-        return new Movement(bank, accountId, account, parsedDate, concept, parsedDateValue, parsedQuantity);
+        return new Movement(bank, accountId, account, date, concept, dateValue, quantity);
     }
 }
\ No newline at end of file
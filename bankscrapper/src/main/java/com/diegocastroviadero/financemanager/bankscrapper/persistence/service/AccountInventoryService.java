@@ -61,11 +61,7 @@ public class AccountInventoryService extends AbstractPersistenceService {
         List<Account> accounts;
 
         if (file.exists()) {
-            final List<String[]> rawCsvData = CsvCryptoUtils.decryptFromCsvFile(SecurityContext.getEncryptionPassword().toCharArray(), file);
-
-            accounts = rawCsvData.stream()
-                    .map(Account::fromStringArray)
-                    .collect(Collectors.toList());
+            accounts = CsvCryptoUtils.decryptFromCsvFile(SecurityContext.getEncryptionPassword().toCharArray(), file, Account.CSV_ROW_CODEC);
 
         } else {
             accounts = new ArrayList<>();
@@ -77,14 +73,13 @@ public class AccountInventoryService extends AbstractPersistenceService {
     private void persistAccounts(final List<Account> accounts) throws CsvCryptoIOException {
         final File file = getFile(getFilename());
 
-        final List<String[]> sortedRawAccounts = accounts.stream()
+        final List<Account> sortedAccounts = accounts.stream()
                 .sorted(Comparator
                         .comparing(Account::getBank)
                         .thenComparing(Account::getAccountNumber))
-                .map(Account::toStringArray)
                 .collect(Collectors.toList());
 
-        CsvCryptoUtils.encryptToCsvFile(sortedRawAccounts, SecurityContext.getEncryptionPassword().toCharArray(), file);
+        CsvCryptoUtils.encryptToCsvFile(sortedAccounts, Account.CSV_ROW_CODEC, SecurityContext.getEncryptionPassword().toCharArray(), file);
     }
 
     private String getFilename() {
@@ -90,11 +90,7 @@ public class AccountSyncLogService extends AbstractPersistenceService {
         final List<AccountSyncLog> accountSyncLog;
 
         if (file.exists()) {
-            final List<String[]> rawCsvData = CsvUtils.readFromCsvFile(file);
-
-            accountSyncLog = rawCsvData.stream()
-                    .map(AccountSyncLog::fromStringArray)
-                    .collect(Collectors.toList());
+            accountSyncLog = CsvUtils.readFromCsvFile(file, AccountSyncLog.CSV_ROW_CODEC);
         } else {
             accountSyncLog = new ArrayList<>();
         }
@@ -105,15 +101,14 @@ public class AccountSyncLogService extends AbstractPersistenceService {
     private void persistAccountSyncLog(final Year year, final List<AccountSyncLog> yearAccountsSyncInfo) throws CsvIOException {
         final File file = getFile(getFilename(year));
 
-        final List<String[]> sortedAccounts = yearAccountsSyncInfo.stream()
+        final List<AccountSyncLog> sortedAccounts = yearAccountsSyncInfo.stream()
                 .sorted(Comparator
                         .comparing(AccountSyncLog::getBank)
                         .thenComparing(AccountSyncLog::getAccountId)
                         .thenComparing(AccountSyncLog::getYearMonth))
-                .map(AccountSyncLog::toStringArray)
                 .collect(Collectors.toList());
 
-        CsvUtils.persistToCsvFile(sortedAccounts, file);
+        CsvUtils.persistToCsvFile(sortedAccounts, AccountSyncLog.CSV_ROW_CODEC, file);
     }
 
     private String getFilename(final Year year) {
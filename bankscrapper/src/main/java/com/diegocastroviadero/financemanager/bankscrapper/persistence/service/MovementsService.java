@@ -37,14 +37,13 @@ public class MovementsService extends AbstractPersistenceService {
 
             final File file = getFile(getFilename(accountId, yearMonth));
 
-            final List<String[]> rawMovements = accountYearMonthMovements.stream()
+            final List<Movement> sortedMovements = accountYearMonthMovements.stream()
                     .sorted(Comparator
                             .comparing(Movement::getAccount)
                             .thenComparing(Movement::getDate))
-                    .map(Movement::toStringArray)
                     .collect(Collectors.toList());
 
-            CsvCryptoUtils.encryptToCsvFile(rawMovements, SecurityContext.getEncryptionPassword().toCharArray(), file);
+            CsvCryptoUtils.encryptToCsvFile(sortedMovements, Movement.CSV_ROW_CODEC, SecurityContext.getEncryptionPassword().toCharArray(), file);
         }
     }
 
@@ -0,0 +1,74 @@
+package com.diegocastroviadero.financemanager.benchmarks;
+
+import com.diegocastroviadero.financemanager.cryptoutils.CsvCryptoUtils;
+import com.diegocastroviadero.financemanager.cryptoutils.EncryptionOptions;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adding a few rows to an encrypted file: rewriting the whole file vs appending a segment to it. Appends include the
+ * compactions triggered every {@link EncryptionOptions#getMaxSegments()} appends, so their cost is amortized
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AppendBenchmark {
+    private static final char[] PASSWORD = "benchmark".toCharArray();
+
+    @Param({"1000", "100000"})
+    private int rows;
+
+    @Param({"1", "10"})
+    private int newRows;
+
+    private File folder;
+    private File csvFile;
+    private List<String[]> elements;
+    private List<String[]> newElements;
+
+    @Setup
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("append").toFile();
+        csvFile = new File(folder, "movements.csv");
+
+        elements = MovementRows.generate(rows + newRows);
+        newElements = elements.subList(rows, rows + newRows);
+
+        CsvCryptoUtils.encryptToCsvFile(elements.subList(0, rows), PASSWORD, csvFile);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(folder);
+    }
+
+    @Benchmark
+    public void rewrite() throws IOException {
+        CsvCryptoUtils.encryptToCsvFile(elements, PASSWORD, csvFile);
+    }
+
+    @Benchmark
+    public void append() throws IOException {
+        CsvCryptoUtils.appendToCsvFile(newElements, PASSWORD, csvFile);
+    }
+}
@@ -0,0 +1,39 @@
+package com.diegocastroviadero.financemanager.benchmarks;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Main class of the benchmarks jar: same options as the JMH one, but results are always written, as JSON unless
+ * another format is given, so that runs of different commits can be compared
+ */
+public class BenchmarkRunner {
+    private static final String DEFAULT_RESULT_FILE_PATTERN = "jmh-result.%s";
+
+    public static void main(final String[] args) throws Exception {
+        final CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+
+        if (commandLineOptions.shouldHelp() || commandLineOptions.shouldList() || commandLineOptions.shouldListWithParams()
+                || commandLineOptions.shouldListProfilers() || commandLineOptions.shouldListResultFormats()) {
+            Main.main(args);
+
+            return;
+        }
+
+        final ResultFormatType resultFormat = commandLineOptions.getResultFormat().orElse(ResultFormatType.JSON);
+
+        final ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(commandLineOptions)
+                .resultFormat(resultFormat);
+
+        if (!commandLineOptions.getResult().hasValue()) {
+            options.result(String.format(DEFAULT_RESULT_FILE_PATTERN, resultFormat.name().toLowerCase()));
+        }
+
+        new Runner(options.build()).run();
+    }
+}
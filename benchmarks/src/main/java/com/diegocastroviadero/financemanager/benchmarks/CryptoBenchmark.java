@@ -0,0 +1,106 @@
+package com.diegocastroviadero.financemanager.benchmarks;
+
+import com.diegocastroviadero.financemanager.cryptoutils.CryptoEngine;
+import com.diegocastroviadero.financemanager.cryptoutils.DerivedKeyCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Crypto primitives of the encrypted files: PBKDF2 derivation of the key encryption key (bypassing the cache of
+ * {@link CryptoEngine}, so every call derives) and AES/GCM encryption and decryption of chunks of the sizes the
+ * containers use (up to 64 KiB)
+ */
+public class CryptoBenchmark {
+    private static final char[] PASSWORD = "benchmark".toCharArray();
+    private static final int TAG_LENGTH_BIT = 128;
+    private static final int IV_LENGTH_BYTE = 12;
+
+    @State(Scope.Benchmark)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(1)
+    public static class KeyDerivation {
+        @Param({"10000", "65536", "310000"})
+        private int iterations;
+
+        private CryptoEngine engine;
+        private byte[] salt;
+
+        @Setup
+        public void setUp() {
+            engine = new CryptoEngine(CryptoEngine.MIN_KDF_ITERATIONS, new DerivedKeyCache(1, 60_000L));
+            salt = engine.getRandomNonce(16);
+        }
+
+        @Benchmark
+        public SecretKey derive() {
+            // a different salt on every call, so that the key is never cached
+            salt[0]++;
+
+            return engine.getAESKeyFromPassword(PASSWORD, salt, iterations);
+        }
+    }
+
+    @State(Scope.Thread)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(1)
+    public static class Gcm {
+        @Param({"1024", "16384", "65536"})
+        private int chunkSize;
+
+        private SecretKey key;
+        private byte[] iv;
+        private byte[] plaintext;
+        private byte[] ciphertext;
+        private Cipher cipher;
+
+        @Setup
+        public void setUp() throws GeneralSecurityException {
+            final CryptoEngine engine = CryptoEngine.getDefault();
+
+            key = engine.generateAESKey();
+            iv = engine.getRandomNonce(IV_LENGTH_BYTE);
+            plaintext = engine.getRandomNonce(chunkSize);
+            cipher = Cipher.getInstance("AES/GCM/NoPadding");
+
+            ciphertext = encrypt();
+        }
+
+        @Benchmark
+        public byte[] encrypt() throws GeneralSecurityException {
+            // GCM refuses to encrypt twice with the same key and iv, so the iv changes on every call as chunk nonces do
+            iv[IV_LENGTH_BYTE - 1]++;
+
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BIT, iv));
+
+            return cipher.doFinal(plaintext);
+        }
+
+        @Benchmark
+        public byte[] decrypt() throws GeneralSecurityException {
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BIT, iv));
+
+            return cipher.doFinal(ciphertext);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.diegocastroviadero.financemanager.benchmarks;
+
+import com.diegocastroviadero.financemanager.cryptoutils.CsvRowReader;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvRowWriter;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvUtils;
+import com.diegocastroviadero.financemanager.cryptoutils.exception.CsvIOException;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVWriter;
+import com.opencsv.exceptions.CsvValidationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading and writing of csv rows: opencsv vs {@link CsvRowReader} / {@link CsvRowWriter}, as csv files are read
+ * and written by CsvUtils and CsvCryptoUtils (every field quoted, UTF-8). Plain files are read through a stream vs
+ * as {@link CsvUtils} reads them (memory mapped above its threshold)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    private List<String[]> elements;
+    private byte[] csv;
+    private File csvFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        elements = MovementRows.generate(rows);
+
+        final StringWriter out = new StringWriter();
+        try (CSVWriter writer = new CSVWriter(out)) {
+            elements.forEach(writer::writeNext);
+        }
+
+        csv = out.toString().getBytes(StandardCharsets.UTF_8);
+
+        csvFile = Files.createTempFile("movements", ".csv").toFile();
+        Files.write(csvFile.toPath(), csv);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csvFile.toPath());
+    }
+
+    @Benchmark
+    public void readOpencsv(final Blackhole blackhole) throws IOException, CsvValidationException {
+        try (CSVReader reader = new CSVReader(new InputStreamReader(new ByteArrayInputStream(csv), StandardCharsets.UTF_8))) {
+            String[] row;
+            while (null != (row = reader.readNext())) {
+                blackhole.consume(row);
+            }
+        }
+    }
+
+    @Benchmark
+    public void readCsvRowReader(final Blackhole blackhole) throws IOException {
+        try (CsvRowReader reader = new CsvRowReader(new InputStreamReader(new ByteArrayInputStream(csv), StandardCharsets.UTF_8))) {
+            String[] row;
+            while (null != (row = reader.readNext())) {
+                blackhole.consume(row);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<String[]> readFileStream() throws IOException, CsvIOException {
+        return CsvUtils.readFromCsvFile(new FileInputStream(csvFile), csvFile.getName(), 0, CsvRowReader.DEFAULT_SEPARATOR);
+    }
+
+    @Benchmark
+    public List<String[]> readFile() throws CsvIOException {
+        return CsvUtils.readFromCsvFile(csvFile);
+    }
+
+    @Benchmark
+    public int writeOpencsv() throws IOException {
+        final StringWriter out = new StringWriter(csv.length);
+
+        try (CSVWriter writer = new CSVWriter(out)) {
+            elements.forEach(writer::writeNext);
+        }
+
+        return out.getBuffer().length();
+    }
+
+    @Benchmark
+    public int writeCsvRowWriter() throws IOException {
+        final StringBuilder out = new StringBuilder(csv.length);
+
+        final CsvRowWriter writer = new CsvRowWriter(out);
+        for (String[] element : elements) {
+            writer.writeNext(element);
+        }
+
+        return out.length();
+    }
+}
@@ -0,0 +1,76 @@
+package com.diegocastroviadero.financemanager.benchmarks;
+
+import com.diegocastroviadero.financemanager.cryptoutils.CsvRowWriter;
+import com.diegocastroviadero.financemanager.cryptoutils.HashUtils;
+import com.diegocastroviadero.financemanager.cryptoutils.IntegrityMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashing of movements with {@link HashUtils}: the hash of the rows of plain files and the digests of the chunks of
+ * the encrypted files for each {@link IntegrityMode} with a digest
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashBenchmark {
+    @Param({"10000", "100000"})
+    private int rows;
+
+    private List<String[]> elements;
+    private byte[] csv;
+
+    @Setup
+    public void setUp() throws IOException {
+        elements = MovementRows.generate(rows);
+
+        final StringBuilder out = new StringBuilder();
+        final CsvRowWriter writer = new CsvRowWriter(out);
+
+        for (String[] element : elements) {
+            writer.writeNext(element);
+        }
+
+        csv = out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String getHash() throws IOException {
+        return HashUtils.getHash(elements);
+    }
+
+    @Benchmark
+    public byte[] digestChunkBytes() {
+        return digest(IntegrityMode.SHA256);
+    }
+
+    @Benchmark
+    public byte[] digestChunkColumns() {
+        return digest(IntegrityMode.SHA3_512_COLUMNS);
+    }
+
+    private byte[] digest(final IntegrityMode mode) {
+        final HashUtils.ChunkDigest digest = HashUtils.newChunkDigest(mode);
+
+        digest.update(csv);
+
+        return digest.digest();
+    }
+}
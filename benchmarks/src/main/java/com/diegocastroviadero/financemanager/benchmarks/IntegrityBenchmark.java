@@ -0,0 +1,76 @@
+package com.diegocastroviadero.financemanager.benchmarks;
+
+import com.diegocastroviadero.financemanager.cryptoutils.CsvCryptoUtils;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvText;
+import com.diegocastroviadero.financemanager.cryptoutils.EncryptionOptions;
+import com.diegocastroviadero.financemanager.cryptoutils.IntegrityMode;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read latency of an encrypted file for each {@link IntegrityMode}: GCM_ONLY is the cost of decrypting the file, the
+ * rest of the modes add the cost of digesting it. The key of the file is derived once (it is cached), so it does not
+ * take part in the measurement
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IntegrityBenchmark {
+    private static final char[] PASSWORD = "benchmark".toCharArray();
+
+    @Param({"10000", "100000"})
+    private int rows;
+
+    @Param({"GCM_ONLY", "SHA256", "SHA3_512_COLUMNS"})
+    private IntegrityMode integrityMode;
+
+    private File folder;
+    private File csvFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("integrity").toFile();
+        csvFile = new File(folder, "movements.csv");
+
+        final EncryptionOptions options = EncryptionOptions.builder()
+                .integrityMode(integrityMode)
+                .build();
+
+        CsvCryptoUtils.encryptToCsvFile(MovementRows.generate(rows), PASSWORD, csvFile, options);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(folder);
+    }
+
+    @Benchmark
+    public List<String[]> readRows() throws IOException {
+        return CsvCryptoUtils.decryptFromCsvFile(PASSWORD, csvFile);
+    }
+
+    @Benchmark
+    public CsvText readText() throws IOException {
+        return CsvCryptoUtils.decryptTextFromCsvFile(PASSWORD, csvFile);
+    }
+}
@@ -0,0 +1,54 @@
+package com.diegocastroviadero.financemanager.benchmarks;
+
+import com.diegocastroviadero.financemanager.cryptoutils.CsvSerializationUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Generator of rows looking like the ones of the movement files (index, bank, account id, account, date, concept and
+ * quantity), serialized as CsvSerializationUtils does
+ */
+public class MovementRows {
+    private static final String[] BANKS = {"ING", "KB", "BANKINTER"};
+    private static final String[] CONCEPTS = {
+            "Compra en MERCADONA %d",
+            "Recibo LUZ IBERDROLA %d",
+            "Transferencia recibida NÓMINA %d",
+            "Pago con tarjeta AMAZON EU SARL, %d",
+            "Bizum enviado a \"%d\"",
+            "Retirada cajero %d"
+    };
+
+    public static List<String[]> generate(final int numberOfRows) {
+        // fixed seed, so that every run uses the same rows
+        final Random random = new Random(1);
+
+        final UUID[] accountIds = new UUID[4];
+        for (int i = 0; i < accountIds.length; i++) {
+            accountIds[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+
+        final LocalDate firstDate = LocalDate.of(2011, 1, 1);
+        final List<String[]> rows = new ArrayList<>(numberOfRows);
+
+        for (int i = 0; i < numberOfRows; i++) {
+            final int account = random.nextInt(accountIds.length);
+
+            rows.add(new String[] {
+                    String.valueOf(i),
+                    BANKS[account % BANKS.length],
+                    accountIds[account].toString(),
+                    String.format("Cuenta %d", account),
+                    CsvSerializationUtils.serializeDateToCsv(firstDate.plusDays(random.nextInt(3650))),
+                    String.format(CONCEPTS[random.nextInt(CONCEPTS.length)], random.nextInt(100000)),
+                    String.valueOf(random.nextInt(200000) - 100000)
+            });
+        }
+
+        return rows;
+    }
+}
@@ -0,0 +1,70 @@
+package com.diegocastroviadero.financemanager.benchmarks;
+
+import com.diegocastroviadero.financemanager.app.model.AccountPosition;
+import com.diegocastroviadero.financemanager.app.model.Movement;
+import com.diegocastroviadero.financemanager.cryptoutils.exception.CsvCryptoIOException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Services of the app over a synthetic dbfiles folder (see {@link SyntheticDbFiles}): movements of an account since
+ * its balance date and its position, as the views get them. With a cold cache every call decrypts the monthly files,
+ * with a warm one their movements are already cached decoded and sorted
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+    @Param({"1", "10"})
+    private int years;
+
+    @Param({"cold", "warm"})
+    private String cache;
+
+    private SyntheticDbFiles dbFiles;
+
+    @Setup
+    public void setUp() throws IOException {
+        dbFiles = SyntheticDbFiles.create(years);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCache() {
+        if ("cold".equals(cache)) {
+            dbFiles.getCacheService().clearCache();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        dbFiles.delete();
+    }
+
+    @Benchmark
+    public List<Movement> getMovementsByAccountAndFromMonth() throws CsvCryptoIOException {
+        return dbFiles.getMovementService().getMovementsByAccountAndFromMonth(SyntheticDbFiles.PASSWORD, dbFiles.getAccount().getId(), dbFiles.getAccount().getBalanceDateYearMonth());
+    }
+
+    @Benchmark
+    public AccountPosition getAccountPosition() throws CsvCryptoIOException {
+        return dbFiles.getAccountPositionCalculator().getAccountPosition(SyntheticDbFiles.PASSWORD, dbFiles.getAccount());
+    }
+}
@@ -0,0 +1,177 @@
+package com.diegocastroviadero.financemanager.benchmarks;
+
+import com.diegocastroviadero.financemanager.cryptoutils.CsvFieldReader;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvFieldWriter;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvRowReader;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvRowWriter;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvSerializationUtils;
+import com.diegocastroviadero.financemanager.cryptoutils.RowCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding and encoding of movements: through arrays of fields (fromStringArray / toStringArray, as models did) vs
+ * straight from and into the csv reader and writer with a {@link RowCodec}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowCodecBenchmark {
+    private static final RowCodec<Movement> CODEC = RowCodec.of(Movement::toCsvRow, Movement::fromCsvRow);
+
+    @Param({"10000", "100000"})
+    private int rows;
+
+    private List<Movement> movements;
+    private char[] csv;
+
+    @Setup
+    public void setUp() throws IOException {
+        final StringBuilder out = new StringBuilder();
+        final CsvRowWriter writer = new CsvRowWriter(out);
+
+        for (String[] row : MovementRows.generate(rows)) {
+            writer.writeNext(row);
+        }
+
+        csv = out.toString().toCharArray();
+
+        movements = new ArrayList<>(rows);
+        try (CsvRowReader reader = new CsvRowReader(new CharArrayReader(csv))) {
+            String[] row;
+            while (null != (row = reader.readNext())) {
+                movements.add(Movement.fromStringArray(row));
+            }
+        }
+    }
+
+    @Benchmark
+    public void readStringArray(final Blackhole blackhole) throws IOException {
+        try (CsvRowReader reader = new CsvRowReader(new CharArrayReader(csv))) {
+            String[] row;
+            while (null != (row = reader.readNext())) {
+                blackhole.consume(Movement.fromStringArray(row));
+            }
+        }
+    }
+
+    @Benchmark
+    public void readRowCodec(final Blackhole blackhole) throws IOException {
+        try (CsvRowReader reader = new CsvRowReader(new CharArrayReader(csv))) {
+            Movement movement;
+            while (null != (movement = reader.readNext(CODEC))) {
+                blackhole.consume(movement);
+            }
+        }
+    }
+
+    @Benchmark
+    public int writeStringArray() throws IOException {
+        final StringBuilder out = new StringBuilder(csv.length);
+
+        final CsvRowWriter writer = new CsvRowWriter(out);
+        for (Movement movement : movements) {
+            writer.writeNext(movement.toStringArray());
+        }
+
+        return out.length();
+    }
+
+    @Benchmark
+    public int writeRowCodec() throws IOException {
+        final StringBuilder out = new StringBuilder(csv.length);
+
+        final CsvRowWriter writer = new CsvRowWriter(out);
+        for (Movement movement : movements) {
+            writer.write(movement, CODEC);
+        }
+
+        return out.length();
+    }
+
+    enum Bank {
+        ING, KB, BANKINTER
+    }
+
+    /**
+     * Same fields as the movements of the app
+     */
+    static class Movement {
+        private final Long index;
+        private final Bank bank;
+        private final UUID accountId;
+        private final String account;
+        private final LocalDate date;
+        private final String concept;
+        private final BigDecimal quantity;
+
+        Movement(final Long index, final Bank bank, final UUID accountId, final String account, final LocalDate date, final String concept, final BigDecimal quantity) {
+            this.index = index;
+            this.bank = bank;
+            this.accountId = accountId;
+            this.account = account;
+            this.date = date;
+            this.concept = concept;
+            this.quantity = quantity;
+        }
+
+        String[] toStringArray() {
+            return new String[] {
+                    CsvSerializationUtils.serializeLongToCsv(index),
+                    CsvSerializationUtils.serializeEnumToCsv(bank),
+                    CsvSerializationUtils.serializeUUIDToCsv(accountId),
+                    account,
+                    CsvSerializationUtils.serializeDateToCsv(date),
+                    concept,
+                    CsvSerializationUtils.serializeBigDecimalToCsv(quantity)
+            };
+        }
+
+        void toCsvRow(final CsvFieldWriter writer) {
+            writer.writeLong(index);
+            writer.writeEnum(bank);
+            writer.writeUUID(accountId);
+            writer.writeString(account);
+            writer.writeDate(date);
+            writer.writeString(concept);
+            writer.writeBigDecimal(quantity);
+        }
+
+        static Movement fromStringArray(final String[] rawData) {
+            return new Movement(
+                    CsvSerializationUtils.parseLongFromCsv(rawData[0]),
+                    CsvSerializationUtils.parseEnumFromCsv(rawData[1], Bank.class),
+                    CsvSerializationUtils.parseUUIDFromCsv(rawData[2]),
+                    rawData[3],
+                    CsvSerializationUtils.parseDateFromCsv(rawData[4]),
+                    rawData[5],
+                    CsvSerializationUtils.parseLongAsBigDecimalFromCsv(rawData[6]));
+        }
+
+        static Movement fromCsvRow(final CsvFieldReader reader) {
+            return new Movement(reader.readLong(), reader.readEnum(Bank.class), reader.readUUID(), reader.readString(), reader.readDate(), reader.readString(), reader.readBigDecimal());
+        }
+    }
+}
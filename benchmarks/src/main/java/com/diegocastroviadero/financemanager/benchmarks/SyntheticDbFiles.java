@@ -0,0 +1,139 @@
+package com.diegocastroviadero.financemanager.benchmarks;
+
+import com.diegocastroviadero.financemanager.app.configuration.BuildProperties;
+import com.diegocastroviadero.financemanager.app.configuration.CacheProperties;
+import com.diegocastroviadero.financemanager.app.configuration.PersistenceProperties;
+import com.diegocastroviadero.financemanager.app.model.Account;
+import com.diegocastroviadero.financemanager.app.model.AccountPurpose;
+import com.diegocastroviadero.financemanager.app.model.Bank;
+import com.diegocastroviadero.financemanager.app.model.Movement;
+import com.diegocastroviadero.financemanager.app.model.Scope;
+import com.diegocastroviadero.financemanager.app.services.CacheService;
+import com.diegocastroviadero.financemanager.app.services.DefaultAccountPositionCalculator;
+import com.diegocastroviadero.financemanager.app.services.DefaultMovementProcessor;
+import com.diegocastroviadero.financemanager.app.services.MovementProcessorFactory;
+import com.diegocastroviadero.financemanager.app.services.MovementService;
+import com.diegocastroviadero.financemanager.app.services.PersistencePropertiesService;
+import com.diegocastroviadero.financemanager.app.services.RowCodecService;
+import com.diegocastroviadero.financemanager.app.services.UserConfigService;
+import com.diegocastroviadero.financemanager.cryptoutils.exception.CsvCryptoIOException;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Services of the app wired by hand (without Spring) over a temporary dbfiles folder holding the movements of one
+ * account: a file per month over the given number of years, as the app persists them
+ */
+public class SyntheticDbFiles {
+    public static final char[] PASSWORD = "benchmark".toCharArray();
+
+    private static final String[] CONCEPTS = {
+            "Compra en MERCADONA %d",
+            "Recibo LUZ IBERDROLA %d",
+            "Transferencia recibida NÓMINA %d",
+            "Pago con tarjeta AMAZON EU SARL, %d",
+            "Bizum enviado a \"%d\"",
+            "Retirada cajero %d"
+    };
+
+    private final File basePath;
+    private final CacheService cacheService;
+    private final MovementService movementService;
+    private final DefaultAccountPositionCalculator accountPositionCalculator;
+    private final Account account;
+
+    private SyntheticDbFiles(final File basePath, final int years) throws CsvCryptoIOException {
+        this.basePath = basePath;
+
+        final PersistenceProperties.DbFilesProperties dbFilesProperties = new PersistenceProperties.DbFilesProperties();
+        dbFilesProperties.setBasePath(basePath.toPath());
+
+        final PersistenceProperties persistenceProperties = new PersistenceProperties();
+        persistenceProperties.setDbfiles(dbFilesProperties);
+
+        final UserConfigService userConfigService = new UserConfigService(new BuildProperties("benchmark", "20210101-0000"));
+
+        this.cacheService = new CacheService(new CacheProperties());
+        this.movementService = new MovementService(new PersistencePropertiesService(persistenceProperties, cacheService), cacheService, new RowCodecService(userConfigService));
+        this.accountPositionCalculator = new DefaultAccountPositionCalculator(new MovementProcessorFactory(List.of(new DefaultMovementProcessor())), movementService);
+
+        final LocalDate firstDate = YearMonth.now().minusYears(years).atDay(1);
+
+        this.account = Account.builder()
+                .bank(Bank.ING)
+                .id(new UUID(1L, 1L))
+                .accountNumber("ES00 0000 0000 0000 0000 0000")
+                .alias("Cuenta benchmark")
+                .purpose(AccountPurpose.EXPENSES)
+                .scope(Scope.PERSONAL)
+                .balanceDate(firstDate.minusDays(1))
+                .balance(BigDecimal.valueOf(100000))
+                .build();
+
+        movementService.persistMovements(PASSWORD, account.getId(), generateMovements(firstDate, LocalDate.now()));
+
+        cacheService.clearCache();
+    }
+
+    /**
+     * Creates a temporary dbfiles folder with the movements of the last given years
+     */
+    public static SyntheticDbFiles create(final int years) throws IOException {
+        return new SyntheticDbFiles(Files.createTempDirectory("dbfiles").toFile(), years);
+    }
+
+    public CacheService getCacheService() {
+        return cacheService;
+    }
+
+    public MovementService getMovementService() {
+        return movementService;
+    }
+
+    public DefaultAccountPositionCalculator getAccountPositionCalculator() {
+        return accountPositionCalculator;
+    }
+
+    public Account getAccount() {
+        return account;
+    }
+
+    public void delete() throws IOException {
+        FileUtils.deleteDirectory(basePath);
+    }
+
+    private List<Movement> generateMovements(final LocalDate from, final LocalDate to) {
+        // fixed seed, so that every run uses the same movements
+        final Random random = new Random(1);
+
+        final List<Movement> movements = new ArrayList<>();
+
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1L)) {
+            // a few movements a day, as an everyday account
+            final int movementsOfDay = random.nextInt(4);
+
+            for (int i = 0; i < movementsOfDay; i++) {
+                movements.add(Movement.builder()
+                        .bank(account.getBank())
+                        .accountId(account.getId())
+                        .account(account.getAccountNumber())
+                        .date(date)
+                        .concept(String.format(CONCEPTS[random.nextInt(CONCEPTS.length)], random.nextInt(100000)))
+                        .quantity(BigDecimal.valueOf(random.nextInt(20000) - 10000, 2))
+                        .build());
+            }
+        }
+
+        return movements;
+    }
+}
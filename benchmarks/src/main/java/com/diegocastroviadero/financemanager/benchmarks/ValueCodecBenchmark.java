@@ -0,0 +1,231 @@
+package com.diegocastroviadero.financemanager.benchmarks;
+
+import com.diegocastroviadero.financemanager.cryptoutils.CsvSerializationUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and formatting of single csv values: the hand written fast paths of {@link CsvSerializationUtils} vs the
+ * implementations they replaced (formatters, Long.parseLong, UUID.fromString and Enum.valueOf, with exceptions for
+ * invalid values). Uuids are still formatted with UUID.toString, which is already as fast as it gets. Times are per
+ * value.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OperationsPerInvocation(ValueCodecBenchmark.VALUES)
+public class ValueCodecBenchmark {
+    static final int VALUES = 1024;
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy/MM/dd");
+    private static final DateTimeFormatter DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss.SSS");
+    private static final ZoneId ZONE = ZoneId.of("Europe/Madrid");
+
+    private LocalDate[] dates;
+    private ZonedDateTime[] timestamps;
+    private BigDecimal[] decimals;
+    private TimeUnit[] enums;
+
+    private String[] rawDates;
+    private String[] rawTimestamps;
+    private String[] rawDecimals;
+    private String[] rawUUIDs;
+    private String[] rawEnums;
+    // one out of four values is not valid
+    private String[] rawInvalidLongs;
+
+    @Setup
+    public void setUp() {
+        // fixed seed, so that every run uses the same values
+        final Random random = new Random(1);
+
+        dates = new LocalDate[VALUES];
+        timestamps = new ZonedDateTime[VALUES];
+        decimals = new BigDecimal[VALUES];
+        enums = new TimeUnit[VALUES];
+
+        rawDates = new String[VALUES];
+        rawTimestamps = new String[VALUES];
+        rawDecimals = new String[VALUES];
+        rawUUIDs = new String[VALUES];
+        rawEnums = new String[VALUES];
+        rawInvalidLongs = new String[VALUES];
+
+        for (int i = 0; i < VALUES; i++) {
+            dates[i] = LocalDate.of(2011, 1, 1).plusDays(random.nextInt(3650));
+            timestamps[i] = LocalDateTime.of(dates[i], LocalTime.ofSecondOfDay(random.nextInt(86400)).withNano(random.nextInt(1000) * 1_000_000)).atZone(ZONE);
+            decimals[i] = BigDecimal.valueOf(random.nextInt(2000000) - 1000000, 2);
+            enums[i] = TimeUnit.values()[random.nextInt(TimeUnit.values().length)];
+
+            rawDates[i] = dates[i].format(DATE_FORMATTER);
+            rawTimestamps[i] = timestamps[i].format(DATETIME_FORMATTER);
+            rawDecimals[i] = decimals[i].unscaledValue().toString();
+            rawUUIDs[i] = new UUID(random.nextLong(), random.nextLong()).toString();
+            rawEnums[i] = enums[i].name();
+            rawInvalidLongs[i] = i % 4 == 0 ? rawDecimals[i] + "x" : rawDecimals[i];
+        }
+    }
+
+    @Benchmark
+    public void parseDateFormatter(final Blackhole blackhole) {
+        for (String rawDate : rawDates) {
+            blackhole.consume(CsvSerializationUtils.parseDateFromCsv(rawDate, DATE_FORMATTER));
+        }
+    }
+
+    @Benchmark
+    public void parseDate(final Blackhole blackhole) {
+        for (String rawDate : rawDates) {
+            blackhole.consume(CsvSerializationUtils.parseDateFromCsv(rawDate));
+        }
+    }
+
+    @Benchmark
+    public void formatDateFormatter(final Blackhole blackhole) {
+        for (LocalDate date : dates) {
+            blackhole.consume(CsvSerializationUtils.serializeDateToCsv(date, DATE_FORMATTER));
+        }
+    }
+
+    @Benchmark
+    public void formatDate(final Blackhole blackhole) {
+        for (LocalDate date : dates) {
+            blackhole.consume(CsvSerializationUtils.serializeDateToCsv(date));
+        }
+    }
+
+    @Benchmark
+    public void parseTimestampFormatter(final Blackhole blackhole) {
+        for (String rawTimestamp : rawTimestamps) {
+            blackhole.consume(CsvSerializationUtils.parseTimestampFromCsv(rawTimestamp, DATETIME_FORMATTER, ZONE));
+        }
+    }
+
+    @Benchmark
+    public void parseTimestamp(final Blackhole blackhole) {
+        for (String rawTimestamp : rawTimestamps) {
+            blackhole.consume(CsvSerializationUtils.parseTimestampFromCsv(rawTimestamp, ZONE));
+        }
+    }
+
+    @Benchmark
+    public void formatTimestampFormatter(final Blackhole blackhole) {
+        for (ZonedDateTime timestamp : timestamps) {
+            blackhole.consume(CsvSerializationUtils.serializeDateToCsv(timestamp, DATETIME_FORMATTER));
+        }
+    }
+
+    @Benchmark
+    public void formatTimestamp(final Blackhole blackhole) {
+        for (ZonedDateTime timestamp : timestamps) {
+            blackhole.consume(CsvSerializationUtils.serializeDateToCsv(timestamp));
+        }
+    }
+
+    @Benchmark
+    public void parseDecimalParseLongTwice(final Blackhole blackhole) {
+        for (String rawDecimal : rawDecimals) {
+            BigDecimal result = null;
+            try {
+                Long.parseLong(rawDecimal);
+                result = BigDecimal.valueOf(Long.parseLong(rawDecimal), 2);
+            } catch (Exception ignore) {
+            }
+
+            blackhole.consume(result);
+        }
+    }
+
+    @Benchmark
+    public void parseDecimal(final Blackhole blackhole) {
+        for (String rawDecimal : rawDecimals) {
+            blackhole.consume(CsvSerializationUtils.parseLongAsBigDecimalFromCsv(rawDecimal));
+        }
+    }
+
+    @Benchmark
+    public void formatDecimalBigInteger(final Blackhole blackhole) {
+        for (BigDecimal decimal : decimals) {
+            blackhole.consume(decimal.setScale(2).unscaledValue().toString());
+        }
+    }
+
+    @Benchmark
+    public void formatDecimal(final Blackhole blackhole) {
+        for (BigDecimal decimal : decimals) {
+            blackhole.consume(CsvSerializationUtils.serializeBigDecimalToCsv(decimal));
+        }
+    }
+
+    @Benchmark
+    public void parseInvalidLongsParseLong(final Blackhole blackhole) {
+        for (String rawLong : rawInvalidLongs) {
+            Long result = null;
+            try {
+                result = Long.parseLong(rawLong);
+            } catch (Exception ignore) {
+            }
+
+            blackhole.consume(result);
+        }
+    }
+
+    @Benchmark
+    public void parseInvalidLongs(final Blackhole blackhole) {
+        for (String rawLong : rawInvalidLongs) {
+            blackhole.consume(CsvSerializationUtils.parseLongFromCsv(rawLong));
+        }
+    }
+
+    @Benchmark
+    public void parseUUIDFromString(final Blackhole blackhole) {
+        for (String rawUUID : rawUUIDs) {
+            blackhole.consume(UUID.fromString(rawUUID));
+        }
+    }
+
+    @Benchmark
+    public void parseUUID(final Blackhole blackhole) {
+        for (String rawUUID : rawUUIDs) {
+            blackhole.consume(CsvSerializationUtils.parseUUIDFromCsv(rawUUID));
+        }
+    }
+
+    @Benchmark
+    public void parseEnumValueOf(final Blackhole blackhole) {
+        for (String rawEnum : rawEnums) {
+            blackhole.consume(Enum.valueOf(TimeUnit.class, rawEnum));
+        }
+    }
+
+    @Benchmark
+    public void parseEnum(final Blackhole blackhole) {
+        for (String rawEnum : rawEnums) {
+            blackhole.consume(CsvSerializationUtils.parseEnumFromCsv(rawEnum, TimeUnit.class));
+        }
+    }
+}
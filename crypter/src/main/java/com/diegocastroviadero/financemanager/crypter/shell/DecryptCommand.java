@@ -4,6 +4,7 @@ import com.diegocastroviadero.financemanager.crypter.model.CrypterContext;
 import com.diegocastroviadero.financemanager.crypter.utils.Constants.Extensions;
 import com.diegocastroviadero.financemanager.crypter.utils.Utils;
 import com.diegocastroviadero.financemanager.cryptoutils.CsvCryptoUtils;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvDecryptionResult;
 import com.diegocastroviadero.financemanager.cryptoutils.CsvUtils;
 import com.diegocastroviadero.financemanager.cryptoutils.exception.CsvCryptoIOException;
 import org.springframework.shell.standard.ShellComponent;
@@ -13,6 +14,7 @@ import org.springframework.shell.standard.ShellOption;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
@@ -47,16 +49,23 @@ public class DecryptCommand {
                 } else {
                     System.out.printf("%nDecrypting ...%n");
 
-                    Stream.of(csvEncryptedFiles).forEach(file -> {
-                        List<String[]> decryptedCsvElements = null;
+                    final List<CsvDecryptionResult> decryptionResults;
 
-                        try {
-                            decryptedCsvElements = CsvCryptoUtils.decryptFromCsvFile(encryptionPassword.get().toCharArray(), file, insecure);
-                        } catch (CsvCryptoIOException e) {
-                            System.out.printf("  - Not decrypted: %s (error while decrypting)%n", file.getName());
-                        }
+                    try {
+                        decryptionResults = CsvCryptoUtils.decryptAll(Arrays.asList(csvEncryptedFiles), encryptionPassword.get().toCharArray(), insecure, Runtime.getRuntime().availableProcessors());
+                    } catch (CsvCryptoIOException e) {
+                        System.out.printf("%nDecryption could not be done, it was interrupted%n");
+
+                        return "";
+                    }
 
-                        if (null != decryptedCsvElements) {
+                    decryptionResults.forEach(decryptionResult -> {
+                        final File file = decryptionResult.getFile();
+                        final List<String[]> decryptedCsvElements = decryptionResult.getElements();
+
+                        if (!decryptionResult.isSuccessful()) {
+                            System.out.printf("  - Not decrypted: %s (error while decrypting)%n", file.getName());
+                        } else {
                             if (decryptedCsvElements.isEmpty()) {
                                 CsvCryptoUtils.deleteEncryptedCsvFile(file);
 
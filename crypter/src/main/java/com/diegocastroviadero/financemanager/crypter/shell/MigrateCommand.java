@@ -0,0 +1,62 @@
+package com.diegocastroviadero.financemanager.crypter.shell;
+
+import com.diegocastroviadero.financemanager.crypter.model.CrypterContext;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvCryptoUtils;
+import com.diegocastroviadero.financemanager.cryptoutils.exception.CsvCryptoIOException;
+import com.diegocastroviadero.financemanager.cryptoutils.exception.WrongEncryptionPasswordException;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+
+import java.io.File;
+import java.util.List;
+import java.util.stream.Stream;
+
+@ShellComponent
+public class MigrateCommand {
+
+    @ShellMethod("Migrates encrypted csv files present in workdir from legacy format (with meta and hash files) to single-file container format")
+    public String migrate(
+            @ShellOption(arity = 0) boolean whatif
+    ) {
+        final File workdir = CrypterContext.getWorkdir().toFile();
+        final File[] csvLegacyEncryptedFiles = workdir.listFiles(CsvCryptoUtils::isLegacyEncryptedCsvFile);
+
+        if (null != csvLegacyEncryptedFiles && csvLegacyEncryptedFiles.length > 0) {
+            System.out.printf("Following files are being migrated:%n%n");
+
+            Stream.of(csvLegacyEncryptedFiles).forEach(file -> System.out.printf("  - %s%n", file.getName()));
+
+            if (whatif) {
+                System.out.printf("%nWhatIf activated, no files will be migrated%n");
+            } else {
+                String encryptionPassword = null;
+
+                try {
+                    encryptionPassword = CrypterContext.getEncryptionPassword();
+                } catch (Exception ignore) {
+                }
+
+                if (null == encryptionPassword) {
+                    System.out.printf("%nMigration could not be done, there was an error reading encryption password from file");
+                } else {
+                    System.out.printf("%nMigrating ...%n");
+
+                    try {
+                        final List<File> migratedFiles = CsvCryptoUtils.migrateToContainerFormat(encryptionPassword.toCharArray(), workdir);
+
+                        migratedFiles.forEach(file -> System.out.printf("  - Migrated: %s%n", file.getName()));
+                    } catch (WrongEncryptionPasswordException e) {
+                        System.out.printf("  - Not migrated: wrong encryption password%n");
+                    } catch (CsvCryptoIOException e) {
+                        System.out.printf("  - Not migrated: %s%n", e.getMessage());
+                    }
+                }
+            }
+
+            return "";
+        } else {
+            return "No legacy encrypted csv files to migrate";
+        }
+    }
+}
@@ -0,0 +1,519 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import com.diegocastroviadero.financemanager.cryptoutils.exception.CsvCryptoIOException;
+import com.diegocastroviadero.financemanager.cryptoutils.exception.RuntimeCsvCryptoIOException;
+import com.diegocastroviadero.financemanager.cryptoutils.exception.WrongEncryptionPasswordException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous variant of the read, write and delete operations of {@link CsvCryptoUtils}, so that callers do not
+ * block a thread while files are read, decrypted, encrypted or written.
+ *
+ * Files are read and written as a whole with an {@link AsynchronousFileChannel} and are decrypted or encrypted in
+ * memory (see {@link MemoryContainerChannel}) on a dedicated crypto executor. At most a given number of files are
+ * read, written or deleted at the same time, the rest of the operations wait in order until a previous one ends.
+ *
+ * Futures returned can be cancelled: an operation waiting for its turn is dropped and a pending read is aborted
+ * (its file is closed). A write is completed even if it is cancelled once the file has been opened. Files are written
+ * atomically, as their synchronous counterparts do (see {@link AtomicFileChannel}), and operations fail with a
+ * {@link CsvCryptoIOException} as they do.
+ */
+@Slf4j
+public class AsyncCsvCryptoUtils implements Closeable {
+    // files are read into a single array
+    private static final long MAX_FILE_SIZE_BYTE = Integer.MAX_VALUE - 8;
+
+    private final ExecutorService cryptoExecutor;
+    private final ExecutorService ioExecutor;
+    private final IoLimiter ioLimiter;
+
+    /**
+     * @param cryptoThreads number of threads decrypting and encrypting files
+     * @param maxConcurrentIo maximum number of files read, written or deleted at the same time
+     */
+    public AsyncCsvCryptoUtils(final int cryptoThreads, final int maxConcurrentIo) {
+        if (cryptoThreads < 1) {
+            throw new IllegalArgumentException(String.format("Crypto threads must be greater than zero but was %d", cryptoThreads));
+        }
+
+        if (maxConcurrentIo < 1) {
+            throw new IllegalArgumentException(String.format("Maximum concurrent I/O must be greater than zero but was %d", maxConcurrentIo));
+        }
+
+        this.cryptoExecutor = Executors.newFixedThreadPool(cryptoThreads, newThreadFactory("csvcrypto-crypto"));
+        this.ioExecutor = Executors.newFixedThreadPool(maxConcurrentIo, newThreadFactory("csvcrypto-io"));
+        this.ioLimiter = new IoLimiter(maxConcurrentIo);
+    }
+
+    AsyncCsvCryptoUtils(final ExecutorService cryptoExecutor, final ExecutorService ioExecutor, final int maxConcurrentIo) {
+        this.cryptoExecutor = cryptoExecutor;
+        this.ioExecutor = ioExecutor;
+        this.ioLimiter = new IoLimiter(maxConcurrentIo);
+    }
+
+    /**
+     * See {@link CsvCryptoUtils#decryptFromCsvFile(char[], File)}
+     */
+    public CompletableFuture<List<String[]>> decryptFromCsvFile(final char[] encryptionPassword, final File csvFile) {
+        return decrypt(csvFile, bytes -> {
+            try (ChunkedContainerReader reader = CsvCryptoUtils.openChunkedContainerReader(encryptionPassword, bytes, csvFile.getName())) {
+                if (null == reader) {
+                    return CsvCryptoUtils.decryptFromCsvFile(encryptionPassword, csvFile);
+                }
+
+                return CsvCryptoUtils.readRows(reader);
+            }
+        });
+    }
+
+    /**
+     * See {@link CsvCryptoUtils#decryptFromCsvFile(char[], File, RowCodec)}
+     */
+    public <T> CompletableFuture<List<T>> decryptFromCsvFile(final char[] encryptionPassword, final File csvFile, final RowCodec<T> codec) {
+        return decrypt(csvFile, bytes -> {
+            try (ChunkedContainerReader reader = CsvCryptoUtils.openChunkedContainerReader(encryptionPassword, bytes, csvFile.getName())) {
+                if (null == reader) {
+                    return CsvCryptoUtils.decryptFromCsvFile(encryptionPassword, csvFile, codec);
+                }
+
+                return CsvCryptoUtils.readRows(reader, codec);
+            }
+        });
+    }
+
+    /**
+     * See {@link CsvCryptoUtils#decryptTextFromCsvFile(char[], File)}
+     */
+    public CompletableFuture<CsvText> decryptTextFromCsvFile(final char[] encryptionPassword, final File csvFile) {
+        return decrypt(csvFile, bytes -> {
+            try (ChunkedContainerReader reader = CsvCryptoUtils.openChunkedContainerReader(encryptionPassword, bytes, csvFile.getName())) {
+                if (null == reader) {
+                    return CsvCryptoUtils.decryptTextFromCsvFile(encryptionPassword, csvFile);
+                }
+
+                return CsvCryptoUtils.readText(reader, csvFile.getName());
+            }
+        });
+    }
+
+    public CompletableFuture<Void> encryptToCsvFile(final List<String[]> elementsToPersist, final char[] encryptionPassword, final File csvFile) {
+        return encryptToCsvFile(elementsToPersist, encryptionPassword, csvFile, EncryptionOptions.DEFAULT);
+    }
+
+    /**
+     * See {@link CsvCryptoUtils#encryptToCsvFile(List, char[], File, EncryptionOptions)}
+     */
+    public CompletableFuture<Void> encryptToCsvFile(final List<String[]> elementsToPersist, final char[] encryptionPassword, final File csvFile, final EncryptionOptions options) {
+        return encrypt(csvFile, () -> CsvCryptoUtils.encryptToMemory(elementsToPersist, encryptionPassword, csvFile, options));
+    }
+
+    public <T> CompletableFuture<Void> encryptToCsvFile(final List<T> elementsToPersist, final RowCodec<T> codec, final char[] encryptionPassword, final File csvFile) {
+        return encryptToCsvFile(elementsToPersist, codec, encryptionPassword, csvFile, EncryptionOptions.DEFAULT);
+    }
+
+    /**
+     * See {@link CsvCryptoUtils#encryptToCsvFile(List, RowCodec, char[], File, EncryptionOptions)}
+     */
+    public <T> CompletableFuture<Void> encryptToCsvFile(final List<T> elementsToPersist, final RowCodec<T> codec, final char[] encryptionPassword, final File csvFile, final EncryptionOptions options) {
+        return encrypt(csvFile, () -> CsvCryptoUtils.encryptToMemory(elementsToPersist, codec, encryptionPassword, csvFile, options));
+    }
+
+    /**
+     * See {@link CsvCryptoUtils#deleteEncryptedCsvFile(File)}
+     */
+    public CompletableFuture<Void> deleteEncryptedCsvFile(final File csvFile) {
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        ioLimiter.submit(result, () -> CompletableFuture.runAsync(() -> CsvCryptoUtils.deleteEncryptedCsvFile(csvFile), ioExecutor))
+                .whenComplete((ignored, error) -> complete(result, null, error));
+
+        return result;
+    }
+
+    /**
+     * Stops the executors, operations not completed yet are abandoned. Operations waiting for their turn, and the ones
+     * requested from now on, fail with a {@link CsvCryptoIOException}
+     */
+    @Override
+    public void close() {
+        ioLimiter.close();
+        cryptoExecutor.shutdownNow();
+        ioExecutor.shutdownNow();
+    }
+
+    private <R> CompletableFuture<R> decrypt(final File csvFile, final Decryptor<R> decryptor) {
+        final CompletableFuture<R> result = new CompletableFuture<>();
+
+        ioLimiter.submit(result, () -> readFile(csvFile, result))
+                .whenComplete((bytes, error) -> {
+                    if (null != error) {
+                        complete(result, null, error);
+                    } else {
+                        runCrypto(result, () -> decryptor.decrypt(bytes));
+                    }
+                });
+
+        return result;
+    }
+
+    private CompletableFuture<Void> encrypt(final File csvFile, final Encryptor encryptor) {
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        final CompletableFuture<ByteBuffer> encrypted = new CompletableFuture<>();
+
+        runCrypto(encrypted, encryptor::encrypt);
+
+        // cancelling the result does not cancel the encryption by itself, but it is not run if it has not started yet
+        result.whenComplete((ignored, error) -> encrypted.cancel(false));
+
+        encrypted.whenComplete((content, error) -> {
+            if (null != error) {
+                complete(result, null, error);
+            } else {
+                ioLimiter.submit(result, () -> writeFile(csvFile, content))
+                        .whenComplete((written, writeError) -> complete(result, null, writeError));
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Runs a crypto task on the crypto executor to complete given future, unless it is already done (cancelled)
+     */
+    private <R> void runCrypto(final CompletableFuture<R> future, final CryptoTask<R> task) {
+        try {
+            cryptoExecutor.execute(() -> {
+                if (future.isDone()) {
+                    return;
+                }
+
+                try {
+                    future.complete(task.run());
+                } catch (Exception e) {
+                    complete(future, null, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(newClosedException(e));
+        }
+    }
+
+    /**
+     * Reads the whole content of given file, the file is closed if the owner of the read is cancelled
+     */
+    private CompletableFuture<byte[]> readFile(final File file, final CompletableFuture<?> owner) {
+        final CompletableFuture<byte[]> read = new CompletableFuture<>();
+        final AsynchronousFileChannel channel;
+        final long size;
+
+        try {
+            channel = AsynchronousFileChannel.open(file.toPath(), Set.of(StandardOpenOption.READ), ioExecutor);
+            size = channel.size();
+        } catch (IOException e) {
+            read.completeExceptionally(new CsvCryptoIOException(String.format("Error while opening encrypted file '%s'", file.getName()), e));
+
+            return read;
+        }
+
+        if (size > MAX_FILE_SIZE_BYTE) {
+            IOUtils.closeQuietly(channel);
+            read.completeExceptionally(new CsvCryptoIOException(String.format("Encrypted file '%s' is too big to be read asynchronously", file.getName())));
+
+            return read;
+        }
+
+        owner.whenComplete((ignored, error) -> {
+            if (owner.isCancelled()) {
+                IOUtils.closeQuietly(channel);
+            }
+        });
+
+        final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+
+        channel.read(buffer, 0L, buffer, new CompletionHandler<>() {
+            @Override
+            public void completed(final Integer bytesRead, final ByteBuffer attachment) {
+                if (bytesRead >= 0 && attachment.hasRemaining()) {
+                    channel.read(attachment, attachment.position(), attachment, this);
+
+                    return;
+                }
+
+                IOUtils.closeQuietly(channel);
+
+                // file may have been shortened after its size was taken
+                read.complete(attachment.hasRemaining() ? Arrays.copyOf(attachment.array(), attachment.position()) : attachment.array());
+            }
+
+            @Override
+            public void failed(final Throwable e, final ByteBuffer attachment) {
+                IOUtils.closeQuietly(channel);
+                read.completeExceptionally(new CsvCryptoIOException(String.format("Error while reading encrypted file '%s'", file.getName()), e));
+            }
+        });
+
+        return read;
+    }
+
+    /**
+     * Writes given content to the temporary file of given file, which replaces it once it has been forced to the
+     * storage device. Meta and hash files of a previous legacy version of the file are deleted once it is replaced
+     */
+    private CompletableFuture<Void> writeFile(final File file, final ByteBuffer content) {
+        final CompletableFuture<Void> written = new CompletableFuture<>();
+        final File temporaryFile;
+        final AsynchronousFileChannel channel;
+
+        try {
+            temporaryFile = AtomicFileChannel.createTemporaryFile(file);
+        } catch (IOException e) {
+            written.completeExceptionally(new CsvCryptoIOException(String.format("Error while creating encrypted file '%s'", file.getName()), e));
+
+            return written;
+        }
+
+        try {
+            channel = AsynchronousFileChannel.open(temporaryFile.toPath(), Set.of(StandardOpenOption.WRITE), ioExecutor);
+        } catch (IOException e) {
+            FileUtils.deleteQuietly(temporaryFile);
+            written.completeExceptionally(new CsvCryptoIOException(String.format("Error while creating encrypted file '%s'", file.getName()), e));
+
+            return written;
+        }
+
+        channel.write(content, 0L, content, new CompletionHandler<>() {
+            @Override
+            public void completed(final Integer bytesWritten, final ByteBuffer attachment) {
+                if (attachment.hasRemaining()) {
+                    channel.write(attachment, attachment.position(), attachment, this);
+
+                    return;
+                }
+
+                try {
+                    channel.force(true);
+                    channel.close();
+
+                    AtomicFileChannel.replace(temporaryFile, file);
+                } catch (IOException e) {
+                    failed(e, attachment);
+
+                    return;
+                }
+
+                // the file is not a legacy one anymore
+                CsvCryptoUtils.deleteLegacyFiles(file);
+
+                log.debug("Persisted {} bytes to file '{}' asynchronously", attachment.limit(), file.getName());
+
+                written.complete(null);
+            }
+
+            @Override
+            public void failed(final Throwable e, final ByteBuffer attachment) {
+                IOUtils.closeQuietly(channel);
+                FileUtils.deleteQuietly(temporaryFile);
+                written.completeExceptionally(new CsvCryptoIOException(String.format("Error while persisting elements to encrypted file '%s'", file.getName()), e));
+            }
+        });
+
+        return written;
+    }
+
+    /**
+     * Completes given future with the value or the error (unwrapped to the checked exception thrown by the
+     * synchronous operations), nothing is done if it is already done
+     */
+    private static <R> void complete(final CompletableFuture<R> future, final R value, final Throwable error) {
+        if (null == error) {
+            future.complete(value);
+
+            return;
+        }
+
+        Throwable cause = error instanceof CompletionException && null != error.getCause() ? error.getCause() : error;
+
+        if (cause instanceof RuntimeCsvCryptoIOException) {
+            cause = ((RuntimeCsvCryptoIOException) cause).toCheckedException();
+        }
+
+        future.completeExceptionally(cause);
+    }
+
+    private static CsvCryptoIOException newClosedException(final Throwable cause) {
+        return new CsvCryptoIOException("Asynchronous csv crypto utils have been closed", cause);
+    }
+
+    private static ThreadFactory newThreadFactory(final String prefix) {
+        final AtomicInteger threadNumber = new AtomicInteger();
+
+        return runnable -> {
+            final Thread thread = new Thread(runnable, prefix + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        };
+    }
+
+    @FunctionalInterface
+    private interface CryptoTask<R> {
+        R run() throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface Decryptor<R> {
+        /**
+         * @throws WrongEncryptionPasswordException if elements could not be decrypted with the given password
+         */
+        R decrypt(byte[] bytes) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Encryptor {
+        ByteBuffer encrypt() throws CsvCryptoIOException;
+    }
+
+    /**
+     * Limit of the I/O operations running at the same time, operations exceeding it wait in order for their turn
+     */
+    private class IoLimiter {
+        private final int maxConcurrentIo;
+        private final Queue<PendingOperation> pending = new ArrayDeque<>();
+        private int running;
+        private boolean closed;
+
+        IoLimiter(final int maxConcurrentIo) {
+            this.maxConcurrentIo = maxConcurrentIo;
+        }
+
+        /**
+         * Starts the operation (or queues it until there is room for it), unless the owner of the operation is done
+         * (cancelled) by the time it would start
+         */
+        <R> CompletableFuture<R> submit(final CompletableFuture<?> owner, final Supplier<CompletableFuture<R>> operation) {
+            final CompletableFuture<R> done = new CompletableFuture<>();
+
+            final Runnable start = () -> {
+                if (owner.isDone()) {
+                    done.cancel(false);
+                    release();
+
+                    return;
+                }
+
+                CompletableFuture<R> started;
+
+                try {
+                    started = operation.get();
+                } catch (RuntimeException e) {
+                    started = CompletableFuture.failedFuture(e);
+                }
+
+                started.whenComplete((value, error) -> {
+                    release();
+                    complete(done, value, error);
+                });
+            };
+
+            synchronized (this) {
+                if (closed) {
+                    done.completeExceptionally(newClosedException(null));
+
+                    return done;
+                }
+
+                if (running >= maxConcurrentIo) {
+                    pending.add(new PendingOperation(start, done));
+
+                    return done;
+                }
+
+                running++;
+            }
+
+            start.run();
+
+            return done;
+        }
+
+        /**
+         * Hands the slot of an operation that has ended over to the next pending one, pending operations that cannot
+         * be started anymore fail
+         */
+        private void release() {
+            while (true) {
+                final PendingOperation next;
+
+                synchronized (this) {
+                    next = pending.poll();
+
+                    if (null == next) {
+                        running--;
+
+                        return;
+                    }
+                }
+
+                try {
+                    ioExecutor.execute(next.start);
+
+                    return;
+                } catch (RejectedExecutionException e) {
+                    next.done.completeExceptionally(newClosedException(e));
+                }
+            }
+        }
+
+        /**
+         * Fails the pending operations, and the ones submitted from now on
+         */
+        void close() {
+            final List<PendingOperation> dropped;
+
+            synchronized (this) {
+                closed = true;
+                dropped = new ArrayList<>(pending);
+                pending.clear();
+            }
+
+            dropped.forEach(operation -> operation.done.completeExceptionally(newClosedException(null)));
+        }
+    }
+
+    /**
+     * Operation waiting for its turn, along with the future completed once it ends
+     */
+    private static class PendingOperation {
+        private final Runnable start;
+        private final CompletableFuture<?> done;
+
+        PendingOperation(final Runnable start, final CompletableFuture<?> done) {
+            this.start = start;
+            this.done = done;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Channel of a container file written atomically: bytes are written to a temporary sibling file (unique to the
+ * channel, so writers of the same file do not write over each other), which replaces the file when the channel is
+ * committed, once it has been forced to the storage device. The temporary file is deleted if
+ * the channel is closed without being committed, so readers either see the previous file or the complete new one,
+ * even if the process crashes while the file is being written.
+ *
+ * The folder of the file is forced after the file has been replaced, so that the rename itself is durable. Files
+ * written by a thread with an open {@link WriteBatch} leave that to the batch, which forces each folder only once.
+ */
+@Slf4j
+class AtomicFileChannel implements ContainerChannel {
+    private static final String TEMPORARY_EXTENSION = "writing";
+
+    private final File file;
+    private final File temporaryFile;
+    private final FileChannel channel;
+    private boolean committed;
+
+    private AtomicFileChannel(final File file, final File temporaryFile, final FileChannel channel) {
+        this.file = file;
+        this.temporaryFile = temporaryFile;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens a channel to write given file from scratch, the file is left as it is until the channel is committed
+     */
+    static AtomicFileChannel create(final File file) throws IOException {
+        final File temporaryFile = createTemporaryFile(file);
+
+        try {
+            return new AtomicFileChannel(file, temporaryFile, FileChannel.open(temporaryFile.toPath(), StandardOpenOption.WRITE));
+        } catch (IOException e) {
+            FileUtils.deleteQuietly(temporaryFile);
+
+            throw e;
+        }
+    }
+
+    /**
+     * Creates an empty sibling file where given file is written until it is complete
+     */
+    static File createTemporaryFile(final File file) throws IOException {
+        return createTemporaryFile(file, TEMPORARY_EXTENSION);
+    }
+
+    /**
+     * Creates an empty sibling file of given file with given extension, named after the file plus a random suffix so
+     * that it is not taken by any other writer of the file
+     */
+    static File createTemporaryFile(final File file, final String extension) throws IOException {
+        while (true) {
+            final String suffix = Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), Character.MAX_RADIX);
+            final File temporaryFile = new File(file.getParentFile(), String.format("%s.%s.%s", file.getName(), suffix, extension));
+
+            try {
+                Files.createFile(temporaryFile.toPath());
+
+                return temporaryFile;
+            } catch (FileAlreadyExistsException e) {
+                // taken by another writer, another suffix is tried
+            }
+        }
+    }
+
+    /**
+     * Replaces given file with its temporary file (already forced to the storage device) and forces the folder of the
+     * file, unless the current thread has an open {@link WriteBatch}
+     */
+    static void replace(final File temporaryFile, final File file) throws IOException {
+        Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        if (!WriteBatch.addReplacedFile(file)) {
+            forceFolder(file.getAbsoluteFile().getParentFile());
+        }
+    }
+
+    /**
+     * Forces the entries of given folder (renames included) to the storage device. Platforms where folders cannot be
+     * opened (Windows) already make renames durable, so failing to open the folder is ignored
+     */
+    static void forceFolder(final File folder) {
+        try (FileChannel folderChannel = FileChannel.open(folder.toPath(), StandardOpenOption.READ)) {
+            folderChannel.force(true);
+        } catch (IOException e) {
+            log.debug("Folder '{}' could not be forced: {}", folder, e.getMessage());
+        }
+    }
+
+    @Override
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public int read(final ByteBuffer dst, final long position) throws IOException {
+        return channel.read(dst, position);
+    }
+
+    @Override
+    public int write(final ByteBuffer src, final long position) throws IOException {
+        return channel.write(src, position);
+    }
+
+    /**
+     * Nothing is forced before the header is written, the file is not visible until it is committed
+     */
+    @Override
+    public void sync() {
+        // nothing to force yet
+    }
+
+    @Override
+    public void commit() throws IOException {
+        channel.force(true);
+        channel.close();
+
+        replace(temporaryFile, file);
+
+        committed = true;
+
+        // the file is not a legacy one anymore
+        CsvCryptoUtils.deleteLegacyFiles(file);
+    }
+
+    @Override
+    public void close() {
+        if (!committed) {
+            IOUtils.closeQuietly(channel);
+            FileUtils.deleteQuietly(temporaryFile);
+        }
+    }
+}
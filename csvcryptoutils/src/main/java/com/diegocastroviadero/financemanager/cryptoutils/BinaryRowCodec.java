@@ -0,0 +1,11 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+/**
+ * Binary encoding of the elements of a given type as rows of fields (see {@link BinaryRowWriter})
+ * @param <T> type of the elements
+ */
+public interface BinaryRowCodec<T> {
+    void write(T element, BinaryRowWriter writer);
+
+    T read(BinaryRowReader reader);
+}
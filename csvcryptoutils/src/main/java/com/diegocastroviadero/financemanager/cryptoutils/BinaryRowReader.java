@@ -0,0 +1,131 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reader of the fields of binary rows written by {@link BinaryRowWriter}, fields must be read in the same order they
+ * were written.
+ *
+ * Malformed input is reported with {@link IllegalStateException} (or {@link java.nio.BufferUnderflowException} when
+ * it is truncated).
+ */
+public class BinaryRowReader {
+    private static final int BIGDECIMAL_SCALE = 2;
+
+    private final ByteBuffer buffer;
+    private final List<String> enumDictionary = new ArrayList<>();
+    private final List<UUID> uuidDictionary = new ArrayList<>();
+
+    BinaryRowReader(final ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    boolean hasRemaining() {
+        return buffer.hasRemaining();
+    }
+
+    public Long readLong() {
+        final long v = readVarLong();
+
+        if (0L == v) {
+            return null;
+        }
+
+        final long zigzag = v - 1L;
+
+        return (zigzag >>> 1) ^ -(zigzag & 1L);
+    }
+
+    public LocalDate readDate() {
+        final Long epochDay = readLong();
+
+        return null == epochDay ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    public BigDecimal readBigDecimal() {
+        final Long unscaled = readLong();
+
+        return null == unscaled ? null : BigDecimal.valueOf(unscaled, BIGDECIMAL_SCALE);
+    }
+
+    public String readString() {
+        final long length = readVarLong();
+
+        if (0L == length) {
+            return null;
+        }
+
+        if (length - 1L > buffer.remaining()) {
+            throw new IllegalStateException(String.format("String of %d bytes exceeds the remaining %d bytes", length - 1L, buffer.remaining()));
+        }
+
+        final byte[] bytes = new byte[(int) (length - 1L)];
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public <E extends Enum<E>> E readEnum(final Class<E> enumType) {
+        final int code = readDictionaryCode(enumDictionary);
+
+        if (0 == code) {
+            return null;
+        }
+
+        if (code > enumDictionary.size()) {
+            enumDictionary.add(readString());
+        }
+
+        return Enum.valueOf(enumType, enumDictionary.get(code - 1));
+    }
+
+    public UUID readUUID() {
+        final int code = readDictionaryCode(uuidDictionary);
+
+        if (0 == code) {
+            return null;
+        }
+
+        if (code > uuidDictionary.size()) {
+            uuidDictionary.add(new UUID(buffer.getLong(), buffer.getLong()));
+        }
+
+        return uuidDictionary.get(code - 1);
+    }
+
+    /**
+     * Reads a dictionary code, which is either 0 (null), the code of a value already in the dictionary or the code of
+     * a new value (the next one)
+     */
+    private int readDictionaryCode(final List<?> dictionary) {
+        final long code = readVarLong();
+
+        if (code > dictionary.size() + 1L) {
+            throw new IllegalStateException(String.format("Dictionary code %d is not valid, dictionary has %d entries", code, dictionary.size()));
+        }
+
+        return (int) code;
+    }
+
+    private long readVarLong() {
+        long value = 0L;
+
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            final byte b = buffer.get();
+
+            value |= (long) (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IllegalStateException("Varint is longer than 10 bytes");
+    }
+}
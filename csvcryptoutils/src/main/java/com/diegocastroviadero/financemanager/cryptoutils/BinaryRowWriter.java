@@ -0,0 +1,123 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writer of the fields of binary rows (see {@link BinaryRowReader} for the reading counterpart).
+ *
+ * <ul>
+ *     <li>longs: zigzag varints (0 is null, so every value is shifted by one)</li>
+ *     <li>dates: longs with the epoch day</li>
+ *     <li>decimals: longs with the unscaled value (2 decimals, as {@link CsvSerializationUtils})</li>
+ *     <li>strings: varint length (0 is null, so every length is shifted by one) followed by UTF-8 bytes</li>
+ *     <li>enums and uuids: dictionary codes, the first occurrence of a value is followed by the value itself</li>
+ * </ul>
+ *
+ * Dictionaries are reset at the start of each chunk, so every chunk can be decoded on its own.
+ */
+public class BinaryRowWriter {
+    private static final int BIGDECIMAL_SCALE = 2;
+
+    private final ByteArrayOutputStream buffer;
+    private final Map<String, Integer> enumDictionary = new HashMap<>();
+    private final Map<UUID, Integer> uuidDictionary = new HashMap<>();
+
+    BinaryRowWriter(final ByteArrayOutputStream buffer) {
+        this.buffer = buffer;
+    }
+
+    void resetDictionaries() {
+        enumDictionary.clear();
+        uuidDictionary.clear();
+    }
+
+    public void writeLong(final Long data) {
+        if (null == data) {
+            writeVarLong(0L);
+        } else if (Long.MIN_VALUE == data) {
+            throw new IllegalArgumentException("Long.MIN_VALUE cannot be written as a binary field");
+        } else {
+            writeVarLong(((data << 1) ^ (data >> 63)) + 1L);
+        }
+    }
+
+    public void writeDate(final LocalDate data) {
+        writeLong(null == data ? null : data.toEpochDay());
+    }
+
+    public void writeBigDecimal(final BigDecimal data) {
+        writeLong(null == data ? null : data.setScale(BIGDECIMAL_SCALE).unscaledValue().longValueExact());
+    }
+
+    public void writeString(final String data) {
+        if (null == data) {
+            writeVarLong(0L);
+        } else {
+            final byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+
+            writeVarLong(bytes.length + 1L);
+            buffer.write(bytes, 0, bytes.length);
+        }
+    }
+
+    public <E extends Enum<E>> void writeEnum(final E data) {
+        if (null == data) {
+            writeVarLong(0L);
+        } else if (writeDictionaryCode(enumDictionary, data.name())) {
+            writeString(data.name());
+        }
+    }
+
+    public void writeUUID(final UUID data) {
+        if (null == data) {
+            writeVarLong(0L);
+        } else if (writeDictionaryCode(uuidDictionary, data)) {
+            final byte[] bytes = ByteBuffer.allocate(2 * Long.BYTES)
+                    .putLong(data.getMostSignificantBits())
+                    .putLong(data.getLeastSignificantBits())
+                    .array();
+
+            buffer.write(bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Writes the code of given value (its position in the dictionary plus one), adding it to the dictionary if it is
+     * not present yet (its code is then the size of the dictionary)
+     * @return whether the value has been added to the dictionary, so it has to be written after its code
+     */
+    private <T> boolean writeDictionaryCode(final Map<T, Integer> dictionary, final T value) {
+        final Integer code = dictionary.get(value);
+
+        if (null == code) {
+            final int newCode = dictionary.size() + 1;
+
+            dictionary.put(value, newCode);
+            writeVarLong(newCode);
+
+            return true;
+        } else {
+            writeVarLong(code);
+
+            return false;
+        }
+    }
+
+    private void writeVarLong(final long value) {
+        long v = value;
+
+        while ((v & ~0x7FL) != 0L) {
+            buffer.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+
+        buffer.write((int) v);
+    }
+}
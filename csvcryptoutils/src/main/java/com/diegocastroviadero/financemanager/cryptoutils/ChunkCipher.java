@@ -0,0 +1,96 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.nio.ByteBuffer;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+
+/**
+ * AES/GCM cipher of the chunks of a chunked encrypted csv container.
+ *
+ * The nonce of each chunk is the iv of the header with its last 4 bytes xored with the ordinal of the chunk. The
+ * additional data of each chunk is the authenticated data of the header followed by the ordinal of the chunk, whether
+ * it is the last one of its segment and its row count, so chunks cannot be reordered, dropped or truncated without
+ * being detected. Ordinals of chunks are never reused, not even when appending segments, so nonces are never reused
+ * either: the chunks of an append that was not committed are dropped and the container is encrypted with a new key
+ * before appending again.
+ *
+ * The cipher itself is the one of the current thread, taken from the {@link CryptoEngine} on every operation, so
+ * creating instances is cheap. Instances are not thread safe.
+ */
+class ChunkCipher {
+    private static final int TAG_LENGTH_BIT = 128;
+
+    private final CryptoEngine engine;
+    private final SecretKey key;
+    private final byte[] iv;
+    private final byte[] headerAuthenticatedData;
+
+    ChunkCipher(final SecretKey key, final ContainerHeader header) {
+        this.engine = CryptoEngine.getDefault();
+        this.key = key;
+        this.iv = header.getIv();
+        this.headerAuthenticatedData = header.getAuthenticatedData();
+    }
+
+    byte[] encrypt(final int ordinal, final boolean last, final int rowCount, final byte[] plaintext, final int length) {
+        try {
+            return engine.doFinal(init(Cipher.ENCRYPT_MODE, ordinal, last, rowCount), plaintext, length);
+        } catch (IllegalBlockSizeException | BadPaddingException e) {
+            // These exceptions should never be thrown because there is no padding when encrypting
+            throw new RuntimeException("This exception should not have been thrown", e);
+        }
+    }
+
+    /**
+     * Decrypts a chunk
+     * @throws AEADBadTagException if the chunk (or its position in the container) cannot be authenticated
+     */
+    byte[] decrypt(final int ordinal, final boolean last, final int rowCount, final byte[] ciphertext) throws AEADBadTagException {
+        try {
+            return engine.doFinal(init(Cipher.DECRYPT_MODE, ordinal, last, rowCount), ciphertext, ciphertext.length);
+        } catch (AEADBadTagException e) {
+            throw e;
+        } catch (IllegalBlockSizeException | BadPaddingException e) {
+            // These exceptions should never be thrown because there is no padding in GCM mode (tag errors are thrown as AEADBadTagException)
+            throw new RuntimeException("This exception should not have been thrown", e);
+        }
+    }
+
+    private Cipher init(final int mode, final int ordinal, final boolean last, final int rowCount) {
+        final Cipher cipher = engine.getGcmCipher();
+
+        try {
+            cipher.init(mode, key, new GCMParameterSpec(TAG_LENGTH_BIT, getNonce(iv, ordinal)));
+        } catch (InvalidKeyException | InvalidAlgorithmParameterException e) {
+            // These exceptions should never be thrown because key and nonce are right
+            throw new RuntimeException("This exception should not have been thrown", e);
+        }
+
+        cipher.updateAAD(headerAuthenticatedData);
+        cipher.updateAAD(ByteBuffer.allocate(Integer.BYTES + 1 + Integer.BYTES)
+                .putInt(ordinal)
+                .put(last ? (byte) 1 : (byte) 0)
+                .putInt(rowCount)
+                .array());
+
+        return cipher;
+    }
+
+    /**
+     * Returns the nonce of the chunk with given ordinal: given iv with its last 4 bytes xored with the ordinal
+     */
+    static byte[] getNonce(final byte[] iv, final int ordinal) {
+        final byte[] nonce = iv.clone();
+        final int counterOffset = nonce.length - Integer.BYTES;
+
+        ByteBuffer.wrap(nonce, counterOffset, Integer.BYTES).putInt(ByteBuffer.wrap(iv, counterOffset, Integer.BYTES).getInt() ^ ordinal);
+
+        return nonce;
+    }
+}
@@ -0,0 +1,367 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import com.diegocastroviadero.financemanager.cryptoutils.exception.CsvCryptoIOException;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.SecretKey;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reader of the chunks of a chunked encrypted csv container. Chunks can be read sequentially as a single stream or
+ * individually (random access), reading individual chunks is thread safe.
+ *
+ * When integrity is verified, the plaintext of every chunk read is digested (see {@link IntegrityMode}) and the
+ * digest of each segment is checked against the one stored in the container once all the chunks have been read (see
+ * {@link #checkIntegrity()}, the sequential stream checks it by itself when its end is reached).
+ */
+class ChunkedContainerReader implements Closeable {
+    // tag of the cipher included
+    private static final int MAX_DIGEST_LENGTH_BYTE = 64 + 16;
+
+    private final ContainerChannel channel;
+    private final ContainerHeader header;
+    private final ContainerIndex index;
+    private final SecretKey key;
+    private final String fileName;
+    private final IntegrityVerifier verifier;
+
+    ChunkedContainerReader(final ContainerChannel channel, final ContainerHeader header, final SecretKey key, final String fileName, final boolean verifyIntegrity) throws IOException {
+        this.channel = channel;
+        this.header = header;
+        this.index = ContainerIndex.read(channel, header, fileName);
+        this.key = key;
+        this.fileName = fileName;
+
+        if (header.isComplete() && header.getRowCount() != index.getRowCount()) {
+            throw new CsvCryptoIOException(String.format("Encrypted file '%s' should contain %d elements but its chunks contain %d", fileName, header.getRowCount(), index.getRowCount()));
+        }
+
+        final IntegrityMode integrityMode = header.getIntegrityMode();
+
+        if (null == integrityMode || (IntegrityMode.SHA3_512_COLUMNS == integrityMode && header.hasBinaryRows())) {
+            throw new CsvCryptoIOException(String.format("Encrypted file '%s' uses an unsupported integrity mode", fileName));
+        }
+
+        this.verifier = verifyIntegrity && IntegrityMode.GCM_ONLY != integrityMode ? new IntegrityVerifier(integrityMode) : null;
+    }
+
+    ContainerIndex getIndex() {
+        return index;
+    }
+
+    ChunkCipher newCipher() {
+        return new ChunkCipher(key, header);
+    }
+
+    /**
+     * Opens a stream with the plaintext of all the chunks, chunks are decrypted one by one as they are read. Closing
+     * the stream closes the reader
+     */
+    InputStream openSequentialStream() {
+        return new SequentialChunksInputStream();
+    }
+
+    /**
+     * Decrypts and parses the rows of a chunk
+     */
+    List<String[]> readRows(final ContainerIndex.Chunk chunk, final ChunkCipher cipher) throws CsvCryptoIOException {
+        // rows are parsed in place in the decoded chars of the chunk
+        final CharBuffer chars = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(decrypt(chunk, cipher)));
+
+        try (CsvRowReader reader = new CsvRowReader(chars.array(), chars.limit())) {
+            final List<String[]> rows = new ArrayList<>(chunk.getRowCount());
+
+            String[] row;
+            while (null != (row = reader.readNext())) {
+                rows.add(row);
+            }
+
+            if (rows.size() != chunk.getRowCount()) {
+                throw new CsvCryptoIOException(String.format("Chunk %d of encrypted file '%s' should contain %d elements but %d were read", chunk.getOrdinal(), fileName, chunk.getRowCount(), rows.size()));
+            }
+
+            return rows;
+        } catch (CsvCryptoIOException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new CsvCryptoIOException(String.format("Error while reading elements from encrypted file '%s'", fileName), e);
+        }
+    }
+
+    /**
+     * Decrypts the rows of a chunk and decodes them with given codec, straight from the decoded chars of the chunk
+     */
+    <T> List<T> readRows(final ContainerIndex.Chunk chunk, final ChunkCipher cipher, final RowCodec<T> codec) throws CsvCryptoIOException {
+        final CharBuffer chars = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(decrypt(chunk, cipher)));
+
+        try (CsvRowReader reader = new CsvRowReader(chars.array(), chars.limit())) {
+            final List<T> rows = new ArrayList<>(chunk.getRowCount());
+
+            while (rows.size() < chunk.getRowCount() && reader.nextRow()) {
+                rows.add(reader.readCurrent(codec));
+            }
+
+            if (rows.size() != chunk.getRowCount() || reader.nextRow()) {
+                throw new CsvCryptoIOException(String.format("Chunk %d of encrypted file '%s' should contain %d elements but %s were read", chunk.getOrdinal(), fileName, chunk.getRowCount(), rows.size() < chunk.getRowCount() ? rows.size() : "more"));
+            }
+
+            return rows;
+        } catch (CsvCryptoIOException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new CsvCryptoIOException(String.format("Error while reading elements from encrypted file '%s'", fileName), e);
+        }
+    }
+
+    /**
+     * Decrypts and decodes the binary rows of a chunk
+     */
+    <T> List<T> readBinaryRows(final ContainerIndex.Chunk chunk, final ChunkCipher cipher, final BinaryRowCodec<T> codec) throws CsvCryptoIOException {
+        final BinaryRowReader reader = new BinaryRowReader(ByteBuffer.wrap(decrypt(chunk, cipher)));
+        final List<T> rows = new ArrayList<>(chunk.getRowCount());
+
+        try {
+            for (int i = 0; i < chunk.getRowCount(); i++) {
+                rows.add(codec.read(reader));
+            }
+        } catch (RuntimeException e) {
+            throw new CsvCryptoIOException(String.format("Chunk %d of encrypted file '%s' has malformed binary rows", chunk.getOrdinal(), fileName), e);
+        }
+
+        if (reader.hasRemaining()) {
+            throw new CsvCryptoIOException(String.format("Chunk %d of encrypted file '%s' should contain %d elements but there are more", chunk.getOrdinal(), fileName, chunk.getRowCount()));
+        }
+
+        return rows;
+    }
+
+    /**
+     * Checks the digest of the chunks read against the one stored in the container, nothing is checked when the
+     * integrity is not verified or the container has no digest
+     * @throws IllegalStateException if not all the chunks have been read
+     * @throws CsvCryptoIOException if the digests do not match
+     */
+    void checkIntegrity() throws CsvCryptoIOException {
+        if (null != verifier) {
+            verifier.check();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private byte[] decrypt(final ContainerIndex.Chunk chunk, final ChunkCipher cipher) throws CsvCryptoIOException {
+        final ByteBuffer ciphertext = ByteBuffer.allocate(chunk.getLength());
+
+        try {
+            long position = chunk.getOffset();
+            while (ciphertext.hasRemaining()) {
+                final int read = channel.read(ciphertext, position);
+
+                if (read < 0) {
+                    throw new CsvCryptoIOException(String.format("Chunk %d of encrypted file '%s' is truncated", chunk.getOrdinal(), fileName));
+                }
+
+                position += read;
+            }
+        } catch (CsvCryptoIOException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new CsvCryptoIOException(String.format("Error while reading chunk %d of encrypted file '%s'", chunk.getOrdinal(), fileName), e);
+        }
+
+        final byte[] plaintext;
+        try {
+            plaintext = cipher.decrypt(chunk.getOrdinal(), index.isLast(chunk), chunk.getRowCount(), ciphertext.array());
+        } catch (AEADBadTagException e) {
+            throw new CsvCryptoIOException(String.format("Chunk %d of encrypted file '%s' could not be authenticated", chunk.getOrdinal(), fileName), e);
+        }
+
+        final byte[] chunkBytes = header.isCompressed() ? inflate(chunk, plaintext) : plaintext;
+
+        if (null != verifier) {
+            verifier.update(chunk.getOrdinal(), chunkBytes);
+        }
+
+        return chunkBytes;
+    }
+
+    /**
+     * Reads the digest of given segment, stored right after its last chunk
+     */
+    private byte[] readDigest(final ContainerIndex.Segment segment) throws CsvCryptoIOException {
+        final long offset = index.getDigestOffset(segment);
+        final int length = segment.getDigestLength();
+
+        if (length <= 0 || length > MAX_DIGEST_LENGTH_BYTE) {
+            throw new CsvCryptoIOException(String.format("Segment %d of encrypted file '%s' has no digest of its elements", segment.getOrdinal(), fileName));
+        }
+
+        final ByteBuffer ciphertext = ByteBuffer.allocate(length);
+
+        try {
+            long position = offset;
+            while (ciphertext.hasRemaining()) {
+                final int read = channel.read(ciphertext, position);
+
+                if (read < 0) {
+                    throw new CsvCryptoIOException(String.format("Digest of segment %d of encrypted file '%s' is truncated", segment.getOrdinal(), fileName));
+                }
+
+                position += read;
+            }
+        } catch (CsvCryptoIOException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new CsvCryptoIOException(String.format("Error while reading digest of encrypted file '%s'", fileName), e);
+        }
+
+        try {
+            return newCipher().decrypt(ChunkedContainerWriter.DIGEST_ORDINAL_FLAG | segment.getOrdinal(), true, ChunkedContainerWriter.DIGEST_ROW_COUNT, ciphertext.array());
+        } catch (AEADBadTagException e) {
+            throw new CsvCryptoIOException(String.format("Digest of segment %d of encrypted file '%s' could not be authenticated", segment.getOrdinal(), fileName), e);
+        }
+    }
+
+    private byte[] inflate(final ContainerIndex.Chunk chunk, final byte[] data) throws CsvCryptoIOException {
+        // a new inflater for each chunk, as chunks can be read concurrently
+        final Inflater inflater = new Inflater(true);
+
+        try {
+            inflater.setInput(data);
+
+            final ByteArrayOutputStream inflated = new ByteArrayOutputStream(data.length * 4);
+            final byte[] buffer = new byte[8192];
+
+            while (!inflater.finished()) {
+                final int length = inflater.inflate(buffer);
+
+                if (0 == length && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new CsvCryptoIOException(String.format("Chunk %d of encrypted file '%s' is not properly compressed", chunk.getOrdinal(), fileName));
+                }
+
+                inflated.write(buffer, 0, length);
+            }
+
+            return inflated.toByteArray();
+        } catch (DataFormatException e) {
+            throw new CsvCryptoIOException(String.format("Chunk %d of encrypted file '%s' is not properly compressed", chunk.getOrdinal(), fileName), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private class SequentialChunksInputStream extends InputStream {
+        private final ChunkCipher cipher = newCipher();
+
+        private int nextChunk = 0;
+        private ByteArrayInputStream current = new ByteArrayInputStream(new byte[0]);
+
+        @Override
+        public int read() throws IOException {
+            return nextChunkIfNeeded() ? current.read() : -1;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            return nextChunkIfNeeded() ? current.read(b, off, len) : -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            ChunkedContainerReader.this.close();
+        }
+
+        private boolean nextChunkIfNeeded() throws CsvCryptoIOException {
+            final List<ContainerIndex.Chunk> chunks = index.getChunks();
+
+            while (current.available() == 0 && nextChunk < chunks.size()) {
+                current = new ByteArrayInputStream(decrypt(chunks.get(nextChunk++), cipher));
+            }
+
+            if (current.available() == 0) {
+                checkIntegrity();
+
+                return false;
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * Digests the plaintext of the chunks in order, segment by segment. As chunks can be read in any order (even
+     * concurrently) the chunks read ahead of the next one to be digested are kept until it is read
+     */
+    private class IntegrityVerifier {
+        private final IntegrityMode integrityMode;
+        private final TreeMap<Integer, byte[]> readAhead = new TreeMap<>();
+        private final List<byte[]> segmentDigests = new ArrayList<>();
+
+        private HashUtils.ChunkDigest digest;
+        private int nextOrdinal = 0;
+        private boolean checked = false;
+
+        private IntegrityVerifier(final IntegrityMode integrityMode) {
+            this.integrityMode = integrityMode;
+            this.digest = HashUtils.newChunkDigest(integrityMode);
+        }
+
+        synchronized void update(final int ordinal, final byte[] chunkBytes) {
+            if (ordinal < nextOrdinal) {
+                // chunk already digested
+                return;
+            }
+
+            readAhead.put(ordinal, chunkBytes);
+
+            while (!readAhead.isEmpty() && readAhead.firstKey() == nextOrdinal) {
+                digest.update(readAhead.pollFirstEntry().getValue());
+
+                if (index.isLast(index.getChunks().get(nextOrdinal))) {
+                    segmentDigests.add(digest.digest());
+                    digest = HashUtils.newChunkDigest(integrityMode);
+                }
+
+                nextOrdinal++;
+            }
+        }
+
+        synchronized void check() throws CsvCryptoIOException {
+            if (checked) {
+                return;
+            }
+
+            if (nextOrdinal != index.getChunks().size()) {
+                throw new IllegalStateException(String.format("Integrity of encrypted file '%s' cannot be checked until all its chunks have been read", fileName));
+            }
+
+            for (ContainerIndex.Segment segment : index.getSegments()) {
+                if (!MessageDigest.isEqual(readDigest(segment), segmentDigests.get(segment.getOrdinal()))) {
+                    throw new CsvCryptoIOException(String.format("Integrity of elements from encrypted file '%s' could not be verified", fileName));
+                }
+            }
+
+            checked = true;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import com.diegocastroviadero.financemanager.cryptoutils.exception.CsvCryptoIOException;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.crypto.SecretKey;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+
+/**
+ * Sink of rows to be encrypted into a chunked encrypted container, rows are encrypted chunk by chunk as they are
+ * written (see {@link ChunkCipher}). Subclasses encode the rows into the current chunk.
+ *
+ * The container is complete only once the writer has been closed: closing it writes the last chunk, the digest of
+ * the chunks (see {@link IntegrityMode}), the chunk index and the row count and index offset of the header.
+ *
+ * A writer can also append rows to an existing container, as a new segment of chunks (see {@link ContainerIndex}).
+ * The chunks of the new segment and the new index are written after the current end of the file, so the container
+ * keeps its previous content until the row count and index offset of the header are updated when the writer is
+ * closed. The space of the previous index is not reclaimed until the container is compacted.
+ *
+ * Chunks and index are forced to the storage device before the header is updated, and the container is committed
+ * once the header has been written (see {@link ContainerChannel#commit()}). If writing any chunk or encoding any row
+ * fails, the container is not committed when the writer is closed. A writer whose elements could not all be written
+ * (e.g. an element failed to be encoded) is aborted instead of closed (see {@link #abort()}), so that the file is left
+ * as it was.
+ */
+@Slf4j
+abstract class ChunkedContainerWriter implements Closeable {
+    static final int CHUNK_SIZE_BYTE = 64 * 1024;
+
+    // digests are encrypted with ordinals that cannot be taken by any chunk, so that chunks keep being appended with
+    // unique nonces (see ChunkCipher)
+    static final int DIGEST_ORDINAL_FLAG = Integer.MIN_VALUE;
+
+    // row count authenticated along with the digest of a segment, so that it cannot be taken for a chunk
+    static final int DIGEST_ROW_COUNT = -1;
+
+    private final ContainerChannel channel;
+    private final File csvFile;
+
+    private final ChunkCipher cipher;
+    private final ContainerIndex index;
+    private final Deflater deflater;
+    private final HashUtils.ChunkDigest digest;
+    private final long initialRowCount;
+
+    private long position;
+    private long rowCount;
+    private int chunkRowCount;
+    private boolean closed;
+    private boolean failed;
+
+    ChunkedContainerWriter(final ContainerChannel channel, final ContainerHeader header, final SecretKey key, final File csvFile, final EncryptionOptions options) {
+        this(channel, header, key, csvFile, options, new ContainerIndex(), header.getLength());
+    }
+
+    /**
+     * Writer appending a new segment to the container with given header and index, after given position (the end of
+     * the file)
+     */
+    ChunkedContainerWriter(final ContainerChannel channel, final ContainerHeader header, final SecretKey key, final File csvFile, final EncryptionOptions options, final ContainerIndex index, final long position) {
+        this.channel = channel;
+        this.csvFile = csvFile;
+        this.cipher = new ChunkCipher(key, header);
+        this.index = index;
+        this.deflater = header.isCompressed() ? new Deflater(options.getCompressionLevel(), true) : null;
+        this.digest = IntegrityMode.GCM_ONLY == header.getIntegrityMode() ? null : HashUtils.newChunkDigest(header.getIntegrityMode());
+        this.initialRowCount = index.getRowCount();
+        this.position = position;
+        this.rowCount = initialRowCount;
+    }
+
+    /**
+     * Returns the (approximate) size of the encoded rows of the current chunk
+     */
+    protected abstract int getChunkSize();
+
+    /**
+     * Returns the encoded rows of the current chunk
+     */
+    protected abstract byte[] getChunkBytes();
+
+    /**
+     * Discards the encoded rows of the current chunk, so that a new chunk is started
+     */
+    protected abstract void resetChunk();
+
+    /**
+     * Returns the number of rows of the container, the ones it already had when appending included
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    protected void checkNotClosed() {
+        if (closed) {
+            throw new IllegalStateException(String.format("Writer of encrypted file '%s' is already closed", csvFile.getName()));
+        }
+    }
+
+    /**
+     * Accounts for a row just encoded into the current chunk, writing the chunk if it is full
+     */
+    protected void onRowWritten() throws CsvCryptoIOException {
+        rowCount++;
+        chunkRowCount++;
+
+        if (getChunkSize() >= CHUNK_SIZE_BYTE) {
+            writeChunk(false);
+        }
+    }
+
+    /**
+     * Fails the writer because a row could not be encoded, so that the container is not committed when it is closed
+     */
+    protected void onRowFailed() {
+        failed = true;
+    }
+
+    @Override
+    public void close() throws CsvCryptoIOException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        try (ContainerChannel c = channel) {
+            if (failed) {
+                throw new CsvCryptoIOException(String.format("Encrypted file '%s' was not persisted because writing its elements failed", csvFile.getName()));
+            }
+
+            if (index.getChunks().size() > 0 && rowCount == initialRowCount) {
+                // nothing has been appended, container is left as it is
+                return;
+            }
+
+            // last chunk of the segment is always written (even if empty) so that a truncated container can be detected
+            writeChunk(true);
+
+            index.endSegment(null == digest ? 0 : writeDigest());
+            index.write(c, position);
+
+            // header must not reference an index that may not have reached the storage device yet
+            c.sync();
+            c.write(ByteBuffer.allocate(2 * Long.BYTES).putLong(rowCount).putLong(position).flip(), ContainerHeader.ROW_COUNT_OFFSET);
+            c.commit();
+
+            log.debug("Persisted {} elements to file '{}', which has {} elements in {} chunks and {} segments", rowCount - initialRowCount, csvFile.getName(), rowCount, index.getChunks().size(), index.getSegments().size());
+        } catch (CsvCryptoIOException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new CsvCryptoIOException(String.format("Error while persisting elements to encrypted file '%s'", csvFile), e);
+        } finally {
+            if (null != deflater) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Closes the writer without committing the container, so that the file is left as it was before the writer was
+     * opened: a new file is not created and the chunks appended are not referenced by the header
+     */
+    public void abort() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Error while aborting the writer of encrypted file '{}'", csvFile.getName(), e);
+        } finally {
+            if (null != deflater) {
+                deflater.end();
+            }
+        }
+
+        log.debug("Aborted the writer of file '{}', elements were not persisted", csvFile.getName());
+    }
+
+    private void writeChunk(final boolean last) throws CsvCryptoIOException {
+        final byte[] chunkBytes = getChunkBytes();
+
+        if (null != digest) {
+            digest.update(chunkBytes);
+        }
+
+        final byte[] plaintext = null == deflater ? chunkBytes : deflate(chunkBytes);
+        final int ordinal = index.getChunks().size();
+
+        final byte[] ciphertext = cipher.encrypt(ordinal, last, chunkRowCount, plaintext, plaintext.length);
+
+        write(ciphertext);
+
+        index.add(ContainerIndex.Chunk.builder()
+                .ordinal(ordinal)
+                .offset(position)
+                .length(ciphertext.length)
+                .firstRow(rowCount - chunkRowCount)
+                .rowCount(chunkRowCount)
+                .build());
+
+        position += ciphertext.length;
+        chunkRowCount = 0;
+
+        resetChunk();
+    }
+
+    /**
+     * Writes the digest of the chunks of the segment, encrypted with the ordinal of the segment (flagged as a digest)
+     * and no rows. Returns the length of the encrypted digest
+     */
+    private int writeDigest() throws CsvCryptoIOException {
+        final byte[] segmentDigest = digest.digest();
+        final byte[] ciphertext = cipher.encrypt(DIGEST_ORDINAL_FLAG | index.getSegments().size(), true, DIGEST_ROW_COUNT, segmentDigest, segmentDigest.length);
+
+        write(ciphertext);
+
+        position += ciphertext.length;
+
+        return ciphertext.length;
+    }
+
+    private void write(final byte[] ciphertext) throws CsvCryptoIOException {
+        try {
+            final ByteBuffer buffer = ByteBuffer.wrap(ciphertext);
+
+            long p = position;
+            while (buffer.hasRemaining()) {
+                p += channel.write(buffer, p);
+            }
+        } catch (IOException e) {
+            failed = true;
+
+            throw new CsvCryptoIOException(String.format("Error while persisting elements to encrypted file '%s'", csvFile), e);
+        }
+    }
+
+    private byte[] deflate(final byte[] data) {
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2 + 64);
+        final byte[] buffer = new byte[8192];
+
+        while (!deflater.finished()) {
+            compressed.write(buffer, 0, deflater.deflate(buffer));
+        }
+
+        return compressed.toByteArray();
+    }
+}
@@ -0,0 +1,76 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Bytes of an encrypted container, read and written at given positions: a file or a buffer in memory (see
+ * {@link MemoryContainerChannel}). Reads at given positions are thread safe.
+ */
+interface ContainerChannel extends Closeable {
+    long size() throws IOException;
+
+    /**
+     * Reads bytes starting at given position, returns the number of bytes read or -1 if position is at the end
+     */
+    int read(ByteBuffer dst, long position) throws IOException;
+
+    /**
+     * Writes bytes starting at given position, returns the number of bytes written
+     */
+    int write(ByteBuffer src, long position) throws IOException;
+
+    /**
+     * Forces the bytes written so far to the storage device, before the header of the container is updated to
+     * reference them
+     */
+    default void sync() throws IOException {
+        // nothing to force by default
+    }
+
+    /**
+     * Makes the container durable once it is complete, the channel is closed afterwards (see {@link AtomicFileChannel})
+     */
+    default void commit() throws IOException {
+        // nothing to commit by default
+    }
+
+    /**
+     * Channel of a file written in place (elements appended to it), or only read
+     */
+    static ContainerChannel of(final FileChannel channel) {
+        return new ContainerChannel() {
+            @Override
+            public long size() throws IOException {
+                return channel.size();
+            }
+
+            @Override
+            public int read(final ByteBuffer dst, final long position) throws IOException {
+                return channel.read(dst, position);
+            }
+
+            @Override
+            public int write(final ByteBuffer src, final long position) throws IOException {
+                return channel.write(src, position);
+            }
+
+            @Override
+            public void sync() throws IOException {
+                channel.force(true);
+            }
+
+            @Override
+            public void commit() throws IOException {
+                channel.force(true);
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+}
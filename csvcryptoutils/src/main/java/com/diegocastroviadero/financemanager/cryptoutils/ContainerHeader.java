@@ -0,0 +1,241 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import com.diegocastroviadero.financemanager.cryptoutils.exception.CsvCryptoIOException;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Fixed binary header of the single-file encrypted csv container.
+ *
+ * <pre>
+ * magic              4  'F' 'M' 'E' 'C'
+ * version            1
+ * flags              1  (bit 0: rows are binary, see {@link BinaryRowWriter}, instead of csv;
+ *                          bit 1: chunks are deflated before being encrypted;
+ *                          bits 2-3: integrity mode, see {@link IntegrityMode})
+ * kdf algorithm      1  (1 = PBKDF2WithHmacSHA256)
+ * kdf iterations     4
+ * store salt        16
+ * wrapped master key 40
+ * wrapped data key  40
+ * key check value   16  (of the key derived from the password and the store salt)
+ * iv                12
+ * row count          8  (written once all the rows have been encrypted)
+ * index offset       8  (version 2, written once all the rows have been encrypted)
+ * </pre>
+ *
+ * Version 1: the header is followed by a single AES/GCM ciphertext of all the rows.
+ *
+ * Version 2: the header is followed by segments of independently authenticated chunks of rows (see
+ * {@link ChunkCipher}), each of them followed by the encrypted digest of its chunks when the integrity mode has one,
+ * and by the index of the chunks, placed at index offset (see {@link ContainerIndex}).
+ *
+ * All the fields but the ones written once all the rows have been encrypted are authenticated as additional data of
+ * the ciphertext, the row count is checked against the rows actually read.
+ */
+@Builder
+@Getter
+class ContainerHeader {
+    static final byte VERSION_SINGLE_STREAM = 1;
+    static final byte VERSION_CHUNKED = 2;
+    static final byte KDF_PBKDF2_HMAC_SHA256 = 1;
+    static final long INCOMPLETE_ROW_COUNT = -1L;
+    static final long INCOMPLETE_INDEX_OFFSET = -1L;
+
+    static final byte FLAG_BINARY_ROWS = 0x01;
+    static final byte FLAG_DEFLATE = 0x02;
+    static final byte FLAG_INTEGRITY_MASK = 0x0C;
+    static final int FLAG_INTEGRITY_SHIFT = 2;
+
+    private static final byte[] MAGIC = new byte[] {'F', 'M', 'E', 'C'};
+    static final int IV_LENGTH_BYTE = 12;
+
+    static final int ROW_COUNT_OFFSET = MAGIC.length + 1 + 1 + 1 + 4 + MasterKeyStore.SALT_LENGTH_BYTE
+            + 2 * MasterKeyStore.WRAPPED_KEY_LENGTH_BYTE + CryptoUtils.KEY_CHECK_VALUE_LENGTH_BYTE + IV_LENGTH_BYTE;
+    static final int INDEX_OFFSET_OFFSET = ROW_COUNT_OFFSET + 8;
+
+    private static final int SINGLE_STREAM_LENGTH_BYTE = INDEX_OFFSET_OFFSET;
+    private static final int CHUNKED_LENGTH_BYTE = INDEX_OFFSET_OFFSET + 8;
+
+    private final byte version;
+    private final byte flags;
+    private final byte kdfAlgorithm;
+    private final int kdfIterations;
+    private final byte[] storeSalt;
+    private final byte[] wrappedMasterKey;
+    private final byte[] wrappedDataKey;
+    private final byte[] keyCheckValue;
+    private final byte[] iv;
+    private final long rowCount;
+    private final long indexOffset;
+
+    int getLength() {
+        return getLength(version);
+    }
+
+    boolean isChunked() {
+        return VERSION_CHUNKED == version;
+    }
+
+    boolean hasBinaryRows() {
+        return (flags & FLAG_BINARY_ROWS) != 0;
+    }
+
+    boolean isCompressed() {
+        return (flags & FLAG_DEFLATE) != 0;
+    }
+
+    /**
+     * Returns the integrity mode of the container, or null if it is not supported by this version
+     */
+    IntegrityMode getIntegrityMode() {
+        return IntegrityMode.fromCode((flags & FLAG_INTEGRITY_MASK) >> FLAG_INTEGRITY_SHIFT);
+    }
+
+    byte[] toBytes() {
+        final ByteBuffer header = ByteBuffer.allocate(getLength())
+                .put(MAGIC)
+                .put(version)
+                .put(flags)
+                .put(kdfAlgorithm)
+                .putInt(kdfIterations)
+                .put(storeSalt)
+                .put(wrappedMasterKey)
+                .put(wrappedDataKey)
+                .put(keyCheckValue)
+                .put(iv)
+                .putLong(rowCount);
+
+        if (isChunked()) {
+            header.putLong(indexOffset);
+        }
+
+        return header.array();
+    }
+
+    /**
+     * Returns the header fields authenticated as additional data of the ciphertext (all of them but the row count)
+     */
+    byte[] getAuthenticatedData() {
+        return Arrays.copyOf(toBytes(), ROW_COUNT_OFFSET);
+    }
+
+    boolean isComplete() {
+        return INCOMPLETE_ROW_COUNT != rowCount;
+    }
+
+    /**
+     * Returns whether given file starts with the magic of the container
+     */
+    static boolean isContainer(final File file) {
+        if (!file.isFile() || file.length() < SINGLE_STREAM_LENGTH_BYTE) {
+            return false;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // keep reading until magic is full or end is reached
+            }
+
+            return Arrays.equals(MAGIC, magic.array());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns whether given bytes start with the magic of the container
+     */
+    static boolean isContainer(final byte[] bytes) {
+        return bytes.length >= SINGLE_STREAM_LENGTH_BYTE && Arrays.equals(MAGIC, Arrays.copyOf(bytes, MAGIC.length));
+    }
+
+    /**
+     * Reads the header from the current position of the channel, leaving it positioned at the start of the ciphertext
+     */
+    static ContainerHeader read(final ReadableByteChannel channel, final String fileName) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(CHUNKED_LENGTH_BYTE);
+        header.limit(MAGIC.length + 1);
+
+        readFully(channel, header, fileName);
+
+        // magic and version are read first, as the length of the header depends on the version
+        final byte[] magic = Arrays.copyOf(header.array(), MAGIC.length);
+
+        if (!Arrays.equals(MAGIC, magic)) {
+            throw new CsvCryptoIOException(String.format("File '%s' is not an encrypted csv container", fileName));
+        }
+
+        final byte version = header.get(MAGIC.length);
+
+        if (VERSION_SINGLE_STREAM != version && VERSION_CHUNKED != version) {
+            throw new CsvCryptoIOException(String.format("Encrypted csv container '%s' has unsupported version %d", fileName, version));
+        }
+
+        header.limit(getLength(version));
+
+        readFully(channel, header, fileName);
+
+        header.flip();
+        header.position(MAGIC.length + 1);
+
+        final byte flags = header.get();
+        final byte kdfAlgorithm = header.get();
+        final int kdfIterations = header.getInt();
+
+        final byte[] storeSalt = new byte[MasterKeyStore.SALT_LENGTH_BYTE];
+        final byte[] wrappedMasterKey = new byte[MasterKeyStore.WRAPPED_KEY_LENGTH_BYTE];
+        final byte[] wrappedDataKey = new byte[MasterKeyStore.WRAPPED_KEY_LENGTH_BYTE];
+        final byte[] keyCheckValue = new byte[CryptoUtils.KEY_CHECK_VALUE_LENGTH_BYTE];
+        final byte[] iv = new byte[IV_LENGTH_BYTE];
+
+        header.get(storeSalt);
+        header.get(wrappedMasterKey);
+        header.get(wrappedDataKey);
+        header.get(keyCheckValue);
+        header.get(iv);
+
+        final long rowCount = header.getLong();
+        final long indexOffset = VERSION_CHUNKED == version ? header.getLong() : 0L;
+
+        if (KDF_PBKDF2_HMAC_SHA256 != kdfAlgorithm || kdfIterations < CryptoEngine.MIN_KDF_ITERATIONS) {
+            throw new CsvCryptoIOException(String.format("Encrypted csv container '%s' uses unsupported key derivation (%d, %d iterations)", fileName, kdfAlgorithm, kdfIterations));
+        }
+
+        return ContainerHeader.builder()
+                .version(version)
+                .flags(flags)
+                .kdfAlgorithm(kdfAlgorithm)
+                .kdfIterations(kdfIterations)
+                .storeSalt(storeSalt)
+                .wrappedMasterKey(wrappedMasterKey)
+                .wrappedDataKey(wrappedDataKey)
+                .keyCheckValue(keyCheckValue)
+                .iv(iv)
+                .rowCount(rowCount)
+                .indexOffset(indexOffset)
+                .build();
+    }
+
+    private static int getLength(final byte version) {
+        return VERSION_CHUNKED == version ? CHUNKED_LENGTH_BYTE : SINGLE_STREAM_LENGTH_BYTE;
+    }
+
+    private static void readFully(final ReadableByteChannel channel, final ByteBuffer buffer, final String fileName) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new CsvCryptoIOException(String.format("File '%s' is too short to be an encrypted csv container", fileName));
+            }
+        }
+    }
+}
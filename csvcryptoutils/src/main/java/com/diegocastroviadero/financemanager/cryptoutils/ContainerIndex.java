@@ -0,0 +1,294 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import com.diegocastroviadero.financemanager.cryptoutils.exception.CsvCryptoIOException;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Index of the chunks of a chunked encrypted csv container, placed after the last chunk.
+ *
+ * <pre>
+ * chunk count     4
+ * per chunk:
+ *   offset        8
+ *   length        4  (of the ciphertext, tag included)
+ *   first row     8
+ *   row count     4
+ * segment count   4
+ * per segment:
+ *   last chunk    4  (ordinal)
+ *   digest length 4  (of the encrypted digest placed right after the last chunk, 0 if there is none)
+ * </pre>
+ *
+ * Chunks are grouped in segments, a new segment is added each time rows are appended to the container (see
+ * {@link ChunkedContainerWriter}). The last chunk of each segment is authenticated as such, so that a segment cannot
+ * be truncated without being detected. Indexes written before segments existed have no segments, all their chunks
+ * belong to a single segment.
+ *
+ * The index ends the container once it is committed. Any bytes after it are chunks of an append that was not
+ * committed, they are ignored when the index has segments (and dropped before appending again).
+ *
+ * The index is not authenticated by itself: ordinal, position and row count of each chunk are authenticated as
+ * additional data of the chunk (see {@link ChunkCipher}).
+ */
+class ContainerIndex {
+    private static final int ENTRY_LENGTH_BYTE = 8 + 4 + 8 + 4;
+    private static final int SEGMENT_LENGTH_BYTE = 4 + 4;
+
+    private final List<Chunk> chunks;
+    private final List<Segment> segments;
+    private final int length;
+
+    ContainerIndex() {
+        this(new ArrayList<>(), new ArrayList<>(), 0);
+    }
+
+    private ContainerIndex(final List<Chunk> chunks, final List<Segment> segments, final int length) {
+        this.chunks = chunks;
+        this.segments = segments;
+        this.length = length;
+    }
+
+    void add(final Chunk chunk) {
+        chunks.add(chunk);
+    }
+
+    /**
+     * Ends the current segment at the last chunk added
+     */
+    void endSegment(final int digestLength) {
+        segments.add(Segment.builder()
+                .ordinal(segments.size())
+                .lastChunk(chunks.size() - 1)
+                .digestLength(digestLength)
+                .build());
+    }
+
+    List<Chunk> getChunks() {
+        return Collections.unmodifiableList(chunks);
+    }
+
+    List<Segment> getSegments() {
+        return Collections.unmodifiableList(segments);
+    }
+
+    /**
+     * Returns whether given chunk is the last one of its segment
+     */
+    boolean isLast(final Chunk chunk) {
+        return chunk.getOrdinal() == getSegment(chunk).getLastChunk();
+    }
+
+    /**
+     * Returns the segment given chunk belongs to
+     */
+    Segment getSegment(final Chunk chunk) {
+        for (Segment segment : segments) {
+            if (chunk.getOrdinal() <= segment.getLastChunk()) {
+                return segment;
+            }
+        }
+
+        throw new IllegalArgumentException(String.format("Chunk %d does not belong to any segment", chunk.getOrdinal()));
+    }
+
+    /**
+     * Returns the length of the index in the container it was read from, 0 if it was not read from any
+     */
+    int getLength() {
+        return length;
+    }
+
+    long getRowCount() {
+        return chunks.stream().mapToLong(Chunk::getRowCount).sum();
+    }
+
+    /**
+     * Returns the chunks containing any of the rows of the range [fromRow, toRow)
+     */
+    List<Chunk> getChunks(final long fromRow, final long toRow) {
+        final List<Chunk> result = new ArrayList<>();
+
+        for (Chunk chunk : chunks) {
+            if (chunk.getFirstRow() < toRow && chunk.getFirstRow() + chunk.getRowCount() > fromRow) {
+                result.add(chunk);
+            }
+        }
+
+        return result;
+    }
+
+    void write(final ContainerChannel channel, final long position) throws IOException {
+        final ByteBuffer index = ByteBuffer.allocate(Integer.BYTES + chunks.size() * ENTRY_LENGTH_BYTE + Integer.BYTES + segments.size() * SEGMENT_LENGTH_BYTE)
+                .putInt(chunks.size());
+
+        for (Chunk chunk : chunks) {
+            index.putLong(chunk.getOffset())
+                    .putInt(chunk.getLength())
+                    .putLong(chunk.getFirstRow())
+                    .putInt(chunk.getRowCount());
+        }
+
+        index.putInt(segments.size());
+
+        for (Segment segment : segments) {
+            index.putInt(segment.getLastChunk())
+                    .putInt(segment.getDigestLength());
+        }
+
+        index.flip();
+
+        long p = position;
+        while (index.hasRemaining()) {
+            p += channel.write(index, p);
+        }
+    }
+
+    static ContainerIndex read(final ContainerChannel channel, final ContainerHeader header, final String fileName) throws IOException {
+        final long indexOffset = header.getIndexOffset();
+        final long indexLength = channel.size() - indexOffset;
+
+        if (indexOffset < header.getLength() || indexLength < Integer.BYTES || indexLength > Integer.MAX_VALUE) {
+            throw new CsvCryptoIOException(String.format("Encrypted file '%s' has a corrupted chunk index", fileName));
+        }
+
+        final ByteBuffer index = ByteBuffer.allocate((int) indexLength);
+
+        long p = indexOffset;
+        while (index.hasRemaining()) {
+            final int read = channel.read(index, p);
+
+            if (read < 0) {
+                throw new CsvCryptoIOException(String.format("Encrypted file '%s' has a corrupted chunk index", fileName));
+            }
+
+            p += read;
+        }
+
+        index.flip();
+
+        final int chunkCount = index.getInt();
+
+        // there is always at least one (last) chunk, even with no rows
+        if (chunkCount < 1 || chunkCount > (indexLength - Integer.BYTES) / ENTRY_LENGTH_BYTE) {
+            throw new CsvCryptoIOException(String.format("Encrypted file '%s' has a corrupted chunk index", fileName));
+        }
+
+        final List<Chunk> chunks = new ArrayList<>(chunkCount);
+        long expectedFirstRow = 0L;
+
+        for (int ordinal = 0; ordinal < chunkCount; ordinal++) {
+            final Chunk chunk = Chunk.builder()
+                    .ordinal(ordinal)
+                    .offset(index.getLong())
+                    .length(index.getInt())
+                    .firstRow(index.getLong())
+                    .rowCount(index.getInt())
+                    .build();
+
+            // first row is checked against the (authenticated) row counts of the previous chunks
+            if (chunk.getOffset() < header.getLength() || chunk.getOffset() + chunk.getLength() > indexOffset || chunk.getFirstRow() != expectedFirstRow) {
+                throw new CsvCryptoIOException(String.format("Encrypted file '%s' has a corrupted chunk index", fileName));
+            }
+
+            chunks.add(chunk);
+            expectedFirstRow += chunk.getRowCount();
+        }
+
+        final List<Segment> segments = index.hasRemaining()
+                ? readSegments(index, chunks, indexOffset, fileName)
+                : Collections.singletonList(getSingleSegment(chunks, indexOffset));
+
+        return new ContainerIndex(chunks, new ArrayList<>(segments), index.position());
+    }
+
+    private static List<Segment> readSegments(final ByteBuffer index, final List<Chunk> chunks, final long indexOffset, final String fileName) throws CsvCryptoIOException {
+        final int segmentCount = index.remaining() >= Integer.BYTES ? index.getInt() : -1;
+
+        // bytes after the segments are chunks of an append that was not committed
+        if (segmentCount < 1 || index.remaining() < (long) segmentCount * SEGMENT_LENGTH_BYTE) {
+            throw new CsvCryptoIOException(String.format("Encrypted file '%s' has a corrupted chunk index", fileName));
+        }
+
+        final List<Segment> segments = new ArrayList<>(segmentCount);
+        int previousLastChunk = -1;
+
+        for (int ordinal = 0; ordinal < segmentCount; ordinal++) {
+            final Segment segment = Segment.builder()
+                    .ordinal(ordinal)
+                    .lastChunk(index.getInt())
+                    .digestLength(index.getInt())
+                    .build();
+
+            // segments are not empty and the last one ends at the last chunk
+            final boolean lastSegment = ordinal == segmentCount - 1;
+
+            if (segment.getLastChunk() <= previousLastChunk || segment.getLastChunk() >= chunks.size() || (lastSegment && segment.getLastChunk() != chunks.size() - 1)) {
+                throw new CsvCryptoIOException(String.format("Encrypted file '%s' has a corrupted chunk index", fileName));
+            }
+
+            // digest is placed between the last chunk of the segment and the next chunk (or the index)
+            final long digestEnd = lastSegment ? indexOffset : chunks.get(segment.getLastChunk() + 1).getOffset();
+
+            if (segment.getDigestLength() < 0 || getDigestOffset(chunks, segment) + segment.getDigestLength() > digestEnd) {
+                throw new CsvCryptoIOException(String.format("Encrypted file '%s' has a corrupted chunk index", fileName));
+            }
+
+            segments.add(segment);
+            previousLastChunk = segment.getLastChunk();
+        }
+
+        return segments;
+    }
+
+    /**
+     * Returns the only segment of an index written before segments existed, its digest (if any) takes all the space
+     * between the last chunk and the index
+     */
+    private static Segment getSingleSegment(final List<Chunk> chunks, final long indexOffset) {
+        final Chunk lastChunk = chunks.get(chunks.size() - 1);
+
+        return Segment.builder()
+                .ordinal(0)
+                .lastChunk(lastChunk.getOrdinal())
+                .digestLength((int) Math.min(Integer.MAX_VALUE, indexOffset - lastChunk.getOffset() - lastChunk.getLength()))
+                .build();
+    }
+
+    /**
+     * Returns the offset of the digest of given segment, right after its last chunk
+     */
+    long getDigestOffset(final Segment segment) {
+        return getDigestOffset(chunks, segment);
+    }
+
+    private static long getDigestOffset(final List<Chunk> chunks, final Segment segment) {
+        final Chunk lastChunk = chunks.get(segment.getLastChunk());
+
+        return lastChunk.getOffset() + lastChunk.getLength();
+    }
+
+    @Builder
+    @Getter
+    static class Chunk {
+        private final int ordinal;
+        private final long offset;
+        private final int length;
+        private final long firstRow;
+        private final int rowCount;
+    }
+
+    @Builder
+    @Getter
+    static class Segment {
+        private final int ordinal;
+        private final int lastChunk;
+        private final int digestLength;
+    }
+}
@@ -0,0 +1,309 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.Mac;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Crypto primitives used by csvcryptoutils: key derivation, key generation and wrapping, key check values, the
+ * AES/GCM cipher of the chunks of the containers and message digests.
+ *
+ * Getting a {@link Cipher}, {@link Mac}, {@link SecretKeyFactory} or {@link SecureRandom} is costly (provider lookup)
+ * and they are not thread safe, so each thread keeps its own instances (they are confined to the thread that got
+ * them and only used within a single call). Message digests are incremental, so a new one is cloned from a prototype
+ * for each caller instead.
+ *
+ * The iteration count of the key derivation is configurable: it applies to new master key stores, existing stores
+ * and containers record the count they were derived with (see {@link MasterKeyStore}). Timing counters of key
+ * derivations and cipher operations are kept for monitoring.
+ *
+ * The static helpers of {@link CryptoUtils} delegate to the default engine, which can be replaced (see
+ * {@link #setDefault(CryptoEngine)}) before any file is read or written.
+ */
+public class CryptoEngine {
+    public static final int DEFAULT_KDF_ITERATIONS = 65536;
+
+    // lower counts would make derived keys too cheap to brute force
+    public static final int MIN_KDF_ITERATIONS = 10000;
+
+    static final String AES_ALGORITHM = "AES";
+    static final String GCM_ALGORITHM = "AES/GCM/NoPadding";
+    private static final String AES_WRAP_ALGORITHM = "AESWrap";
+    private static final String KDF_ALGORITHM = "PBKDF2WithHmacSHA256";
+    static final int KEY_LENGTH_BIT = 256;
+
+    private static final String KEY_CHECK_VALUE_ALGORITHM = "HmacSHA256";
+    private static final byte[] KEY_CHECK_VALUE_CONSTANT = "financemanager-key-check-value".getBytes(StandardCharsets.US_ASCII);
+    static final int KEY_CHECK_VALUE_LENGTH_BYTE = 16;
+
+    private static final int KEY_CACHE_MAX_SIZE = 1024;
+    private static final long KEY_CACHE_TTL_MILLIS = 30L * 60L * 1000L;
+
+    private static volatile CryptoEngine defaultEngine = new CryptoEngine();
+
+    private final int kdfIterations;
+    private final DerivedKeyCache keyCache;
+
+    private final ThreadLocal<Primitives> primitives = ThreadLocal.withInitial(Primitives::new);
+    private final Map<String, MessageDigest> digestPrototypes = new ConcurrentHashMap<>();
+
+    private final LongAdder keyDerivations = new LongAdder();
+    private final LongAdder keyDerivationNanos = new LongAdder();
+    private final LongAdder cipherOperations = new LongAdder();
+    private final LongAdder cipherNanos = new LongAdder();
+    private final LongAdder cipherBytes = new LongAdder();
+
+    public CryptoEngine() {
+        this(DEFAULT_KDF_ITERATIONS, new DerivedKeyCache(KEY_CACHE_MAX_SIZE, KEY_CACHE_TTL_MILLIS));
+    }
+
+    /**
+     * @param kdfIterations iteration count of the key derivation of new master key stores
+     * @param keyCache cache of the derived keys
+     */
+    public CryptoEngine(final int kdfIterations, final DerivedKeyCache keyCache) {
+        if (kdfIterations < MIN_KDF_ITERATIONS) {
+            throw new IllegalArgumentException(String.format("KDF iterations must be at least %d but was %d", MIN_KDF_ITERATIONS, kdfIterations));
+        }
+
+        this.kdfIterations = kdfIterations;
+        this.keyCache = keyCache;
+    }
+
+    public static CryptoEngine getDefault() {
+        return defaultEngine;
+    }
+
+    /**
+     * Replaces the engine the static helpers of {@link CryptoUtils} and {@link CsvCryptoUtils} delegate to
+     */
+    public static void setDefault(final CryptoEngine engine) {
+        defaultEngine = engine;
+    }
+
+    public int getKdfIterations() {
+        return kdfIterations;
+    }
+
+    public DerivedKeyCache getKeyCache() {
+        return keyCache;
+    }
+
+    public byte[] getRandomNonce(final int numBytes) {
+        final byte[] nonce = new byte[numBytes];
+
+        primitives.get().secureRandom.nextBytes(nonce);
+
+        return nonce;
+    }
+
+    /**
+     * Generates a new random AES key
+     */
+    public SecretKey generateAESKey() {
+        return new SecretKeySpec(getRandomNonce(KEY_LENGTH_BIT / 8), AES_ALGORITHM);
+    }
+
+    /**
+     * Gets AES key derived from a password with the iteration count of the engine (derived keys are cached)
+     */
+    public SecretKey getAESKeyFromPassword(final char[] password, final byte[] salt) {
+        return getAESKeyFromPassword(password, salt, kdfIterations);
+    }
+
+    /**
+     * Gets AES key derived from a password with given iteration count (derived keys are cached)
+     */
+    public SecretKey getAESKeyFromPassword(final char[] password, final byte[] salt, final int iterations) {
+        return keyCache.get(password, salt, iterations, AES_ALGORITHM, () -> deriveAESKeyBytes(password, salt, iterations));
+    }
+
+    /**
+     * Gets the key check value of a key: a truncated HMAC of a constant under the key. It allows checking whether a key
+     * (and so the password it was derived from) is right without decrypting anything
+     */
+    public byte[] getKeyCheckValue(final SecretKey key) {
+        final Mac mac = primitives.get().keyCheckValueMac;
+
+        try {
+            mac.init(new SecretKeySpec(key.getEncoded(), KEY_CHECK_VALUE_ALGORITHM));
+
+            return Arrays.copyOf(mac.doFinal(KEY_CHECK_VALUE_CONSTANT), KEY_CHECK_VALUE_LENGTH_BYTE);
+        } catch (InvalidKeyException e) {
+            // This exception should never be thrown because the key is right
+            throw new RuntimeException("This exception should not have been thrown", e);
+        }
+    }
+
+    /**
+     * Wraps (encrypts) an AES key with another AES key
+     * @param wrappingKey key used to wrap
+     * @param key key to be wrapped
+     * @return wrapped key bytes
+     */
+    public byte[] wrapAESKey(final SecretKey wrappingKey, final SecretKey key) {
+        final Cipher cipher = primitives.get().wrapCipher;
+
+        try {
+            cipher.init(Cipher.WRAP_MODE, wrappingKey);
+
+            return cipher.wrap(key);
+        } catch (InvalidKeyException | IllegalBlockSizeException e) {
+            // These exceptions should never be thrown because both keys are 256 bit AES keys
+            throw new RuntimeException("This exception should not have been thrown", e);
+        }
+    }
+
+    /**
+     * Unwraps (decrypts) an AES key previously wrapped by {@link #wrapAESKey(SecretKey, SecretKey)}
+     * @param wrappingKey key used to wrap
+     * @param wrappedKey wrapped key bytes
+     * @return unwrapped key
+     * @throws InvalidKeyException if the integrity check of the wrapped key fails (wrong wrapping key)
+     */
+    public SecretKey unwrapAESKey(final SecretKey wrappingKey, final byte[] wrappedKey) throws InvalidKeyException {
+        final Cipher cipher = primitives.get().wrapCipher;
+
+        try {
+            cipher.init(Cipher.UNWRAP_MODE, wrappingKey);
+
+            return (SecretKey) cipher.unwrap(wrappedKey, AES_ALGORITHM, Cipher.SECRET_KEY);
+        } catch (NoSuchAlgorithmException e) {
+            // This exception should never be thrown because AES is a valid algorithm
+            throw new RuntimeException("This exception should not have been thrown", e);
+        }
+    }
+
+    /**
+     * Returns the AES/GCM cipher of the current thread, it must be initialized and used within the same call (see
+     * {@link ChunkCipher})
+     */
+    Cipher getGcmCipher() {
+        return primitives.get().gcmCipher;
+    }
+
+    /**
+     * Runs the final operation of the GCM cipher of the current thread, accounting for it in the counters of the engine
+     */
+    byte[] doFinal(final Cipher cipher, final byte[] input, final int length) throws IllegalBlockSizeException, BadPaddingException {
+        final long start = System.nanoTime();
+
+        try {
+            return cipher.doFinal(input, 0, length);
+        } finally {
+            cipherNanos.add(System.nanoTime() - start);
+            cipherOperations.increment();
+            cipherBytes.add(length);
+        }
+    }
+
+    /**
+     * Returns a new message digest of given algorithm, cloned from a prototype when the provider supports it
+     */
+    public MessageDigest newMessageDigest(final String algorithm) {
+        final MessageDigest prototype = digestPrototypes.computeIfAbsent(algorithm, CryptoEngine::getMessageDigest);
+
+        try {
+            return (MessageDigest) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            return getMessageDigest(algorithm);
+        }
+    }
+
+    /**
+     * Number of keys derived from passwords (cache misses)
+     */
+    public long getKeyDerivationCount() {
+        return keyDerivations.sum();
+    }
+
+    /**
+     * Total time spent deriving keys from passwords
+     */
+    public long getKeyDerivationNanos() {
+        return keyDerivationNanos.sum();
+    }
+
+    /**
+     * Number of chunks encrypted or decrypted
+     */
+    public long getCipherOperationCount() {
+        return cipherOperations.sum();
+    }
+
+    /**
+     * Total time spent encrypting or decrypting chunks
+     */
+    public long getCipherNanos() {
+        return cipherNanos.sum();
+    }
+
+    /**
+     * Total bytes of the chunks encrypted or decrypted
+     */
+    public long getCipherBytes() {
+        return cipherBytes.sum();
+    }
+
+    private byte[] deriveAESKeyBytes(final char[] password, final byte[] salt, final int iterations) {
+        final long start = System.nanoTime();
+
+        try {
+            return primitives.get().keyFactory.generateSecret(new PBEKeySpec(password, salt, iterations, KEY_LENGTH_BIT)).getEncoded();
+        } catch (InvalidKeySpecException e) {
+            // This exception should never be thrown because the KeySpec is right
+            throw new RuntimeException("This exception should not have been thrown", e);
+        } finally {
+            keyDerivationNanos.add(System.nanoTime() - start);
+            keyDerivations.increment();
+        }
+    }
+
+    private static MessageDigest getMessageDigest(final String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException(String.format("Digest algorithm '%s' is not available", algorithm), e);
+        }
+    }
+
+    /**
+     * Primitives confined to a thread
+     */
+    private static class Primitives {
+        private final SecureRandom secureRandom;
+        private final SecretKeyFactory keyFactory;
+        private final Mac keyCheckValueMac;
+        private final Cipher wrapCipher;
+        private final Cipher gcmCipher;
+
+        private Primitives() {
+            try {
+                this.secureRandom = new SecureRandom();
+                this.keyFactory = SecretKeyFactory.getInstance(KDF_ALGORITHM);
+                this.keyCheckValueMac = Mac.getInstance(KEY_CHECK_VALUE_ALGORITHM);
+                this.wrapCipher = Cipher.getInstance(AES_WRAP_ALGORITHM);
+                this.gcmCipher = Cipher.getInstance(GCM_ALGORITHM);
+            } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+                // These exceptions should never be thrown because all the algorithms are valid
+                throw new RuntimeException("This exception should not have been thrown", e);
+            }
+        }
+    }
+}
@@ -1,45 +1,71 @@
 package com.diegocastroviadero.financemanager.cryptoutils;
 
-import javax.crypto.*;
-import javax.crypto.spec.PBEKeySpec;
-import javax.crypto.spec.SecretKeySpec;
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
-import java.security.spec.InvalidKeySpecException;
-import java.security.spec.KeySpec;
+import javax.crypto.SecretKey;
+import java.security.InvalidKeyException;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Static helpers delegating to the default {@link CryptoEngine}
+ */
 public class CryptoUtils {
-    private static final String AES_ALGORITHM = "AES";
-    private static final int KEY_LENGTH_BIT = 256;
+    public static final String KDF_ALGORITHM = "PBKDF2WithHmacSHA256";
+    public static final int KDF_ITERATIONS = CryptoEngine.DEFAULT_KDF_ITERATIONS;
+
+    public static final int KEY_CHECK_VALUE_LENGTH_BYTE = CryptoEngine.KEY_CHECK_VALUE_LENGTH_BYTE;
 
     public static byte[] getRandomNonce(final int numBytes) {
-        byte[] nonce = new byte[numBytes];
+        return CryptoEngine.getDefault().getRandomNonce(numBytes);
+    }
 
-        new SecureRandom().nextBytes(nonce);
+    /**
+     * Gets AES key derived from a password with the iteration count of the default engine (derived keys are cached,
+     * see {@link #getKeyCache()})
+     */
+    public static SecretKey getAESKeyFromPassword(char[] password, byte[] salt) {
+        return CryptoEngine.getDefault().getAESKeyFromPassword(password, salt);
+    }
 
-        return nonce;
+    /**
+     * Gets AES key derived from a password with given iteration count (derived keys are cached)
+     */
+    public static SecretKey getAESKeyFromPassword(char[] password, byte[] salt, int iterations) {
+        return CryptoEngine.getDefault().getAESKeyFromPassword(password, salt, iterations);
     }
 
     /**
-     * Gets AES key derived from a password
+     * Returns the cache holding the keys derived by {@link #getAESKeyFromPassword(char[], byte[])}
      */
-    public static SecretKey getAESKeyFromPassword(char[] password, byte[] salt) {
-        try {
-            final SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
-
-            // iterationCount = 65536
-            // keyLength = 256
-            final KeySpec spec = new PBEKeySpec(password, salt, 65536, KEY_LENGTH_BIT);
-
-            return new SecretKeySpec(factory.generateSecret(spec).getEncoded(), AES_ALGORITHM);
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
-            // These exceptions should never be thrown because:
-            //   - AES is a valid algorithm
-            //   - The KeySpec is right
-            throw new RuntimeException("This exception should not have been thrown", e);
-        }
+    public static DerivedKeyCache getKeyCache() {
+        return CryptoEngine.getDefault().getKeyCache();
+    }
+
+    /**
+     * See {@link CryptoEngine#getKeyCheckValue(SecretKey)}
+     */
+    public static byte[] getKeyCheckValue(final SecretKey key) {
+        return CryptoEngine.getDefault().getKeyCheckValue(key);
+    }
+
+    /**
+     * Generates a new random AES key
+     */
+    public static SecretKey generateAESKey() {
+        return CryptoEngine.getDefault().generateAESKey();
+    }
+
+    /**
+     * See {@link CryptoEngine#wrapAESKey(SecretKey, SecretKey)}
+     */
+    public static byte[] wrapAESKey(final SecretKey wrappingKey, final SecretKey key) {
+        return CryptoEngine.getDefault().wrapAESKey(wrappingKey, key);
+    }
+
+    /**
+     * See {@link CryptoEngine#unwrapAESKey(SecretKey, byte[])}
+     */
+    public static SecretKey unwrapAESKey(final SecretKey wrappingKey, final byte[] wrappedKey) throws InvalidKeyException {
+        return CryptoEngine.getDefault().unwrapAESKey(wrappingKey, wrappedKey);
     }
 
     /**
@@ -1,37 +1,60 @@
 package com.diegocastroviadero.financemanager.cryptoutils;
 
 import com.diegocastroviadero.financemanager.cryptoutils.exception.CsvCryptoIOException;
+import com.diegocastroviadero.financemanager.cryptoutils.exception.RuntimeCsvCryptoIOException;
 import com.diegocastroviadero.financemanager.cryptoutils.exception.WrongEncryptionPasswordException;
-import com.opencsv.CSVReader;
-import com.opencsv.CSVWriter;
-import com.opencsv.exceptions.CsvException;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 
+import javax.crypto.AEADBadTagException;
 import javax.crypto.Cipher;
 import javax.crypto.CipherInputStream;
-import javax.crypto.CipherOutputStream;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 public class CsvCryptoUtils {
@@ -40,50 +63,527 @@ public class CsvCryptoUtils {
     private static final int IV_LENGTH_BYTE = 12;
     private static final int SALT_LENGTH_BYTE = 16;
 
+    // legacy meta file: salt + iv (key derived from password and salt of each file)
+    private static final int LEGACY_META_LENGTH_BYTE = SALT_LENGTH_BYTE + IV_LENGTH_BYTE;
+
+    // envelope meta file: magic + version + store salt + wrapped master key + wrapped data key + iv
+    private static final byte[] ENVELOPE_META_MAGIC = new byte[] {'F', 'M', 'E', 'K'};
+    private static final byte ENVELOPE_META_VERSION = 1;
+    private static final int ENVELOPE_META_LENGTH_BYTE = ENVELOPE_META_MAGIC.length + 1 + MasterKeyStore.SALT_LENGTH_BYTE + 2 * MasterKeyStore.WRAPPED_KEY_LENGTH_BYTE + IV_LENGTH_BYTE;
+
+    private static final String META_EXTENSION = "meta";
+    private static final String HASH_EXTENSION = "hash";
+    private static final String COMPACTED_EXTENSION = "compacted";
+    private static final long APPEND_LOCK_RETRY_MILLIS = 10L;
+
+    // one lock per folder (folders are few, so locks are never removed)
+    private static final ConcurrentMap<File, Object> MASTER_KEY_STORE_LOCKS = new ConcurrentHashMap<>();
+
+    /**
+     * Encrypts elements to given file as a single-file container (see {@link ContainerHeader}): a random data key,
+     * wrapped with the master key of the store present in the folder of the file, is used to encrypt the elements.
+     * The store is created if it does not exist yet. Meta and hash files of a previous legacy version of the file
+     * are deleted.
+     */
     public static void encryptToCsvFile(final List<String[]> elementsToPersist, final char[] encryptionPassword, final File csvFile) throws CsvCryptoIOException {
-        final File csvMetaFile = getCsvMetaFile(csvFile);
-        
-        FileOutputStream fos;
-        CipherOutputStream cos;
+        encryptToCsvFile(elementsToPersist.iterator(), encryptionPassword, csvFile);
+    }
+
+    public static void encryptToCsvFile(final List<String[]> elementsToPersist, final char[] encryptionPassword, final File csvFile, final EncryptionOptions options) throws CsvCryptoIOException {
+        encryptToCsvFile(elementsToPersist.iterator(), encryptionPassword, csvFile, options);
+    }
+
+    /**
+     * Encrypts elements to given file as they are taken from the iterator, so they do not need to be kept in memory
+     */
+    public static void encryptToCsvFile(final Iterator<String[]> elementsToPersist, final char[] encryptionPassword, final File csvFile) throws CsvCryptoIOException {
+        encryptToCsvFile(elementsToPersist, encryptionPassword, csvFile, EncryptionOptions.DEFAULT);
+    }
+
+    public static void encryptToCsvFile(final Iterator<String[]> elementsToPersist, final char[] encryptionPassword, final File csvFile, final EncryptionOptions options) throws CsvCryptoIOException {
+        final MasterKey masterKey = getOrCreateMasterKey(encryptionPassword, getFolder(csvFile));
+
+        encryptToCsvFile(elementsToPersist, masterKey, csvFile, options);
+    }
+
+    /**
+     * Encrypts elements to given file encoding them with given codec, straight into the rows of the container
+     */
+    public static <T> void encryptToCsvFile(final List<T> elementsToPersist, final RowCodec<T> codec, final char[] encryptionPassword, final File csvFile) throws CsvCryptoIOException {
+        encryptToCsvFile(elementsToPersist, codec, encryptionPassword, csvFile, EncryptionOptions.DEFAULT);
+    }
+
+    public static <T> void encryptToCsvFile(final List<T> elementsToPersist, final RowCodec<T> codec, final char[] encryptionPassword, final File csvFile, final EncryptionOptions options) throws CsvCryptoIOException {
+        final MasterKey masterKey = getOrCreateMasterKey(encryptionPassword, getFolder(csvFile));
+
+        writeAndClose(openEncryptedCsvWriter(masterKey, csvFile, options), writer -> {
+            for (T element : elementsToPersist) {
+                writer.write(element, codec);
+            }
+        });
+    }
+
+    /**
+     * Opens a writer encrypting the rows written to it to given file (writer must be closed for the file to be complete)
+     */
+    public static EncryptedCsvWriter openEncryptedCsvWriter(final char[] encryptionPassword, final File csvFile) throws CsvCryptoIOException {
+        return openEncryptedCsvWriter(encryptionPassword, csvFile, EncryptionOptions.DEFAULT);
+    }
+
+    public static EncryptedCsvWriter openEncryptedCsvWriter(final char[] encryptionPassword, final File csvFile, final EncryptionOptions options) throws CsvCryptoIOException {
+        final MasterKey masterKey = getOrCreateMasterKey(encryptionPassword, getFolder(csvFile));
+
+        return openEncryptedCsvWriter(masterKey, csvFile, options);
+    }
+
+    private static void encryptToCsvFile(final Iterator<String[]> elementsToPersist, final MasterKey masterKey, final File csvFile, final EncryptionOptions options) throws CsvCryptoIOException {
+        writeAndClose(openEncryptedCsvWriter(masterKey, csvFile, options), writer -> {
+            while (elementsToPersist.hasNext()) {
+                writer.write(elementsToPersist.next());
+            }
+        });
+    }
+
+    private static EncryptedCsvWriter openEncryptedCsvWriter(final MasterKey masterKey, final File csvFile, final EncryptionOptions options) throws CsvCryptoIOException {
+        final SecretKey secretKey = CryptoUtils.generateAESKey();
+        final ContainerHeader header = newContainerHeader(masterKey, secretKey, getFlags(options, false));
+
+        return new EncryptedCsvWriter(createContainerFile(header, csvFile), header, secretKey, csvFile, options);
+    }
+
+    public static void appendToCsvFile(final List<String[]> elementsToAppend, final char[] encryptionPassword, final File csvFile) throws CsvCryptoIOException {
+        appendToCsvFile(elementsToAppend, encryptionPassword, csvFile, EncryptionOptions.DEFAULT);
+    }
+
+    /**
+     * Appends elements to given file as a new segment, without decrypting nor encrypting again the elements already
+     * in it (see {@link #openEncryptedCsvAppender(char[], File, EncryptionOptions)})
+     */
+    public static void appendToCsvFile(final List<String[]> elementsToAppend, final char[] encryptionPassword, final File csvFile, final EncryptionOptions options) throws CsvCryptoIOException {
+        writeAndClose(openEncryptedCsvAppender(encryptionPassword, csvFile, options), writer -> {
+            for (String[] element : elementsToAppend) {
+                writer.write(element);
+            }
+        });
+    }
+
+    public static <T> void appendToCsvFile(final List<T> elementsToAppend, final RowCodec<T> codec, final char[] encryptionPassword, final File csvFile) throws CsvCryptoIOException {
+        appendToCsvFile(elementsToAppend, codec, encryptionPassword, csvFile, EncryptionOptions.DEFAULT);
+    }
+
+    public static <T> void appendToCsvFile(final List<T> elementsToAppend, final RowCodec<T> codec, final char[] encryptionPassword, final File csvFile, final EncryptionOptions options) throws CsvCryptoIOException {
+        writeAndClose(openEncryptedCsvAppender(encryptionPassword, csvFile, options), writer -> {
+            for (T element : elementsToAppend) {
+                writer.write(element, codec);
+            }
+        });
+    }
+
+    public static EncryptedCsvWriter openEncryptedCsvAppender(final char[] encryptionPassword, final File csvFile) throws CsvCryptoIOException {
+        return openEncryptedCsvAppender(encryptionPassword, csvFile, EncryptionOptions.DEFAULT);
+    }
+
+    /**
+     * Opens a writer appending the elements written to it to given file, as a new segment of chunks encrypted with the
+     * key of the file: the cost of appending depends on the appended elements only. The file keeps its previous
+     * elements until the writer is closed, and it is left as it is if nothing is written. The file is locked until the
+     * writer is closed, so appenders of the same file (of this or other processes) wait for each other.
+     *
+     * The file is created if it does not exist. It is compacted first (see
+     * {@link #compactCsvFile(char[], File, EncryptionOptions)}), while it is still locked, when it already has the
+     * maximum number of segments of the options, it is not a chunked container or it has chunks of an append that was
+     * not committed (so that their nonces are not reused). Only the compression level of the options is used when
+     * appending, the rest of the options of the file are kept as they are (they are recorded in its header)
+     * @throws WrongEncryptionPasswordException if the file could not be decrypted with the given password
+     */
+    public static EncryptedCsvWriter openEncryptedCsvAppender(final char[] encryptionPassword, final File csvFile, final EncryptionOptions options) throws CsvCryptoIOException {
+        if (!csvFile.exists()) {
+            return openEncryptedCsvWriter(encryptionPassword, csvFile, options);
+        }
+
+        FileChannel channel = null;
 
         try {
-            final byte[] salt = CryptoUtils.getRandomNonce(SALT_LENGTH_BYTE);
+            channel = openLockedChannel(csvFile);
 
-            final SecretKey secretKey = CryptoUtils.getAESKeyFromPassword(encryptionPassword, salt);
-            final byte[] iv = CryptoUtils.getRandomNonce(IV_LENGTH_BYTE);
+            EncryptedCsvWriter writer = openSegmentAppender(channel, encryptionPassword, csvFile, options, options.getMaxSegments());
 
-            fos = new FileOutputStream(csvFile);
+            while (null == writer) {
+                // the file is replaced while it is locked, so no append is committed to the file being replaced
+                compactLockedCsvFile(encryptionPassword, csvFile, options);
 
-            persistSaltAndIv(salt, iv, csvMetaFile);
+                channel.close();
+                channel = openLockedChannel(csvFile);
 
-            Cipher cipher = Cipher.getInstance(ENCRYPT_ALGO);
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH_BIT, iv));
-            cos = new CipherOutputStream(fos, cipher);
-        } catch (NoSuchAlgorithmException | NoSuchPaddingException | InvalidKeyException | InvalidAlgorithmParameterException | FileNotFoundException e) {
-            // this exception should never be thrown because all crypto parameters are correct
-            throw new RuntimeException("This exception should not have been thrown", e);
+                writer = openSegmentAppender(channel, encryptionPassword, csvFile, options, Integer.MAX_VALUE);
+            }
+
+            return writer;
+        } catch (CsvCryptoIOException e) {
+            IOUtils.closeQuietly(channel);
+
+            throw e;
         } catch (IOException e) {
-            throw new CsvCryptoIOException(String.format("Error while persisting salt and iv to meta file '%s'", csvMetaFile), e);
+            IOUtils.closeQuietly(channel);
+
+            throw new CsvCryptoIOException(String.format("Error while opening encrypted file '%s' to be appended", csvFile.getName()), e);
         }
+    }
 
-        try (CSVWriter writer = new CSVWriter(new OutputStreamWriter(cos))) {
-            for (String[] element : elementsToPersist) {
-                writer.writeNext(element);
+    /**
+     * Opens a writer appending a new segment to given file (through its locked channel), or returns null if the file
+     * has to be compacted first because it is not a chunked container, it already has the given number of segments or
+     * it has chunks of an append that was not committed. Those chunks are kept until the file is replaced: the file
+     * keeps its key until then, and the ordinals of the next chunks were already taken by them
+     */
+    private static EncryptedCsvWriter openSegmentAppender(final FileChannel channel, final char[] encryptionPassword, final File csvFile, final EncryptionOptions options, final int maxSegments) throws CsvCryptoIOException {
+        if (!ContainerHeader.isContainer(csvFile)) {
+            return null;
+        }
+
+        try {
+            final ContainerHeader header = ContainerHeader.read(channel, csvFile.getName());
+
+            if (!header.isChunked()) {
+                return null;
+            }
+
+            if (!header.isComplete()) {
+                throw new CsvCryptoIOException(String.format("Encrypted file '%s' is incomplete", csvFile.getName()));
             }
 
-            log.debug("Persisted all elements to file '{}'", csvFile.getName());
+            if (header.hasBinaryRows()) {
+                throw new CsvCryptoIOException(String.format("Encrypted file '%s' contains binary rows instead of csv rows", csvFile.getName()));
+            }
+
+            final SecretKey secretKey = unlockDataKey(encryptionPassword, header);
+            final ContainerIndex index = ContainerIndex.read(ContainerChannel.of(channel), header, csvFile.getName());
+
+            if (header.getRowCount() != index.getRowCount()) {
+                throw new CsvCryptoIOException(String.format("Encrypted file '%s' should contain %d elements but its chunks contain %d", csvFile.getName(), header.getRowCount(), index.getRowCount()));
+            }
+
+            // the container ends at its index once committed
+            final long committedEnd = header.getIndexOffset() + index.getLength();
+
+            if (channel.size() > committedEnd) {
+                log.debug("File '{}' has {} bytes of an append that was not committed, it is compacted", csvFile.getName(), channel.size() - committedEnd);
+
+                return null;
+            }
+
+            if (index.getSegments().size() >= maxSegments) {
+                return null;
+            }
+
+            return new EncryptedCsvWriter(ContainerChannel.of(channel), header, secretKey, csvFile, options, index, committedEnd);
+        } catch (CsvCryptoIOException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new CsvCryptoIOException(String.format("Error while reading header from encrypted file '%s'", csvFile.getName()), e);
+        }
+    }
+
+    /**
+     * Opens given file to be appended, locked until the channel is closed. Waits for the appenders holding the lock,
+     * and opens the file again if it was replaced (e.g. compacted) while waiting
+     */
+    private static FileChannel openLockedChannel(final File csvFile) throws IOException {
+        final Path path = csvFile.toPath();
+
+        while (true) {
+            final Object fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+            final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            try {
+                lock(channel);
+
+                if (null == fileKey || fileKey.equals(Files.readAttributes(path, BasicFileAttributes.class).fileKey())) {
+                    return channel;
+                }
+            } catch (IOException | RuntimeException e) {
+                IOUtils.closeQuietly(channel);
+
+                throw e;
+            }
+
+            channel.close();
+        }
+    }
+
+    private static void lock(final FileChannel channel) throws IOException {
+        while (true) {
+            try {
+                channel.lock();
+
+                return;
+            } catch (OverlappingFileLockException e) {
+                // file is locked by another appender of this JVM, file locks only wait for other processes
+                try {
+                    Thread.sleep(APPEND_LOCK_RETRY_MILLIS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+
+                    throw new InterruptedIOException("Interrupted while waiting for the lock of the file");
+                }
+            }
+        }
+    }
+
+    public static void compactCsvFile(final char[] encryptionPassword, final File csvFile) throws CsvCryptoIOException {
+        compactCsvFile(encryptionPassword, csvFile, EncryptionOptions.DEFAULT);
+    }
+
+    /**
+     * Rewrites all the elements of given file (of any format) as a chunked container with a single segment, encrypted
+     * with a new key and the given options. Elements are written to a temporary file first, which replaces the file
+     * once all of them have been written. The file is locked meanwhile, as appenders lock it
+     * @throws WrongEncryptionPasswordException if the file could not be decrypted with the given password
+     */
+    public static void compactCsvFile(final char[] encryptionPassword, final File csvFile, final EncryptionOptions options) throws CsvCryptoIOException {
+        try (FileChannel lockedChannel = openLockedChannel(csvFile)) {
+            compactLockedCsvFile(encryptionPassword, csvFile, options);
+        } catch (CsvCryptoIOException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new CsvCryptoIOException(String.format("Error while compacting encrypted file '%s'", csvFile.getName()), e);
+        }
+    }
+
+    /**
+     * Same as {@link #compactCsvFile(char[], File, EncryptionOptions)}, for a file already locked by the caller
+     */
+    private static void compactLockedCsvFile(final char[] encryptionPassword, final File csvFile, final EncryptionOptions options) throws CsvCryptoIOException {
+        final MasterKey masterKey = getOrCreateMasterKey(encryptionPassword, getFolder(csvFile));
+        File compactedFile = null;
+
+        try {
+            compactedFile = AtomicFileChannel.createTemporaryFile(csvFile, COMPACTED_EXTENSION);
+
+            try (CsvRowIterator iterator = iterateFromCsvFile(encryptionPassword, csvFile, false)) {
+                writeAndClose(openEncryptedCsvWriter(masterKey, compactedFile, options), writer -> {
+                    while (iterator.hasNext()) {
+                        writer.write(iterator.next());
+                    }
+                });
+            }
+
+            AtomicFileChannel.replace(compactedFile, csvFile);
+        } catch (RuntimeCsvCryptoIOException e) {
+            FileUtils.deleteQuietly(compactedFile);
+
+            throw e.toCheckedException();
+        } catch (CsvCryptoIOException e) {
+            FileUtils.deleteQuietly(compactedFile);
+
+            throw e;
         } catch (IOException e) {
-            throw new CsvCryptoIOException(String.format("Error while persisting elements to encrypted file '%s'", csvFile), e);
+            FileUtils.deleteQuietly(compactedFile);
+
+            throw new CsvCryptoIOException(String.format("Error while compacting encrypted file '%s'", csvFile.getName()), e);
+        }
+
+        // the file is not a legacy one anymore
+        deleteLegacyFiles(csvFile);
+
+        log.debug("Compacted file '{}'", csvFile.getName());
+    }
+
+    /**
+     * Encrypts elements to given file as binary rows (see {@link BinaryRowWriter}) instead of csv rows, the file can
+     * only be read with {@link #decryptFromBinaryFile(char[], File, BinaryRowCodec)}
+     */
+    public static <T> void encryptToBinaryFile(final List<T> elementsToPersist, final BinaryRowCodec<T> codec, final char[] encryptionPassword, final File file) throws CsvCryptoIOException {
+        encryptToBinaryFile(elementsToPersist.iterator(), codec, encryptionPassword, file);
+    }
+
+    public static <T> void encryptToBinaryFile(final List<T> elementsToPersist, final BinaryRowCodec<T> codec, final char[] encryptionPassword, final File file, final EncryptionOptions options) throws CsvCryptoIOException {
+        encryptToBinaryFile(elementsToPersist.iterator(), codec, encryptionPassword, file, options);
+    }
+
+    public static <T> void encryptToBinaryFile(final Iterator<T> elementsToPersist, final BinaryRowCodec<T> codec, final char[] encryptionPassword, final File file) throws CsvCryptoIOException {
+        encryptToBinaryFile(elementsToPersist, codec, encryptionPassword, file, EncryptionOptions.DEFAULT);
+    }
+
+    public static <T> void encryptToBinaryFile(final Iterator<T> elementsToPersist, final BinaryRowCodec<T> codec, final char[] encryptionPassword, final File file, final EncryptionOptions options) throws CsvCryptoIOException {
+        writeAndClose(openEncryptedBinaryWriter(encryptionPassword, file, codec, options), writer -> {
+            while (elementsToPersist.hasNext()) {
+                writer.write(elementsToPersist.next());
+            }
+        });
+    }
+
+    /**
+     * Encrypts elements as the container of given file, which is kept in memory instead of being written to the file
+     * (master key store of the folder of the file is created if it does not exist)
+     */
+    static <T> ByteBuffer encryptToMemory(final List<T> elementsToPersist, final RowCodec<T> codec, final char[] encryptionPassword, final File csvFile, final EncryptionOptions options) throws CsvCryptoIOException {
+        final MemoryContainerChannel channel = new MemoryContainerChannel();
+
+        writeAndClose(openMemoryContainerWriter(channel, encryptionPassword, csvFile, options), writer -> {
+            for (T element : elementsToPersist) {
+                writer.write(element, codec);
+            }
+        });
+
+        return channel.getContent();
+    }
+
+    static ByteBuffer encryptToMemory(final List<String[]> elementsToPersist, final char[] encryptionPassword, final File csvFile, final EncryptionOptions options) throws CsvCryptoIOException {
+        final MemoryContainerChannel channel = new MemoryContainerChannel();
+
+        writeAndClose(openMemoryContainerWriter(channel, encryptionPassword, csvFile, options), writer -> {
+            for (String[] element : elementsToPersist) {
+                writer.write(element);
+            }
+        });
+
+        return channel.getContent();
+    }
+
+    private static EncryptedCsvWriter openMemoryContainerWriter(final MemoryContainerChannel channel, final char[] encryptionPassword, final File csvFile, final EncryptionOptions options) throws CsvCryptoIOException {
+        final MasterKey masterKey = getOrCreateMasterKey(encryptionPassword, getFolder(csvFile));
+
+        final SecretKey secretKey = CryptoUtils.generateAESKey();
+        final ContainerHeader header = newContainerHeader(masterKey, secretKey, getFlags(options, false));
+
+        channel.write(ByteBuffer.wrap(header.toBytes()), 0L);
+
+        return new EncryptedCsvWriter(channel, header, secretKey, csvFile, options);
+    }
+
+    /**
+     * Opens a writer encrypting the elements written to it as binary rows to given file (writer must be closed for
+     * the file to be complete)
+     */
+    public static <T> EncryptedBinaryWriter<T> openEncryptedBinaryWriter(final char[] encryptionPassword, final File file, final BinaryRowCodec<T> codec) throws CsvCryptoIOException {
+        return openEncryptedBinaryWriter(encryptionPassword, file, codec, EncryptionOptions.DEFAULT);
+    }
+
+    public static <T> EncryptedBinaryWriter<T> openEncryptedBinaryWriter(final char[] encryptionPassword, final File file, final BinaryRowCodec<T> codec, final EncryptionOptions options) throws CsvCryptoIOException {
+        if (IntegrityMode.SHA3_512_COLUMNS == options.getIntegrityMode()) {
+            throw new IllegalArgumentException(String.format("Integrity mode %s is not supported by binary rows", options.getIntegrityMode()));
+        }
+
+        final MasterKey masterKey = getOrCreateMasterKey(encryptionPassword, getFolder(file));
+
+        final SecretKey secretKey = CryptoUtils.generateAESKey();
+        final ContainerHeader header = newContainerHeader(masterKey, secretKey, getFlags(options, true));
+
+        return new EncryptedBinaryWriter<>(createContainerFile(header, file), header, secretKey, file, options, codec);
+    }
+
+    /**
+     * Writes the elements with given writer and closes it. The writer is aborted instead if writing them fails (e.g.
+     * the iterator of the elements or their codec throws), so that a write interrupted midway is never committed
+     */
+    private static <W extends ChunkedContainerWriter> void writeAndClose(final W writer, final ElementsWriter<W> elementsWriter) throws CsvCryptoIOException {
+        try {
+            elementsWriter.write(writer);
+        } catch (Throwable e) {
+            writer.abort();
+
+            throw e;
+        }
+
+        writer.close();
+    }
+
+    private static byte getFlags(final EncryptionOptions options, final boolean binaryRows) {
+        byte flags = 0;
+
+        if (binaryRows) {
+            flags |= ContainerHeader.FLAG_BINARY_ROWS;
+        }
+
+        if (options.isCompressed()) {
+            flags |= ContainerHeader.FLAG_DEFLATE;
         }
 
-        final File csvHashFile = getCsvHashFile(csvFile);
+        flags |= options.getIntegrityMode().getCode() << ContainerHeader.FLAG_INTEGRITY_SHIFT;
+
+        return flags;
+    }
+
+    private static ContainerHeader newContainerHeader(final MasterKey masterKey, final SecretKey secretKey, final byte flags) {
+        return ContainerHeader.builder()
+                .version(ContainerHeader.VERSION_CHUNKED)
+                .flags(flags)
+                .kdfAlgorithm(ContainerHeader.KDF_PBKDF2_HMAC_SHA256)
+                .kdfIterations(masterKey.getKdfIterations())
+                .storeSalt(masterKey.getStoreSalt())
+                .wrappedMasterKey(masterKey.getWrappedMasterKey())
+                .wrappedDataKey(masterKey.wrapDataKey(secretKey))
+                .keyCheckValue(masterKey.getKeyCheckValue())
+                .iv(CryptoUtils.getRandomNonce(ContainerHeader.IV_LENGTH_BYTE))
+                .rowCount(ContainerHeader.INCOMPLETE_ROW_COUNT)
+                .indexOffset(ContainerHeader.INCOMPLETE_INDEX_OFFSET)
+                .build();
+    }
+
+    /**
+     * Creates given file writing the header of the container. The file is written atomically (see
+     * {@link AtomicFileChannel}): it keeps its previous content until the writer of the container is closed. Meta and
+     * hash files of a previous legacy version of the file are deleted once it is replaced
+     */
+    private static ContainerChannel createContainerFile(final ContainerHeader header, final File file) throws CsvCryptoIOException {
+        AtomicFileChannel channel = null;
 
         try {
-            final String hash = HashUtils.getHash(elementsToPersist);
+            channel = AtomicFileChannel.create(file);
+
+            final ByteBuffer headerBytes = ByteBuffer.wrap(header.toBytes());
+            while (headerBytes.hasRemaining()) {
+                channel.write(headerBytes, headerBytes.position());
+            }
+        } catch (IOException e) {
+            IOUtils.closeQuietly(channel);
+
+            throw new CsvCryptoIOException(String.format("Error while persisting header to encrypted file '%s'", file), e);
+        }
+
+        return channel;
+    }
 
-            persistHash(hash, csvHashFile);
+    /**
+     * Begins a group commit of the encrypted files written by the current thread until the returned batch is closed
+     * (see {@link WriteBatch}), so that writing many files does not force their folder once per file:
+     * <pre>
+     * try (WriteBatch batch = CsvCryptoUtils.beginWriteBatch()) {
+     *     CsvCryptoUtils.encryptToCsvFile(elements1, password, file1);
+     *     CsvCryptoUtils.encryptToCsvFile(elements2, password, file2);
+     * }
+     * </pre>
+     */
+    public static WriteBatch beginWriteBatch() {
+        return WriteBatch.begin();
+    }
+
+    /**
+     * Decrypts the elements of given file written as binary rows
+     * @throws WrongEncryptionPasswordException if elements could not be decrypted with the given password
+     * @throws CsvCryptoIOException if the file is not a container with binary rows or it cannot be read
+     */
+    public static <T> List<T> decryptFromBinaryFile(final char[] encryptionPassword, final File file, final BinaryRowCodec<T> codec) throws CsvCryptoIOException {
+        try (ChunkedContainerReader reader = openChunkedContainerReader(encryptionPassword, file, true, true)) {
+            if (null == reader) {
+                throw new CsvCryptoIOException(String.format("Encrypted file '%s' does not contain binary rows", file.getName()));
+            }
+
+            final ChunkCipher cipher = reader.newCipher();
+            final List<T> readElements = new ArrayList<>();
+
+            for (ContainerIndex.Chunk chunk : reader.getIndex().getChunks()) {
+                readElements.addAll(reader.readBinaryRows(chunk, cipher, codec));
+            }
+
+            reader.checkIntegrity();
+
+            return readElements;
+        } catch (CsvCryptoIOException e) {
+            throw e;
         } catch (IOException e) {
-            throw new CsvCryptoIOException(String.format("Error while persisting hash of elements to file '%s'", csvHashFile), e);
+            throw new CsvCryptoIOException(String.format("Error while reading elements from encrypted file '%s'", file.getName()), e);
         }
     }
 
@@ -92,66 +592,677 @@ public class CsvCryptoUtils {
     }
 
     public static List<String[]> decryptFromCsvFile(final char[] encryptionPassword, final File csvFile, final boolean insecure) throws CsvCryptoIOException {
-        final File csvMetaFile = getCsvMetaFile(csvFile);
+        final List<String[]> readElements = new ArrayList<>();
 
-        FileInputStream fis;
-        CipherInputStream cis;
+        forEachFromCsvFile(encryptionPassword, csvFile, insecure, readElements::add);
+
+        return readElements;
+    }
+
+    /**
+     * Decrypts the elements of given file decoding them with given codec. Rows of chunked containers are decoded
+     * straight from the decrypted chunks, rows of files that are not chunked are decrypted as arrays of fields first
+     * @throws WrongEncryptionPasswordException if elements could not be decrypted with the given password
+     */
+    public static <T> List<T> decryptFromCsvFile(final char[] encryptionPassword, final File csvFile, final RowCodec<T> codec) throws CsvCryptoIOException {
+        try (ChunkedContainerReader reader = openChunkedContainerReader(encryptionPassword, csvFile, false, true)) {
+            if (null == reader) {
+                return decodeRows(decryptFromCsvFile(encryptionPassword, csvFile), codec);
+            }
+
+            return readRows(reader, codec);
+        } catch (CsvCryptoIOException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new CsvCryptoIOException(String.format("Error while reading elements from encrypted file '%s'", csvFile.getName()), e);
+        }
+    }
+
+    /**
+     * Decrypts the text of the rows of given file, to be kept in memory and decoded later (see {@link CsvText}). The
+     * chunks of chunked containers are decoded straight to the text, rows of files that are not chunked are decrypted
+     * as arrays of fields first
+     * @throws WrongEncryptionPasswordException if elements could not be decrypted with the given password
+     */
+    public static CsvText decryptTextFromCsvFile(final char[] encryptionPassword, final File csvFile) throws CsvCryptoIOException {
+        try (ChunkedContainerReader reader = openChunkedContainerReader(encryptionPassword, csvFile, false, true)) {
+            if (null == reader) {
+                return CsvText.of(decryptFromCsvFile(encryptionPassword, csvFile));
+            }
+
+            return readText(reader, csvFile.getName());
+        } catch (CsvCryptoIOException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new CsvCryptoIOException(String.format("Error while reading elements from encrypted file '%s'", csvFile.getName()), e);
+        }
+    }
+
+    /**
+     * Decrypts all the rows of a chunked container decoding them with given codec, checking their integrity
+     */
+    static <T> List<T> readRows(final ChunkedContainerReader reader, final RowCodec<T> codec) throws CsvCryptoIOException {
+        final ChunkCipher cipher = reader.newCipher();
+        final List<T> readElements = new ArrayList<>((int) reader.getIndex().getRowCount());
+
+        for (ContainerIndex.Chunk chunk : reader.getIndex().getChunks()) {
+            readElements.addAll(reader.readRows(chunk, cipher, codec));
+        }
+
+        reader.checkIntegrity();
+
+        return readElements;
+    }
+
+    /**
+     * Decrypts all the rows of a chunked container as arrays of fields, checking their integrity
+     */
+    static List<String[]> readRows(final ChunkedContainerReader reader) throws CsvCryptoIOException {
+        final ChunkCipher cipher = reader.newCipher();
+        final List<String[]> readElements = new ArrayList<>((int) reader.getIndex().getRowCount());
+
+        for (ContainerIndex.Chunk chunk : reader.getIndex().getChunks()) {
+            readElements.addAll(reader.readRows(chunk, cipher));
+        }
+
+        reader.checkIntegrity();
+
+        return readElements;
+    }
+
+    /**
+     * Decrypts the text of all the rows of a chunked container, checking their integrity
+     */
+    static CsvText readText(final ChunkedContainerReader reader, final String fileName) throws IOException {
+        final CsvText text = CsvText.read(new InputStreamReader(reader.openSequentialStream(), StandardCharsets.UTF_8));
+
+        if (text.getRowCount() != reader.getIndex().getRowCount()) {
+            throw new CsvCryptoIOException(String.format("Encrypted file '%s' should contain %d elements but %d were read", fileName, reader.getIndex().getRowCount(), text.getRowCount()));
+        }
+
+        return text;
+    }
+
+    public static void forEachFromCsvFile(final char[] encryptionPassword, final File csvFile, final Consumer<String[]> visitor) throws CsvCryptoIOException {
+        forEachFromCsvFile(encryptionPassword, csvFile, false, visitor);
+    }
+
+    /**
+     * Decrypts elements from given file one by one, handing each of them to the visitor, without keeping them in memory.
+     * Unless insecure, the integrity of the elements is verified once all of them have been visited
+     * @throws WrongEncryptionPasswordException if elements could not be decrypted with the given password
+     */
+    public static void forEachFromCsvFile(final char[] encryptionPassword, final File csvFile, final boolean insecure, final Consumer<String[]> visitor) throws CsvCryptoIOException {
+        try (CsvRowIterator iterator = iterateFromCsvFile(encryptionPassword, csvFile, insecure)) {
+            iterator.forEachRemaining(visitor);
+        } catch (RuntimeCsvCryptoIOException e) {
+            throw e.toCheckedException();
+        } catch (CsvCryptoIOException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new CsvCryptoIOException(String.format("Error while reading elements from encrypted file '%s'", csvFile.getName()), e);
+        }
+    }
+
+    public static Stream<String[]> streamFromCsvFile(final char[] encryptionPassword, final File csvFile) throws CsvCryptoIOException {
+        return streamFromCsvFile(encryptionPassword, csvFile, false);
+    }
+
+    /**
+     * Opens a stream decrypting elements from given file one by one (stream must be closed). Unless insecure, the
+     * integrity of the elements is verified when the end of the stream is reached, throwing
+     * {@link RuntimeCsvCryptoIOException} if it cannot be verified
+     */
+    public static Stream<String[]> streamFromCsvFile(final char[] encryptionPassword, final File csvFile, final boolean insecure) throws CsvCryptoIOException {
+        return iterateFromCsvFile(encryptionPassword, csvFile, insecure).stream();
+    }
+
+    /**
+     * Opens an iterator decrypting elements from given file one by one (iterator must be closed). Both single-file
+     * containers and legacy files (with meta and hash files) are supported. Unless insecure, the integrity of the
+     * elements is verified when the last element has been read, throwing {@link RuntimeCsvCryptoIOException} if it
+     * cannot be verified
+     * @throws WrongEncryptionPasswordException if the password is detected to be wrong before reading any element
+     */
+    public static CsvRowIterator iterateFromCsvFile(final char[] encryptionPassword, final File csvFile, final boolean insecure) throws CsvCryptoIOException {
+        if (ContainerHeader.isContainer(csvFile)) {
+            return iterateFromContainer(encryptionPassword, csvFile, insecure);
+        } else {
+            return iterateFromLegacyFile(encryptionPassword, csvFile, insecure);
+        }
+    }
+
+    private static CsvRowIterator iterateFromContainer(final char[] encryptionPassword, final File csvFile, final boolean insecure) throws CsvCryptoIOException {
+        FileChannel channel = null;
+        InputStream is;
+        ContainerHeader header;
 
         try {
-            fis = new FileInputStream(csvFile);
+            channel = FileChannel.open(csvFile.toPath(), StandardOpenOption.READ);
 
-            final SaltAndIv saltAndIv = readSaltAndIv(csvMetaFile);
+            header = ContainerHeader.read(channel, csvFile.getName());
 
-            final SecretKey secretKey = CryptoUtils.getAESKeyFromPassword(encryptionPassword, saltAndIv.getSalt());
+            if (!insecure && !header.isComplete()) {
+                throw new CsvCryptoIOException(String.format("Encrypted file '%s' is incomplete", csvFile.getName()));
+            }
 
-            final Cipher cipher = Cipher.getInstance(ENCRYPT_ALGO);
-            cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH_BIT, saltAndIv.getIv()));
-            cis = new CipherInputStream(fis, cipher);
-        } catch (NoSuchAlgorithmException | NoSuchPaddingException | InvalidKeyException | InvalidAlgorithmParameterException | FileNotFoundException e) {
+            if (header.hasBinaryRows()) {
+                throw new CsvCryptoIOException(String.format("Encrypted file '%s' contains binary rows instead of csv rows", csvFile.getName()));
+            }
+
+            final SecretKey secretKey = unlockDataKey(encryptionPassword, header);
+
+            if (header.isChunked()) {
+                is = new ChunkedContainerReader(ContainerChannel.of(channel), header, secretKey, csvFile.getName(), !insecure).openSequentialStream();
+            } else {
+                final Cipher cipher = Cipher.getInstance(ENCRYPT_ALGO);
+                cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH_BIT, header.getIv()));
+                cipher.updateAAD(header.getAuthenticatedData());
+
+                is = new CipherInputStream(Channels.newInputStream(channel), cipher);
+            }
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException | InvalidKeyException | InvalidAlgorithmParameterException e) {
             // this exception should never be thrown because all crypto parameters are correct
             throw new RuntimeException("This exception should not have been thrown", e);
+        } catch (CsvCryptoIOException e) {
+            IOUtils.closeQuietly(channel);
+
+            throw e;
         } catch (IOException e) {
-            throw new CsvCryptoIOException(String.format("Error while reading salt and iv from meta file '%s'", csvMetaFile), e);
+            IOUtils.closeQuietly(channel);
+
+            throw new CsvCryptoIOException(String.format("Error while reading header from encrypted file '%s'", csvFile.getName()), e);
         }
 
-        List<String[]> readElements;
+        final long expectedRowCount = insecure ? ContainerHeader.INCOMPLETE_ROW_COUNT : header.getRowCount();
+
+        return new DecryptingCsvRowIterator(createReader(is, StandardCharsets.UTF_8), csvFile.getName(), null, expectedRowCount);
+    }
+
+    /**
+     * Decrypts the elements of the range [fromRow, toRow) from given file. Only the chunks containing the range are
+     * decrypted, unless the file is not chunked (a range of a legacy or single-stream file can only be read by
+     * decrypting it from the start)
+     * @throws WrongEncryptionPasswordException if elements could not be decrypted with the given password
+     */
+    public static List<String[]> decryptRangeFromCsvFile(final char[] encryptionPassword, final File csvFile, final long fromRow, final long toRow) throws CsvCryptoIOException {
+        if (fromRow < 0 || toRow < fromRow) {
+            throw new IllegalArgumentException(String.format("Range [%d, %d) is not valid", fromRow, toRow));
+        }
 
-        try (CSVReader reader = new CSVReader(new InputStreamReader(cis))) {
-            readElements = reader.readAll();
+        final List<String[]> readElements = new ArrayList<>();
 
-            log.debug("Read {} elements from file '{}'", readElements.size(), csvFile.getName());
-        } catch (IOException | CsvException e) {
+        try (ChunkedContainerReader reader = openChunkedContainerReader(encryptionPassword, csvFile, false, false)) {
+            if (null == reader) {
+                long row = 0L;
+
+                try (CsvRowIterator iterator = iterateFromCsvFile(encryptionPassword, csvFile, false)) {
+                    while (row < toRow && iterator.hasNext()) {
+                        final String[] element = iterator.next();
+
+                        if (row++ >= fromRow) {
+                            readElements.add(element);
+                        }
+                    }
+                }
+            } else {
+                final ChunkCipher cipher = reader.newCipher();
+
+                for (ContainerIndex.Chunk chunk : reader.getIndex().getChunks(fromRow, toRow)) {
+                    final List<String[]> rows = reader.readRows(chunk, cipher);
+
+                    final int from = (int) Math.max(0L, fromRow - chunk.getFirstRow());
+                    final int to = (int) Math.min(rows.size(), toRow - chunk.getFirstRow());
+
+                    readElements.addAll(rows.subList(from, to));
+                }
+            }
+        } catch (RuntimeCsvCryptoIOException e) {
+            throw e.toCheckedException();
+        } catch (CsvCryptoIOException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new CsvCryptoIOException(String.format("Error while reading elements from encrypted file '%s'", csvFile.getName()), e);
+        }
+
+        return readElements;
+    }
+
+    /**
+     * Decrypts the last elements (at most the given number of them) from given file, only the last chunks are
+     * decrypted when the file is chunked
+     * @throws WrongEncryptionPasswordException if elements could not be decrypted with the given password
+     */
+    public static List<String[]> decryptLastFromCsvFile(final char[] encryptionPassword, final File csvFile, final int numberOfElements) throws CsvCryptoIOException {
+        final long rowCount = getRowCount(encryptionPassword, csvFile);
+
+        return decryptRangeFromCsvFile(encryptionPassword, csvFile, Math.max(0L, rowCount - numberOfElements), rowCount);
+    }
+
+    /**
+     * Decrypts the elements of the range [fromRow, toRow) from given file decoding them with given codec (see
+     * {@link #decryptRangeFromCsvFile(char[], File, long, long)})
+     * @throws WrongEncryptionPasswordException if elements could not be decrypted with the given password
+     */
+    public static <T> List<T> decryptRangeFromCsvFile(final char[] encryptionPassword, final File csvFile, final long fromRow, final long toRow, final RowCodec<T> codec) throws CsvCryptoIOException {
+        if (fromRow < 0 || toRow < fromRow) {
+            throw new IllegalArgumentException(String.format("Range [%d, %d) is not valid", fromRow, toRow));
+        }
+
+        try (ChunkedContainerReader reader = openChunkedContainerReader(encryptionPassword, csvFile, false, false)) {
+            if (null == reader) {
+                return decodeRows(decryptRangeFromCsvFile(encryptionPassword, csvFile, fromRow, toRow), codec);
+            }
+
+            final ChunkCipher cipher = reader.newCipher();
+            final List<T> readElements = new ArrayList<>();
+
+            for (ContainerIndex.Chunk chunk : reader.getIndex().getChunks(fromRow, toRow)) {
+                final List<T> rows = reader.readRows(chunk, cipher, codec);
+
+                final int from = (int) Math.max(0L, fromRow - chunk.getFirstRow());
+                final int to = (int) Math.min(rows.size(), toRow - chunk.getFirstRow());
+
+                readElements.addAll(rows.subList(from, to));
+            }
+
+            return readElements;
+        } catch (CsvCryptoIOException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new CsvCryptoIOException(String.format("Error while reading elements from encrypted file '%s'", csvFile.getName()), e);
+        }
+    }
+
+    public static <T> List<T> decryptLastFromCsvFile(final char[] encryptionPassword, final File csvFile, final int numberOfElements, final RowCodec<T> codec) throws CsvCryptoIOException {
+        final long rowCount = getRowCount(encryptionPassword, csvFile);
+
+        return decryptRangeFromCsvFile(encryptionPassword, csvFile, Math.max(0L, rowCount - numberOfElements), rowCount, codec);
+    }
+
+    /**
+     * Decrypts all the elements from given file, decrypting its chunks in parallel in given pool. Elements are
+     * returned in the same order as they were written. Files that are not chunked are decrypted sequentially
+     * @throws WrongEncryptionPasswordException if elements could not be decrypted with the given password
+     */
+    public static List<String[]> decryptFromCsvFile(final char[] encryptionPassword, final File csvFile, final ForkJoinPool pool) throws CsvCryptoIOException {
+        try (ChunkedContainerReader reader = openChunkedContainerReader(encryptionPassword, csvFile, false, true)) {
+            if (null == reader) {
+                return decryptFromCsvFile(encryptionPassword, csvFile);
+            }
+
+            // each chunk is decrypted with its own cipher, as ciphers are not thread safe
+            final List<String[]> readElements = pool.submit(() -> reader.getIndex().getChunks().parallelStream()
+                    .map(chunk -> {
+                        try {
+                            return reader.readRows(chunk, reader.newCipher());
+                        } catch (CsvCryptoIOException e) {
+                            throw e.toUncheckedException();
+                        }
+                    })
+                    .flatMap(List::stream)
+                    .collect(Collectors.toList()))
+                    .get();
+
+            reader.checkIntegrity();
+
+            return readElements;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeCsvCryptoIOException) {
+                throw ((RuntimeCsvCryptoIOException) e.getCause()).toCheckedException();
+            }
+
+            throw new CsvCryptoIOException(String.format("Error while reading elements from encrypted file '%s'", csvFile.getName()), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new CsvCryptoIOException(String.format("Interrupted while reading elements from encrypted file '%s'", csvFile.getName()), e);
+        } catch (CsvCryptoIOException e) {
+            throw e;
+        } catch (IOException e) {
             throw new CsvCryptoIOException(String.format("Error while reading elements from encrypted file '%s'", csvFile.getName()), e);
         }
+    }
+
+    public static List<CsvDecryptionResult> decryptAll(final Collection<File> csvFiles, final char[] encryptionPassword, final int parallelism) throws CsvCryptoIOException {
+        return decryptAll(csvFiles, encryptionPassword, false, parallelism);
+    }
+
+    /**
+     * Decrypts a batch of files concurrently, using at most the given number of threads. Results are returned in the
+     * same order as the files, an error decrypting a file is kept in its result and does not stop the rest of them.
+     * Keys of the master key stores of the files are derived once, before decrypting any file
+     * @param csvFiles files to decrypt
+     * @param encryptionPassword encryption password
+     * @param insecure whether the integrity of the elements is not verified
+     * @param parallelism maximum number of files decrypted at the same time
+     * @return results of the files, in the same order
+     * @throws CsvCryptoIOException if the batch is interrupted
+     */
+    public static List<CsvDecryptionResult> decryptAll(final Collection<File> csvFiles, final char[] encryptionPassword, final boolean insecure, final int parallelism) throws CsvCryptoIOException {
+        return decryptAll(csvFiles, encryptionPassword, parallelism, csvFile -> decryptToResult(encryptionPassword, csvFile, insecure));
+    }
+
+    /**
+     * Decrypts a batch of files concurrently as {@link #decryptAll(Collection, char[], boolean, int)} does, but the
+     * results contain the decrypted text of the files (see {@link #decryptTextFromCsvFile(char[], File)}) instead of
+     * their elements
+     */
+    public static List<CsvDecryptionResult> decryptAllToText(final Collection<File> csvFiles, final char[] encryptionPassword, final int parallelism) throws CsvCryptoIOException {
+        return decryptAll(csvFiles, encryptionPassword, parallelism, csvFile -> decryptTextToResult(encryptionPassword, csvFile));
+    }
+
+    private static List<CsvDecryptionResult> decryptAll(final Collection<File> csvFiles, final char[] encryptionPassword, final int parallelism, final Function<File, CsvDecryptionResult> decryptor) throws CsvCryptoIOException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(String.format("Parallelism must be greater than zero but was %d", parallelism));
+        }
+
+        if (csvFiles.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // otherwise every thread would derive the same key at the same time
+        csvFiles.stream()
+                .map(CsvCryptoUtils::getFolder)
+                .distinct()
+                .forEach(folder -> {
+                    try {
+                        checkPassword(encryptionPassword, folder);
+                    } catch (CsvCryptoIOException e) {
+                        log.debug("Password could not be checked for folder '{}', errors are reported for each file", folder);
+                    }
+                });
+
+        final List<Callable<CsvDecryptionResult>> tasks = csvFiles.stream()
+                .map(csvFile -> (Callable<CsvDecryptionResult>) () -> decryptor.apply(csvFile))
+                .collect(Collectors.toList());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, tasks.size()));
+
+        try {
+            final List<CsvDecryptionResult> results = new ArrayList<>(tasks.size());
+
+            for (Future<CsvDecryptionResult> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+
+            return results;
+        } catch (ExecutionException e) {
+            // this exception should never be thrown because errors are kept in the results
+            throw new RuntimeException("This exception should not have been thrown", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new CsvCryptoIOException("Interrupted while decrypting a batch of encrypted files", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static CsvDecryptionResult decryptToResult(final char[] encryptionPassword, final File csvFile, final boolean insecure) {
+        final CsvDecryptionResult.CsvDecryptionResultBuilder result = CsvDecryptionResult.builder()
+                .file(csvFile);
+
+        try {
+            result.elements(decryptFromCsvFile(encryptionPassword, csvFile, insecure));
+        } catch (CsvCryptoIOException e) {
+            result.error(e);
+        } catch (RuntimeException e) {
+            result.error(new CsvCryptoIOException(String.format("Error while reading elements from encrypted file '%s'", csvFile.getName()), e));
+        }
+
+        return result.build();
+    }
+
+    private static CsvDecryptionResult decryptTextToResult(final char[] encryptionPassword, final File csvFile) {
+        final CsvDecryptionResult.CsvDecryptionResultBuilder result = CsvDecryptionResult.builder()
+                .file(csvFile);
+
+        try {
+            result.text(decryptTextFromCsvFile(encryptionPassword, csvFile));
+        } catch (CsvCryptoIOException e) {
+            result.error(e);
+        } catch (RuntimeException e) {
+            result.error(new CsvCryptoIOException(String.format("Error while reading elements from encrypted file '%s'", csvFile.getName()), e));
+        }
+
+        return result.build();
+    }
+
+    private static <T> List<T> decodeRows(final List<String[]> rows, final RowCodec<T> codec) {
+        final List<T> elements = new ArrayList<>(rows.size());
+
+        for (String[] row : rows) {
+            elements.add(codec.read(new CsvFieldReader(row)));
+        }
+
+        return elements;
+    }
+
+    /**
+     * Returns the number of elements of given file, without decrypting them when the file is a container
+     */
+    private static long getRowCount(final char[] encryptionPassword, final File csvFile) throws CsvCryptoIOException {
+        if (ContainerHeader.isContainer(csvFile)) {
+            try (FileChannel channel = FileChannel.open(csvFile.toPath(), StandardOpenOption.READ)) {
+                final ContainerHeader header = ContainerHeader.read(channel, csvFile.getName());
+
+                if (header.isComplete()) {
+                    return header.getRowCount();
+                }
+            } catch (CsvCryptoIOException e) {
+                throw e;
+            } catch (IOException e) {
+                throw new CsvCryptoIOException(String.format("Error while reading header from encrypted file '%s'", csvFile.getName()), e);
+            }
+        }
+
+        final long[] rowCount = {0L};
+
+        forEachFromCsvFile(encryptionPassword, csvFile, element -> rowCount[0]++);
+
+        return rowCount[0];
+    }
+
+    /**
+     * Opens a reader of the chunks of given file, or returns null if the file is not a chunked container. Integrity
+     * can only be verified when all the chunks are going to be read (see {@link ChunkedContainerReader#checkIntegrity()})
+     * @throws CsvCryptoIOException if the rows of the container are not of the expected kind (binary or csv)
+     */
+    private static ChunkedContainerReader openChunkedContainerReader(final char[] encryptionPassword, final File csvFile, final boolean binaryRows, final boolean verifyIntegrity) throws CsvCryptoIOException {
+        if (!ContainerHeader.isContainer(csvFile)) {
+            return null;
+        }
+
+        FileChannel channel = null;
+
+        try {
+            channel = FileChannel.open(csvFile.toPath(), StandardOpenOption.READ);
+
+            final ContainerHeader header = ContainerHeader.read(channel, csvFile.getName());
+            final ChunkedContainerReader reader = openChunkedContainerReader(encryptionPassword, header, ContainerChannel.of(channel), csvFile.getName(), binaryRows, verifyIntegrity);
+
+            if (null == reader) {
+                channel.close();
+            }
+
+            return reader;
+        } catch (CsvCryptoIOException e) {
+            IOUtils.closeQuietly(channel);
+
+            throw e;
+        } catch (IOException e) {
+            IOUtils.closeQuietly(channel);
+
+            throw new CsvCryptoIOException(String.format("Error while reading header from encrypted file '%s'", csvFile.getName()), e);
+        }
+    }
+
+    /**
+     * Opens a reader of the chunks of the container of given bytes (see
+     * {@link #openChunkedContainerReader(char[], File, boolean, boolean)}), integrity is verified
+     */
+    static ChunkedContainerReader openChunkedContainerReader(final char[] encryptionPassword, final byte[] bytes, final String fileName) throws CsvCryptoIOException {
+        if (!ContainerHeader.isContainer(bytes)) {
+            return null;
+        }
+
+        try {
+            final ContainerHeader header = ContainerHeader.read(Channels.newChannel(new ByteArrayInputStream(bytes)), fileName);
+
+            return openChunkedContainerReader(encryptionPassword, header, new MemoryContainerChannel(bytes), fileName, false, true);
+        } catch (CsvCryptoIOException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new CsvCryptoIOException(String.format("Error while reading header from encrypted file '%s'", fileName), e);
+        }
+    }
+
+    private static ChunkedContainerReader openChunkedContainerReader(final char[] encryptionPassword, final ContainerHeader header, final ContainerChannel channel, final String fileName, final boolean binaryRows, final boolean verifyIntegrity) throws IOException {
+        if (!header.isChunked()) {
+            return null;
+        }
+
+        if (!header.isComplete()) {
+            throw new CsvCryptoIOException(String.format("Encrypted file '%s' is incomplete", fileName));
+        }
+
+        if (binaryRows != header.hasBinaryRows()) {
+            throw new CsvCryptoIOException(String.format("Encrypted file '%s' contains %s rows", fileName, header.hasBinaryRows() ? "binary" : "csv"));
+        }
+
+        return new ChunkedContainerReader(channel, header, unlockDataKey(encryptionPassword, header), fileName, verifyIntegrity);
+    }
+
+    private static SecretKey unlockDataKey(final char[] encryptionPassword, final ContainerHeader header) throws WrongEncryptionPasswordException {
+        final MasterKey masterKey = MasterKey.unlock(encryptionPassword, header.getStoreSalt(), header.getWrappedMasterKey(), header.getKeyCheckValue(), header.getKdfIterations());
+
+        return masterKey.unwrapDataKey(header.getWrappedDataKey());
+    }
+
+    private static CsvRowIterator iterateFromLegacyFile(final char[] encryptionPassword, final File csvFile, final boolean insecure) throws CsvCryptoIOException {
+        final File csvMetaFile = getCsvMetaFile(csvFile);
+
+        CipherInputStream cis;
+
+        try {
+            final EncryptionMeta encryptionMeta = readEncryptionMeta(csvMetaFile);
+
+            final SecretKey secretKey = getSecretKey(encryptionPassword, encryptionMeta);
+
+            final Cipher cipher = Cipher.getInstance(ENCRYPT_ALGO);
+            cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH_BIT, encryptionMeta.getIv()));
+            cis = new CipherInputStream(new FileInputStream(csvFile), cipher);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException | InvalidKeyException | InvalidAlgorithmParameterException | FileNotFoundException e) {
+            // this exception should never be thrown because all crypto parameters are correct
+            throw new RuntimeException("This exception should not have been thrown", e);
+        } catch (CsvCryptoIOException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new CsvCryptoIOException(String.format("Error while reading encryption meta from meta file '%s'", csvMetaFile), e);
+        }
+
+        String readHash = null;
 
         if (!insecure) {
             final File csvHashFile = getCsvHashFile(csvFile);
 
-            String readHash;
             try {
                 readHash = readHash(csvHashFile);
             } catch (IOException e) {
+                IOUtils.closeQuietly(cis);
+
                 throw new CsvCryptoIOException(String.format("Error while reading hash of elements from file '%s'", csvHashFile), e);
             }
+        }
+
+        // legacy files were written with the default charset
+        return new DecryptingCsvRowIterator(createReader(cis, Charset.defaultCharset()), csvFile.getName(), readHash, ContainerHeader.INCOMPLETE_ROW_COUNT);
+    }
+
+    /**
+     * Checks the password of the encrypted csv files of given folder without decrypting any of them: the key check
+     * value of the master key store (or of the header of any container if the store is missing) is compared with the
+     * one of the key derived from the password. Legacy files have no key check value, so a folder with only legacy
+     * files is not checked (their password is checked when they are decrypted)
+     * @param encryptionPassword encryption password
+     * @param folder folder containing the encrypted csv files
+     * @throws WrongEncryptionPasswordException if the password is wrong
+     * @throws CsvCryptoIOException if the store or the container cannot be read
+     */
+    public static void checkPassword(final char[] encryptionPassword, final File folder) throws CsvCryptoIOException {
+        if (MasterKeyStore.exists(folder)) {
+            MasterKeyStore.unlock(encryptionPassword, folder);
 
-            String readElementsHash;
+            return;
+        }
+
+        final File[] containers = folder.listFiles(ContainerHeader::isContainer);
+
+        if (null != containers && containers.length > 0) {
+            final EncryptionMeta encryptionMeta;
             try {
-                readElementsHash = HashUtils.getHash(readElements);
+                encryptionMeta = readStoreHeaderCopy(containers[0]);
+            } catch (CsvCryptoIOException e) {
+                throw e;
             } catch (IOException e) {
-                throw new CsvCryptoIOException("Error while getting hash of read elements", e);
+                throw new CsvCryptoIOException(String.format("Error while reading header from encrypted file '%s'", containers[0].getName()), e);
             }
 
-            if (!StringUtils.equals(readHash, readElementsHash)) {
-                throw new WrongEncryptionPasswordException("Elements could not be decrypted because wrong password has been provided");
+            MasterKey.unlock(encryptionPassword, encryptionMeta.getStoreSalt(), encryptionMeta.getWrappedMasterKey(), encryptionMeta.getKeyCheckValue(), encryptionMeta.getKdfIterations());
+        }
+    }
+
+    /**
+     * Re-encrypts all the legacy encrypted csv files of given folder (the ones with meta and hash files) as
+     * single-file containers
+     * @param encryptionPassword encryption password
+     * @param folder folder containing the encrypted csv files
+     * @return migrated files
+     * @throws WrongEncryptionPasswordException if any file cannot be decrypted with the given password
+     * @throws CsvCryptoIOException if any file cannot be read or written
+     */
+    public static List<File> migrateToContainerFormat(final char[] encryptionPassword, final File folder) throws CsvCryptoIOException {
+        final List<File> migratedFiles = new ArrayList<>();
+
+        final File[] legacyFiles = folder.listFiles(CsvCryptoUtils::isLegacyEncryptedCsvFile);
+
+        if (null != legacyFiles && legacyFiles.length > 0) {
+            final MasterKey masterKey = getOrCreateMasterKey(encryptionPassword, folder);
+
+            for (File legacyFile : legacyFiles) {
+                final List<String[]> elements = decryptFromCsvFile(encryptionPassword, legacyFile);
+
+                encryptToCsvFile(elements.iterator(), masterKey, legacyFile, EncryptionOptions.DEFAULT);
+
+                migratedFiles.add(legacyFile);
+
+                log.debug("Migrated file '{}' to container format", legacyFile.getName());
             }
         }
 
-        return readElements;
+        return migratedFiles;
+    }
+
+    /**
+     * Returns whether given file is a legacy encrypted csv file: encryption meta and hash are kept in sibling files
+     */
+    public static boolean isLegacyEncryptedCsvFile(final File csvFile) {
+        final String extension = FilenameUtils.getExtension(csvFile.getName());
+
+        return csvFile.isFile()
+                && !StringUtils.equalsAny(extension, META_EXTENSION, HASH_EXTENSION)
+                && getCsvMetaFile(csvFile).exists()
+                && !ContainerHeader.isContainer(csvFile);
     }
 
     public static void deleteEncryptedCsvFile(final File csvFile) {
         csvFile.delete();
 
+        deleteLegacyFiles(csvFile);
+    }
+
+    static void deleteLegacyFiles(final File csvFile) {
         final File metaFile = getCsvMetaFile(csvFile);
 
         if (metaFile.exists()) {
@@ -165,53 +1276,164 @@ public class CsvCryptoUtils {
         }
     }
 
+    /**
+     * Returns the master key of the store of given folder, restoring or creating the store if it is missing. Keys are
+     * derived and unwrapped without holding any lock, the lock of the folder is only taken to write a missing store (if
+     * another thread wrote it meanwhile, that store is unlocked instead)
+     */
+    private static MasterKey getOrCreateMasterKey(final char[] encryptionPassword, final File folder) throws CsvCryptoIOException {
+        if (MasterKeyStore.exists(folder)) {
+            return MasterKeyStore.unlock(encryptionPassword, folder);
+        }
+
+        final MasterKey restoredMasterKey = getMasterKeyOfFiles(encryptionPassword, folder);
+        final MasterKey masterKey = null != restoredMasterKey ? restoredMasterKey : MasterKeyStore.generate(encryptionPassword);
+
+        synchronized (MASTER_KEY_STORE_LOCKS.computeIfAbsent(folder.getAbsoluteFile(), f -> new Object())) {
+            if (!MasterKeyStore.exists(folder)) {
+                MasterKeyStore.write(masterKey, folder);
+
+                if (null != restoredMasterKey) {
+                    log.info("Restored master key store of folder '{}' from its encrypted files", folder);
+                } else {
+                    log.info("Created master key store '{}'", MasterKeyStore.getStoreFile(folder));
+                }
+
+                return masterKey;
+            }
+        }
+
+        return MasterKeyStore.unlock(encryptionPassword, folder);
+    }
+
+    /**
+     * Returns the master key of the copy of the store header present in the encrypted files of given folder, or null
+     * if there is none. Before creating a new store, the password is checked against an existing file so that a store
+     * is never created with a password different to the one of the files already present in the folder
+     */
+    private static MasterKey getMasterKeyOfFiles(final char[] encryptionPassword, final File folder) throws CsvCryptoIOException {
+        final File[] encryptedFiles = folder.listFiles(file -> ContainerHeader.isContainer(file) || isLegacyEncryptedCsvFile(file));
+
+        if (null != encryptedFiles) {
+            for (File encryptedFile : encryptedFiles) {
+                final EncryptionMeta encryptionMeta;
+                try {
+                    encryptionMeta = readStoreHeaderCopy(encryptedFile);
+                } catch (IOException e) {
+                    log.warn("Encryption meta of '{}' could not be read while looking for a master key", encryptedFile.getName());
+                    continue;
+                }
+
+                if (encryptionMeta.isEnvelope()) {
+                    // store is missing but files have a copy of its header, so it is restored
+                    log.debug("Master key of folder '{}' found in file '{}'", folder, encryptedFile.getName());
+
+                    return MasterKey.unlock(encryptionPassword, encryptionMeta.getStoreSalt(), encryptionMeta.getWrappedMasterKey(), encryptionMeta.getKeyCheckValue(), encryptionMeta.getKdfIterations());
+                } else {
+                    decryptFromCsvFile(encryptionPassword, encryptedFile);
+
+                    break;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static EncryptionMeta readStoreHeaderCopy(final File encryptedFile) throws IOException {
+        if (ContainerHeader.isContainer(encryptedFile)) {
+            try (FileChannel channel = FileChannel.open(encryptedFile.toPath(), StandardOpenOption.READ)) {
+                final ContainerHeader header = ContainerHeader.read(channel, encryptedFile.getName());
+
+                return EncryptionMeta.builder()
+                        .storeSalt(header.getStoreSalt())
+                        .wrappedMasterKey(header.getWrappedMasterKey())
+                        .wrappedDataKey(header.getWrappedDataKey())
+                        .keyCheckValue(header.getKeyCheckValue())
+                        .kdfIterations(header.getKdfIterations())
+                        .iv(header.getIv())
+                        .build();
+            }
+        } else {
+            return readEncryptionMeta(getCsvMetaFile(encryptedFile));
+        }
+    }
+
+    private static SecretKey getSecretKey(final char[] encryptionPassword, final EncryptionMeta encryptionMeta) throws WrongEncryptionPasswordException {
+        final SecretKey secretKey;
+
+        if (encryptionMeta.isEnvelope()) {
+            final MasterKey masterKey = MasterKey.unlock(encryptionPassword, encryptionMeta.getStoreSalt(), encryptionMeta.getWrappedMasterKey(), encryptionMeta.getKdfIterations());
+
+            secretKey = masterKey.unwrapDataKey(encryptionMeta.getWrappedDataKey());
+        } else {
+            secretKey = CryptoUtils.getAESKeyFromPassword(encryptionPassword, encryptionMeta.getSalt(), encryptionMeta.getKdfIterations());
+        }
+
+        return secretKey;
+    }
+
+    private static CsvRowReader createReader(final InputStream is, final Charset charset) {
+        return new CsvRowReader(new InputStreamReader(is, charset));
+    }
+
+    private static File getFolder(final File csvFile) {
+        return csvFile.getAbsoluteFile().getParentFile();
+    }
+
     private static File getCsvMetaFile(final File csvFile) {
         final Path csvFilePath = csvFile.toPath();
         final String filenameWithoutExtension = FilenameUtils.removeExtension(csvFile.getName());
 
-        return csvFilePath.resolveSibling(String.format("%s.meta", filenameWithoutExtension)).toFile();
+        return csvFilePath.resolveSibling(String.format("%s.%s", filenameWithoutExtension, META_EXTENSION)).toFile();
     }
 
     private static File getCsvHashFile(final File csvFile) {
         final Path csvFilePath = csvFile.toPath();
         final String filenameWithoutExtension = FilenameUtils.removeExtension(csvFile.getName());
 
-        return csvFilePath.resolveSibling(String.format("%s.hash", filenameWithoutExtension)).toFile();
+        return csvFilePath.resolveSibling(String.format("%s.%s", filenameWithoutExtension, HASH_EXTENSION)).toFile();
     }
 
-    private static void persistSaltAndIv(final byte[] salt, final byte[] iv, final File csvMetaFile) throws IOException {
-        try (final FileOutputStream fos = new FileOutputStream(csvMetaFile)) {
-            fos.write(salt);
-            fos.write(iv);
-        } catch (FileNotFoundException e) {
-            // this exception should never be thrown because there should not be any problem with file existence
-            throw new RuntimeException("This exception should not have been thrown", e);
-        }
-    }
-
-    private static void persistHash(final String hash, final File csvHashFile) throws IOException {
+    private static EncryptionMeta readEncryptionMeta(final File csvMetaFile) throws IOException {
         try {
-            Files.writeString(csvHashFile.toPath(), hash, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
-        } catch (FileNotFoundException e) {
-            // this exception should never be thrown because there should not be any problem with file existence
-            throw new RuntimeException("This exception should not have been thrown", e);
-        }
-    }
+            final ByteBuffer meta = ByteBuffer.wrap(Files.readAllBytes(csvMetaFile.toPath()));
+
+            if (meta.remaining() == LEGACY_META_LENGTH_BYTE) {
+                final byte[] salt = new byte[SALT_LENGTH_BYTE];
+                final byte[] iv = new byte[IV_LENGTH_BYTE];
 
-    private static SaltAndIv readSaltAndIv(final File csvMetaFile) throws IOException {
-        try (final FileInputStream fis = new FileInputStream(csvMetaFile)) {
-            final byte[] salt = new byte[SALT_LENGTH_BYTE];
-            final byte[] iv = new byte[IV_LENGTH_BYTE];
+                meta.get(salt);
+                meta.get(iv);
 
-            fis.read(salt);
-            fis.read(iv);
+                log.debug("Read salt ({}) and iv ({})", CryptoUtils.hex(salt), CryptoUtils.hex(iv));
 
-            log.debug("Read salt ({}) and iv ({})", CryptoUtils.hex(salt), CryptoUtils.hex(iv));
+                return EncryptionMeta.builder()
+                        .salt(salt)
+                        .iv(iv)
+                        .build();
+            } else if (meta.remaining() == ENVELOPE_META_LENGTH_BYTE && hasEnvelopeMetaMagic(meta) && ENVELOPE_META_VERSION == meta.get()) {
+                final byte[] storeSalt = new byte[MasterKeyStore.SALT_LENGTH_BYTE];
+                final byte[] wrappedMasterKey = new byte[MasterKeyStore.WRAPPED_KEY_LENGTH_BYTE];
+                final byte[] wrappedDataKey = new byte[MasterKeyStore.WRAPPED_KEY_LENGTH_BYTE];
+                final byte[] iv = new byte[IV_LENGTH_BYTE];
 
-            return SaltAndIv.builder()
-                    .salt(salt)
-                    .iv(iv)
-                    .build();
+                meta.get(storeSalt);
+                meta.get(wrappedMasterKey);
+                meta.get(wrappedDataKey);
+                meta.get(iv);
+
+                log.debug("Read store salt ({}) and iv ({})", CryptoUtils.hex(storeSalt), CryptoUtils.hex(iv));
+
+                return EncryptionMeta.builder()
+                        .storeSalt(storeSalt)
+                        .wrappedMasterKey(wrappedMasterKey)
+                        .wrappedDataKey(wrappedDataKey)
+                        .iv(iv)
+                        .build();
+            } else {
+                throw new CsvCryptoIOException(String.format("Meta file '%s' has an unknown format", csvMetaFile.getName()));
+            }
         } catch (FileNotFoundException e) {
             // this exception should never be thrown because there should not be any problem with file existence
             throw new RuntimeException("This exception should not have been thrown", e);
@@ -231,10 +1453,95 @@ public class CsvCryptoUtils {
         }
     }
 
+    private static boolean hasEnvelopeMetaMagic(final ByteBuffer meta) {
+        final byte[] magic = new byte[ENVELOPE_META_MAGIC.length];
+        meta.get(magic);
+
+        return Arrays.equals(ENVELOPE_META_MAGIC, magic);
+    }
+
+    /**
+     * Row iterator that checks the integrity of decrypted elements once all of them have been read: their hash (legacy
+     * files) or their count (containers, whose content is already authenticated by the cipher)
+     */
+    @FunctionalInterface
+    private interface ElementsWriter<W extends ChunkedContainerWriter> {
+        void write(W writer) throws CsvCryptoIOException;
+    }
+
+    private static class DecryptingCsvRowIterator extends CsvRowIterator {
+        private final String expectedHash;
+        private final long expectedRowCount;
+        private final HashUtils.RowHasher hasher;
+
+        private DecryptingCsvRowIterator(final CsvRowReader reader, final String fileName, final String expectedHash, final long expectedRowCount) {
+            super(reader, fileName);
+
+            this.expectedHash = expectedHash;
+            this.expectedRowCount = expectedRowCount;
+            this.hasher = null == expectedHash ? null : HashUtils.newRowHasher();
+        }
+
+        @Override
+        protected void onRow(final String[] row) {
+            if (null != hasher) {
+                hasher.update(row);
+            }
+        }
+
+        @Override
+        protected void onEnd() {
+            if (null != hasher) {
+                final String readElementsHash;
+                try {
+                    readElementsHash = hasher.getHash();
+                } catch (IOException e) {
+                    throw new CsvCryptoIOException("Error while getting hash of read elements", e).toUncheckedException();
+                }
+
+                if (!StringUtils.equals(expectedHash, readElementsHash)) {
+                    throw new WrongEncryptionPasswordException("Elements could not be decrypted because wrong password has been provided").toUncheckedException();
+                }
+            }
+
+            if (ContainerHeader.INCOMPLETE_ROW_COUNT != expectedRowCount && expectedRowCount != getRowCount()) {
+                throw new CsvCryptoIOException(String.format("Encrypted file '%s' should contain %d elements but %d were read", getFileName(), expectedRowCount, getRowCount())).toUncheckedException();
+            }
+        }
+
+        @Override
+        protected RuntimeException toUncheckedException(final Exception e) {
+            if (null != hasher && e.getCause() instanceof AEADBadTagException) {
+                // legacy files are decrypted as a stream, so a wrong password is only detected by the tag at the end
+                return new WrongEncryptionPasswordException("Elements could not be decrypted because wrong password has been provided").toUncheckedException();
+            }
+
+            return new CsvCryptoIOException(String.format("Error while reading elements from encrypted file '%s'", getFileName()), e).toUncheckedException();
+        }
+    }
+
     @Builder
     @Getter
-    private static class SaltAndIv {
+    private static class EncryptionMeta {
+        // legacy format
         private final byte[] salt;
+
+        // envelope format
+        private final byte[] storeSalt;
+        private final byte[] wrappedMasterKey;
+        private final byte[] wrappedDataKey;
+
+        // container format
+        private final byte[] keyCheckValue;
+
+        // legacy and envelope formats are always derived with the default iteration count
+        @Builder.Default
+        private final int kdfIterations = CryptoUtils.KDF_ITERATIONS;
+
         private final byte[] iv;
+
+        private boolean isEnvelope() {
+            return null != wrappedDataKey;
+        }
     }
 }
@@ -0,0 +1,27 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import com.diegocastroviadero.financemanager.cryptoutils.exception.CsvCryptoIOException;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Result of decrypting one of the files of a batch (see
+ * {@link CsvCryptoUtils#decryptAll(java.util.Collection, char[], boolean, int)}): either the decrypted elements (or
+ * their text, see {@link CsvCryptoUtils#decryptAllToText(java.util.Collection, char[], int)}) or the error that
+ * prevented the file from being decrypted.
+ */
+@Builder
+@Getter
+public class CsvDecryptionResult {
+    private final File file;
+    private final List<String[]> elements;
+    private final CsvText text;
+    private final CsvCryptoIOException error;
+
+    public boolean isSuccessful() {
+        return null == error;
+    }
+}
@@ -0,0 +1,132 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import java.math.BigDecimal;
+import java.nio.CharBuffer;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Reader of the fields of the current csv row, fields must be read in the same order they were written. Values are
+ * parsed with the same rules as {@link CsvSerializationUtils} (invalid values are read as null), straight from the
+ * buffer of the csv reader when the field is a plain range of it.
+ *
+ * Fields beyond the last one of the row are read as null.
+ */
+public class CsvFieldReader {
+    private static final int BIGDECIMAL_SCALE = 2;
+
+    private final CsvRowReader rowReader;
+    private final String[] row;
+
+    // view of the buffer of the csv reader, wrapped again when the reader grows its buffer
+    private char[] wrappedBuffer;
+    private CharBuffer bufferView;
+
+    private int next;
+
+    CsvFieldReader(final CsvRowReader rowReader) {
+        this.rowReader = rowReader;
+        this.row = null;
+    }
+
+    /**
+     * Reader of the fields of an already parsed row
+     */
+    CsvFieldReader(final String[] row) {
+        this.rowReader = null;
+        this.row = row;
+    }
+
+    void reset() {
+        next = 0;
+    }
+
+    public void skip() {
+        next++;
+    }
+
+    public String readString() {
+        final int field = next++;
+
+        if (field >= getFieldCount()) {
+            return null;
+        }
+
+        return getField(field);
+    }
+
+    public Long readLong() {
+        return read(CsvSerializationUtils::parseLong);
+    }
+
+    public BigDecimal readBigDecimal() {
+        final Long unscaled = readLong();
+
+        return null == unscaled ? null : BigDecimal.valueOf(unscaled, BIGDECIMAL_SCALE);
+    }
+
+    public LocalDate readDate() {
+        return read(CsvSerializationUtils::parseDate);
+    }
+
+    public YearMonth readYearMonth() {
+        return read(CsvSerializationUtils::parseYearMonth);
+    }
+
+    public ZonedDateTime readTimestamp(final ZoneId zone) {
+        return read((data, start, end) -> CsvSerializationUtils.parseTimestamp(data, start, end, zone));
+    }
+
+    public <E extends Enum<E>> E readEnum(final Class<E> enumType) {
+        return read((data, start, end) -> CsvSerializationUtils.parseEnum(data, start, end, enumType));
+    }
+
+    public <E extends Enum<E>> Set<E> readEnumSet(final Class<E> enumType) {
+        return CsvSerializationUtils.parseEnumSetFromCsv(readString(), enumType);
+    }
+
+    public UUID readUUID() {
+        return read(CsvSerializationUtils::parseUUID);
+    }
+
+    private <T> T read(final FieldParser<T> parser) {
+        final int field = next++;
+
+        if (field >= getFieldCount()) {
+            return null;
+        }
+
+        if (null != rowReader && rowReader.isInBuffer(field)) {
+            return parser.parse(getBufferView(), rowReader.getFieldStart(field), rowReader.getFieldEnd(field));
+        }
+
+        final String value = getField(field);
+
+        return null == value ? null : parser.parse(value, 0, value.length());
+    }
+
+    private CharBuffer getBufferView() {
+        if (wrappedBuffer != rowReader.getBuffer()) {
+            wrappedBuffer = rowReader.getBuffer();
+            bufferView = CharBuffer.wrap(wrappedBuffer);
+        }
+
+        return bufferView;
+    }
+
+    private String getField(final int field) {
+        return null == rowReader ? row[field] : rowReader.getField(field);
+    }
+
+    private int getFieldCount() {
+        return null == rowReader ? row.length : rowReader.getFieldCount();
+    }
+
+    private interface FieldParser<T> {
+        T parse(CharSequence data, int start, int end);
+    }
+}
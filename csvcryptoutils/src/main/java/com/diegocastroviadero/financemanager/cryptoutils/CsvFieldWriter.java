@@ -0,0 +1,194 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Writer of the fields of a csv row, fields are appended straight to the output of the csv writer as they are written
+ * (see {@link CsvRowWriter}). Values are formatted as {@link CsvSerializationUtils} does and null values are written
+ * as empty unquoted fields.
+ *
+ * Errors of the output are thrown as {@link UncheckedIOException}, {@link CsvRowWriter} throws its cause.
+ */
+public class CsvFieldWriter {
+    private static final char SEPARATOR = ',';
+    private static final char QUOTE = '"';
+    private static final char LINE_END = '\n';
+
+    private static final int BIGDECIMAL_SCALE = 2;
+
+    private final Appendable out;
+
+    private boolean firstField = true;
+
+    CsvFieldWriter(final Appendable out) {
+        this.out = out;
+    }
+
+    public void writeString(final String data) {
+        try {
+            startField();
+
+            if (null != data) {
+                out.append(QUOTE);
+                appendEscaped(data);
+                out.append(QUOTE);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void writeLong(final Long data) {
+        try {
+            startField();
+
+            if (null != data) {
+                out.append(QUOTE);
+                appendLong(data);
+                out.append(QUOTE);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void writeBigDecimal(final BigDecimal data) {
+        if (null == data) {
+            writeLong(null);
+        } else {
+            final BigDecimal unscaled = CsvSerializationUtils.toUnscaled(data);
+
+            if (CsvSerializationUtils.fitsInLong(unscaled)) {
+                writeLong(unscaled.longValueExact());
+            } else {
+                writeUnescaped(unscaled.toPlainString());
+            }
+        }
+    }
+
+    public void writeDate(final LocalDate data) {
+        if (null != data && out instanceof StringBuilder && CsvSerializationUtils.isFastYear(data.getYear())) {
+            CsvSerializationUtils.appendDate(data, startUnescaped());
+            endUnescaped();
+        } else {
+            writeUnescaped(CsvSerializationUtils.serializeDateToCsv(data));
+        }
+    }
+
+    public void writeYearMonth(final YearMonth data) {
+        if (null != data && out instanceof StringBuilder && CsvSerializationUtils.isFastYear(data.getYear())) {
+            CsvSerializationUtils.appendYearMonth(data, startUnescaped());
+            endUnescaped();
+        } else {
+            writeUnescaped(CsvSerializationUtils.serializeYearMonthToCsv(data));
+        }
+    }
+
+    public void writeTimestamp(final ZonedDateTime data) {
+        if (null != data && out instanceof StringBuilder && CsvSerializationUtils.isFastYear(data.getYear())) {
+            CsvSerializationUtils.appendTimestamp(data, startUnescaped());
+            endUnescaped();
+        } else {
+            writeUnescaped(CsvSerializationUtils.serializeDateToCsv(data));
+        }
+    }
+
+    public <E extends Enum<E>> void writeEnum(final E data) {
+        writeUnescaped(null == data ? null : data.name());
+    }
+
+    public <E extends Enum<E>> void writeEnumSet(final Collection<E> data) {
+        writeUnescaped(CsvSerializationUtils.serializeEnumToCsv(data));
+    }
+
+    public void writeUUID(final UUID data) {
+        writeUnescaped(CsvSerializationUtils.serializeUUIDToCsv(data));
+    }
+
+    void endRow() throws IOException {
+        out.append(LINE_END);
+
+        firstField = true;
+    }
+
+    /**
+     * Starts a new row without ending the current one, whose fields have been discarded
+     */
+    void resetRow() {
+        firstField = true;
+    }
+
+    /**
+     * Writes a value that cannot contain double quotes (dates, numbers, enums, uuids)
+     */
+    private void writeUnescaped(final String data) {
+        try {
+            startField();
+
+            if (null != data) {
+                out.append(QUOTE);
+                out.append(data);
+                out.append(QUOTE);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Starts a quoted field when the output is a StringBuilder, so that values are formatted straight into it
+     */
+    private StringBuilder startUnescaped() {
+        final StringBuilder builder = (StringBuilder) out;
+
+        if (firstField) {
+            firstField = false;
+        } else {
+            builder.append(SEPARATOR);
+        }
+
+        return builder.append(QUOTE);
+    }
+
+    private void endUnescaped() {
+        ((StringBuilder) out).append(QUOTE);
+    }
+
+    private void startField() throws IOException {
+        if (firstField) {
+            firstField = false;
+        } else {
+            out.append(SEPARATOR);
+        }
+    }
+
+    private void appendLong(final long data) throws IOException {
+        if (out instanceof StringBuilder) {
+            ((StringBuilder) out).append(data);
+        } else {
+            out.append(Long.toString(data));
+        }
+    }
+
+    private void appendEscaped(final String field) throws IOException {
+        int from = 0;
+        int quote = field.indexOf(QUOTE);
+
+        while (-1 != quote) {
+            out.append(field, from, quote + 1);
+            out.append(QUOTE);
+
+            from = quote + 1;
+            quote = field.indexOf(QUOTE, from);
+        }
+
+        out.append(field, from, field.length());
+    }
+}
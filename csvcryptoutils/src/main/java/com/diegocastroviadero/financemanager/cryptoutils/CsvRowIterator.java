@@ -0,0 +1,121 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import com.diegocastroviadero.financemanager.cryptoutils.exception.CsvIOException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterator over the rows of a csv file, rows are read one by one as they are requested.
+ *
+ * Reading errors are thrown as unchecked exceptions ({@link com.diegocastroviadero.financemanager.cryptoutils.exception.RuntimeCsvIOException}
+ * or {@link com.diegocastroviadero.financemanager.cryptoutils.exception.RuntimeCsvCryptoIOException}). The iterator
+ * must be closed, it is closed automatically when the end is reached.
+ */
+@Slf4j
+public class CsvRowIterator implements Iterator<String[]>, Closeable {
+    private final CsvRowReader reader;
+    private final String fileName;
+
+    private String[] nextRow;
+    private boolean finished;
+    private int rowCount;
+
+    CsvRowIterator(final CsvRowReader reader, final String fileName) {
+        this.reader = reader;
+        this.fileName = fileName;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (null == nextRow && !finished) {
+            try {
+                nextRow = reader.readNext();
+            } catch (IOException e) {
+                closeQuietly();
+
+                throw toUncheckedException(e);
+            }
+
+            if (null == nextRow) {
+                finished = true;
+
+                closeQuietly();
+
+                log.debug("Read {} elements from file '{}'", rowCount, fileName);
+
+                onEnd();
+            } else {
+                rowCount++;
+
+                onRow(nextRow);
+            }
+        }
+
+        return null != nextRow;
+    }
+
+    @Override
+    public String[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        final String[] row = nextRow;
+        nextRow = null;
+
+        return row;
+    }
+
+    /**
+     * Returns a sequential stream of the remaining rows, closing the stream closes the iterator
+     */
+    public Stream<String[]> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::closeQuietly);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Called for every read row before it is returned
+     */
+    protected void onRow(final String[] row) {
+    }
+
+    /**
+     * Called once when all the rows have been read
+     */
+    protected void onEnd() {
+    }
+
+    protected RuntimeException toUncheckedException(final Exception e) {
+        return new CsvIOException(String.format("Error while reading elements from plain file '%s'", fileName), e).toUncheckedException();
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            log.warn("Error while closing file '{}'", fileName, e);
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * RFC 4180 csv reader: fields are separated by the separator, rows by '\n' or "\r\n", and fields enclosed in double
+ * quotes may contain separators, line breaks and double quotes (escaped by doubling them).
+ *
+ * Rows are parsed in place in a reused char buffer: the buffer is refilled (and grown if a row does not fit in it)
+ * only when a row is not complete, and only the boundaries of the fields in the buffer are recorded. Fields are
+ * created from the buffer when the row is returned as an array, or decoded straight from it by a {@link RowCodec}
+ * (see {@link #readNext(RowCodec)}). Quoted fields are only copied when they contain escaped double quotes.
+ *
+ * Parsing is lenient like opencsv's: characters after the closing quote are appended to the field and double
+ * quotes in unquoted fields are kept as they are. Unlike opencsv, backslashes are not escape characters, as they
+ * are never escaped when written (see {@link CsvRowWriter}).
+ */
+public class CsvRowReader implements Closeable {
+    public static final char DEFAULT_SEPARATOR = ',';
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final char QUOTE = '"';
+
+    private final Reader reader;
+    private final char separator;
+
+    private char[] buffer;
+    private int position;
+    private int limit;
+    private boolean eof;
+
+    private int linesToSkip;
+
+    // boundaries of the fields of the current row in the buffer, fields that are not a plain range of the buffer
+    // (escaped double quotes or characters after the closing quote) are created when the row is parsed
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private String[] unescapedFields = new String[16];
+    private int fieldCount;
+
+    private CsvFieldReader fieldReader;
+
+    public CsvRowReader(final Reader reader) {
+        this(reader, 0, DEFAULT_SEPARATOR);
+    }
+
+    public CsvRowReader(final Reader reader, final int skipLines, final char separator) {
+        this.reader = reader;
+        this.separator = separator;
+        this.buffer = new char[BUFFER_SIZE];
+        this.linesToSkip = skipLines;
+    }
+
+    /**
+     * Reader of rows already in memory, they are parsed in place in given chars
+     */
+    CsvRowReader(final char[] chars, final int length) {
+        this.reader = null;
+        this.separator = DEFAULT_SEPARATOR;
+        this.buffer = chars;
+        this.limit = length;
+        this.eof = true;
+    }
+
+    /**
+     * Returns the next row, or null if there are no more rows
+     */
+    public String[] readNext() throws IOException {
+        if (!nextRow()) {
+            return null;
+        }
+
+        final String[] row = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            row[i] = getField(i);
+        }
+
+        return row;
+    }
+
+    /**
+     * Returns the next row decoded with given codec, or null if there are no more rows. Fields are decoded straight
+     * from the buffer, without creating the array of fields
+     */
+    public <T> T readNext(final RowCodec<T> codec) throws IOException {
+        if (!nextRow()) {
+            return null;
+        }
+
+        return readCurrent(codec);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (null != reader) {
+            reader.close();
+        }
+    }
+
+    /**
+     * Decodes the row already parsed with {@link #nextRow()}
+     */
+    <T> T readCurrent(final RowCodec<T> codec) {
+        if (null == fieldReader) {
+            fieldReader = new CsvFieldReader(this);
+        }
+
+        fieldReader.reset();
+
+        return codec.read(fieldReader);
+    }
+
+    int getFieldCount() {
+        return fieldCount;
+    }
+
+    String getField(final int field) {
+        final String unescaped = unescapedFields[field];
+
+        return null != unescaped ? unescaped : new String(buffer, fieldStarts[field], fieldEnds[field] - fieldStarts[field]);
+    }
+
+    /**
+     * Returns whether the field is a plain range of the buffer (see {@link #getBuffer()})
+     */
+    boolean isInBuffer(final int field) {
+        return null == unescapedFields[field];
+    }
+
+    char[] getBuffer() {
+        return buffer;
+    }
+
+    int getFieldStart(final int field) {
+        return fieldStarts[field];
+    }
+
+    int getFieldEnd(final int field) {
+        return fieldEnds[field];
+    }
+
+    /**
+     * Parses the next row without creating its fields, returning false if there are no more rows
+     */
+    boolean nextRow() throws IOException {
+        while (linesToSkip > 0) {
+            if (!skipLine()) {
+                return false;
+            }
+
+            linesToSkip--;
+        }
+
+        if (position == limit && !fill()) {
+            return false;
+        }
+
+        while (!parseRow()) {
+            // row is not complete in the buffer
+            if (!fill()) {
+                throw new IOException("Unexpected end of csv data inside a quoted field");
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Parses the row starting at the current position, returning false (without consuming anything) if the row is
+     * not complete in the buffer
+     */
+    private boolean parseRow() {
+        int p = position;
+        fieldCount = 0;
+
+        while (true) {
+            final int fieldStart;
+            final int fieldEnd;
+            String unescaped = null;
+
+            if (p < limit && QUOTE == buffer[p]) {
+                final int start = p + 1;
+                boolean escapedQuotes = false;
+
+                p = start;
+                while (true) {
+                    while (p < limit && QUOTE != buffer[p]) {
+                        p++;
+                    }
+
+                    if (p == limit || (p + 1 == limit && !eof)) {
+                        // closing quote not found yet, or it is unknown whether it is an escaped quote
+                        return false;
+                    }
+
+                    if (p + 1 < limit && QUOTE == buffer[p + 1]) {
+                        escapedQuotes = true;
+                        p += 2;
+                    } else {
+                        break;
+                    }
+                }
+
+                fieldStart = start;
+                fieldEnd = p;
+                p++;
+
+                final int end = findFieldEnd(p);
+                if (escapedQuotes || end != p) {
+                    unescaped = escapedQuotes ? unescape(start, fieldEnd) : new String(buffer, start, fieldEnd - start);
+
+                    if (end != p) {
+                        unescaped = unescaped.concat(new String(buffer, p, end - p));
+                        p = end;
+                    }
+                }
+            } else {
+                fieldStart = p;
+                fieldEnd = findFieldEnd(p);
+                p = fieldEnd;
+            }
+
+            if (p == limit && !eof) {
+                return false;
+            }
+
+            addField(fieldStart, fieldEnd, unescaped);
+
+            if (p == limit) {
+                position = p;
+
+                return true;
+            }
+
+            final char c = buffer[p];
+
+            if (separator == c) {
+                p++;
+            } else if ('\n' == c) {
+                position = p + 1;
+
+                return true;
+            } else {
+                // '\r', a following '\n' is part of the line break
+                if (p + 1 == limit && !eof) {
+                    return false;
+                }
+
+                position = p + 1 < limit && '\n' == buffer[p + 1] ? p + 2 : p + 1;
+
+                return true;
+            }
+        }
+    }
+
+    private int findFieldEnd(final int from) {
+        int p = from;
+
+        while (p < limit) {
+            final char c = buffer[p];
+
+            if (separator == c || '\n' == c || '\r' == c) {
+                break;
+            }
+
+            p++;
+        }
+
+        return p;
+    }
+
+    private String unescape(final int start, final int end) {
+        final char[] chars = new char[end - start];
+        int length = 0;
+
+        for (int p = start; p < end; p++) {
+            chars[length++] = buffer[p];
+
+            if (QUOTE == buffer[p]) {
+                // escaped quote, the second one is skipped
+                p++;
+            }
+        }
+
+        return new String(chars, 0, length);
+    }
+
+    private void addField(final int start, final int end, final String unescaped) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+            unescapedFields = Arrays.copyOf(unescapedFields, fieldCount * 2);
+        }
+
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        unescapedFields[fieldCount] = unescaped;
+        fieldCount++;
+    }
+
+    private boolean skipLine() throws IOException {
+        while (true) {
+            while (position < limit) {
+                if ('\n' == buffer[position++]) {
+                    return true;
+                }
+            }
+
+            if (!fill()) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Reads more chars after the ones not consumed yet, moving them to the beginning of the buffer (or to a bigger
+     * buffer if it is full). Returns false if there are no more chars
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+
+        final int remaining = limit - position;
+
+        if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        } else if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+        }
+
+        position = 0;
+        limit = remaining;
+
+        int read;
+        do {
+            read = reader.read(buffer, limit, buffer.length - limit);
+        } while (0 == read);
+
+        if (-1 == read) {
+            eof = true;
+
+            return remaining > 0;
+        }
+
+        limit += read;
+
+        return true;
+    }
+}
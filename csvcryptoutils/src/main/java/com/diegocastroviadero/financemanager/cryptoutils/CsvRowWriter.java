@@ -0,0 +1,99 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * RFC 4180 csv writer, writing rows exactly as opencsv's CSVWriter does with its defaults (so files are the same
+ * byte by byte): every field is enclosed in double quotes, double quotes are escaped by doubling them, null fields
+ * are written empty and unquoted, and rows end with '\n'.
+ *
+ * Fields are appended straight to the output (see {@link CsvFieldWriter}), fields without double quotes (almost all
+ * of them) are appended as they are, without being copied. If a row cannot be written (e.g. its codec throws), the
+ * fields already written of it are discarded when the output is a {@link StringBuilder} (as the chunks of the
+ * containers are), so the output never has half rows.
+ */
+public class CsvRowWriter implements Closeable, Flushable {
+    private final Appendable out;
+    private final CsvFieldWriter fieldWriter;
+
+    public CsvRowWriter(final Appendable out) {
+        this.out = out;
+        this.fieldWriter = new CsvFieldWriter(out);
+    }
+
+    public void writeNext(final String[] row) throws IOException {
+        if (null == row) {
+            return;
+        }
+
+        final int rowStart = getLength();
+        boolean written = false;
+
+        try {
+            for (String field : row) {
+                fieldWriter.writeString(field);
+            }
+
+            written = true;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            if (!written) {
+                discardRow(rowStart);
+            }
+        }
+
+        fieldWriter.endRow();
+    }
+
+    /**
+     * Writes an element as a row encoded with given codec
+     */
+    public <T> void write(final T element, final RowCodec<T> codec) throws IOException {
+        final int rowStart = getLength();
+        boolean written = false;
+
+        try {
+            codec.write(element, fieldWriter);
+
+            written = true;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            if (!written) {
+                discardRow(rowStart);
+            }
+        }
+
+        fieldWriter.endRow();
+    }
+
+    private int getLength() {
+        return out instanceof StringBuilder ? ((StringBuilder) out).length() : -1;
+    }
+
+    private void discardRow(final int rowStart) {
+        if (out instanceof StringBuilder) {
+            ((StringBuilder) out).setLength(rowStart);
+        }
+
+        fieldWriter.resetRow();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (out instanceof Flushable) {
+            ((Flushable) out).flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out instanceof Closeable) {
+            ((Closeable) out).close();
+        }
+    }
+}
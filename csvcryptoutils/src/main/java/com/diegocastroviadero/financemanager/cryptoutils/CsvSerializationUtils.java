@@ -7,11 +7,21 @@ import java.time.*;
 import java.time.format.DateTimeFormatter;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
+/**
+ * Serialization of values to csv fields and parsing of them back.
+ *
+ * Values with the default formats (yyyy/MM/dd dates, yyyy/MM year months, yyyy/MM/dd HH:mm:ss.SSS timestamps, longs,
+ * unscaled decimals, uuids and enums) are parsed by hand, without formatters nor exceptions, and dates and decimals
+ * are formatted by hand too. They give the same results as the formatters (and Long.parseLong, UUID.fromString and
+ * Enum.valueOf) did: the uncommon spellings the fast paths do not know about (years with sign, 24:00 timestamps, uuids
+ * with short components) are still handed to them.
+ */
 public class CsvSerializationUtils {
     private static final DateTimeFormatter CSV_DATE_FORMATTER_DEFAULT = DateTimeFormatter.ofPattern("yyyy/MM/dd");
     private static final DateTimeFormatter CSV_DATETIME_FORMATTER_DEFAULT = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss.SSS");
@@ -20,8 +30,53 @@ public class CsvSerializationUtils {
     private static final String CSV_LIST_SEPARATOR = "#";
     private static final int BIGDECIMAL_SCALE = 2;
 
+    // layouts of the default formats
+    private static final int DATE_LENGTH = 10;
+    private static final int YEARMONTH_LENGTH = 7;
+    private static final int TIMESTAMP_LENGTH = 23;
+    private static final int UUID_LENGTH = 36;
+
+    // years with 4 digits, the only ones formatted without sign by the default formats
+    private static final int MIN_FAST_YEAR = 1;
+    private static final int MAX_FAST_YEAR = 9999;
+
+    // unscaled decimals with at most 18 digits always fit in a long
+    private static final int MAX_LONG_PRECISION = 18;
+
+    private static final ClassValue<Enum<?>[]> ENUM_CONSTANTS = new ClassValue<>() {
+        @Override
+        protected Enum<?>[] computeValue(final Class<?> type) {
+            return (Enum<?>[]) type.getEnumConstants();
+        }
+    };
+
+    private static final ClassValue<Map<String, Enum<?>>> ENUM_CONSTANTS_BY_NAME = new ClassValue<>() {
+        @Override
+        protected Map<String, Enum<?>> computeValue(final Class<?> type) {
+            final Map<String, Enum<?>> constants = new HashMap<>();
+            for (Enum<?> constant : ENUM_CONSTANTS.get(type)) {
+                constants.put(constant.name(), constant);
+            }
+
+            return constants;
+        }
+    };
+
     public static String serializeDateToCsv(final LocalDate data) {
-        return serializeDateToCsv(data, CSV_DATE_FORMATTER_DEFAULT);
+        String result = null;
+
+        if (null != data) {
+            if (isFastYear(data.getYear())) {
+                final StringBuilder builder = new StringBuilder(DATE_LENGTH);
+                appendDate(data, builder);
+
+                result = builder.toString();
+            } else {
+                result = serializeDateToCsv(data, CSV_DATE_FORMATTER_DEFAULT);
+            }
+        }
+
+        return result;
     }
 
     public static String serializeDateToCsv(final LocalDate data, final DateTimeFormatter formatter) {
@@ -35,7 +90,20 @@ public class CsvSerializationUtils {
     }
 
     public static String serializeYearMonthToCsv(final YearMonth data) {
-        return serializeYearMonthToCsv(data, CSV_YEARMONTH_FORMATTER_DEFAULT);
+        String result = null;
+
+        if (null != data) {
+            if (isFastYear(data.getYear())) {
+                final StringBuilder builder = new StringBuilder(YEARMONTH_LENGTH);
+                appendYearMonth(data, builder);
+
+                result = builder.toString();
+            } else {
+                result = serializeYearMonthToCsv(data, CSV_YEARMONTH_FORMATTER_DEFAULT);
+            }
+        }
+
+        return result;
     }
 
     public static String serializeYearMonthToCsv(final YearMonth data, final DateTimeFormatter formatter) {
@@ -49,7 +117,20 @@ public class CsvSerializationUtils {
     }
 
     public static String serializeDateToCsv(final ZonedDateTime data) {
-        return serializeDateToCsv(data, CSV_DATETIME_FORMATTER_DEFAULT);
+        String result = null;
+
+        if (null != data) {
+            if (isFastYear(data.getYear())) {
+                final StringBuilder builder = new StringBuilder(TIMESTAMP_LENGTH);
+                appendTimestamp(data, builder);
+
+                result = builder.toString();
+            } else {
+                result = serializeDateToCsv(data, CSV_DATETIME_FORMATTER_DEFAULT);
+            }
+        }
+
+        return result;
     }
 
     public static String serializeDateToCsv(final ZonedDateTime data, final DateTimeFormatter formatter) {
@@ -76,7 +157,9 @@ public class CsvSerializationUtils {
         String result = null;
 
         if (null != data) {
-            result = data.setScale(BIGDECIMAL_SCALE).unscaledValue().toString();
+            final BigDecimal unscaled = toUnscaled(data);
+
+            result = fitsInLong(unscaled) ? Long.toString(unscaled.longValueExact()) : unscaled.toPlainString();
         }
 
         return result;
@@ -96,9 +179,17 @@ public class CsvSerializationUtils {
         String result = null;
 
         if (null != data) {
-            result = data.stream()
-                    .map(Enum::name)
-                    .collect(Collectors.joining(CSV_LIST_SEPARATOR));
+            final StringBuilder builder = new StringBuilder();
+
+            for (E element : data) {
+                if (builder.length() > 0) {
+                    builder.append(CSV_LIST_SEPARATOR);
+                }
+
+                builder.append(element.name());
+            }
+
+            result = builder.toString();
         }
 
         return result;
@@ -115,7 +206,7 @@ public class CsvSerializationUtils {
     }
 
     public static YearMonth parseYearMonthFromCsv(final String rawCsvData) {
-        return parseYearMonthFromCsv(rawCsvData, CSV_YEARMONTH_FORMATTER_DEFAULT);
+        return null == rawCsvData ? null : parseYearMonth(rawCsvData, 0, rawCsvData.length());
     }
 
     public static YearMonth parseYearMonthFromCsv(final String rawCsvData, final DateTimeFormatter formatter) {
@@ -131,7 +222,7 @@ public class CsvSerializationUtils {
     }
 
     public static LocalDate parseDateFromCsv(final String rawCsvData) {
-        return parseDateFromCsv(rawCsvData, CSV_DATE_FORMATTER_DEFAULT);
+        return null == rawCsvData ? null : parseDate(rawCsvData, 0, rawCsvData.length());
     }
 
     public static LocalDate parseDateFromCsv(final String rawCsvData, final DateTimeFormatter formatter) {
@@ -147,7 +238,7 @@ public class CsvSerializationUtils {
     }
 
     public static ZonedDateTime parseTimestampFromCsv(final String rawCsvData, final ZoneId zone) {
-        return parseTimestampFromCsv(rawCsvData, CSV_DATETIME_FORMATTER_DEFAULT, zone);
+        return null == rawCsvData ? null : parseTimestamp(rawCsvData, 0, rawCsvData.length(), zone);
     }
 
     public static ZonedDateTime parseTimestampFromCsv(final String rawCsvData, final DateTimeFormatter formatter, final ZoneId zone) {
@@ -164,69 +255,368 @@ public class CsvSerializationUtils {
     }
 
     public static Long parseLongFromCsv(final String rawCsvData) {
-        Long result = null;
+        return null == rawCsvData ? null : parseLong(rawCsvData, 0, rawCsvData.length());
+    }
+
+    public static BigDecimal parseLongAsBigDecimalFromCsv(final String rawCsvData) {
+        final Long unscaled = parseLongFromCsv(rawCsvData);
+
+        return null == unscaled ? null : BigDecimal.valueOf(unscaled, BIGDECIMAL_SCALE);
+    }
+
+    public static <E extends Enum<E>> E parseEnumFromCsv(final String rawCsvData, final Class<E> enumType) {
+        return null == rawCsvData ? null : parseEnum(rawCsvData, 0, rawCsvData.length(), enumType);
+    }
+
+    public static <E extends Enum<E>> Set<E> parseEnumSetFromCsv(final String rawCsvData, final Class<E> enumType) {
+        Set<E> result = Collections.emptySet();
 
         if (StringUtils.isNotBlank(rawCsvData) && !StringUtils.equals(rawCsvData, "null")) {
-            try {
-                result = Long.parseLong(rawCsvData);
-            } catch (Exception ignore) {
+            // values that are not constants of the enum are kept as null (as they always were)
+            final String[] rawEnums = rawCsvData.split(CSV_LIST_SEPARATOR);
+
+            result = new HashSet<>();
+            for (String rawEnum : rawEnums) {
+                result.add(parseEnumFromCsv(rawEnum, enumType));
             }
         }
 
         return result;
     }
 
-    public static BigDecimal parseLongAsBigDecimalFromCsv(final String rawCsvData) {
-        BigDecimal result = null;
+    public static UUID parseUUIDFromCsv(final String rawCsvData) {
+        return null == rawCsvData ? null : parseUUID(rawCsvData, 0, rawCsvData.length());
+    }
 
-        if (StringUtils.isNotBlank(rawCsvData) && !StringUtils.equals(rawCsvData, "null")) {
-            try {
-                result = BigDecimal.valueOf(parseLongFromCsv(rawCsvData), BIGDECIMAL_SCALE);
-            } catch (Exception ignore) {
+    /**
+     * Parses a long from a range of chars as Long.parseLong does (null when it is not a valid long)
+     */
+    static Long parseLong(final CharSequence data, final int start, final int end) {
+        if (start == end) {
+            return null;
+        }
+
+        int i = start;
+        boolean negative = false;
+        long limit = -Long.MAX_VALUE;
+
+        // accumulated negatively (as Long.parseLong does), so that Long.MIN_VALUE can be parsed
+        final char first = data.charAt(i);
+        if (first < '0') {
+            if (first == '-') {
+                negative = true;
+                limit = Long.MIN_VALUE;
+            } else if (first != '+') {
+                return null;
+            }
+
+            if (end - start == 1) {
+                return null;
+            }
+
+            i++;
+        }
+
+        final long multmin = limit / 10;
+        long result = 0L;
+
+        while (i < end) {
+            final int digit = digit(data.charAt(i++));
+
+            if (digit < 0 || result < multmin) {
+                return null;
+            }
+
+            result *= 10;
+
+            if (result < limit + digit) {
+                return null;
+            }
+
+            result -= digit;
+        }
+
+        return negative ? result : -result;
+    }
+
+    /**
+     * Parses a yyyy/MM/dd date from a range of chars (null when it is not a valid date)
+     */
+    static LocalDate parseDate(final CharSequence data, final int start, final int end) {
+        if (end - start == DATE_LENGTH && data.charAt(start + 4) == '/' && data.charAt(start + 7) == '/') {
+            return toDate(parseDigits(data, start, 4), parseDigits(data, start + 5, 2), parseDigits(data, start + 8, 2));
+        }
+
+        return hasSign(data, start, end) ? parseDateFromCsv(data.subSequence(start, end).toString(), CSV_DATE_FORMATTER_DEFAULT) : null;
+    }
+
+    /**
+     * Parses a yyyy/MM year month from a range of chars (null when it is not a valid year month)
+     */
+    static YearMonth parseYearMonth(final CharSequence data, final int start, final int end) {
+        if (end - start == YEARMONTH_LENGTH && data.charAt(start + 4) == '/') {
+            final int year = parseDigits(data, start, 4);
+            final int month = parseDigits(data, start + 5, 2);
+
+            return year < MIN_FAST_YEAR || month < 1 || month > 12 ? null : YearMonth.of(year, month);
+        }
+
+        return hasSign(data, start, end) ? parseYearMonthFromCsv(data.subSequence(start, end).toString(), CSV_YEARMONTH_FORMATTER_DEFAULT) : null;
+    }
+
+    /**
+     * Parses a yyyy/MM/dd HH:mm:ss.SSS timestamp from a range of chars (null when it is not a valid timestamp)
+     */
+    static ZonedDateTime parseTimestamp(final CharSequence data, final int start, final int end, final ZoneId zone) {
+        if (end - start == TIMESTAMP_LENGTH && data.charAt(start + 4) == '/' && data.charAt(start + 7) == '/' && data.charAt(start + 10) == ' '
+                && data.charAt(start + 13) == ':' && data.charAt(start + 16) == ':' && data.charAt(start + 19) == '.') {
+            final int hour = parseDigits(data, start + 11, 2);
+
+            // 24:00:00.000 is the midnight of the next day for the formatter
+            if (hour != 24) {
+                final LocalDate date = toDate(parseDigits(data, start, 4), parseDigits(data, start + 5, 2), parseDigits(data, start + 8, 2));
+                final int minute = parseDigits(data, start + 14, 2);
+                final int second = parseDigits(data, start + 17, 2);
+                final int millis = parseDigits(data, start + 20, 3);
+
+                if (null == date || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 || millis < 0) {
+                    return null;
+                }
+
+                return LocalDateTime.of(date, LocalTime.of(hour, minute, second, millis * 1_000_000))
+                        .atZone(zone);
+            }
+        } else if (!hasSign(data, start, end)) {
+            return null;
+        }
+
+        return parseTimestampFromCsv(data.subSequence(start, end).toString(), CSV_DATETIME_FORMATTER_DEFAULT, zone);
+    }
+
+    /**
+     * Parses the constant of an enum from a range of chars (null when it is not the name of any of its constants)
+     */
+    @SuppressWarnings("unchecked")
+    static <E extends Enum<E>> E parseEnum(final CharSequence data, final int start, final int end, final Class<E> enumType) {
+        // whole strings are looked up by name (their hash is cached), ranges of a buffer are compared with every name
+        if (data instanceof String && start == 0 && end == data.length()) {
+            return (E) ENUM_CONSTANTS_BY_NAME.get(enumType).get(data);
+        }
+
+        for (Enum<?> constant : ENUM_CONSTANTS.get(enumType)) {
+            if (equals(constant.name(), data, start, end)) {
+                return (E) constant;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Parses an uuid from a range of chars (null when it is not a valid uuid)
+     */
+    static UUID parseUUID(final CharSequence data, final int start, final int end) {
+        if (end - start == UUID_LENGTH && data.charAt(start + 8) == '-' && data.charAt(start + 13) == '-' && data.charAt(start + 18) == '-'
+                && data.charAt(start + 23) == '-') {
+            final long group1 = parseHex(data, start, 8);
+            final long group2 = parseHex(data, start + 9, 4);
+            final long group3 = parseHex(data, start + 14, 4);
+            final long group4 = parseHex(data, start + 19, 4);
+            final long group5 = parseHex(data, start + 24, 12);
+
+            if (group1 >= 0 && group2 >= 0 && group3 >= 0 && group4 >= 0 && group5 >= 0) {
+                return new UUID((group1 << 32) | (group2 << 16) | group3, (group4 << 48) | group5);
             }
         }
 
+        // UUID.fromString also takes components without leading zeros, but it always needs 4 dashes
+        if (end - start > UUID_LENGTH || countDashes(data, start, end) != 4) {
+            return null;
+        }
+
+        UUID result = null;
+
+        try {
+            result = UUID.fromString(data.subSequence(start, end).toString());
+        } catch (Exception ignore) {
+        }
+
         return result;
     }
 
-    public static <E extends Enum<E>> E parseEnumFromCsv(final String rawCsvData, final Class<E> enumType) {
-        E result = null;
+    static boolean isFastYear(final int year) {
+        return year >= MIN_FAST_YEAR && year <= MAX_FAST_YEAR;
+    }
 
-        if (StringUtils.isNotBlank(rawCsvData) && !StringUtils.equals(rawCsvData, "null")) {
-            try {
-                result = Enum.valueOf(enumType, rawCsvData);
-            } catch (Exception ignore) {
+    /**
+     * Appends a date as yyyy/MM/dd, its year must be a fast one (see {@link #isFastYear(int)})
+     */
+    static void appendDate(final LocalDate data, final StringBuilder builder) {
+        appendDigits(data.getYear(), 4, builder);
+        builder.append('/');
+        appendDigits(data.getMonthValue(), 2, builder);
+        builder.append('/');
+        appendDigits(data.getDayOfMonth(), 2, builder);
+    }
+
+    /**
+     * Appends a year month as yyyy/MM, its year must be a fast one (see {@link #isFastYear(int)})
+     */
+    static void appendYearMonth(final YearMonth data, final StringBuilder builder) {
+        appendDigits(data.getYear(), 4, builder);
+        builder.append('/');
+        appendDigits(data.getMonthValue(), 2, builder);
+    }
+
+    /**
+     * Appends a timestamp as yyyy/MM/dd HH:mm:ss.SSS, its year must be a fast one (see {@link #isFastYear(int)})
+     */
+    static void appendTimestamp(final ZonedDateTime data, final StringBuilder builder) {
+        appendDate(data.toLocalDate(), builder);
+        builder.append(' ');
+        appendDigits(data.getHour(), 2, builder);
+        builder.append(':');
+        appendDigits(data.getMinute(), 2, builder);
+        builder.append(':');
+        appendDigits(data.getSecond(), 2, builder);
+        builder.append('.');
+        appendDigits(data.getNano() / 1_000_000, 3, builder);
+    }
+
+    /**
+     * Unscaled value of a decimal (with the scale of the csv files) as a decimal with scale 0, so that its long value
+     * can be taken without creating a BigInteger
+     */
+    static BigDecimal toUnscaled(final BigDecimal data) {
+        return data.setScale(BIGDECIMAL_SCALE).scaleByPowerOfTen(BIGDECIMAL_SCALE);
+    }
+
+    static boolean fitsInLong(final BigDecimal unscaled) {
+        return unscaled.precision() <= MAX_LONG_PRECISION;
+    }
+
+    /**
+     * Resolves a date as the default formatter does: days that do not exist in the month are moved to its last day
+     */
+    private static LocalDate toDate(final int year, final int month, final int day) {
+        if (year < MIN_FAST_YEAR || month < 1 || month > 12 || day < 1 || day > 31) {
+            return null;
+        }
+
+        int resolvedDay = day;
+        if (month == 4 || month == 6 || month == 9 || month == 11) {
+            resolvedDay = Math.min(day, 30);
+        } else if (month == 2) {
+            resolvedDay = Math.min(day, Month.FEBRUARY.length(Year.isLeap(year)));
+        }
+
+        return LocalDate.of(year, month, resolvedDay);
+    }
+
+    /**
+     * Value of a fixed number of ascii digits, -1 when any of them is not a digit
+     */
+    private static int parseDigits(final CharSequence data, final int start, final int length) {
+        int result = 0;
+
+        for (int i = start; i < start + length; i++) {
+            final int digit = data.charAt(i) - '0';
+
+            if (digit < 0 || digit > 9) {
+                return -1;
             }
+
+            result = result * 10 + digit;
         }
 
         return result;
     }
 
-    public static <E extends Enum<E>> Set<E> parseEnumSetFromCsv(final String rawCsvData, final Class<E> enumType) {
-        Set<E> result = Collections.emptySet();
+    /**
+     * Value of a fixed number (at most 15) of hexadecimal ascii digits, -1 when any of them is not one
+     */
+    private static long parseHex(final CharSequence data, final int start, final int length) {
+        long result = 0L;
 
-        if (StringUtils.isNotBlank(rawCsvData) && !StringUtils.equals(rawCsvData, "null")) {
-            try {
-                result = Stream.of(rawCsvData.split(CSV_LIST_SEPARATOR))
-                        .map(rawEnum -> parseEnumFromCsv(rawEnum, enumType))
-                        .collect(Collectors.toSet());
-            } catch (Exception ignore) {
+        for (int i = start; i < start + length; i++) {
+            final int digit = hexDigit(data.charAt(i));
+
+            if (digit < 0) {
+                return -1L;
             }
+
+            result = (result << 4) | digit;
         }
 
         return result;
     }
 
-    public static UUID parseUUIDFromCsv(final String rawCsvData) {
-        UUID result = null;
+    private static int digit(final char c) {
+        final int digit = c - '0';
 
-        if (StringUtils.isNotBlank(rawCsvData) && !StringUtils.equals(rawCsvData, "null")) {
-            try {
-                result = UUID.fromString(rawCsvData);
-            } catch (Exception ignore) {
+        // only the rest of unicode digits need Character.digit
+        return digit >= 0 && digit <= 9 ? digit : c < 128 ? -1 : Character.digit(c, 10);
+    }
+
+    private static int hexDigit(final char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Only years with more than 4 digits can be parsed by the default formatters apart from the fixed layouts, and
+     * they must start with a plus sign
+     */
+    private static boolean hasSign(final CharSequence data, final int start, final int end) {
+        return start < end && data.charAt(start) == '+';
+    }
+
+    private static int countDashes(final CharSequence data, final int start, final int end) {
+        int result = 0;
+
+        for (int i = start; i < end; i++) {
+            if (data.charAt(i) == '-') {
+                result++;
+            }
+        }
+
+        return result;
+    }
+
+    private static boolean equals(final String name, final CharSequence data, final int start, final int end) {
+        if (name.length() != end - start) {
+            return false;
+        }
+
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != data.charAt(start + i)) {
+                return false;
             }
         }
 
+        return true;
+    }
+
+    private static void appendDigits(final int value, final int length, final StringBuilder builder) {
+        for (int divisor = pow10(length - 1); divisor > 0; divisor /= 10) {
+            builder.append((char) ('0' + value / divisor % 10));
+        }
+    }
+
+    private static int pow10(final int exponent) {
+        int result = 1;
+
+        for (int i = 0; i < exponent; i++) {
+            result *= 10;
+        }
+
         return result;
     }
 }
@@ -0,0 +1,161 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Csv rows kept in memory as text (as they are written in csv files). Rows are decoded from the text every time they
+ * are read, so every reader gets its own elements, and the text is much more compact than the decoded elements or
+ * their arrays of fields. Text is validated when it is created, so reading it does not fail.
+ */
+public class CsvText {
+    private static final int INITIAL_SIZE = 8 * 1024;
+
+    private final char[] chars;
+    private final int length;
+    private final int rowCount;
+
+    private CsvText(final char[] chars, final int length, final int rowCount) {
+        this.chars = chars;
+        this.length = length;
+        this.rowCount = rowCount;
+    }
+
+    public static <T> CsvText of(final List<T> elements, final RowCodec<T> codec) {
+        final StringBuilder text = new StringBuilder();
+        final CsvRowWriter writer = new CsvRowWriter(text);
+
+        try {
+            for (T element : elements) {
+                writer.write(element, codec);
+            }
+        } catch (IOException e) {
+            // this exception should never be thrown because rows are written in memory
+            throw new RuntimeException("This exception should not have been thrown", e);
+        }
+
+        return of(text, elements.size());
+    }
+
+    public static CsvText of(final List<String[]> rows) {
+        final StringBuilder text = new StringBuilder();
+        final CsvRowWriter writer = new CsvRowWriter(text);
+        int rowCount = 0;
+
+        try {
+            for (String[] row : rows) {
+                if (null != row) {
+                    writer.writeNext(row);
+                    rowCount++;
+                }
+            }
+        } catch (IOException e) {
+            // this exception should never be thrown because rows are written in memory
+            throw new RuntimeException("This exception should not have been thrown", e);
+        }
+
+        return of(text, rowCount);
+    }
+
+    /**
+     * Reads all the text of given reader (reader is not closed)
+     * @throws IOException if the text cannot be read or it is not valid csv
+     */
+    static CsvText read(final Reader reader) throws IOException {
+        return read(reader, INITIAL_SIZE);
+    }
+
+    /**
+     * Reads all the chars of given reader, expecting about given length (the buffer is grown if there are more)
+     */
+    static CsvText read(final Reader reader, final int expectedLength) throws IOException {
+        char[] chars = new char[Math.max(expectedLength, 1)];
+        int length = 0;
+
+        int read;
+        while (-1 != (read = reader.read(chars, length, chars.length - length))) {
+            length += read;
+
+            if (length == chars.length) {
+                chars = Arrays.copyOf(chars, chars.length * 2);
+            }
+        }
+
+        final CsvRowReader rowReader = new CsvRowReader(chars, length);
+        int rowCount = 0;
+
+        while (rowReader.nextRow()) {
+            rowCount++;
+        }
+
+        return new CsvText(chars, length, rowCount);
+    }
+
+    public <T> List<T> read(final RowCodec<T> codec) {
+        return readLast(codec, rowCount);
+    }
+
+    /**
+     * Decodes the last elements (at most the given number of them), previous rows are skipped without decoding them
+     */
+    public <T> List<T> readLast(final RowCodec<T> codec, final int numberOfElements) {
+        final int from = Math.max(0, rowCount - numberOfElements);
+        final List<T> elements = new ArrayList<>(rowCount - from);
+
+        try {
+            final CsvRowReader reader = new CsvRowReader(chars, length);
+
+            for (int i = 0; i < from; i++) {
+                reader.nextRow();
+            }
+
+            for (int i = from; i < rowCount; i++) {
+                elements.add(reader.readNext(codec));
+            }
+        } catch (IOException e) {
+            // this exception should never be thrown because text is validated when it is created
+            throw new RuntimeException("This exception should not have been thrown", e);
+        }
+
+        return elements;
+    }
+
+    public List<String[]> readRows() {
+        final List<String[]> rows = new ArrayList<>(rowCount);
+
+        try {
+            final CsvRowReader reader = new CsvRowReader(chars, length);
+
+            String[] row;
+            while (null != (row = reader.readNext())) {
+                rows.add(row);
+            }
+        } catch (IOException e) {
+            // this exception should never be thrown because text is validated when it is created
+            throw new RuntimeException("This exception should not have been thrown", e);
+        }
+
+        return rows;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Returns the length of the text in chars
+     */
+    public int getLength() {
+        return length;
+    }
+
+    private static CsvText of(final StringBuilder text, final int rowCount) {
+        final char[] chars = new char[text.length()];
+        text.getChars(0, text.length(), chars, 0);
+
+        return new CsvText(chars, chars.length, rowCount);
+    }
+}
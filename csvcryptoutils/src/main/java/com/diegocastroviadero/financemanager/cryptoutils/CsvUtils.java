@@ -1,57 +1,153 @@
 package com.diegocastroviadero.financemanager.cryptoutils;
 
 import com.diegocastroviadero.financemanager.cryptoutils.exception.CsvIOException;
-import com.opencsv.CSVParser;
-import com.opencsv.CSVParserBuilder;
-import com.opencsv.CSVReader;
-import com.opencsv.CSVReaderBuilder;
-import com.opencsv.CSVWriter;
-import com.opencsv.ICSVParser;
-import com.opencsv.exceptions.CsvException;
+import com.diegocastroviadero.financemanager.cryptoutils.exception.RuntimeCsvIOException;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.BufferedWriter;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Slf4j
 public class CsvUtils {
+    private static final int DEFAULT_SKIP_LINES = 0;
+
+    // files bigger than this are memory mapped instead of being read through a stream (see MappedFileReader)
+    static final long MAPPED_READ_THRESHOLD = 1024 * 1024;
+
+    // a mapped file cannot be overwritten on windows until the mapping is garbage collected, and files are usually
+    // persisted right after being read
+    private static final boolean MAPPED_READS_SUPPORTED = !StringUtils.startsWithIgnoreCase(System.getProperty("os.name"), "windows");
+
     public static List<String[]> readFromCsvFile(final File csvFile) throws CsvIOException {
-        return readFromCsvFile(csvFile, CSVReader.DEFAULT_SKIP_LINES, ICSVParser.DEFAULT_SEPARATOR);
+        return readFromCsvFile(csvFile, DEFAULT_SKIP_LINES, CsvRowReader.DEFAULT_SEPARATOR);
     }
 
     public static List<String[]> readFromCsvFile(final File csvFile, final int skipLines, final char separator) throws CsvIOException {
+        final List<String[]> elements = new ArrayList<>();
+
+        forEachFromCsvFile(csvFile, skipLines, separator, elements::add);
+
+        return elements;
+    }
+
+    public static List<String[]> readFromCsvFile(final InputStream csvIs, final String fileName, final int skipLines, final char separator) throws CsvIOException {
+        final List<String[]> elements = new ArrayList<>();
+
+        forEachFromCsvFile(csvIs, fileName, skipLines, separator, elements::add);
+
+        return elements;
+    }
+
+    /**
+     * Reads the elements of given file decoding them with given codec, straight from the buffer of the reader
+     */
+    public static <T> List<T> readFromCsvFile(final File csvFile, final RowCodec<T> codec) throws CsvIOException {
+        try (CsvRowReader reader = new CsvRowReader(openReader(csvFile))) {
+            final List<T> elements = new ArrayList<>();
+
+            while (reader.nextRow()) {
+                elements.add(reader.readCurrent(codec));
+            }
+
+            log.debug("Read {} elements from file '{}'", elements.size(), csvFile.getName());
+
+            return elements;
+        } catch (IOException e) {
+            throw new CsvIOException(String.format("Error while reading elements from plain file '%s'", csvFile.getName()), e);
+        }
+    }
+
+    /**
+     * Reads the text of given file, to be kept in memory and decoded later (see {@link CsvText})
+     */
+    public static CsvText readTextFromCsvFile(final File csvFile) throws CsvIOException {
+        try (Reader reader = openReader(csvFile)) {
+            // an UTF-8 file never has more chars than bytes
+            return CsvText.read(reader, (int) Math.min(csvFile.length() + 1, Integer.MAX_VALUE - 8));
+        } catch (IOException e) {
+            throw new CsvIOException(String.format("Error while reading elements from plain file '%s'", csvFile.getName()), e);
+        }
+    }
+
+    /**
+     * Reads elements from given file one by one, handing each of them to the visitor, without keeping them in memory
+     */
+    public static void forEachFromCsvFile(final File csvFile, final Consumer<String[]> visitor) throws CsvIOException {
+        forEachFromCsvFile(csvFile, DEFAULT_SKIP_LINES, CsvRowReader.DEFAULT_SEPARATOR, visitor);
+    }
+
+    public static void forEachFromCsvFile(final File csvFile, final int skipLines, final char separator, final Consumer<String[]> visitor) throws CsvIOException {
+        forEach(iterateFromCsvFile(csvFile, skipLines, separator), csvFile.getName(), visitor);
+    }
+
+    public static void forEachFromCsvFile(final InputStream csvIs, final String fileName, final int skipLines, final char separator, final Consumer<String[]> visitor) throws CsvIOException {
+        forEach(iterateFromCsvFile(csvIs, fileName, skipLines, separator), fileName, visitor);
+    }
+
+    /**
+     * Opens an iterator reading elements from given file one by one (iterator must be closed)
+     */
+    public static CsvRowIterator iterateFromCsvFile(final File csvFile) throws CsvIOException {
+        return iterateFromCsvFile(csvFile, DEFAULT_SKIP_LINES, CsvRowReader.DEFAULT_SEPARATOR);
+    }
+
+    public static CsvRowIterator iterateFromCsvFile(final File csvFile, final int skipLines, final char separator) throws CsvIOException {
         try {
-            return readFromCsvFile(new FileInputStream(csvFile), csvFile.getName(), skipLines, separator);
-        } catch (FileNotFoundException e) {
+            return new CsvRowIterator(new CsvRowReader(openReader(csvFile), skipLines, separator), csvFile.getName());
+        } catch (IOException e) {
             throw new CsvIOException(String.format("Error while reading elements from plain file '%s'", csvFile.getName()), e);
         }
     }
 
-    public static List<String[]> readFromCsvFile(final InputStream csvIs, final String fileName, final int skipLines, final char separator) throws CsvIOException {
-        final CSVParser csvParser = new CSVParserBuilder()
-                .withSeparator(separator)
-                .build();
+    public static CsvRowIterator iterateFromCsvFile(final InputStream csvIs, final String fileName, final int skipLines, final char separator) {
+        final CsvRowReader reader = new CsvRowReader(new InputStreamReader(csvIs, StandardCharsets.UTF_8), skipLines, separator);
 
-        try (CSVReader reader = new CSVReaderBuilder(new InputStreamReader(csvIs)).withSkipLines(skipLines).withCSVParser(csvParser).build()) {
-            final List<String[]> elements = reader.readAll();
+        return new CsvRowIterator(reader, fileName);
+    }
 
-            log.debug("Read {} elements from file '{}'", elements.size(), fileName);
+    /**
+     * Opens a stream reading elements from given file one by one (stream must be closed)
+     */
+    public static Stream<String[]> streamFromCsvFile(final File csvFile) throws CsvIOException {
+        return iterateFromCsvFile(csvFile).stream();
+    }
 
-            return elements;
-        } catch (IOException | CsvException e) {
+    /**
+     * Opens a reader of given file, files bigger than {@link #MAPPED_READ_THRESHOLD} are memory mapped
+     */
+    static Reader openReader(final File csvFile) throws IOException {
+        if (MAPPED_READS_SUPPORTED && csvFile.length() > MAPPED_READ_THRESHOLD) {
+            return new MappedFileReader(csvFile);
+        }
+
+        return new InputStreamReader(new FileInputStream(csvFile), StandardCharsets.UTF_8);
+    }
+
+    private static void forEach(final CsvRowIterator iterator, final String fileName, final Consumer<String[]> visitor) throws CsvIOException {
+        try (iterator) {
+            iterator.forEachRemaining(visitor);
+        } catch (RuntimeCsvIOException e) {
+            throw e.toCheckedException();
+        } catch (IOException e) {
             throw new CsvIOException(String.format("Error while reading elements from plain file '%s'", fileName), e);
         }
     }
 
     public static void persistToCsvFile(final List<String[]> elements, final File csvFile) throws CsvIOException {
-        try (CSVWriter writer = new CSVWriter(new OutputStreamWriter(new FileOutputStream(csvFile)))) {
+        try (CsvRowWriter writer = new CsvRowWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(csvFile), StandardCharsets.UTF_8)))) {
             for (String[] element : elements) {
                 writer.writeNext(element);
             }
@@ -61,4 +157,19 @@ public class CsvUtils {
             throw new CsvIOException(String.format("Error while persisting elements to plain file '%s'", csvFile), e);
         }
     }
+
+    /**
+     * Persists elements to given file encoding them with given codec, straight into the writer
+     */
+    public static <T> void persistToCsvFile(final List<T> elements, final RowCodec<T> codec, final File csvFile) throws CsvIOException {
+        try (CsvRowWriter writer = new CsvRowWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(csvFile), StandardCharsets.UTF_8)))) {
+            for (T element : elements) {
+                writer.write(element, codec);
+            }
+
+            log.debug("Persisted all elements to file '{}'", csvFile.getName());
+        } catch (IOException e) {
+            throw new CsvIOException(String.format("Error while persisting elements to plain file '%s'", csvFile), e);
+        }
+    }
 }
@@ -0,0 +1,209 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of keys derived from (password, salt) pairs.
+ *
+ * Entries are looked up by a keyed digest (HMAC with a random per-instance secret) of the password and the salt,
+ * so neither of them is kept in memory by the cache. Least recently used entries are evicted when the cache is full
+ * and entries expire after a fixed time to live. Evicted and expired key bytes are zeroed.
+ */
+public class DerivedKeyCache {
+    private static final String DIGEST_ALGORITHM = "HmacSHA256";
+    private static final int DIGEST_SECRET_LENGTH_BYTE = 32;
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final SecretKeySpec digestSecret;
+
+    private final Map<ByteBuffer, CachedKey> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public DerivedKeyCache(final int maxSize, final long ttlMillis) {
+        this(maxSize, ttlMillis, System::currentTimeMillis);
+    }
+
+    DerivedKeyCache(final int maxSize, final long ttlMillis, final LongSupplier clock) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.digestSecret = new SecretKeySpec(newDigestSecret(), DIGEST_ALGORITHM);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Gets the key derived from given password and salt, running the derivation only when it is not cached
+     * @param password password the key is derived from
+     * @param salt salt the key is derived with
+     * @param algorithm algorithm of the returned key
+     * @param derivation derivation to run on cache miss, it must return the raw key bytes
+     * @return derived key
+     */
+    public SecretKey get(final char[] password, final byte[] salt, final String algorithm, final Supplier<byte[]> derivation) {
+        return get(password, salt, CryptoEngine.DEFAULT_KDF_ITERATIONS, algorithm, derivation);
+    }
+
+    /**
+     * Gets the key derived from given password and salt with given iteration count (keys derived with different
+     * counts are different entries), running the derivation only when it is not cached
+     */
+    public SecretKey get(final char[] password, final byte[] salt, final int iterations, final String algorithm, final Supplier<byte[]> derivation) {
+        final ByteBuffer cacheKey = getCacheKey(password, salt, iterations);
+
+        synchronized (entries) {
+            final CachedKey cachedKey = entries.get(cacheKey);
+
+            if (null != cachedKey) {
+                if (cachedKey.isExpired(clock.getAsLong())) {
+                    entries.remove(cacheKey);
+                    evict(cachedKey);
+                } else {
+                    hits.incrementAndGet();
+
+                    return new SecretKeySpec(cachedKey.keyBytes, algorithm);
+                }
+            }
+        }
+
+        misses.incrementAndGet();
+
+        // derivation is run outside the lock so that a miss does not block lookups of other keys
+        final byte[] keyBytes = derivation.get();
+        final SecretKey result = new SecretKeySpec(keyBytes, algorithm);
+
+        synchronized (entries) {
+            purgeExpired();
+
+            final CachedKey previous = entries.put(cacheKey, new CachedKey(keyBytes, clock.getAsLong() + ttlMillis));
+
+            if (null != previous) {
+                // same key derived concurrently by other thread
+                Arrays.fill(previous.keyBytes, (byte) 0);
+            }
+
+            final Iterator<CachedKey> it = entries.values().iterator();
+            while (entries.size() > maxSize && it.hasNext()) {
+                final CachedKey eldest = it.next();
+                it.remove();
+                evict(eldest);
+            }
+        }
+
+        return result;
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.values().forEach(cachedKey -> Arrays.fill(cachedKey.keyBytes, (byte) 0));
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    private void purgeExpired() {
+        final long now = clock.getAsLong();
+
+        final Iterator<CachedKey> it = entries.values().iterator();
+        while (it.hasNext()) {
+            final CachedKey cachedKey = it.next();
+
+            if (cachedKey.isExpired(now)) {
+                it.remove();
+                evict(cachedKey);
+            }
+        }
+    }
+
+    private void evict(final CachedKey cachedKey) {
+        Arrays.fill(cachedKey.keyBytes, (byte) 0);
+        evictions.incrementAndGet();
+    }
+
+    private ByteBuffer getCacheKey(final char[] password, final byte[] salt, final int iterations) {
+        final ByteBuffer passwordBuffer = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+        final byte[] passwordBytes = new byte[passwordBuffer.remaining()];
+        passwordBuffer.get(passwordBytes);
+
+        try {
+            final Mac mac = Mac.getInstance(DIGEST_ALGORITHM);
+            mac.init(digestSecret);
+            mac.update(passwordBytes);
+            mac.update((byte) 0);
+            mac.update(salt);
+            mac.update(ByteBuffer.allocate(Integer.BYTES).putInt(iterations).array());
+
+            return ByteBuffer.wrap(mac.doFinal());
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            // These exceptions should never be thrown because:
+            //   - HmacSHA256 is a valid algorithm
+            //   - The secret is right
+            throw new RuntimeException("This exception should not have been thrown", e);
+        } finally {
+            Arrays.fill(passwordBytes, (byte) 0);
+
+            if (passwordBuffer.hasArray()) {
+                Arrays.fill(passwordBuffer.array(), (byte) 0);
+            }
+        }
+    }
+
+    private static byte[] newDigestSecret() {
+        final byte[] secret = new byte[DIGEST_SECRET_LENGTH_BYTE];
+
+        // not taken from the default engine, which holds a cache itself
+        new SecureRandom().nextBytes(secret);
+
+        return secret;
+    }
+
+    private static class CachedKey {
+        private final byte[] keyBytes;
+        private final long expiresAt;
+
+        private CachedKey(final byte[] keyBytes, final long expiresAt) {
+            this.keyBytes = keyBytes;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(final long now) {
+            return now >= expiresAt;
+        }
+    }
+}
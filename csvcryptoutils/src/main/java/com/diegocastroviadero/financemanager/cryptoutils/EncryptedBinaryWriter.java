@@ -0,0 +1,57 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import com.diegocastroviadero.financemanager.cryptoutils.exception.CsvCryptoIOException;
+
+import javax.crypto.SecretKey;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+/**
+ * Sink of elements to be encrypted as binary rows into a chunked encrypted container (see
+ * {@link ChunkedContainerWriter})
+ * @param <T> type of the elements
+ */
+public class EncryptedBinaryWriter<T> extends ChunkedContainerWriter {
+    private final BinaryRowCodec<T> codec;
+    private final ByteArrayOutputStream chunkBuffer;
+    private final BinaryRowWriter writer;
+
+    EncryptedBinaryWriter(final ContainerChannel channel, final ContainerHeader header, final SecretKey key, final File file, final EncryptionOptions options, final BinaryRowCodec<T> codec) {
+        super(channel, header, key, file, options);
+
+        this.codec = codec;
+        this.chunkBuffer = new ByteArrayOutputStream(CHUNK_SIZE_BYTE);
+        this.writer = new BinaryRowWriter(chunkBuffer);
+    }
+
+    public void write(final T element) throws CsvCryptoIOException {
+        checkNotClosed();
+
+        try {
+            codec.write(element, writer);
+        } catch (RuntimeException e) {
+            // the container is not complete without the row
+            onRowFailed();
+
+            throw e;
+        }
+
+        onRowWritten();
+    }
+
+    @Override
+    protected int getChunkSize() {
+        return chunkBuffer.size();
+    }
+
+    @Override
+    protected byte[] getChunkBytes() {
+        return chunkBuffer.toByteArray();
+    }
+
+    @Override
+    protected void resetChunk() {
+        chunkBuffer.reset();
+        writer.resetDictionaries();
+    }
+}
@@ -0,0 +1,89 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import com.diegocastroviadero.financemanager.cryptoutils.exception.CsvCryptoIOException;
+
+import javax.crypto.SecretKey;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sink of rows to be encrypted as csv rows into a chunked encrypted container (see {@link ChunkedContainerWriter})
+ */
+public class EncryptedCsvWriter extends ChunkedContainerWriter {
+    private final StringBuilder chunkBuffer;
+    private final CsvRowWriter writer;
+
+    EncryptedCsvWriter(final ContainerChannel channel, final ContainerHeader header, final SecretKey key, final File csvFile, final EncryptionOptions options) {
+        super(channel, header, key, csvFile, options);
+
+        this.chunkBuffer = new StringBuilder(CHUNK_SIZE_BYTE);
+        this.writer = new CsvRowWriter(chunkBuffer);
+    }
+
+    EncryptedCsvWriter(final ContainerChannel channel, final ContainerHeader header, final SecretKey key, final File csvFile, final EncryptionOptions options, final ContainerIndex index, final long position) {
+        super(channel, header, key, csvFile, options, index, position);
+
+        this.chunkBuffer = new StringBuilder(CHUNK_SIZE_BYTE);
+        this.writer = new CsvRowWriter(chunkBuffer);
+    }
+
+    public void write(final String[] row) throws CsvCryptoIOException {
+        checkNotClosed();
+
+        try {
+            writer.writeNext(row);
+        } catch (IOException e) {
+            onRowFailed();
+
+            // this exception should never be thrown because rows are written in memory
+            throw new RuntimeException("This exception should not have been thrown", e);
+        } catch (RuntimeException e) {
+            // the row is discarded, but the container is not complete without it
+            onRowFailed();
+
+            throw e;
+        }
+
+        onRowWritten();
+    }
+
+    /**
+     * Writes an element as a row encoded with given codec
+     */
+    public <T> void write(final T element, final RowCodec<T> codec) throws CsvCryptoIOException {
+        checkNotClosed();
+
+        try {
+            writer.write(element, codec);
+        } catch (IOException e) {
+            onRowFailed();
+
+            // this exception should never be thrown because rows are written in memory
+            throw new RuntimeException("This exception should not have been thrown", e);
+        } catch (RuntimeException e) {
+            // the row is discarded, but the container is not complete without it
+            onRowFailed();
+
+            throw e;
+        }
+
+        onRowWritten();
+    }
+
+    @Override
+    protected int getChunkSize() {
+        // chars instead of bytes, good enough to bound the size of the chunks
+        return chunkBuffer.length();
+    }
+
+    @Override
+    protected byte[] getChunkBytes() {
+        return chunkBuffer.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected void resetChunk() {
+        chunkBuffer.setLength(0);
+    }
+}
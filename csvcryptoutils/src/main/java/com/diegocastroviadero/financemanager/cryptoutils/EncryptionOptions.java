@@ -0,0 +1,41 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.io.File;
+import java.util.zip.Deflater;
+
+/**
+ * Options of the encrypted files written by {@link CsvCryptoUtils}. Readers do not need them, the options affecting
+ * how a file is read are recorded in its header.
+ */
+@Builder
+@Getter
+public class EncryptionOptions {
+    public static final EncryptionOptions DEFAULT = EncryptionOptions.builder().build();
+
+    /**
+     * Whether chunks are deflated before being encrypted
+     */
+    private final boolean compressed;
+
+    /**
+     * Deflate level (0-9, or -1 for the default one), only used when compressed
+     */
+    @Builder.Default
+    private final int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * Integrity check of the elements on top of the GCM tag of each chunk
+     */
+    @Builder.Default
+    private final IntegrityMode integrityMode = IntegrityMode.GCM_ONLY;
+
+    /**
+     * Number of segments (one per append) a file can have before it is compacted into a single segment, when
+     * elements are appended to it (see {@link CsvCryptoUtils#openEncryptedCsvAppender(char[], File, EncryptionOptions)})
+     */
+    @Builder.Default
+    private final int maxSegments = 16;
+}
@@ -1,29 +1,151 @@
 package com.diegocastroviadero.financemanager.cryptoutils;
 
-import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.output.NullOutputStream;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 import java.util.List;
 
 public class HashUtils {
     public static String getHash(final List<String[]> obj) throws IOException {
-        return DigestUtils.sha3_512Hex(toByteArray(obj));
+        final RowHasher hasher = newRowHasher();
+
+        for (String[] row : obj) {
+            hasher.update(row);
+        }
+
+        return hasher.getHash();
+    }
+
+    public static RowHasher newRowHasher() {
+        return new RowHasher(Charset.defaultCharset());
+    }
+
+    /**
+     * Returns a new digest of the chunks of an encrypted container for given integrity mode
+     * @throws IllegalArgumentException if the mode has no digest ({@link IntegrityMode#GCM_ONLY})
+     */
+    public static ChunkDigest newChunkDigest(final IntegrityMode mode) {
+        switch (mode) {
+            case SHA256:
+                return new BytesChunkDigest(CryptoEngine.getDefault().newMessageDigest("SHA-256"));
+            case SHA3_512_COLUMNS:
+                return new ColumnsChunkDigest();
+            default:
+                throw new IllegalArgumentException(String.format("Integrity mode %s has no digest", mode));
+        }
+    }
+
+    /**
+     * Incremental digest of the plaintext of the chunks of an encrypted container, chunks must be given in order
+     */
+    public interface ChunkDigest {
+        void update(byte[] chunk);
+
+        byte[] digest();
     }
 
-    private static byte[] toByteArray(final List<String[]> data) throws IOException {
-        try (final ByteArrayOutputStream bos = new ByteArrayOutputStream(); final OutputStreamWriter out = new OutputStreamWriter(bos)) {
-            for (String[] row : data) {
+    private static class BytesChunkDigest implements ChunkDigest {
+        private final MessageDigest messageDigest;
+
+        private BytesChunkDigest(final MessageDigest messageDigest) {
+            this.messageDigest = messageDigest;
+        }
+
+        @Override
+        public void update(final byte[] chunk) {
+            messageDigest.update(chunk);
+        }
+
+        @Override
+        public byte[] digest() {
+            return messageDigest.digest();
+        }
+    }
+
+    /**
+     * Digest of the rows of csv chunks, which are parsed to hash their columns as {@link RowHasher} does
+     */
+    private static class ColumnsChunkDigest implements ChunkDigest {
+        private final RowHasher hasher = new RowHasher(StandardCharsets.UTF_8);
+
+        @Override
+        public void update(final byte[] chunk) {
+            final CharBuffer chars = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(chunk));
+
+            try (CsvRowReader reader = new CsvRowReader(chars.array(), chars.limit())) {
+                String[] row;
+                while (null != (row = reader.readNext())) {
+                    hasher.update(row);
+                }
+            } catch (IOException e) {
+                // this exception should never be thrown because rows are read from memory
+                throw new RuntimeException("This exception should not have been thrown", e);
+            }
+        }
+
+        @Override
+        public byte[] digest() {
+            try {
+                return hasher.getDigest();
+            } catch (IOException e) {
+                // this exception should never be thrown because nothing is really written
+                throw new RuntimeException("This exception should not have been thrown", e);
+            }
+        }
+    }
+
+    /**
+     * Incremental version of {@link #getHash(List)}: rows are hashed one by one as they are given, so elements do not
+     * need to be kept in memory to get their hash
+     */
+    public static class RowHasher {
+        private final DigestOutputStream dos;
+        private final OutputStreamWriter out;
+
+        private byte[] digest;
+
+        private RowHasher(final Charset charset) {
+            this.dos = new DigestOutputStream(NullOutputStream.NULL_OUTPUT_STREAM, CryptoEngine.getDefault().newMessageDigest("SHA3-512"));
+            this.out = new OutputStreamWriter(dos, charset);
+        }
+
+        public void update(final String[] row) {
+            if (null != digest) {
+                throw new IllegalStateException("Hash has already been calculated");
+            }
+
+            try {
                 for (String column : row) {
                     if (null != column) {
                         out.write(column);
                     }
                 }
+            } catch (IOException e) {
+                // this exception should never be thrown because nothing is really written
+                throw new RuntimeException("This exception should not have been thrown", e);
+            }
+        }
+
+        public String getHash() throws IOException {
+            return Hex.encodeHexString(getDigest());
+        }
+
+        public byte[] getDigest() throws IOException {
+            if (null == digest) {
+                out.flush();
+
+                digest = dos.getMessageDigest().digest();
             }
-            out.flush();
 
-            return bos.toByteArray();
+            return digest.clone();
         }
     }
 }
@@ -0,0 +1,47 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Integrity check of the elements of an encrypted container on top of the GCM tag of its chunks, recorded in the
+ * flags of its header (see {@link ContainerHeader}).
+ *
+ * Chunks are always authenticated by their tag, so a digest only adds an end-to-end check of the plaintext of the
+ * whole file. Digests are computed incrementally chunk by chunk (see {@link HashUtils#newChunkDigest(IntegrityMode)})
+ * and stored encrypted after the last chunk.
+ */
+@Getter
+@AllArgsConstructor
+public enum IntegrityMode {
+    /**
+     * No digest, elements are only authenticated by the tag of their chunk
+     */
+    GCM_ONLY(0),
+
+    /**
+     * SHA-256 of the plaintext of the chunks (before being deflated), SHA-256 is an intrinsic of the JVM on cpus with
+     * SHA extensions
+     */
+    SHA256(1),
+
+    /**
+     * SHA3-512 of the columns of all the rows concatenated, as the hash files of legacy encrypted files (csv rows only)
+     */
+    SHA3_512_COLUMNS(2);
+
+    private final int code;
+
+    /**
+     * Returns the mode with given code, or null if there is no such mode
+     */
+    static IntegrityMode fromCode(final int code) {
+        for (IntegrityMode mode : values()) {
+            if (mode.code == code) {
+                return mode;
+            }
+        }
+
+        return null;
+    }
+}
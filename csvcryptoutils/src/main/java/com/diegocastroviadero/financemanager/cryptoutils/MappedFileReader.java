@@ -0,0 +1,124 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reader of an UTF-8 file that is memory mapped: chars are decoded straight from the mapped bytes into the buffer of
+ * the caller, without copying the bytes to an intermediate buffer as InputStreamReader does.
+ *
+ * The file is mapped in windows (so that files of any size can be read), a window is mapped when the previous one has
+ * been decoded, starting at the first byte that was not decoded (a char split between two windows). Malformed bytes
+ * are replaced, as InputStreamReader does.
+ */
+class MappedFileReader extends Reader {
+    private static final long DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    // second char of a surrogate pair that did not fit in the buffer of the caller
+    private final CharBuffer pending = CharBuffer.allocate(2);
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private boolean eof;
+
+    MappedFileReader(final File file) throws IOException {
+        this(file, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Reader mapping windows of given size (at least 4 bytes, so that every window holds a whole char)
+     */
+    MappedFileReader(final File file, final long windowSize) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowSize = windowSize;
+        this.window = map(0L);
+
+        pending.flip();
+    }
+
+    @Override
+    public int read(final char[] cbuf, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        if (pending.hasRemaining()) {
+            cbuf[off] = pending.get();
+
+            return 1;
+        }
+
+        final CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+
+        while (out.position() == off && !eof) {
+            if (decode(out) && out.position() == off) {
+                // a surrogate pair does not fit in the buffer, it is decoded apart and its second char is kept
+                pending.clear();
+                decode(pending);
+                pending.flip();
+
+                if (pending.hasRemaining()) {
+                    out.put(pending.get());
+                }
+            }
+        }
+
+        return out.position() == off ? -1 : out.position() - off;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+
+        channel.close();
+    }
+
+    /**
+     * Decodes chars of the current window into given buffer, mapping the next window when the current one is
+     * exhausted. Returns whether the buffer is full
+     */
+    private boolean decode(final CharBuffer out) throws IOException {
+        final boolean lastWindow = windowStart + window.limit() == size;
+        final CoderResult result = decoder.decode(window, out, lastWindow);
+
+        if (result.isOverflow()) {
+            return true;
+        }
+
+        if (result.isError()) {
+            result.throwException();
+        }
+
+        if (!lastWindow) {
+            windowStart += window.position();
+            window = map(windowStart);
+        } else if (decoder.flush(out).isOverflow()) {
+            return true;
+        } else {
+            eof = true;
+        }
+
+        return false;
+    }
+
+    private MappedByteBuffer map(final long position) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, size - position));
+    }
+}
@@ -0,0 +1,83 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import com.diegocastroviadero.financemanager.cryptoutils.exception.WrongEncryptionPasswordException;
+import lombok.Getter;
+
+import javax.crypto.SecretKey;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+
+/**
+ * Unlocked master key of a {@link MasterKeyStore}.
+ *
+ * Data keys of encrypted csv files are wrapped with this key. Store salt, wrapped master key and key check value of the
+ * key encryption key (and the iteration count it was derived with) are kept so that they can be copied to each
+ * encrypted csv file, making them readable on their own.
+ */
+@Getter
+public class MasterKey {
+    private final byte[] storeSalt;
+    private final byte[] wrappedMasterKey;
+    private final byte[] keyCheckValue;
+    private final int kdfIterations;
+    private final SecretKey key;
+
+    MasterKey(final byte[] storeSalt, final byte[] wrappedMasterKey, final byte[] keyCheckValue, final int kdfIterations, final SecretKey key) {
+        this.storeSalt = storeSalt;
+        this.wrappedMasterKey = wrappedMasterKey;
+        this.keyCheckValue = keyCheckValue;
+        this.kdfIterations = kdfIterations;
+        this.key = key;
+    }
+
+    public byte[] wrapDataKey(final SecretKey dataKey) {
+        return CryptoUtils.wrapAESKey(key, dataKey);
+    }
+
+    public SecretKey unwrapDataKey(final byte[] wrappedDataKey) throws WrongEncryptionPasswordException {
+        try {
+            return CryptoUtils.unwrapAESKey(key, wrappedDataKey);
+        } catch (InvalidKeyException e) {
+            throw new WrongEncryptionPasswordException("Data key could not be unwrapped with master key");
+        }
+    }
+
+    /**
+     * Unlocks a master key from its store salt and wrapped bytes
+     * @param password password the key encryption key is derived from
+     * @param storeSalt salt used to derive the key encryption key
+     * @param wrappedMasterKey master key wrapped with the key encryption key
+     * @param kdfIterations iteration count the key encryption key is derived with
+     * @return unlocked master key
+     * @throws WrongEncryptionPasswordException if the master key cannot be unwrapped with the given password
+     */
+    static MasterKey unlock(final char[] password, final byte[] storeSalt, final byte[] wrappedMasterKey, final int kdfIterations) throws WrongEncryptionPasswordException {
+        return unlock(password, storeSalt, wrappedMasterKey, null, kdfIterations);
+    }
+
+    /**
+     * Unlocks a master key from its store salt and wrapped bytes, checking first the key check value of the key
+     * encryption key (if given) so that a wrong password is rejected before trying to unwrap anything
+     * @param password password the key encryption key is derived from
+     * @param storeSalt salt used to derive the key encryption key
+     * @param wrappedMasterKey master key wrapped with the key encryption key
+     * @param expectedKeyCheckValue key check value of the key encryption key, or null if it is not known
+     * @param kdfIterations iteration count the key encryption key is derived with
+     * @return unlocked master key
+     * @throws WrongEncryptionPasswordException if the master key cannot be unwrapped with the given password
+     */
+    static MasterKey unlock(final char[] password, final byte[] storeSalt, final byte[] wrappedMasterKey, final byte[] expectedKeyCheckValue, final int kdfIterations) throws WrongEncryptionPasswordException {
+        final SecretKey keyEncryptionKey = CryptoUtils.getAESKeyFromPassword(password, storeSalt, kdfIterations);
+        final byte[] keyCheckValue = CryptoUtils.getKeyCheckValue(keyEncryptionKey);
+
+        if (null != expectedKeyCheckValue && !MessageDigest.isEqual(expectedKeyCheckValue, keyCheckValue)) {
+            throw new WrongEncryptionPasswordException("Master key could not be unlocked because wrong password has been provided");
+        }
+
+        try {
+            return new MasterKey(storeSalt, wrappedMasterKey, keyCheckValue, kdfIterations, CryptoUtils.unwrapAESKey(keyEncryptionKey, wrappedMasterKey));
+        } catch (InvalidKeyException e) {
+            throw new WrongEncryptionPasswordException("Master key could not be unlocked because wrong password has been provided");
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import com.diegocastroviadero.financemanager.cryptoutils.exception.CsvCryptoIOException;
+import com.diegocastroviadero.financemanager.cryptoutils.exception.WrongEncryptionPasswordException;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.crypto.SecretKey;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Store-level header of the envelope encryption format.
+ *
+ * A store is a single file per folder holding a salt and a random master key wrapped with the key derived from
+ * the password and that salt. The password is derived only once per store (and cached by {@link CryptoUtils}),
+ * every encrypted csv file of the folder has its own random data key wrapped with the master key.
+ *
+ * Since version 2 the store also holds the key check value of the derived key, so a wrong password is rejected
+ * without trying to unwrap the master key. Since version 3 it also holds the iteration count of the key derivation,
+ * which is only written when it is not the default one (stores with the default count are still written as version
+ * 2, so they can be read by previous versions).
+ */
+@Slf4j
+public class MasterKeyStore {
+    public static final String STORE_FILENAME = "masterkey.store";
+
+    static final int SALT_LENGTH_BYTE = 16;
+    static final int WRAPPED_KEY_LENGTH_BYTE = 40;
+
+    private static final byte[] MAGIC = new byte[] {'F', 'M', 'K', 'S'};
+    private static final byte VERSION_WITHOUT_KEY_CHECK_VALUE = 1;
+    private static final byte VERSION_WITHOUT_KDF_ITERATIONS = 2;
+    private static final byte VERSION = 3;
+    private static final int STORE_V1_LENGTH_BYTE = MAGIC.length + 1 + SALT_LENGTH_BYTE + WRAPPED_KEY_LENGTH_BYTE;
+    private static final int STORE_V2_LENGTH_BYTE = STORE_V1_LENGTH_BYTE + CryptoUtils.KEY_CHECK_VALUE_LENGTH_BYTE;
+    private static final int STORE_LENGTH_BYTE = STORE_V2_LENGTH_BYTE + Integer.BYTES;
+
+    public static File getStoreFile(final File folder) {
+        return folder.toPath().resolve(STORE_FILENAME).toFile();
+    }
+
+    public static boolean exists(final File folder) {
+        return getStoreFile(folder).exists();
+    }
+
+    /**
+     * Unlocks the master key of the store present in given folder
+     * @param password encryption password
+     * @param folder folder containing the store
+     * @return unlocked master key
+     * @throws WrongEncryptionPasswordException if the master key cannot be unlocked with the given password
+     * @throws CsvCryptoIOException if the store cannot be read
+     */
+    public static MasterKey unlock(final char[] password, final File folder) throws CsvCryptoIOException {
+        final File storeFile = getStoreFile(folder);
+
+        final ByteBuffer store;
+        try {
+            store = ByteBuffer.wrap(Files.readAllBytes(storeFile.toPath()));
+        } catch (IOException e) {
+            throw new CsvCryptoIOException(String.format("Error while reading master key store '%s'", storeFile), e);
+        }
+
+        if (store.remaining() < STORE_V1_LENGTH_BYTE || !hasMagic(store)) {
+            throw new CsvCryptoIOException(String.format("File '%s' is not a valid master key store", storeFile));
+        }
+
+        final byte version = store.get();
+
+        if (store.capacity() != getStoreLength(version)) {
+            throw new CsvCryptoIOException(String.format("Master key store '%s' has unsupported version %d", storeFile, version));
+        }
+
+        final byte[] salt = new byte[SALT_LENGTH_BYTE];
+        final byte[] wrappedMasterKey = new byte[WRAPPED_KEY_LENGTH_BYTE];
+        byte[] keyCheckValue = null;
+
+        store.get(salt);
+        store.get(wrappedMasterKey);
+
+        int kdfIterations = CryptoUtils.KDF_ITERATIONS;
+
+        if (VERSION_WITHOUT_KEY_CHECK_VALUE != version) {
+            keyCheckValue = new byte[CryptoUtils.KEY_CHECK_VALUE_LENGTH_BYTE];
+            store.get(keyCheckValue);
+        }
+
+        if (VERSION == version) {
+            kdfIterations = store.getInt();
+
+            if (kdfIterations < CryptoEngine.MIN_KDF_ITERATIONS) {
+                throw new CsvCryptoIOException(String.format("Master key store '%s' uses unsupported key derivation (%d iterations)", storeFile, kdfIterations));
+            }
+        }
+
+        return MasterKey.unlock(password, salt, wrappedMasterKey, keyCheckValue, kdfIterations);
+    }
+
+    /**
+     * Creates a new store in given folder with a random master key protected by the given password, which is derived
+     * with the iteration count of the default {@link CryptoEngine}
+     * @param password encryption password
+     * @param folder folder where the store is created
+     * @return unlocked master key of the new store
+     * @throws CsvCryptoIOException if the store already exists or it cannot be written
+     */
+    public static MasterKey create(final char[] password, final File folder) throws CsvCryptoIOException {
+        final MasterKey masterKey = generate(password);
+
+        write(masterKey, folder);
+
+        log.info("Created master key store '{}'", getStoreFile(folder));
+
+        return masterKey;
+    }
+
+    /**
+     * Generates a random master key protected by the given password, as {@link #create(char[], File)} but without
+     * writing its store (so the costly key derivation can be done before taking the lock the store is written under)
+     */
+    static MasterKey generate(final char[] password) {
+        final int kdfIterations = CryptoEngine.getDefault().getKdfIterations();
+        final byte[] salt = CryptoUtils.getRandomNonce(SALT_LENGTH_BYTE);
+        final SecretKey keyEncryptionKey = CryptoUtils.getAESKeyFromPassword(password, salt, kdfIterations);
+        final SecretKey key = CryptoUtils.generateAESKey();
+
+        return new MasterKey(salt, CryptoUtils.wrapAESKey(keyEncryptionKey, key), CryptoUtils.getKeyCheckValue(keyEncryptionKey), kdfIterations, key);
+    }
+
+    /**
+     * Writes the store of an already unlocked master key (used to restore a missing store from the header copy
+     * present in the meta files of the encrypted csv files)
+     */
+    static void write(final MasterKey masterKey, final File folder) throws CsvCryptoIOException {
+        final File storeFile = getStoreFile(folder);
+
+        final boolean defaultKdfIterations = CryptoUtils.KDF_ITERATIONS == masterKey.getKdfIterations();
+        final byte version = defaultKdfIterations ? VERSION_WITHOUT_KDF_ITERATIONS : VERSION;
+
+        final ByteBuffer store = ByteBuffer.allocate(getStoreLength(version))
+                .put(MAGIC)
+                .put(version)
+                .put(masterKey.getStoreSalt())
+                .put(masterKey.getWrappedMasterKey())
+                .put(masterKey.getKeyCheckValue());
+
+        if (!defaultKdfIterations) {
+            store.putInt(masterKey.getKdfIterations());
+        }
+
+        store.flip();
+
+        // written atomically, so that a crash never leaves a truncated store that would lock every file of the folder
+        try (AtomicFileChannel channel = AtomicFileChannel.create(storeFile)) {
+            if (storeFile.exists()) {
+                throw new FileAlreadyExistsException(storeFile.toString());
+            }
+
+            while (store.hasRemaining()) {
+                channel.write(store, store.position());
+            }
+
+            channel.commit();
+        } catch (IOException e) {
+            throw new CsvCryptoIOException(String.format("Error while writing master key store '%s'", storeFile), e);
+        }
+    }
+
+    private static int getStoreLength(final byte version) {
+        switch (version) {
+            case VERSION_WITHOUT_KEY_CHECK_VALUE:
+                return STORE_V1_LENGTH_BYTE;
+            case VERSION_WITHOUT_KDF_ITERATIONS:
+                return STORE_V2_LENGTH_BYTE;
+            case VERSION:
+                return STORE_LENGTH_BYTE;
+            default:
+                return -1;
+        }
+    }
+
+    private static boolean hasMagic(final ByteBuffer buffer) {
+        final byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+
+        return Arrays.equals(MAGIC, magic);
+    }
+}
@@ -0,0 +1,80 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Encrypted container kept in memory, so that it can be read or written asynchronously as a whole (see
+ * {@link AsyncCsvCryptoUtils})
+ */
+class MemoryContainerChannel implements ContainerChannel {
+    private byte[] bytes;
+    private int size;
+
+    /**
+     * Empty channel, to write a container to
+     */
+    MemoryContainerChannel() {
+        this(new byte[ChunkedContainerWriter.CHUNK_SIZE_BYTE], 0);
+    }
+
+    /**
+     * Channel with the bytes of a container (bytes are not copied)
+     */
+    MemoryContainerChannel(final byte[] content) {
+        this(content, content.length);
+    }
+
+    private MemoryContainerChannel(final byte[] bytes, final int size) {
+        this.bytes = bytes;
+        this.size = size;
+    }
+
+    /**
+     * Returns the bytes written to the channel
+     */
+    synchronized ByteBuffer getContent() {
+        return ByteBuffer.wrap(bytes, 0, size).asReadOnlyBuffer();
+    }
+
+    @Override
+    public synchronized long size() {
+        return size;
+    }
+
+    @Override
+    public synchronized int read(final ByteBuffer dst, final long position) {
+        if (position >= size) {
+            return -1;
+        }
+
+        final int length = (int) Math.min(dst.remaining(), size - position);
+        dst.put(bytes, (int) position, length);
+
+        return length;
+    }
+
+    @Override
+    public synchronized int write(final ByteBuffer src, final long position) {
+        final int length = src.remaining();
+        final long end = position + length;
+
+        if (end > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Encrypted container is too big to be kept in memory");
+        }
+
+        if (end > bytes.length) {
+            bytes = Arrays.copyOf(bytes, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(end, 2L * bytes.length)));
+        }
+
+        src.get(bytes, (int) position, length);
+        size = (int) Math.max(size, end);
+
+        return length;
+    }
+
+    @Override
+    public void close() {
+        // nothing to release
+    }
+}
@@ -0,0 +1,30 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Encoding of the elements of a given type as csv rows, fields are decoded straight from the buffer of the csv reader
+ * (see {@link CsvFieldReader}) and encoded straight into the csv writer (see {@link CsvFieldWriter}), without an
+ * intermediate array of fields
+ * @param <T> type of the elements
+ */
+public interface RowCodec<T> {
+    void write(T element, CsvFieldWriter writer);
+
+    T read(CsvFieldReader reader);
+
+    static <T> RowCodec<T> of(final BiConsumer<T, CsvFieldWriter> writeFunction, final Function<CsvFieldReader, T> readFunction) {
+        return new RowCodec<T>() {
+            @Override
+            public void write(final T element, final CsvFieldWriter writer) {
+                writeFunction.accept(element, writer);
+            }
+
+            @Override
+            public T read(final CsvFieldReader reader) {
+                return readFunction.apply(reader);
+            }
+        };
+    }
+}
@@ -0,0 +1,76 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Group commit of the encrypted files written by the current thread (see {@link CsvCryptoUtils#beginWriteBatch()}).
+ * Every file is still written atomically and forced to the storage device on its own (see {@link AtomicFileChannel}),
+ * but the folders of the files replaced while the batch is open are forced only once, when the batch is closed,
+ * instead of once per file.
+ *
+ * Batches begun while another one is open on the same thread join the outer one, whose closing forces the folders.
+ */
+@Slf4j
+public class WriteBatch implements Closeable {
+    private static final ThreadLocal<WriteBatch> CURRENT = new ThreadLocal<>();
+
+    private final boolean nested;
+    private final Set<File> folders = new LinkedHashSet<>();
+    private int fileCount;
+
+    private WriteBatch(final boolean nested) {
+        this.nested = nested;
+    }
+
+    static WriteBatch begin() {
+        if (null != CURRENT.get()) {
+            return new WriteBatch(true);
+        }
+
+        final WriteBatch batch = new WriteBatch(false);
+
+        CURRENT.set(batch);
+
+        return batch;
+    }
+
+    /**
+     * Records a file just replaced by the current thread in its open batch, returns false if there is no open batch
+     * (the folder of the file has to be forced right away)
+     */
+    static boolean addReplacedFile(final File file) {
+        final WriteBatch batch = CURRENT.get();
+
+        if (null == batch) {
+            return false;
+        }
+
+        batch.folders.add(file.getAbsoluteFile().getParentFile());
+        batch.fileCount++;
+
+        return true;
+    }
+
+    /**
+     * Forces the folders of the files written in the batch, the files written after this are not part of it
+     */
+    @Override
+    public void close() {
+        if (nested || this != CURRENT.get()) {
+            return;
+        }
+
+        CURRENT.remove();
+
+        for (File folder : folders) {
+            AtomicFileChannel.forceFolder(folder);
+        }
+
+        log.debug("Committed {} files in {} folders", fileCount, folders.size());
+    }
+}
@@ -0,0 +1,190 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import com.diegocastroviadero.financemanager.cryptoutils.exception.CsvCryptoIOException;
+import com.diegocastroviadero.financemanager.cryptoutils.exception.WrongEncryptionPasswordException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class AsyncCsvCryptoUtilsTest {
+
+    // encrypted files share the master key store of their folder, so each test uses its own folder
+    @TempDir
+    File tempFolder;
+
+    private AsyncCsvCryptoUtils asyncCsvCryptoUtils;
+
+    @BeforeEach
+    void setUp() {
+        asyncCsvCryptoUtils = new AsyncCsvCryptoUtils(2, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        asyncCsvCryptoUtils.close();
+    }
+
+    File getTempFile() throws IOException {
+        return File.createTempFile("AsyncCsvCryptoUtilsTest-", ".tmp", tempFolder);
+    }
+
+    @Test
+    void givenManyRows_whenEncryptedAndDecryptedAsynchronously_thenRowsAreKeptAndFileCanBeReadSynchronously() throws Exception {
+        // Given
+        final List<String[]> elements = getRows(20000);
+
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        // When
+        asyncCsvCryptoUtils.encryptToCsvFile(elements, password, tempFile).get(30, TimeUnit.SECONDS);
+
+        final List<String[]> decryptedElements = asyncCsvCryptoUtils.decryptFromCsvFile(password, tempFile).get(30, TimeUnit.SECONDS);
+        final CsvText decryptedText = asyncCsvCryptoUtils.decryptTextFromCsvFile(password, tempFile).get(30, TimeUnit.SECONDS);
+
+        // Then
+        assertRowsEquals(elements, decryptedElements);
+        assertRowsEquals(elements, decryptedText.readRows());
+        assertRowsEquals(elements, CsvCryptoUtils.decryptFromCsvFile(password, tempFile));
+    }
+
+    @Test
+    void givenSeveralFiles_whenDecryptedAsynchronouslyWithSingleIoSlot_thenEveryFileIsDecrypted() throws Exception {
+        // Given
+        final char[] password = "123".toCharArray();
+
+        final List<File> files = IntStream.range(0, 5)
+                .mapToObj(i -> new File(tempFolder, String.format("file-%d.ecsv", i)))
+                .collect(Collectors.toList());
+
+        for (int i = 0; i < files.size(); i++) {
+            CsvCryptoUtils.encryptToCsvFile(getRows(i + 1), password, files.get(i));
+        }
+
+        // When
+        final List<CompletableFuture<List<String[]>>> futures = files.stream()
+                .map(file -> asyncCsvCryptoUtils.decryptFromCsvFile(password, file))
+                .collect(Collectors.toList());
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+
+        // Then
+        for (int i = 0; i < files.size(); i++) {
+            assertRowsEquals(getRows(i + 1), futures.get(i).get());
+        }
+    }
+
+    @Test
+    void givenEncryptedData_whenDecryptedAsynchronouslyWithWrongPassword_thenFutureFailsWithWrongPassword() throws Exception {
+        // Given
+        final File tempFile = getTempFile();
+
+        CsvCryptoUtils.encryptToCsvFile(getRows(2), "123".toCharArray(), tempFile);
+
+        // When
+        final CompletableFuture<List<String[]>> future = asyncCsvCryptoUtils.decryptFromCsvFile("asdf".toCharArray(), tempFile);
+
+        // Then
+        final ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> future.get(30, TimeUnit.SECONDS));
+        Assertions.assertTrue(e.getCause() instanceof WrongEncryptionPasswordException);
+    }
+
+    @Test
+    void givenWrite_whenCancelledBeforeItStarts_thenFileIsNotWritten() throws Exception {
+        // Given
+        final char[] password = "123".toCharArray();
+
+        final File firstFile = new File(tempFolder, "first.ecsv");
+        final File cancelledFile = new File(tempFolder, "cancelled.ecsv");
+
+        // When
+        final CompletableFuture<Void> first = asyncCsvCryptoUtils.encryptToCsvFile(getRows(20000), password, firstFile);
+        final CompletableFuture<Void> cancelled = asyncCsvCryptoUtils.encryptToCsvFile(getRows(2), password, cancelledFile);
+
+        cancelled.cancel(false);
+
+        first.get(30, TimeUnit.SECONDS);
+
+        // Then
+        Assertions.assertTrue(cancelled.isCancelled());
+        Assertions.assertTrue(firstFile.exists());
+        Assertions.assertFalse(cancelledFile.exists());
+    }
+
+    @Test
+    void givenEncryptedFile_whenDeletedAsynchronously_thenFileIsDeleted() throws Exception {
+        // Given
+        final File tempFile = getTempFile();
+
+        CsvCryptoUtils.encryptToCsvFile(getRows(2), "123".toCharArray(), tempFile);
+
+        // When
+        asyncCsvCryptoUtils.deleteEncryptedCsvFile(tempFile).get(30, TimeUnit.SECONDS);
+
+        // Then
+        Assertions.assertFalse(tempFile.exists());
+    }
+
+    @Test
+    void givenOperationsWaitingForTheirTurn_whenClosed_thenTheyFailAsClosed() throws Exception {
+        // Given
+        final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+        final CountDownLatch release = new CountDownLatch(1);
+
+        // single I/O thread is kept busy, so the first delete takes the only slot and the rest wait for their turn
+        ioExecutor.execute(() -> {
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        final AsyncCsvCryptoUtils closedCsvCryptoUtils = new AsyncCsvCryptoUtils(Executors.newSingleThreadExecutor(), ioExecutor, 1);
+
+        closedCsvCryptoUtils.deleteEncryptedCsvFile(getTempFile());
+        final CompletableFuture<Void> waiting1 = closedCsvCryptoUtils.deleteEncryptedCsvFile(getTempFile());
+        final CompletableFuture<Void> waiting2 = closedCsvCryptoUtils.deleteEncryptedCsvFile(getTempFile());
+
+        // When
+        closedCsvCryptoUtils.close();
+        release.countDown();
+
+        final CompletableFuture<Void> afterClose = closedCsvCryptoUtils.deleteEncryptedCsvFile(getTempFile());
+
+        // Then
+        for (CompletableFuture<Void> future : List.of(waiting1, waiting2, afterClose)) {
+            final ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> future.get(30, TimeUnit.SECONDS));
+            Assertions.assertTrue(e.getCause() instanceof CsvCryptoIOException);
+        }
+    }
+
+    private static List<String[]> getRows(final int numberOfRows) {
+        return IntStream.range(0, numberOfRows)
+                .mapToObj(i -> new String[] {String.valueOf(i), String.format("row %d", i), "2021-05-01", "-12.34"})
+                .collect(Collectors.toList());
+    }
+
+    private static void assertRowsEquals(final List<String[]> expected, final List<String[]> actual) {
+        Assertions.assertEquals(expected.size(), actual.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+            Assertions.assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.UUID;
+
+public class BinaryRowWriterTest {
+
+    @Test
+    void givenFieldsOfAllTypes_whenWrittenAndRead_thenSameFieldsAreRead() {
+        // Given
+        final UUID uuid = UUID.randomUUID();
+
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final BinaryRowWriter writer = new BinaryRowWriter(buffer);
+
+        // When
+        writer.writeLong(0L);
+        writer.writeLong(-1L);
+        writer.writeLong(Long.MAX_VALUE);
+        writer.writeLong(Long.MIN_VALUE + 1L);
+        writer.writeLong(null);
+        writer.writeDate(LocalDate.of(2021, 5, 31));
+        writer.writeDate(null);
+        writer.writeBigDecimal(new BigDecimal("-1234.5"));
+        writer.writeBigDecimal(null);
+        writer.writeString("Compra en línea #1, \"ñ\"");
+        writer.writeString("");
+        writer.writeString(null);
+        writer.writeEnum(Month.MAY);
+        writer.writeEnum(null);
+        writer.writeUUID(uuid);
+        writer.writeUUID(null);
+
+        final BinaryRowReader reader = new BinaryRowReader(ByteBuffer.wrap(buffer.toByteArray()));
+
+        // Then
+        Assertions.assertEquals(0L, reader.readLong());
+        Assertions.assertEquals(-1L, reader.readLong());
+        Assertions.assertEquals(Long.MAX_VALUE, reader.readLong());
+        Assertions.assertEquals(Long.MIN_VALUE + 1L, reader.readLong());
+        Assertions.assertNull(reader.readLong());
+        Assertions.assertEquals(LocalDate.of(2021, 5, 31), reader.readDate());
+        Assertions.assertNull(reader.readDate());
+        Assertions.assertEquals(new BigDecimal("-1234.50"), reader.readBigDecimal());
+        Assertions.assertNull(reader.readBigDecimal());
+        Assertions.assertEquals("Compra en línea #1, \"ñ\"", reader.readString());
+        Assertions.assertEquals("", reader.readString());
+        Assertions.assertNull(reader.readString());
+        Assertions.assertEquals(Month.MAY, reader.readEnum(Month.class));
+        Assertions.assertNull(reader.readEnum(Month.class));
+        Assertions.assertEquals(uuid, reader.readUUID());
+        Assertions.assertNull(reader.readUUID());
+        Assertions.assertFalse(reader.hasRemaining());
+    }
+
+    @Test
+    void givenRepeatedEnumsAndUUIDs_whenWritten_thenOnlyFirstOccurrenceIsWrittenInFull() {
+        // Given
+        final UUID uuid1 = UUID.randomUUID();
+        final UUID uuid2 = UUID.randomUUID();
+
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final BinaryRowWriter writer = new BinaryRowWriter(buffer);
+
+        // When
+        writer.writeUUID(uuid1);
+        writer.writeEnum(Month.MAY);
+        final int firstOccurrencesSize = buffer.size();
+
+        writer.writeUUID(uuid1);
+        writer.writeEnum(Month.MAY);
+        final int repeatedOccurrencesSize = buffer.size() - firstOccurrencesSize;
+
+        writer.writeUUID(uuid2);
+        writer.writeEnum(Month.JUNE);
+        writer.writeUUID(uuid1);
+
+        final BinaryRowReader reader = new BinaryRowReader(ByteBuffer.wrap(buffer.toByteArray()));
+
+        // Then
+        Assertions.assertEquals(2, repeatedOccurrencesSize);
+        Assertions.assertEquals(uuid1, reader.readUUID());
+        Assertions.assertEquals(Month.MAY, reader.readEnum(Month.class));
+        Assertions.assertEquals(uuid1, reader.readUUID());
+        Assertions.assertEquals(Month.MAY, reader.readEnum(Month.class));
+        Assertions.assertEquals(uuid2, reader.readUUID());
+        Assertions.assertEquals(Month.JUNE, reader.readEnum(Month.class));
+        Assertions.assertEquals(uuid1, reader.readUUID());
+    }
+
+    @Test
+    void givenResetDictionaries_whenUUIDIsWrittenAgain_thenItIsWrittenInFull() {
+        // Given
+        final UUID uuid = UUID.randomUUID();
+
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final BinaryRowWriter writer = new BinaryRowWriter(buffer);
+
+        writer.writeUUID(uuid);
+        final byte[] firstChunk = buffer.toByteArray();
+
+        // When
+        buffer.reset();
+        writer.resetDictionaries();
+        writer.writeUUID(uuid);
+
+        // Then
+        Assertions.assertArrayEquals(firstChunk, buffer.toByteArray());
+        Assertions.assertEquals(uuid, new BinaryRowReader(ByteBuffer.wrap(buffer.toByteArray())).readUUID());
+    }
+
+    @Test
+    void givenInvalidDictionaryCode_whenRead_thenExceptionIsThrown() {
+        // Given
+        final BinaryRowReader reader = new BinaryRowReader(ByteBuffer.wrap(new byte[] {5}));
+
+        // When
+        Assertions.assertThrows(IllegalStateException.class, reader::readUUID);
+
+        // Then
+        // Noting to do
+    }
+}
@@ -0,0 +1,107 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.crypto.SecretKey;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class CryptoEngineTest {
+
+    @TempDir
+    File tempFolder;
+
+    private final CryptoEngine defaultEngine = CryptoEngine.getDefault();
+
+    @AfterEach
+    void tearDown() {
+        CryptoEngine.setDefault(defaultEngine);
+    }
+
+    @Test
+    void givenLessIterationsThanMinimum_whenEngineIsCreated_thenExceptionIsThrown() {
+        // Given
+        final int kdfIterations = CryptoEngine.MIN_KDF_ITERATIONS - 1;
+
+        // When
+        // Then
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CryptoEngine(kdfIterations, new DerivedKeyCache(10, 60_000L)));
+    }
+
+    @Test
+    void givenEngineWithCustomIterations_whenFileIsEncrypted_thenItCanBeDecryptedWithDefaultEngine() throws Exception {
+        // Given
+        final List<String[]> elements = getRows(100);
+        final File file = new File(tempFolder, "file.ecsv");
+        final char[] password = "123".toCharArray();
+
+        final CryptoEngine engine = new CryptoEngine(CryptoEngine.MIN_KDF_ITERATIONS, new DerivedKeyCache(10, 60_000L));
+        CryptoEngine.setDefault(engine);
+
+        // When
+        CsvCryptoUtils.encryptToCsvFile(elements, password, file);
+
+        CryptoEngine.setDefault(defaultEngine);
+
+        final List<String[]> decryptedElements = CsvCryptoUtils.decryptFromCsvFile(password, file);
+
+        // Then
+        assertRowsEquals(elements, decryptedElements);
+        Assertions.assertTrue(engine.getKeyDerivationCount() > 0L);
+        Assertions.assertTrue(engine.getCipherOperationCount() > 0L);
+        Assertions.assertTrue(engine.getCipherBytes() > 0L);
+    }
+
+    @Test
+    void givenSeveralThreads_whenKeysAreDerivedAndWrapped_thenEachThreadGetsConsistentResults() throws Exception {
+        // Given
+        final CryptoEngine engine = new CryptoEngine(CryptoEngine.MIN_KDF_ITERATIONS, new DerivedKeyCache(10, 60_000L));
+        final byte[] salt = engine.getRandomNonce(16);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // When
+        final List<Future<byte[]>> futures = IntStream.range(0, 16)
+                .mapToObj(i -> executor.submit(() -> {
+                    final SecretKey wrappingKey = engine.getAESKeyFromPassword("123".toCharArray(), salt);
+                    final SecretKey key = engine.generateAESKey();
+
+                    Assertions.assertArrayEquals(key.getEncoded(), engine.unwrapAESKey(wrappingKey, engine.wrapAESKey(wrappingKey, key)).getEncoded());
+
+                    return engine.getKeyCheckValue(wrappingKey);
+                }))
+                .collect(Collectors.toList());
+
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Then
+        final byte[] keyCheckValue = futures.get(0).get();
+
+        for (Future<byte[]> future : futures) {
+            Assertions.assertArrayEquals(keyCheckValue, future.get());
+        }
+    }
+
+    private static List<String[]> getRows(final int numberOfRows) {
+        return IntStream.range(0, numberOfRows)
+                .mapToObj(i -> new String[] {String.valueOf(i), String.format("row %d", i), "2021-05-01", "-12.34"})
+                .collect(Collectors.toList());
+    }
+
+    private static void assertRowsEquals(final List<String[]> expected, final List<String[]> actual) {
+        Assertions.assertEquals(expected.size(), actual.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+            Assertions.assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+}
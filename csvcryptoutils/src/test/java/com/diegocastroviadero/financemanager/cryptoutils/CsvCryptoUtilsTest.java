@@ -1,38 +1,82 @@
 package com.diegocastroviadero.financemanager.cryptoutils;
 
+import com.diegocastroviadero.financemanager.cryptoutils.exception.CsvCryptoIOException;
+import com.diegocastroviadero.financemanager.cryptoutils.exception.RuntimeCsvCryptoIOException;
 import com.diegocastroviadero.financemanager.cryptoutils.exception.WrongEncryptionPasswordException;
-import org.junit.jupiter.api.AfterEach;
+import com.opencsv.CSVWriter;
+import org.apache.commons.io.FilenameUtils;
 import org.junit.jupiter.api.Assertions;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 
+import javax.crypto.Cipher;
+import javax.crypto.CipherOutputStream;
+import javax.crypto.spec.GCMParameterSpec;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
 
 public class CsvCryptoUtilsTest {
 
-    private List<File> tempFiles;
+    // encrypted files share the master key store of their folder, so each test uses its own folder
+    @TempDir
+    File tempFolder;
 
-    @BeforeEach
-    void initializeTempFiles() {
-        tempFiles = new ArrayList<>();
-    }
-
-    @AfterEach
-    void deleteTempFiles() {
-        tempFiles.forEach(File::delete);
-        tempFiles.clear();
-    }
+    // rows of getRows(int) as binary rows
+    private static final BinaryRowCodec<String[]> ROW_CODEC = new BinaryRowCodec<>() {
+        @Override
+        public void write(final String[] element, final BinaryRowWriter writer) {
+            writer.writeLong(Long.parseLong(element[0]));
+            writer.writeString(element[1]);
+            writer.writeDate(LocalDate.parse(element[2]));
+            writer.writeBigDecimal(new BigDecimal(element[3]));
+        }
 
-    File getTempFile() throws IOException {
-        final File file = File.createTempFile("CsvCryptoUtilsTest-", ".tmp");
+        @Override
+        public String[] read(final BinaryRowReader reader) {
+            return new String[] {String.valueOf(reader.readLong()), reader.readString(), reader.readDate().toString(), reader.readBigDecimal().toPlainString()};
+        }
+    };
 
-        tempFiles.add(file);
+    // rows of getRows(int) as csv rows
+    private static final RowCodec<String[]> CSV_ROW_CODEC = RowCodec.of(
+            (element, writer) -> {
+                writer.writeLong(Long.parseLong(element[0]));
+                writer.writeString(element[1]);
+                writer.writeString(element[2]);
+                writer.writeString(element[3]);
+            },
+            reader -> new String[] {String.valueOf(reader.readLong()), reader.readString(), reader.readString(), reader.readString()});
 
-        return file;
+    File getTempFile() throws IOException {
+        return File.createTempFile("CsvCryptoUtilsTest-", ".tmp", tempFolder);
     }
 
     @Test
@@ -80,4 +124,1279 @@ public class CsvCryptoUtilsTest {
             Assertions.assertArrayEquals(elementsToEncrypt.get(i), decryptedElements.get(i));
         }
     }
+
+    @Test
+    void givenEncryptedData_whenEncrypted_thenMasterKeyStoreIsCreatedOnceAndShared() throws IOException {
+        // Given
+        final List<String[]> elementsToEncrypt = Collections.singletonList(new String[] {"1A", "1B"});
+
+        final File tempFile1 = getTempFile();
+        final File tempFile2 = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        // When
+        CsvCryptoUtils.encryptToCsvFile(elementsToEncrypt, password, tempFile1);
+        final byte[] store = Files.readAllBytes(MasterKeyStore.getStoreFile(tempFolder).toPath());
+        CsvCryptoUtils.encryptToCsvFile(elementsToEncrypt, password, tempFile2);
+
+        // Then
+        Assertions.assertArrayEquals(store, Files.readAllBytes(MasterKeyStore.getStoreFile(tempFolder).toPath()));
+        Assertions.assertEquals(1, CsvCryptoUtils.decryptFromCsvFile(password, tempFile1).size());
+        Assertions.assertEquals(1, CsvCryptoUtils.decryptFromCsvFile(password, tempFile2).size());
+        Assertions.assertThrows(WrongEncryptionPasswordException.class, () -> CsvCryptoUtils.encryptToCsvFile(elementsToEncrypt, "asdf".toCharArray(), tempFile2));
+    }
+
+    @Test
+    void givenFolderWithoutStore_whenFilesAreEncryptedConcurrently_thenAllOfThemShareTheSameStore() throws Exception {
+        // Given
+        final List<String[]> elementsToEncrypt = Collections.singletonList(new String[] {"1A", "1B"});
+        final char[] password = "123".toCharArray();
+
+        final List<File> tempFiles = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            tempFiles.add(getTempFile());
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(tempFiles.size());
+
+        try {
+            // When
+            final List<Future<?>> encryptions = new ArrayList<>();
+            for (File tempFile : tempFiles) {
+                encryptions.add(executor.submit(() -> {
+                    CsvCryptoUtils.encryptToCsvFile(elementsToEncrypt, password, tempFile);
+
+                    return null;
+                }));
+            }
+
+            for (Future<?> encryption : encryptions) {
+                encryption.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then
+        final byte[] store = Files.readAllBytes(MasterKeyStore.getStoreFile(tempFolder).toPath());
+        final byte[] storeSalt = Arrays.copyOfRange(store, 5, 5 + MasterKeyStore.SALT_LENGTH_BYTE);
+
+        for (File tempFile : tempFiles) {
+            try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.READ)) {
+                Assertions.assertArrayEquals(storeSalt, ContainerHeader.read(channel, tempFile.getName()).getStoreSalt());
+            }
+
+            Assertions.assertEquals(1, CsvCryptoUtils.decryptFromCsvFile(password, tempFile).size());
+        }
+    }
+
+    @Test
+    void givenMissingMasterKeyStore_whenEncrypted_thenStoreIsRestoredFromExistingFile() throws IOException {
+        // Given
+        final List<String[]> elementsToEncrypt = Collections.singletonList(new String[] {"1A", "1B"});
+
+        final File tempFile1 = getTempFile();
+        final File tempFile2 = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        CsvCryptoUtils.encryptToCsvFile(elementsToEncrypt, password, tempFile1);
+        final byte[] store = Files.readAllBytes(MasterKeyStore.getStoreFile(tempFolder).toPath());
+        Files.delete(MasterKeyStore.getStoreFile(tempFolder).toPath());
+
+        // When
+        CsvCryptoUtils.encryptToCsvFile(elementsToEncrypt, password, tempFile2);
+
+        // Then
+        Assertions.assertArrayEquals(store, Files.readAllBytes(MasterKeyStore.getStoreFile(tempFolder).toPath()));
+    }
+
+    @Test
+    void givenLegacyEncryptedData_whenDecryptedAndMigrated_thenDataIsKeptAndFileUsesContainerFormat() throws Exception {
+        // Given
+        final String[] row1 = new String[] {"1A", "1B", "1C"};
+        final String[] row2 = new String[] {"2A", "2B", "2C"};
+
+        final List<String[]> elementsToEncrypt = Arrays.asList(row1, row2);
+
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        encryptWithLegacyFormat(elementsToEncrypt, password, tempFile);
+
+        Assertions.assertTrue(CsvCryptoUtils.isLegacyEncryptedCsvFile(tempFile));
+        Assertions.assertEquals(2, CsvCryptoUtils.decryptFromCsvFile(password, tempFile).size());
+        Assertions.assertThrows(WrongEncryptionPasswordException.class, () -> CsvCryptoUtils.migrateToContainerFormat("asdf".toCharArray(), tempFolder));
+        Assertions.assertFalse(MasterKeyStore.exists(tempFolder));
+
+        // When
+        final List<File> migratedFiles = CsvCryptoUtils.migrateToContainerFormat(password, tempFolder);
+
+        // Then
+        Assertions.assertEquals(Collections.singletonList(tempFile), migratedFiles);
+        Assertions.assertFalse(CsvCryptoUtils.isLegacyEncryptedCsvFile(tempFile));
+        Assertions.assertTrue(MasterKeyStore.exists(tempFolder));
+
+        final List<String[]> decryptedElements = CsvCryptoUtils.decryptFromCsvFile(password, tempFile);
+        Assertions.assertEquals(elementsToEncrypt.size(), decryptedElements.size());
+        for (int i = 0; i < elementsToEncrypt.size(); i++) {
+            Assertions.assertArrayEquals(elementsToEncrypt.get(i), decryptedElements.get(i));
+        }
+    }
+
+    @Test
+    void givenEncryptedData_whenStreamed_thenRowsAreDecryptedOneByOne() throws IOException {
+        // Given
+        final String[] row1 = new String[] {"1A", "1B", "1C", "1D", "1E"};
+        final String[] row2 = new String[] {"2A", "2B", "2C", "2D", "2E"};
+
+        final List<String[]> elementsToEncrypt = Arrays.asList(row1, row2);
+
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        CsvCryptoUtils.encryptToCsvFile(elementsToEncrypt, password, tempFile);
+
+        // When
+        final List<String> firstColumns;
+        try (Stream<String[]> rows = CsvCryptoUtils.streamFromCsvFile(password, tempFile)) {
+            firstColumns = rows.map(row -> row[0]).collect(Collectors.toList());
+        }
+
+        // Then
+        Assertions.assertEquals(Arrays.asList("1A", "2A"), firstColumns);
+    }
+
+    @Test
+    void givenLegacyEncryptedDataWithWrongHash_whenIterated_thenExceptionIsThrownAfterLastRow() throws Exception {
+        // Given
+        final List<String[]> elementsToEncrypt = Arrays.asList(new String[] {"1A", "1B"}, new String[] {"2A", "2B"});
+
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        encryptWithLegacyFormat(elementsToEncrypt, password, tempFile);
+        Files.writeString(getSiblingPath(tempFile, "hash"), "wrong", StandardCharsets.UTF_8);
+
+        // When
+        try (CsvRowIterator iterator = CsvCryptoUtils.iterateFromCsvFile(password, tempFile, false)) {
+            iterator.next();
+            iterator.next();
+
+            final RuntimeCsvCryptoIOException exception = Assertions.assertThrows(RuntimeCsvCryptoIOException.class, iterator::hasNext);
+
+            // Then
+            Assertions.assertTrue(exception.toCheckedException() instanceof WrongEncryptionPasswordException);
+        }
+
+        Assertions.assertThrows(WrongEncryptionPasswordException.class, () -> CsvCryptoUtils.forEachFromCsvFile(password, tempFile, row -> {}));
+        Assertions.assertEquals(2, CsvCryptoUtils.decryptFromCsvFile(password, tempFile, true).size());
+    }
+
+    @Test
+    void givenRowsWrittenOneByOne_whenDecrypted_thenDataIsDecryptedSuccessfully() throws IOException {
+        // Given
+        final String[] row1 = new String[] {"1A", "1B", "1C", "1D", "1E"};
+        final String[] row2 = new String[] {"2A", null, "2C", "2D", "2E"};
+
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        // When
+        try (EncryptedCsvWriter writer = CsvCryptoUtils.openEncryptedCsvWriter(password, tempFile)) {
+            writer.write(row1);
+            writer.write(row2);
+        }
+
+        // Then
+        final List<String[]> decryptedElements = CsvCryptoUtils.decryptFromCsvFile(password, tempFile);
+        Assertions.assertEquals(2, decryptedElements.size());
+        Assertions.assertArrayEquals(row1, decryptedElements.get(0));
+        Assertions.assertArrayEquals(new String[] {"2A", "", "2C", "2D", "2E"}, decryptedElements.get(1));
+    }
+
+    @Test
+    void givenEncryptedFile_whenRewrittenWithWriterNotClosedYet_thenPreviousContentIsKeptUntilWriterIsClosed() throws IOException {
+        // Given
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        CsvCryptoUtils.encryptToCsvFile(getRows(2), password, tempFile);
+
+        // When
+        final EncryptedCsvWriter writer = CsvCryptoUtils.openEncryptedCsvWriter(password, tempFile);
+
+        for (String[] row : getRows(20000)) {
+            writer.write(row);
+        }
+
+        // Then
+        assertRowsEquals(getRows(2), CsvCryptoUtils.decryptFromCsvFile(password, tempFile));
+
+        writer.close();
+
+        assertRowsEquals(getRows(20000), CsvCryptoUtils.decryptFromCsvFile(password, tempFile));
+        Assertions.assertEquals(1, tempFolder.listFiles((dir, name) -> name.startsWith(tempFile.getName())).length);
+    }
+
+    @Test
+    void givenEncryptedFile_whenRewriteFailsMidway_thenPreviousContentIsKept() throws IOException {
+        // Given
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        CsvCryptoUtils.encryptToCsvFile(getRows(2), password, tempFile);
+
+        final IllegalStateException error = new IllegalStateException("element could not be read");
+        final Iterator<String[]> failingRows = Stream.concat(getRows(20000).stream(), Stream.<String[]>generate(() -> {
+            throw error;
+        })).iterator();
+
+        final RowCodec<String[]> failingCodec = RowCodec.of((element, writer) -> {
+            if ("19999".equals(element[0])) {
+                throw error;
+            }
+
+            CSV_ROW_CODEC.write(element, writer);
+        }, CSV_ROW_CODEC::read);
+
+        // When
+        final IllegalStateException iteratorException = Assertions.assertThrows(IllegalStateException.class, () -> CsvCryptoUtils.encryptToCsvFile(failingRows, password, tempFile));
+        final IllegalStateException codecException = Assertions.assertThrows(IllegalStateException.class, () -> CsvCryptoUtils.encryptToCsvFile(getRows(20000), failingCodec, password, tempFile));
+        final IllegalStateException appendException = Assertions.assertThrows(IllegalStateException.class, () -> CsvCryptoUtils.appendToCsvFile(getRows(20000), failingCodec, password, tempFile));
+
+        // Then
+        Assertions.assertSame(error, iteratorException);
+        Assertions.assertSame(error, codecException);
+        Assertions.assertSame(error, appendException);
+        assertRowsEquals(getRows(2), CsvCryptoUtils.decryptFromCsvFile(password, tempFile));
+        Assertions.assertEquals(1, tempFolder.listFiles((dir, name) -> name.startsWith(tempFile.getName())).length);
+    }
+
+    @Test
+    void givenWriterWhoseCodecFailed_whenClosed_thenExceptionIsThrownAndPreviousContentIsKept() throws IOException {
+        // Given
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        CsvCryptoUtils.encryptToCsvFile(getRows(2), password, tempFile);
+
+        final RowCodec<String[]> failingCodec = RowCodec.of((element, writer) -> {
+            writer.writeString(element[0]);
+
+            throw new IllegalStateException("element could not be encoded");
+        }, CSV_ROW_CODEC::read);
+
+        final EncryptedCsvWriter writer = CsvCryptoUtils.openEncryptedCsvWriter(password, tempFile);
+        writer.write(getRows(1).get(0));
+
+        // When
+        Assertions.assertThrows(IllegalStateException.class, () -> writer.write(getRows(2).get(1), failingCodec));
+
+        // Then
+        Assertions.assertThrows(CsvCryptoIOException.class, writer::close);
+        assertRowsEquals(getRows(2), CsvCryptoUtils.decryptFromCsvFile(password, tempFile));
+        Assertions.assertEquals(1, tempFolder.listFiles((dir, name) -> name.startsWith(tempFile.getName())).length);
+    }
+
+    @Test
+    void givenTwoWritersOfSameFile_whenBothAreClosed_thenFileHasTheRowsOfTheLastOneClosed() throws IOException {
+        // Given
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        final EncryptedCsvWriter writer1 = CsvCryptoUtils.openEncryptedCsvWriter(password, tempFile);
+        final EncryptedCsvWriter writer2 = CsvCryptoUtils.openEncryptedCsvWriter(password, tempFile);
+
+        // When
+        for (String[] row : getRows(20000)) {
+            writer1.write(row);
+            writer2.write(row);
+        }
+
+        writer2.write(new String[] {"20000", "row 20000", "2021-05-01", "-12.34"});
+
+        writer1.close();
+        assertRowsEquals(getRows(20000), CsvCryptoUtils.decryptFromCsvFile(password, tempFile));
+
+        writer2.close();
+
+        // Then
+        assertRowsEquals(getRows(20001), CsvCryptoUtils.decryptFromCsvFile(password, tempFile));
+        Assertions.assertEquals(1, tempFolder.listFiles((dir, name) -> name.startsWith(tempFile.getName())).length);
+    }
+
+    @Test
+    void givenWriteBatch_whenSeveralFilesAreEncrypted_thenEveryFileIsReplacedAndNestedBatchJoinsIt() throws IOException {
+        // Given
+        final File tempFile1 = getTempFile();
+        final File tempFile2 = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        CsvCryptoUtils.encryptToCsvFile(getRows(1), password, tempFile1);
+
+        // When
+        try (WriteBatch batch = CsvCryptoUtils.beginWriteBatch()) {
+            CsvCryptoUtils.encryptToCsvFile(getRows(3), password, tempFile1);
+
+            try (WriteBatch nestedBatch = CsvCryptoUtils.beginWriteBatch()) {
+                CsvCryptoUtils.encryptToCsvFile(getRows(4), password, tempFile2);
+            }
+        }
+
+        // Then
+        assertRowsEquals(getRows(3), CsvCryptoUtils.decryptFromCsvFile(password, tempFile1));
+        assertRowsEquals(getRows(4), CsvCryptoUtils.decryptFromCsvFile(password, tempFile2));
+        Assertions.assertEquals(1, tempFolder.listFiles((dir, name) -> name.startsWith(tempFile1.getName())).length);
+        Assertions.assertEquals(1, tempFolder.listFiles((dir, name) -> name.startsWith(tempFile2.getName())).length);
+    }
+
+    @Test
+    void givenIteratorOfRows_whenEncrypted_thenSingleFileContainerIsWritten() throws IOException {
+        // Given
+        final List<String[]> elementsToEncrypt = Arrays.asList(new String[] {"1A", "1B"}, new String[] {"2A", "2B"});
+
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        // When
+        CsvCryptoUtils.encryptToCsvFile(elementsToEncrypt.iterator(), password, tempFile);
+
+        // Then
+        Assertions.assertTrue(ContainerHeader.isContainer(tempFile));
+        Assertions.assertFalse(Files.exists(getSiblingPath(tempFile, "meta")));
+        Assertions.assertFalse(Files.exists(getSiblingPath(tempFile, "hash")));
+        Assertions.assertEquals(2, CsvCryptoUtils.decryptFromCsvFile(password, tempFile).size());
+    }
+
+    @Test
+    void givenLegacyEncryptedData_whenEncryptedAgain_thenMetaAndHashFilesAreDeleted() throws Exception {
+        // Given
+        final List<String[]> elementsToEncrypt = Collections.singletonList(new String[] {"1A", "1B"});
+
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        encryptWithLegacyFormat(elementsToEncrypt, password, tempFile);
+
+        // When
+        CsvCryptoUtils.encryptToCsvFile(elementsToEncrypt, password, tempFile);
+
+        // Then
+        Assertions.assertFalse(CsvCryptoUtils.isLegacyEncryptedCsvFile(tempFile));
+        Assertions.assertFalse(Files.exists(getSiblingPath(tempFile, "meta")));
+        Assertions.assertFalse(Files.exists(getSiblingPath(tempFile, "hash")));
+        Assertions.assertEquals(1, CsvCryptoUtils.decryptFromCsvFile(password, tempFile).size());
+    }
+
+    @Test
+    void givenContainerWithTamperedHeader_whenDecrypted_thenExceptionIsThrown() throws IOException {
+        // Given
+        final List<String[]> elementsToEncrypt = Arrays.asList(new String[] {"1A", "1B"}, new String[] {"2A", "2B"});
+
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        CsvCryptoUtils.encryptToCsvFile(elementsToEncrypt, password, tempFile);
+
+        final byte[] content = Files.readAllBytes(tempFile.toPath());
+        content[ContainerHeader.ROW_COUNT_OFFSET + 7]++;
+        Files.write(tempFile.toPath(), content);
+
+        // When
+        final CsvCryptoIOException exception = Assertions.assertThrows(CsvCryptoIOException.class, () -> CsvCryptoUtils.decryptFromCsvFile(password, tempFile));
+
+        // Then
+        Assertions.assertFalse(exception instanceof WrongEncryptionPasswordException);
+    }
+
+    @Test
+    void givenManyRows_whenEncrypted_thenRowsAreSplitInChunksAndDecryptedInOrder() throws IOException {
+        // Given
+        final List<String[]> elementsToEncrypt = getRows(20000);
+
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        // When
+        CsvCryptoUtils.encryptToCsvFile(elementsToEncrypt, password, tempFile);
+
+        // Then
+        Assertions.assertTrue(getChunks(tempFile).size() > 1);
+        assertRowsEquals(elementsToEncrypt, CsvCryptoUtils.decryptFromCsvFile(password, tempFile));
+    }
+
+    @Test
+    void givenChunkedContainer_whenRangeIsDecrypted_thenOnlyRowsOfRangeAreReturned() throws IOException {
+        // Given
+        final List<String[]> elementsToEncrypt = getRows(20000);
+
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        CsvCryptoUtils.encryptToCsvFile(elementsToEncrypt, password, tempFile);
+
+        // When
+        final List<String[]> range = CsvCryptoUtils.decryptRangeFromCsvFile(password, tempFile, 4321L, 12345L);
+        final List<String[]> last = CsvCryptoUtils.decryptLastFromCsvFile(password, tempFile, 3);
+        final List<String[]> beyondEnd = CsvCryptoUtils.decryptRangeFromCsvFile(password, tempFile, 19999L, 30000L);
+
+        // Then
+        assertRowsEquals(elementsToEncrypt.subList(4321, 12345), range);
+        assertRowsEquals(elementsToEncrypt.subList(19997, 20000), last);
+        assertRowsEquals(elementsToEncrypt.subList(19999, 20000), beyondEnd);
+    }
+
+    @Test
+    void givenLegacyEncryptedData_whenLastRowsAreDecrypted_thenLastRowsAreReturned() throws Exception {
+        // Given
+        final List<String[]> elementsToEncrypt = getRows(10);
+
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        encryptWithLegacyFormat(elementsToEncrypt, password, tempFile);
+
+        // When
+        final List<String[]> last = CsvCryptoUtils.decryptLastFromCsvFile(password, tempFile, 2);
+
+        // Then
+        assertRowsEquals(elementsToEncrypt.subList(8, 10), last);
+    }
+
+    @Test
+    void givenChunkedContainer_whenDecryptedInParallel_thenRowsAreReturnedInOrder() throws IOException {
+        // Given
+        final List<String[]> elementsToEncrypt = getRows(20000);
+
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        CsvCryptoUtils.encryptToCsvFile(elementsToEncrypt, password, tempFile);
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+
+        // When
+        final List<String[]> decryptedElements;
+        try {
+            decryptedElements = CsvCryptoUtils.decryptFromCsvFile(password, tempFile, pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        // Then
+        assertRowsEquals(elementsToEncrypt, decryptedElements);
+    }
+
+    @Test
+    void givenChunkedContainer_whenDecryptedInParallelWithWrongPassword_thenExceptionIsThrown() throws IOException {
+        // Given
+        final File tempFile = getTempFile();
+
+        CsvCryptoUtils.encryptToCsvFile(getRows(10), "123".toCharArray(), tempFile);
+
+        // When
+        Assertions.assertThrows(WrongEncryptionPasswordException.class, () -> CsvCryptoUtils.decryptFromCsvFile("asdf".toCharArray(), tempFile, ForkJoinPool.commonPool()));
+
+        // Then
+        // Noting to do
+    }
+
+    @Test
+    void givenChunkedContainerWithReorderedChunks_whenDecrypted_thenExceptionIsThrown() throws IOException {
+        // Given
+        final List<String[]> elementsToEncrypt = getRows(20000);
+
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        CsvCryptoUtils.encryptToCsvFile(elementsToEncrypt, password, tempFile);
+
+        final ContainerHeader header;
+        try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.READ)) {
+            header = ContainerHeader.read(channel, tempFile.getName());
+        }
+
+        // offset and length of the first two entries of the index are swapped
+        final byte[] content = Files.readAllBytes(tempFile.toPath());
+        final int firstEntry = (int) header.getIndexOffset() + Integer.BYTES;
+        final int secondEntry = firstEntry + 24;
+        final byte[] firstOffsetAndLength = Arrays.copyOfRange(content, firstEntry, firstEntry + 12);
+        System.arraycopy(content, secondEntry, content, firstEntry, 12);
+        System.arraycopy(firstOffsetAndLength, 0, content, secondEntry, 12);
+        Files.write(tempFile.toPath(), content);
+
+        // When
+        final CsvCryptoIOException exception = Assertions.assertThrows(CsvCryptoIOException.class, () -> CsvCryptoUtils.decryptFromCsvFile(password, tempFile));
+
+        // Then
+        Assertions.assertFalse(exception instanceof WrongEncryptionPasswordException);
+    }
+
+    @Test
+    void givenEncryptedData_whenPasswordIsChecked_thenOnlyWrongPasswordIsRejected() throws IOException {
+        // Given
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+        final char[] wrongPassword = "asdf".toCharArray();
+
+        CsvCryptoUtils.encryptToCsvFile(getRows(10), password, tempFile);
+
+        // When
+        CsvCryptoUtils.checkPassword(password, tempFolder);
+        Assertions.assertThrows(WrongEncryptionPasswordException.class, () -> CsvCryptoUtils.checkPassword(wrongPassword, tempFolder));
+
+        // Then
+        // Noting to do
+    }
+
+    @Test
+    void givenContainerWithoutStore_whenPasswordIsChecked_thenWrongPasswordIsRejectedWithoutRestoringStore() throws IOException {
+        // Given
+        final File tempFile = getTempFile();
+
+        CsvCryptoUtils.encryptToCsvFile(getRows(10), "123".toCharArray(), tempFile);
+
+        Files.delete(MasterKeyStore.getStoreFile(tempFolder).toPath());
+
+        // When
+        Assertions.assertThrows(WrongEncryptionPasswordException.class, () -> CsvCryptoUtils.checkPassword("asdf".toCharArray(), tempFolder));
+
+        // Then
+        Assertions.assertFalse(MasterKeyStore.exists(tempFolder));
+    }
+
+    @Test
+    void givenContainerWithCorruptedRows_whenDecryptedWithWrongPassword_thenWrongPasswordIsDetectedBeforeReadingRows() throws IOException {
+        // Given
+        final File tempFile = getTempFile();
+
+        CsvCryptoUtils.encryptToCsvFile(getRows(10), "123".toCharArray(), tempFile);
+
+        final byte[] content = Files.readAllBytes(tempFile.toPath());
+        Arrays.fill(content, ContainerHeader.INDEX_OFFSET_OFFSET + 8, content.length, (byte) 0);
+        Files.write(tempFile.toPath(), content);
+
+        // When
+        Assertions.assertThrows(WrongEncryptionPasswordException.class, () -> CsvCryptoUtils.decryptFromCsvFile("asdf".toCharArray(), tempFile));
+
+        // Then
+        // Noting to do
+    }
+
+    @Test
+    void givenStoreWithoutKeyCheckValue_whenPasswordIsChecked_thenOnlyWrongPasswordIsRejected() throws IOException {
+        // Given
+        final char[] password = "123".toCharArray();
+
+        MasterKeyStore.create(password, tempFolder);
+
+        // version 1 stores have no key check value at the end
+        final Path storePath = MasterKeyStore.getStoreFile(tempFolder).toPath();
+        final byte[] store = Files.readAllBytes(storePath);
+        final byte[] storeV1 = Arrays.copyOf(store, store.length - CryptoUtils.KEY_CHECK_VALUE_LENGTH_BYTE);
+        storeV1[4] = 1;
+        Files.write(storePath, storeV1);
+
+        // When
+        CsvCryptoUtils.checkPassword(password, tempFolder);
+        Assertions.assertThrows(WrongEncryptionPasswordException.class, () -> CsvCryptoUtils.checkPassword("asdf".toCharArray(), tempFolder));
+
+        // Then
+        // Noting to do
+    }
+
+    @Test
+    void givenBatchOfFiles_whenDecryptedAll_thenResultsAreReturnedInOrderWithErrorsPerFile() throws Exception {
+        // Given
+        final char[] password = "123".toCharArray();
+
+        final List<File> files = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            final File tempFile = getTempFile();
+            CsvCryptoUtils.encryptToCsvFile(getRows(i + 1), password, tempFile);
+            files.add(tempFile);
+        }
+
+        final File legacyFile = getTempFile();
+        encryptWithLegacyFormat(getRows(3), password, legacyFile);
+        files.add(legacyFile);
+
+        final File corruptedFile = files.get(2);
+        final byte[] content = Files.readAllBytes(corruptedFile.toPath());
+        content[content.length - 1]++;
+        Files.write(corruptedFile.toPath(), content);
+
+        // When
+        final List<CsvDecryptionResult> results = CsvCryptoUtils.decryptAll(files, password, 3);
+
+        // Then
+        Assertions.assertEquals(files.size(), results.size());
+
+        for (int i = 0; i < files.size(); i++) {
+            final CsvDecryptionResult result = results.get(i);
+
+            Assertions.assertEquals(files.get(i), result.getFile());
+
+            if (2 == i) {
+                Assertions.assertFalse(result.isSuccessful());
+                Assertions.assertNull(result.getElements());
+            } else if (files.size() - 1 == i) {
+                Assertions.assertTrue(result.isSuccessful());
+                assertRowsEquals(getRows(3), result.getElements());
+            } else {
+                Assertions.assertTrue(result.isSuccessful());
+                assertRowsEquals(getRows(i + 1), result.getElements());
+            }
+        }
+    }
+
+    @Test
+    void givenBatchOfFiles_whenDecryptedAllWithWrongPassword_thenEveryResultHasWrongPasswordError() throws IOException {
+        // Given
+        final List<File> files = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final File tempFile = getTempFile();
+            CsvCryptoUtils.encryptToCsvFile(getRows(2), "123".toCharArray(), tempFile);
+            files.add(tempFile);
+        }
+
+        // When
+        final List<CsvDecryptionResult> results = CsvCryptoUtils.decryptAll(files, "asdf".toCharArray(), 2);
+
+        // Then
+        Assertions.assertEquals(3, results.size());
+        results.forEach(result -> Assertions.assertTrue(result.getError() instanceof WrongEncryptionPasswordException));
+    }
+
+    @Test
+    void givenManyElements_whenEncryptedAsBinaryRows_thenElementsAreDecryptedAndFileIsSmallerThanCsv() throws IOException {
+        // Given
+        final List<String[]> elementsToEncrypt = getRows(20000);
+
+        final File binaryFile = getTempFile();
+        final File csvFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        // When
+        CsvCryptoUtils.encryptToBinaryFile(elementsToEncrypt, ROW_CODEC, password, binaryFile);
+        CsvCryptoUtils.encryptToCsvFile(elementsToEncrypt, password, csvFile);
+
+        // Then
+        Assertions.assertTrue(getChunks(binaryFile).size() > 1);
+        Assertions.assertTrue(binaryFile.length() < csvFile.length());
+        assertRowsEquals(elementsToEncrypt, CsvCryptoUtils.decryptFromBinaryFile(password, binaryFile, ROW_CODEC));
+    }
+
+    @Test
+    void givenBinaryRows_whenDecryptedAsCsv_thenExceptionIsThrown() throws IOException {
+        // Given
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        CsvCryptoUtils.encryptToBinaryFile(getRows(2), ROW_CODEC, password, tempFile);
+
+        // When
+        Assertions.assertThrows(CsvCryptoIOException.class, () -> CsvCryptoUtils.decryptFromCsvFile(password, tempFile));
+        Assertions.assertThrows(CsvCryptoIOException.class, () -> CsvCryptoUtils.decryptLastFromCsvFile(password, tempFile, 1));
+
+        // Then
+        // Noting to do
+    }
+
+    @Test
+    void givenCsvRows_whenDecryptedAsBinary_thenExceptionIsThrown() throws IOException {
+        // Given
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        CsvCryptoUtils.encryptToCsvFile(getRows(2), password, tempFile);
+
+        // When
+        Assertions.assertThrows(CsvCryptoIOException.class, () -> CsvCryptoUtils.decryptFromBinaryFile(password, tempFile, ROW_CODEC));
+
+        // Then
+        // Noting to do
+    }
+
+    @Test
+    void givenCompressionOption_whenEncrypted_thenFileIsSmallerAndRowsAreDecryptedSuccessfully() throws IOException {
+        // Given
+        final List<String[]> elementsToEncrypt = getRows(20000);
+
+        final File compressedFile = getTempFile();
+        final File uncompressedFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        final EncryptionOptions options = EncryptionOptions.builder()
+                .compressed(true)
+                .compressionLevel(Deflater.BEST_SPEED)
+                .build();
+
+        // When
+        CsvCryptoUtils.encryptToCsvFile(elementsToEncrypt, password, compressedFile, options);
+        CsvCryptoUtils.encryptToCsvFile(elementsToEncrypt, password, uncompressedFile);
+
+        // Then
+        Assertions.assertTrue(getChunks(compressedFile).size() > 1);
+        Assertions.assertTrue(compressedFile.length() < uncompressedFile.length());
+        assertRowsEquals(elementsToEncrypt, CsvCryptoUtils.decryptFromCsvFile(password, compressedFile));
+        assertRowsEquals(elementsToEncrypt.subList(4321, 12345), CsvCryptoUtils.decryptRangeFromCsvFile(password, compressedFile, 4321L, 12345L));
+    }
+
+    @Test
+    void givenCompressedBinaryRows_whenDecryptedInParallel_thenRowsAreReturnedInOrder() throws IOException {
+        // Given
+        final List<String[]> elementsToEncrypt = getRows(20000);
+
+        final File csvFile = getTempFile();
+        final File binaryFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        final EncryptionOptions options = EncryptionOptions.builder()
+                .compressed(true)
+                .build();
+
+        CsvCryptoUtils.encryptToCsvFile(elementsToEncrypt, password, csvFile, options);
+        CsvCryptoUtils.encryptToBinaryFile(elementsToEncrypt, ROW_CODEC, password, binaryFile, options);
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+
+        // When
+        final List<String[]> decryptedElements;
+        try {
+            decryptedElements = CsvCryptoUtils.decryptFromCsvFile(password, csvFile, pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        // Then
+        assertRowsEquals(elementsToEncrypt, decryptedElements);
+        assertRowsEquals(elementsToEncrypt, CsvCryptoUtils.decryptFromBinaryFile(password, binaryFile, ROW_CODEC));
+    }
+
+    @Test
+    void givenElementsEncryptedWithCodec_whenDecryptedWithCodecOrAsText_thenSameElementsAreDecrypted() throws IOException {
+        // Given
+        final List<String[]> elementsToEncrypt = getRows(20000);
+
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        CsvCryptoUtils.encryptToCsvFile(elementsToEncrypt, CSV_ROW_CODEC, password, tempFile);
+
+        // When
+        final List<String[]> rows = CsvCryptoUtils.decryptFromCsvFile(password, tempFile);
+        final List<String[]> elements = CsvCryptoUtils.decryptFromCsvFile(password, tempFile, CSV_ROW_CODEC);
+        final List<String[]> range = CsvCryptoUtils.decryptRangeFromCsvFile(password, tempFile, 4321L, 12345L, CSV_ROW_CODEC);
+        final List<String[]> last = CsvCryptoUtils.decryptLastFromCsvFile(password, tempFile, 3, CSV_ROW_CODEC);
+        final CsvText text = CsvCryptoUtils.decryptTextFromCsvFile(password, tempFile);
+
+        // Then
+        Assertions.assertTrue(getChunks(tempFile).size() > 1);
+        assertRowsEquals(elementsToEncrypt, rows);
+        assertRowsEquals(elementsToEncrypt, elements);
+        assertRowsEquals(elementsToEncrypt.subList(4321, 12345), range);
+        assertRowsEquals(elementsToEncrypt.subList(19997, 20000), last);
+        Assertions.assertEquals(20000, text.getRowCount());
+        assertRowsEquals(elementsToEncrypt, text.read(CSV_ROW_CODEC));
+        assertRowsEquals(elementsToEncrypt, text.readRows());
+        assertRowsEquals(elementsToEncrypt.subList(19998, 20000), text.readLast(CSV_ROW_CODEC, 2));
+    }
+
+    @Test
+    void givenLegacyEncryptedData_whenDecryptedWithCodecOrAsText_thenSameElementsAreDecrypted() throws Exception {
+        // Given
+        final List<String[]> elementsToEncrypt = getRows(10);
+
+        final File tempFile = getTempFile();
+        final File otherTempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        encryptWithLegacyFormat(elementsToEncrypt, password, tempFile);
+        encryptWithLegacyFormat(elementsToEncrypt.subList(0, 5), password, otherTempFile);
+
+        // When
+        final List<String[]> elements = CsvCryptoUtils.decryptFromCsvFile(password, tempFile, CSV_ROW_CODEC);
+        final List<String[]> last = CsvCryptoUtils.decryptLastFromCsvFile(password, tempFile, 2, CSV_ROW_CODEC);
+        final List<CsvDecryptionResult> results = CsvCryptoUtils.decryptAllToText(Arrays.asList(tempFile, otherTempFile), password, 2);
+
+        // Then
+        assertRowsEquals(elementsToEncrypt, elements);
+        assertRowsEquals(elementsToEncrypt.subList(8, 10), last);
+        Assertions.assertEquals(2, results.size());
+        Assertions.assertTrue(results.get(0).isSuccessful());
+        assertRowsEquals(elementsToEncrypt, results.get(0).getText().read(CSV_ROW_CODEC));
+        Assertions.assertTrue(results.get(1).isSuccessful());
+        assertRowsEquals(elementsToEncrypt.subList(0, 5), results.get(1).getText().read(CSV_ROW_CODEC));
+    }
+
+    @ParameterizedTest
+    @EnumSource(IntegrityMode.class)
+    void givenIntegrityMode_whenEncrypted_thenModeIsRecordedAndRowsAreDecryptedSuccessfully(final IntegrityMode integrityMode) throws IOException {
+        // Given
+        final List<String[]> elementsToEncrypt = getRows(20000);
+
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        final EncryptionOptions options = EncryptionOptions.builder()
+                .compressed(true)
+                .integrityMode(integrityMode)
+                .build();
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+
+        // When
+        CsvCryptoUtils.encryptToCsvFile(elementsToEncrypt, CSV_ROW_CODEC, password, tempFile, options);
+
+        final List<String[]> parallelRows;
+        try {
+            parallelRows = CsvCryptoUtils.decryptFromCsvFile(password, tempFile, pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        // Then
+        Assertions.assertEquals(integrityMode, readHeader(tempFile).getIntegrityMode());
+        Assertions.assertTrue(getChunks(tempFile).size() > 1);
+        assertRowsEquals(elementsToEncrypt, CsvCryptoUtils.decryptFromCsvFile(password, tempFile));
+        assertRowsEquals(elementsToEncrypt, CsvCryptoUtils.decryptFromCsvFile(password, tempFile, CSV_ROW_CODEC));
+        assertRowsEquals(elementsToEncrypt, CsvCryptoUtils.decryptTextFromCsvFile(password, tempFile).readRows());
+        assertRowsEquals(elementsToEncrypt, parallelRows);
+        assertRowsEquals(elementsToEncrypt.subList(4321, 12345), CsvCryptoUtils.decryptRangeFromCsvFile(password, tempFile, 4321L, 12345L));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = IntegrityMode.class, names = {"SHA256", "SHA3_512_COLUMNS"})
+    void givenContainerWithTamperedDigest_whenDecrypted_thenExceptionIsThrownUnlessInsecure(final IntegrityMode integrityMode) throws IOException {
+        // Given
+        final List<String[]> elementsToEncrypt = getRows(20000);
+
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        final EncryptionOptions options = EncryptionOptions.builder()
+                .integrityMode(integrityMode)
+                .build();
+
+        CsvCryptoUtils.encryptToCsvFile(elementsToEncrypt, password, tempFile, options);
+
+        // last byte of the digest (right before the index) is flipped
+        final byte[] content = Files.readAllBytes(tempFile.toPath());
+        content[(int) readHeader(tempFile).getIndexOffset() - 1] ^= 0x01;
+        Files.write(tempFile.toPath(), content);
+
+        // When
+        Assertions.assertThrows(CsvCryptoIOException.class, () -> CsvCryptoUtils.decryptFromCsvFile(password, tempFile));
+        Assertions.assertThrows(CsvCryptoIOException.class, () -> CsvCryptoUtils.decryptFromCsvFile(password, tempFile, CSV_ROW_CODEC));
+        Assertions.assertThrows(CsvCryptoIOException.class, () -> CsvCryptoUtils.decryptTextFromCsvFile(password, tempFile));
+
+        // Then
+        assertRowsEquals(elementsToEncrypt, CsvCryptoUtils.decryptFromCsvFile(password, tempFile, true));
+        assertRowsEquals(elementsToEncrypt.subList(4321, 12345), CsvCryptoUtils.decryptRangeFromCsvFile(password, tempFile, 4321L, 12345L));
+    }
+
+    @Test
+    void givenBinaryRowsWithColumnsIntegrityMode_whenEncrypted_thenExceptionIsThrown() throws IOException {
+        // Given
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        final EncryptionOptions options = EncryptionOptions.builder()
+                .integrityMode(IntegrityMode.SHA3_512_COLUMNS)
+                .build();
+
+        // When
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CsvCryptoUtils.encryptToBinaryFile(getRows(2), ROW_CODEC, password, tempFile, options));
+
+        // Then
+        // Noting to do
+    }
+
+    @ParameterizedTest
+    @EnumSource(IntegrityMode.class)
+    void givenChunkedContainer_whenElementsAreAppended_thenPreviousChunksAreKeptAndAllElementsAreDecrypted(final IntegrityMode integrityMode) throws IOException {
+        // Given
+        final List<String[]> elements = getRows(20030);
+
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        final EncryptionOptions options = EncryptionOptions.builder()
+                .compressed(true)
+                .integrityMode(integrityMode)
+                .build();
+
+        CsvCryptoUtils.encryptToCsvFile(elements.subList(0, 20000), CSV_ROW_CODEC, password, tempFile, options);
+
+        final long previousIndexOffset = readHeader(tempFile).getIndexOffset();
+        final byte[] previousChunks = Arrays.copyOfRange(Files.readAllBytes(tempFile.toPath()), ContainerHeader.INDEX_OFFSET_OFFSET + 8, (int) previousIndexOffset);
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+
+        // When
+        CsvCryptoUtils.appendToCsvFile(elements.subList(20000, 20010), password, tempFile, options);
+        CsvCryptoUtils.appendToCsvFile(elements.subList(20010, 20020), CSV_ROW_CODEC, password, tempFile, options);
+        CsvCryptoUtils.appendToCsvFile(Collections.emptyList(), password, tempFile, options);
+
+        try (EncryptedCsvWriter writer = CsvCryptoUtils.openEncryptedCsvAppender(password, tempFile, options)) {
+            for (String[] element : elements.subList(20020, 20030)) {
+                writer.write(element);
+            }
+        }
+
+        final List<String[]> parallelRows;
+        try {
+            parallelRows = CsvCryptoUtils.decryptFromCsvFile(password, tempFile, pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        // Then
+        final byte[] content = Files.readAllBytes(tempFile.toPath());
+        Assertions.assertArrayEquals(previousChunks, Arrays.copyOfRange(content, ContainerHeader.INDEX_OFFSET_OFFSET + 8, (int) previousIndexOffset));
+        Assertions.assertEquals(20030L, readHeader(tempFile).getRowCount());
+        Assertions.assertEquals(4, getSegments(tempFile).size());
+        assertRowsEquals(elements, CsvCryptoUtils.decryptFromCsvFile(password, tempFile));
+        assertRowsEquals(elements, CsvCryptoUtils.decryptFromCsvFile(password, tempFile, CSV_ROW_CODEC));
+        assertRowsEquals(elements, CsvCryptoUtils.decryptTextFromCsvFile(password, tempFile).readRows());
+        assertRowsEquals(elements, parallelRows);
+        assertRowsEquals(elements.subList(19995, 20025), CsvCryptoUtils.decryptRangeFromCsvFile(password, tempFile, 19995L, 20025L));
+        assertRowsEquals(elements.subList(20028, 20030), CsvCryptoUtils.decryptLastFromCsvFile(password, tempFile, 2));
+    }
+
+    @Test
+    void givenContainerWithMaxSegments_whenElementsAreAppended_thenContainerIsCompactedIntoSingleSegment() throws IOException {
+        // Given
+        final List<String[]> elements = getRows(50);
+
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        final EncryptionOptions options = EncryptionOptions.builder()
+                .maxSegments(3)
+                .build();
+
+        CsvCryptoUtils.encryptToCsvFile(elements.subList(0, 10), password, tempFile, options);
+        CsvCryptoUtils.appendToCsvFile(elements.subList(10, 20), password, tempFile, options);
+        CsvCryptoUtils.appendToCsvFile(elements.subList(20, 30), password, tempFile, options);
+
+        final int segmentsBeforeCompaction = getSegments(tempFile).size();
+
+        // When
+        CsvCryptoUtils.appendToCsvFile(elements.subList(30, 40), password, tempFile, options);
+
+        // Then
+        Assertions.assertEquals(3, segmentsBeforeCompaction);
+        Assertions.assertEquals(2, getSegments(tempFile).size());
+        assertRowsEquals(elements.subList(0, 40), CsvCryptoUtils.decryptFromCsvFile(password, tempFile));
+
+        CsvCryptoUtils.compactCsvFile(password, tempFile, options);
+
+        Assertions.assertEquals(1, getSegments(tempFile).size());
+        assertRowsEquals(elements.subList(0, 40), CsvCryptoUtils.decryptFromCsvFile(password, tempFile));
+        Assertions.assertEquals(1, tempFolder.listFiles((dir, name) -> name.startsWith(tempFile.getName())).length);
+    }
+
+    @Test
+    void givenLegacyEncryptedDataOrMissingFile_whenElementsAreAppended_thenChunkedContainerWithAllElementsIsWritten() throws Exception {
+        // Given
+        final List<String[]> elements = getRows(20);
+
+        final File legacyFile = getTempFile();
+        final File missingFile = new File(tempFolder, "missing.csv");
+
+        final char[] password = "123".toCharArray();
+
+        encryptWithLegacyFormat(elements.subList(0, 10), password, legacyFile);
+
+        // When
+        CsvCryptoUtils.appendToCsvFile(elements.subList(10, 20), password, legacyFile);
+        CsvCryptoUtils.appendToCsvFile(elements.subList(10, 20), password, missingFile);
+
+        // Then
+        Assertions.assertFalse(CsvCryptoUtils.isLegacyEncryptedCsvFile(legacyFile));
+        Assertions.assertFalse(getSiblingPath(legacyFile, "meta").toFile().exists());
+        Assertions.assertEquals(2, getSegments(legacyFile).size());
+        assertRowsEquals(elements, CsvCryptoUtils.decryptFromCsvFile(password, legacyFile));
+        assertRowsEquals(elements.subList(10, 20), CsvCryptoUtils.decryptFromCsvFile(password, missingFile));
+    }
+
+    @Test
+    void givenChunkedContainer_whenElementsAreAppendedWithWrongPassword_thenExceptionIsThrownAndFileIsNotModified() throws IOException {
+        // Given
+        final File tempFile = getTempFile();
+
+        CsvCryptoUtils.encryptToCsvFile(getRows(10), "123".toCharArray(), tempFile);
+
+        final byte[] content = Files.readAllBytes(tempFile.toPath());
+
+        // When
+        Assertions.assertThrows(WrongEncryptionPasswordException.class, () -> CsvCryptoUtils.appendToCsvFile(getRows(2), "asdf".toCharArray(), tempFile));
+
+        // Then
+        Assertions.assertArrayEquals(content, Files.readAllBytes(tempFile.toPath()));
+    }
+
+    @Test
+    void givenAbortedAppend_whenElementsAreAppended_thenChunksOfAbortedAppendAreDroppedAndNoncesAreNotReused() throws IOException {
+        // Given
+        final List<String[]> elements = getRows(20);
+        final List<String[]> abortedElements = getRows(20000);
+
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        CsvCryptoUtils.encryptToCsvFile(elements.subList(0, 10), password, tempFile);
+
+        final ContainerHeader header = readHeader(tempFile);
+        final int committedChunks = getChunks(tempFile).size();
+
+        // file is copied as a crash would leave it: with the chunks written so far, but not committed
+        final byte[] abortedContent;
+        try (EncryptedCsvWriter writer = CsvCryptoUtils.openEncryptedCsvAppender(password, tempFile)) {
+            for (String[] element : abortedElements) {
+                writer.write(element);
+            }
+
+            abortedContent = Files.readAllBytes(tempFile.toPath());
+        }
+
+        final Set<ByteBuffer> abortedNonces = getChunks(tempFile).stream()
+                .filter(chunk -> chunk.getOrdinal() >= committedChunks)
+                .map(chunk -> ByteBuffer.wrap(ChunkCipher.getNonce(header.getIv(), chunk.getOrdinal())))
+                .collect(Collectors.toSet());
+
+        Files.write(tempFile.toPath(), abortedContent);
+
+        assertRowsEquals(elements.subList(0, 10), CsvCryptoUtils.decryptFromCsvFile(password, tempFile));
+
+        // When
+        CsvCryptoUtils.appendToCsvFile(elements.subList(10, 20), password, tempFile);
+
+        // Then
+        final byte[] iv = readHeader(tempFile).getIv();
+        final List<ByteBuffer> nonces = getChunks(tempFile).stream()
+                .map(chunk -> ByteBuffer.wrap(ChunkCipher.getNonce(iv, chunk.getOrdinal())))
+                .collect(Collectors.toList());
+
+        Assertions.assertTrue(abortedNonces.size() > 1);
+        Assertions.assertEquals(nonces.size(), new HashSet<>(nonces).size());
+        Assertions.assertTrue(nonces.stream().noneMatch(abortedNonces::contains));
+        assertRowsEquals(elements, CsvCryptoUtils.decryptFromCsvFile(password, tempFile));
+    }
+
+    @Test
+    void givenAbortedAppend_whenCompactionFailsOnAppend_thenChunksOfAbortedAppendAreKeptUntilFileIsCompacted() throws IOException {
+        // Given
+        final List<String[]> elements = getRows(20);
+        final List<String[]> abortedElements = getRows(20000);
+
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        CsvCryptoUtils.encryptToCsvFile(elements.subList(0, 10), password, tempFile);
+
+        final ContainerHeader header = readHeader(tempFile);
+        final int committedChunks = getChunks(tempFile).size();
+
+        final byte[] abortedContent;
+        try (EncryptedCsvWriter writer = CsvCryptoUtils.openEncryptedCsvAppender(password, tempFile)) {
+            for (String[] element : abortedElements) {
+                writer.write(element);
+            }
+
+            abortedContent = Files.readAllBytes(tempFile.toPath());
+        }
+
+        final Set<ByteBuffer> abortedNonces = getChunks(tempFile).stream()
+                .filter(chunk -> chunk.getOrdinal() >= committedChunks)
+                .map(chunk -> ByteBuffer.wrap(ChunkCipher.getNonce(header.getIv(), chunk.getOrdinal())))
+                .collect(Collectors.toSet());
+
+        Files.write(tempFile.toPath(), abortedContent);
+
+        // compaction fails as the store of the folder is replaced by one of another password
+        final Path storePath = MasterKeyStore.getStoreFile(tempFolder).toPath();
+        final byte[] store = Files.readAllBytes(storePath);
+        Files.delete(storePath);
+        MasterKeyStore.create("456".toCharArray(), tempFolder);
+
+        // When
+        Assertions.assertThrows(CsvCryptoIOException.class, () -> CsvCryptoUtils.appendToCsvFile(elements.subList(10, 20), password, tempFile));
+
+        // Then
+        Assertions.assertArrayEquals(abortedContent, Files.readAllBytes(tempFile.toPath()));
+
+        Files.write(storePath, store);
+        CsvCryptoUtils.appendToCsvFile(elements.subList(10, 20), password, tempFile);
+
+        final byte[] iv = readHeader(tempFile).getIv();
+        final List<ByteBuffer> nonces = getChunks(tempFile).stream()
+                .map(chunk -> ByteBuffer.wrap(ChunkCipher.getNonce(iv, chunk.getOrdinal())))
+                .collect(Collectors.toList());
+
+        Assertions.assertTrue(nonces.stream().noneMatch(abortedNonces::contains));
+        assertRowsEquals(elements, CsvCryptoUtils.decryptFromCsvFile(password, tempFile));
+    }
+
+    @Test
+    void givenAppenderHoldingLock_whenFileIsCompacted_thenCompactionWaitsAndAppendedElementsAreKept() throws Exception {
+        // Given
+        final List<String[]> elements = getRows(20);
+
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        CsvCryptoUtils.encryptToCsvFile(elements.subList(0, 10), password, tempFile);
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            final Future<?> compaction;
+
+            try (EncryptedCsvWriter writer = CsvCryptoUtils.openEncryptedCsvAppender(password, tempFile)) {
+                // When
+                compaction = executor.submit(() -> {
+                    CsvCryptoUtils.compactCsvFile(password, tempFile);
+
+                    return null;
+                });
+
+                for (String[] element : elements.subList(10, 20)) {
+                    writer.write(element);
+                }
+
+                Thread.sleep(200L);
+
+                Assertions.assertFalse(compaction.isDone());
+            }
+
+            compaction.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then
+        Assertions.assertEquals(1, getSegments(tempFile).size());
+        assertRowsEquals(elements, CsvCryptoUtils.decryptFromCsvFile(password, tempFile));
+    }
+
+    @Test
+    void givenAppendedContainerWithMovedSegmentEnd_whenDecrypted_thenExceptionIsThrown() throws IOException {
+        // Given
+        final List<String[]> elements = getRows(20010);
+
+        final File tempFile = getTempFile();
+
+        final char[] password = "123".toCharArray();
+
+        CsvCryptoUtils.encryptToCsvFile(elements.subList(0, 20000), password, tempFile);
+        CsvCryptoUtils.appendToCsvFile(elements.subList(20000, 20010), password, tempFile);
+
+        // first segment is made to end at its second to last chunk
+        final List<ContainerIndex.Chunk> chunks = getChunks(tempFile);
+        final List<ContainerIndex.Segment> segments = getSegments(tempFile);
+        final byte[] content = Files.readAllBytes(tempFile.toPath());
+        final int firstSegmentEntry = (int) readHeader(tempFile).getIndexOffset() + Integer.BYTES + chunks.size() * 24 + Integer.BYTES;
+        ByteBuffer.wrap(content, firstSegmentEntry, Integer.BYTES).putInt(segments.get(0).getLastChunk() - 1);
+        Files.write(tempFile.toPath(), content);
+
+        // When
+        final CsvCryptoIOException exception = Assertions.assertThrows(CsvCryptoIOException.class, () -> CsvCryptoUtils.decryptFromCsvFile(password, tempFile));
+
+        // Then
+        Assertions.assertFalse(exception instanceof WrongEncryptionPasswordException);
+    }
+
+    private static void encryptWithLegacyFormat(final List<String[]> elements, final char[] password, final File csvFile) throws Exception {
+        final byte[] salt = CryptoUtils.getRandomNonce(16);
+        final byte[] iv = CryptoUtils.getRandomNonce(12);
+
+        final Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, CryptoUtils.getAESKeyFromPassword(password, salt), new GCMParameterSpec(128, iv));
+
+        try (CSVWriter writer = new CSVWriter(new OutputStreamWriter(new CipherOutputStream(new FileOutputStream(csvFile), cipher)))) {
+            elements.forEach(writer::writeNext);
+        }
+
+        final ByteBuffer meta = ByteBuffer.allocate(salt.length + iv.length).put(salt).put(iv);
+        Files.write(getSiblingPath(csvFile, "meta"), meta.array());
+        Files.writeString(getSiblingPath(csvFile, "hash"), HashUtils.getHash(elements), StandardCharsets.UTF_8);
+    }
+
+    private static Path getSiblingPath(final File csvFile, final String extension) {
+        return csvFile.toPath().resolveSibling(String.format("%s.%s", FilenameUtils.removeExtension(csvFile.getName()), extension));
+    }
+
+    private static List<String[]> getRows(final int numberOfRows) {
+        return IntStream.range(0, numberOfRows)
+                .mapToObj(i -> new String[] {String.valueOf(i), String.format("row %d", i), "2021-05-01", "-12.34"})
+                .collect(Collectors.toList());
+    }
+
+    private static ContainerHeader readHeader(final File csvFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(csvFile.toPath(), StandardOpenOption.READ)) {
+            return ContainerHeader.read(channel, csvFile.getName());
+        }
+    }
+
+    private static List<ContainerIndex.Segment> getSegments(final File csvFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(csvFile.toPath(), StandardOpenOption.READ)) {
+            final ContainerHeader header = ContainerHeader.read(channel, csvFile.getName());
+
+            return ContainerIndex.read(ContainerChannel.of(channel), header, csvFile.getName()).getSegments();
+        }
+    }
+
+    private static List<ContainerIndex.Chunk> getChunks(final File csvFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(csvFile.toPath(), StandardOpenOption.READ)) {
+            final ContainerHeader header = ContainerHeader.read(channel, csvFile.getName());
+
+            return ContainerIndex.read(ContainerChannel.of(channel), header, csvFile.getName()).getChunks();
+        }
+    }
+
+    private static void assertRowsEquals(final List<String[]> expected, final List<String[]> actual) {
+        Assertions.assertEquals(expected.size(), actual.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+            Assertions.assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
 }
@@ -0,0 +1,301 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import com.opencsv.CSVParserBuilder;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.CSVWriter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+public class CsvRowWriterTest {
+    private static final String[][] ROWS = {
+            {"1", "Compra en línea", "2021-05-01", "-12.34"},
+            {"2", "with, separator", "with \"quotes\"", "\"\""},
+            {"3", "multi\nline\r\nfield", "", null},
+            {"4", "back\\slash", "trailing\\", "€"},
+            {""}
+    };
+
+    private static final Object[][] ELEMENTS = {
+            {1L, "Compra en línea", LocalDate.of(2021, 5, 1), new BigDecimal("-12.34"), TimeUnit.DAYS, UUID.fromString("5c0b5a4e-6f0d-4a39-9e0c-5f4ad4a1c0b1")},
+            {-2L, "with, \"quotes\"\nand line break", LocalDate.of(1999, 12, 31), new BigDecimal("1234567890123.40"), TimeUnit.SECONDS, null},
+            {null, null, null, null, null, null},
+            {Long.MIN_VALUE, "", LocalDate.of(2021, 1, 9), new BigDecimal("0.00"), TimeUnit.HOURS, UUID.fromString("00000000-0000-0000-0000-000000000000")}
+    };
+
+    // rows of ELEMENTS as they are serialized to csv rows
+    private static final RowCodec<Object[]> ELEMENT_CODEC = RowCodec.of(
+            (element, writer) -> {
+                writer.writeLong((Long) element[0]);
+                writer.writeString((String) element[1]);
+                writer.writeDate((LocalDate) element[2]);
+                writer.writeBigDecimal((BigDecimal) element[3]);
+                writer.writeEnum((TimeUnit) element[4]);
+                writer.writeUUID((UUID) element[5]);
+            },
+            reader -> new Object[] {reader.readLong(), reader.readString(), reader.readDate(), reader.readBigDecimal(), reader.readEnum(TimeUnit.class), reader.readUUID()});
+
+    @Test
+    void givenRows_whenWritten_thenSameBytesAsOpencsvAreWritten() throws IOException {
+        // Given
+        final StringWriter opencsvOut = new StringWriter();
+        final StringBuilder out = new StringBuilder();
+
+        // When
+        try (CSVWriter writer = new CSVWriter(opencsvOut)) {
+            for (String[] row : ROWS) {
+                writer.writeNext(row);
+            }
+        }
+
+        final CsvRowWriter writer = new CsvRowWriter(out);
+        for (String[] row : ROWS) {
+            writer.writeNext(row);
+        }
+
+        // Then
+        Assertions.assertEquals(opencsvOut.toString(), out.toString());
+    }
+
+    @Test
+    void givenWrittenRows_whenRead_thenSameRowsAreRead() throws IOException {
+        // Given
+        final StringBuilder out = new StringBuilder();
+
+        final CsvRowWriter writer = new CsvRowWriter(out);
+        for (String[] row : ROWS) {
+            writer.writeNext(row);
+        }
+
+        // When
+        final List<String[]> rows = readAll(new CsvRowReader(new StringReader(out.toString())));
+
+        // Then
+        Assertions.assertEquals(ROWS.length, rows.size());
+        for (int i = 0; i < ROWS.length; i++) {
+            final String[] expected = ROWS[i].clone();
+
+            // null fields are read as empty ones (as opencsv does)
+            for (int j = 0; j < expected.length; j++) {
+                if (null == expected[j]) {
+                    expected[j] = "";
+                }
+            }
+
+            Assertions.assertArrayEquals(expected, rows.get(i));
+        }
+    }
+
+    @Test
+    void givenUnquotedCsvWithHeaderAndCrLf_whenRead_thenSameRowsAsOpencsvAreRead() throws Exception {
+        // Given
+        final String csv = "date;concept;quantity\r\n2021-05-01;Compra;-12.34\r\n2021-05-02;\"Quoted; field\";1\r\n;;\r\n";
+
+        // When
+        final List<String[]> rows = readAll(new CsvRowReader(new StringReader(csv), 1, ';'));
+
+        final List<String[]> opencsvRows;
+        try (CSVReader reader = new CSVReaderBuilder(new StringReader(csv))
+                .withSkipLines(1)
+                .withCSVParser(new CSVParserBuilder().withSeparator(';').build())
+                .build()) {
+            opencsvRows = reader.readAll();
+        }
+
+        // Then
+        Assertions.assertEquals(opencsvRows.size(), rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Assertions.assertArrayEquals(opencsvRows.get(i), rows.get(i));
+        }
+    }
+
+    @Test
+    void givenRowsLongerThanBuffer_whenReadInSmallPieces_thenRowsAreReadSuccessfully() throws IOException {
+        // Given
+        final String longField = "x\"".repeat(70 * 1024);
+        final String[][] rows = {{"1", longField}, {"2", "short"}, {longField, "\r\n"}};
+
+        final StringBuilder out = new StringBuilder();
+
+        final CsvRowWriter writer = new CsvRowWriter(out);
+        for (String[] row : rows) {
+            writer.writeNext(row);
+        }
+
+        // reader returning at most 7 chars per read, so that rows are split everywhere
+        final Reader slowReader = new StringReader(out.toString()) {
+            @Override
+            public int read(final char[] cbuf, final int off, final int len) throws IOException {
+                return super.read(cbuf, off, Math.min(7, len));
+            }
+        };
+
+        // When
+        final List<String[]> readRows = readAll(new CsvRowReader(slowReader));
+
+        // Then
+        Assertions.assertEquals(rows.length, readRows.size());
+        for (int i = 0; i < rows.length; i++) {
+            Assertions.assertArrayEquals(rows[i], readRows.get(i));
+        }
+    }
+
+    @Test
+    void givenUnterminatedQuotedField_whenRead_thenExceptionIsThrown() {
+        // Given
+        final CsvRowReader reader = new CsvRowReader(new StringReader("\"1\",\"unterminated\n"));
+
+        // When
+        Assertions.assertThrows(IOException.class, reader::readNext);
+
+        // Then
+        // Noting to do
+    }
+
+    @Test
+    void givenElements_whenWrittenWithCodec_thenSameBytesAsSerializedRowsAreWritten() throws IOException {
+        // Given
+        final StringBuilder rowsOut = new StringBuilder();
+        final StringBuilder out = new StringBuilder();
+
+        // When
+        final CsvRowWriter rowsWriter = new CsvRowWriter(rowsOut);
+        for (Object[] element : ELEMENTS) {
+            rowsWriter.writeNext(new String[] {
+                    CsvSerializationUtils.serializeLongToCsv((Long) element[0]),
+                    (String) element[1],
+                    CsvSerializationUtils.serializeDateToCsv((LocalDate) element[2]),
+                    CsvSerializationUtils.serializeBigDecimalToCsv((BigDecimal) element[3]),
+                    CsvSerializationUtils.serializeEnumToCsv((TimeUnit) element[4]),
+                    CsvSerializationUtils.serializeUUIDToCsv((UUID) element[5])
+            });
+        }
+
+        final CsvRowWriter writer = new CsvRowWriter(out);
+        for (Object[] element : ELEMENTS) {
+            writer.write(element, ELEMENT_CODEC);
+        }
+
+        // Then
+        Assertions.assertEquals(rowsOut.toString(), out.toString());
+    }
+
+    @Test
+    void givenCodecFailingMidway_whenElementIsWritten_thenFieldsOfItsRowAreDiscarded() throws IOException {
+        // Given
+        final IllegalStateException error = new IllegalStateException("element could not be encoded");
+        final RowCodec<Object[]> failingCodec = RowCodec.of((element, writer) -> {
+            writer.writeLong((Long) element[0]);
+            writer.writeString((String) element[1]);
+
+            throw error;
+        }, ELEMENT_CODEC::read);
+
+        final StringBuilder expectedOut = new StringBuilder();
+        final CsvRowWriter expectedWriter = new CsvRowWriter(expectedOut);
+        expectedWriter.write(ELEMENTS[0], ELEMENT_CODEC);
+        expectedWriter.write(ELEMENTS[1], ELEMENT_CODEC);
+
+        final StringBuilder out = new StringBuilder();
+        final CsvRowWriter writer = new CsvRowWriter(out);
+        writer.write(ELEMENTS[0], ELEMENT_CODEC);
+
+        // When
+        final IllegalStateException exception = Assertions.assertThrows(IllegalStateException.class, () -> writer.write(ELEMENTS[1], failingCodec));
+        writer.write(ELEMENTS[1], ELEMENT_CODEC);
+
+        // Then
+        Assertions.assertSame(error, exception);
+        Assertions.assertEquals(expectedOut.toString(), out.toString());
+    }
+
+    @Test
+    void givenElementsWrittenWithCodec_whenReadWithCodec_thenSameElementsAreRead() throws IOException {
+        // Given
+        final StringBuilder out = new StringBuilder();
+
+        final CsvRowWriter writer = new CsvRowWriter(out);
+        for (Object[] element : ELEMENTS) {
+            writer.write(element, ELEMENT_CODEC);
+        }
+
+        // When
+        final CsvRowReader reader = new CsvRowReader(new StringReader(out.toString()));
+
+        final List<Object[]> elements = new ArrayList<>();
+
+        Object[] element;
+        while (null != (element = reader.readNext(ELEMENT_CODEC))) {
+            elements.add(element);
+        }
+
+        // Then
+        Assertions.assertEquals(ELEMENTS.length, elements.size());
+        for (int i = 0; i < ELEMENTS.length; i++) {
+            final Object[] expected = ELEMENTS[i].clone();
+
+            // null strings are read as empty ones
+            if (null == expected[1]) {
+                expected[1] = "";
+            }
+
+            Assertions.assertArrayEquals(expected, elements.get(i));
+        }
+    }
+
+    @Test
+    void givenInvalidOrMissingFields_whenReadWithCodec_thenFieldsAreReadAsCsvSerializationUtilsParsesThem() throws IOException {
+        // Given
+        final String[] values = {"+5", "-", "12a", "null", " 1", "12345678901234567890", "١٢", "0012", ""};
+
+        final StringBuilder out = new StringBuilder();
+        new CsvRowWriter(out).writeNext(values);
+        out.append("\"7\"\"\",\"8\"x\n");
+
+        final CsvRowReader reader = new CsvRowReader(new StringReader(out.toString()));
+
+        // fields beyond the last one are read as null
+        final RowCodec<List<Long>> longsCodec = RowCodec.of((element, writer) -> {}, fieldReader -> {
+            final List<Long> longs = new ArrayList<>();
+            for (int i = 0; i <= values.length; i++) {
+                longs.add(fieldReader.readLong());
+            }
+
+            return longs;
+        });
+        final RowCodec<String[]> stringsCodec = RowCodec.of((element, writer) -> {}, fieldReader -> new String[] {fieldReader.readString(), fieldReader.readString(), fieldReader.readString()});
+
+        // When
+        final List<Long> longs = reader.readNext(longsCodec);
+        final String[] quoted = reader.readNext(stringsCodec);
+
+        // Then
+        for (int i = 0; i < values.length; i++) {
+            Assertions.assertEquals(CsvSerializationUtils.parseLongFromCsv(values[i]), longs.get(i), values[i]);
+        }
+        Assertions.assertNull(longs.get(values.length));
+        Assertions.assertArrayEquals(new String[] {"7\"", "8x", null}, quoted);
+    }
+
+    private static List<String[]> readAll(final CsvRowReader reader) throws IOException {
+        final List<String[]> rows = new ArrayList<>();
+
+        String[] row;
+        while (null != (row = reader.readNext())) {
+            rows.add(row);
+        }
+
+        return rows;
+    }
+}
@@ -1,17 +1,31 @@
 package com.diegocastroviadero.financemanager.cryptoutils;
 
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtensionContext;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.ArgumentsProvider;
 import org.junit.jupiter.params.provider.ArgumentsSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class CsvSerializationUtilsTest {
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy/MM/dd");
+    private static final DateTimeFormatter DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss.SSS");
+    private static final DateTimeFormatter YEARMONTH_FORMATTER = DateTimeFormatter.ofPattern("yyyy/MM");
+    private static final ZoneId ZONE = ZoneId.of("Europe/Madrid");
 
     @ParameterizedTest
     @ArgumentsSource(BigDecimalsForSerializationProvider.class)
@@ -33,6 +47,123 @@ class CsvSerializationUtilsTest {
         assertEquals(expected, result);
     }
 
+    @ParameterizedTest
+    @ValueSource(strings = {"2021/05/01", "2020/02/29", "2021/02/29", "2021/02/31", "2021/04/31", "2021/04/32", "2021/13/01", "2021/00/01",
+            "2021/01/00", "0000/01/01", "0001/01/01", "9999/12/31", "+10000/01/01", "+2021/01/01", "-2021/01/01", "20210/01/01",
+            "2021-05-01", "2021/5/01", "2021/05/1", "2021/05/01 ", " 2021/05/01", "2O21/05/01", "null", "", " "})
+    void givenDateString_whenParseDateFromCsv_thenSameDateAsFormatterIsParsed(final String givenString) {
+        // When
+        final LocalDate result = CsvSerializationUtils.parseDateFromCsv(givenString);
+
+        // Then
+        assertEquals(CsvSerializationUtils.parseDateFromCsv(givenString, DATE_FORMATTER), result);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"2021/05", "2021/12", "2021/13", "2021/00", "0000/01", "9999/12", "+10000/01", "-2021/01", "2021-05", "2021/5",
+            "2021/05/01", "null", ""})
+    void givenYearMonthString_whenParseYearMonthFromCsv_thenSameYearMonthAsFormatterIsParsed(final String givenString) {
+        // When
+        final YearMonth result = CsvSerializationUtils.parseYearMonthFromCsv(givenString);
+
+        // Then
+        assertEquals(CsvSerializationUtils.parseYearMonthFromCsv(givenString, YEARMONTH_FORMATTER), result);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"2021/05/01 13:45:59.123", "2021/03/28 02:30:00.000", "2021/10/31 02:30:00.000", "2021/02/30 23:59:59.999",
+            "2021/05/01 24:00:00.000", "2021/05/01 24:00:00.001", "2021/05/01 23:60:00.000", "2021/05/01 23:00:60.000", "2021/05/01 1:00:00.000",
+            "2021/05/01 13:45:59.1234", "2021/05/01 13:45:59", "2021/05/01T13:45:59.123", "+10000/05/01 13:45:59.123", "null", ""})
+    void givenTimestampString_whenParseTimestampFromCsv_thenSameTimestampAsFormatterIsParsed(final String givenString) {
+        // When
+        final ZonedDateTime result = CsvSerializationUtils.parseTimestampFromCsv(givenString, ZONE);
+
+        // Then
+        assertEquals(CsvSerializationUtils.parseTimestampFromCsv(givenString, DATETIME_FORMATTER, ZONE), result);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"0", "-0", "+5", "-", "+", "12a", " 1", "1 ", "0012", "9223372036854775807", "9223372036854775808",
+            "-9223372036854775808", "-9223372036854775809", "12345678901234567890", "\u0661\u0662", "null", ""})
+    void givenLongString_whenParseLongFromCsv_thenSameLongAsLongParseLongIsParsed(final String givenString) {
+        // Given
+        Long expected;
+        try {
+            expected = Long.parseLong(givenString);
+        } catch (NumberFormatException e) {
+            expected = null;
+        }
+
+        // When
+        final Long result = CsvSerializationUtils.parseLongFromCsv(givenString);
+
+        // Then
+        assertEquals(expected, result);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"5c0b5a4e-6f0d-4a39-9e0c-5f4ad4a1c0b1", "5C0B5A4E-6F0D-4A39-9E0C-5F4AD4A1C0B1", "ffffffff-ffff-ffff-ffff-ffffffffffff",
+            "1-2-3-4-5", "5c0b5a4e-6f0d-4a39-9e0c-5f4ad4a1c0bg", "5c0b5a4e-6f0d-4a39-9e0c-5f4ad4a1c0b10", "5c0b5a4e6f0d4a399e0c5f4ad4a1c0b1",
+            "5c0b5a4e-6f0d-4a39-9e0c", "+c0b5a4e-6f0d-4a39-9e0c-5f4ad4a1c0b1", "--2-3-4", "null", ""})
+    void givenUUIDString_whenParseUUIDFromCsv_thenSameUUIDAsUUIDFromStringIsParsed(final String givenString) {
+        // Given
+        UUID expected;
+        try {
+            expected = UUID.fromString(givenString);
+        } catch (IllegalArgumentException e) {
+            expected = null;
+        }
+
+        // When
+        final UUID result = CsvSerializationUtils.parseUUIDFromCsv(givenString);
+
+        // Then
+        assertEquals(expected, result);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"DAYS", "SECONDS", "days", "DAYS ", "DAY", "null", ""})
+    void givenEnumString_whenParseEnumFromCsv_thenSameEnumAsEnumValueOfIsParsed(final String givenString) {
+        // Given
+        TimeUnit expected;
+        try {
+            expected = TimeUnit.valueOf(givenString);
+        } catch (IllegalArgumentException e) {
+            expected = null;
+        }
+
+        // When
+        final TimeUnit result = CsvSerializationUtils.parseEnumFromCsv(givenString, TimeUnit.class);
+
+        // Then
+        assertEquals(expected, result);
+    }
+
+    @Test
+    void givenDatesAndTimestamps_whenSerializedToCsv_thenSameStringsAsFormatterAreSerialized() {
+        // Given
+        final LocalDateTime[] dateTimes = {
+                LocalDateTime.of(2021, 5, 1, 13, 45, 59, 123_456_789),
+                LocalDateTime.of(1, 1, 1, 0, 0),
+                LocalDateTime.of(9999, 12, 31, 23, 59, 59, 999_999_999),
+                LocalDateTime.of(10000, 1, 1, 0, 0),
+                LocalDateTime.of(0, 1, 1, 0, 0),
+                LocalDateTime.of(-5, 1, 1, 0, 0)
+        };
+
+        for (LocalDateTime dateTime : dateTimes) {
+            // When
+            final String date = CsvSerializationUtils.serializeDateToCsv(dateTime.toLocalDate());
+            final String yearMonth = CsvSerializationUtils.serializeYearMonthToCsv(YearMonth.from(dateTime));
+            final String timestamp = CsvSerializationUtils.serializeDateToCsv(dateTime.atZone(ZONE));
+
+            // Then
+            assertEquals(dateTime.format(DATE_FORMATTER), date);
+            assertEquals(dateTime.format(YEARMONTH_FORMATTER), yearMonth);
+            assertEquals(dateTime.format(DATETIME_FORMATTER), timestamp);
+        }
+    }
+
     static class BigDecimalsForSerializationProvider implements ArgumentsProvider {
 
         @Override
@@ -44,7 +175,9 @@ class CsvSerializationUtilsTest {
                     Arguments.of(new BigDecimal("-0.23"), "-23"),
                     Arguments.of(new BigDecimal("23.57"), "2357"),
                     Arguments.of(new BigDecimal("-328.62"), "-32862"),
-                    Arguments.of(new BigDecimal("10795.75"), "1079575")
+                    Arguments.of(new BigDecimal("10795.75"), "1079575"),
+                    Arguments.of(new BigDecimal("92233720368547758.07"), "9223372036854775807"),
+                    Arguments.of(new BigDecimal("-123456789012345678901.5"), "-12345678901234567890150")
             );
         }
     }
@@ -60,7 +193,9 @@ class CsvSerializationUtilsTest {
                     Arguments.of("-23", new BigDecimal("-0.23")),
                     Arguments.of("2357", new BigDecimal("23.57")),
                     Arguments.of("-32862", new BigDecimal("-328.62")),
-                    Arguments.of("1079575", new BigDecimal("10795.75"))
+                    Arguments.of("1079575", new BigDecimal("10795.75")),
+                    Arguments.of("12a", null),
+                    Arguments.of("null", null)
             );
         }
     }
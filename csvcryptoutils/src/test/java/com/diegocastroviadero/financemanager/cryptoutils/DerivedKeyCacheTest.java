@@ -0,0 +1,94 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class DerivedKeyCacheTest {
+
+    @Test
+    void givenCachedKey_whenGetWithSamePasswordAndSalt_thenDerivationIsNotRunAgain() {
+        // Given
+        final DerivedKeyCache cache = new DerivedKeyCache(10, 60_000L);
+        final AtomicInteger derivations = new AtomicInteger();
+
+        final char[] password = "123".toCharArray();
+        final byte[] salt = new byte[] {1, 2, 3};
+
+        final SecretKey key1 = cache.get(password, salt, "AES", () -> derive(derivations));
+
+        // When
+        final SecretKey key2 = cache.get(password, salt, "AES", () -> derive(derivations));
+
+        // Then
+        Assertions.assertEquals(1, derivations.get());
+        Assertions.assertArrayEquals(key1.getEncoded(), key2.getEncoded());
+        Assertions.assertEquals(1L, cache.getHitCount());
+        Assertions.assertEquals(1L, cache.getMissCount());
+    }
+
+    @Test
+    void givenCachedKey_whenGetWithDifferentSaltOrPassword_thenDerivationIsRun() {
+        // Given
+        final DerivedKeyCache cache = new DerivedKeyCache(10, 60_000L);
+        final AtomicInteger derivations = new AtomicInteger();
+
+        cache.get("123".toCharArray(), new byte[] {1, 2, 3}, "AES", () -> derive(derivations));
+
+        // When
+        cache.get("123".toCharArray(), new byte[] {1, 2, 4}, "AES", () -> derive(derivations));
+        cache.get("124".toCharArray(), new byte[] {1, 2, 3}, "AES", () -> derive(derivations));
+
+        // Then
+        Assertions.assertEquals(3, derivations.get());
+        Assertions.assertEquals(0L, cache.getHitCount());
+    }
+
+    @Test
+    void givenExpiredKey_whenGet_thenKeyIsDerivedAgain() {
+        // Given
+        final AtomicLong now = new AtomicLong(0L);
+        final DerivedKeyCache cache = new DerivedKeyCache(10, 1_000L, now::get);
+        final AtomicInteger derivations = new AtomicInteger();
+
+        cache.get("123".toCharArray(), new byte[] {1}, "AES", () -> derive(derivations));
+
+        // When
+        now.set(1_000L);
+        cache.get("123".toCharArray(), new byte[] {1}, "AES", () -> derive(derivations));
+
+        // Then
+        Assertions.assertEquals(2, derivations.get());
+        Assertions.assertEquals(1L, cache.getEvictionCount());
+    }
+
+    @Test
+    void givenFullCache_whenNewKeyIsDerived_thenLeastRecentlyUsedKeyIsEvicted() {
+        // Given
+        final DerivedKeyCache cache = new DerivedKeyCache(2, 60_000L);
+        final AtomicInteger derivations = new AtomicInteger();
+
+        cache.get("123".toCharArray(), new byte[] {1}, "AES", () -> derive(derivations));
+        cache.get("123".toCharArray(), new byte[] {2}, "AES", () -> derive(derivations));
+        cache.get("123".toCharArray(), new byte[] {1}, "AES", () -> derive(derivations));
+
+        // When
+        cache.get("123".toCharArray(), new byte[] {3}, "AES", () -> derive(derivations));
+
+        // Then
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertEquals(1L, cache.getEvictionCount());
+
+        cache.get("123".toCharArray(), new byte[] {1}, "AES", () -> derive(derivations));
+        Assertions.assertEquals(3, derivations.get());
+    }
+
+    private static byte[] derive(final AtomicInteger derivations) {
+        derivations.incrementAndGet();
+
+        return CryptoUtils.getRandomNonce(32);
+    }
+}
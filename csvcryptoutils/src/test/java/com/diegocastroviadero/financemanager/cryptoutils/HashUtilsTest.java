@@ -1,10 +1,14 @@
 package com.diegocastroviadero.financemanager.cryptoutils;
 
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.ArrayUtils;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
@@ -65,4 +69,42 @@ public class HashUtilsTest {
         // Then
         Assertions.assertNotEquals(hash1a, hash1b);
     }
+
+    @Test
+    void givenRowsHashedOneByOne_whenGetHash_thenSameHashAsWholeDataIsCalculated() throws IOException {
+        // Given
+        final String[] row1 = new String[] {"1A", null, "1C", "Añadido €"};
+        final String[] row2 = new String[] {"2A", "2B", "", "2D"};
+
+        final HashUtils.RowHasher hasher = HashUtils.newRowHasher();
+
+        // When
+        hasher.update(row1);
+        hasher.update(row2);
+
+        // Then
+        Assertions.assertEquals(HashUtils.getHash(Arrays.asList(row1, row2)), hasher.getHash());
+        Assertions.assertEquals(DigestUtils.sha3_512Hex("1A1CAñadido €2A2B2D".getBytes(Charset.defaultCharset())), hasher.getHash());
+    }
+
+    @Test
+    void givenCsvChunks_whenDigested_thenDigestOfEachModeIsCalculatedOverAllChunks() {
+        // Given
+        final byte[] chunk1 = "\"1A\",\"1B\"\n\"2A\",\"Añadido €\"\n".getBytes(StandardCharsets.UTF_8);
+        final byte[] chunk2 = "\"3A\",\"\"\n".getBytes(StandardCharsets.UTF_8);
+
+        final HashUtils.ChunkDigest sha256 = HashUtils.newChunkDigest(IntegrityMode.SHA256);
+        final HashUtils.ChunkDigest columns = HashUtils.newChunkDigest(IntegrityMode.SHA3_512_COLUMNS);
+
+        // When
+        sha256.update(chunk1);
+        sha256.update(chunk2);
+        columns.update(chunk1);
+        columns.update(chunk2);
+
+        // Then
+        Assertions.assertArrayEquals(DigestUtils.sha256(ArrayUtils.addAll(chunk1, chunk2)), sha256.digest());
+        Assertions.assertArrayEquals(DigestUtils.sha3_512("1A1B2AAñadido €3A".getBytes(StandardCharsets.UTF_8)), columns.digest());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> HashUtils.newChunkDigest(IntegrityMode.GCM_ONLY));
+    }
 }
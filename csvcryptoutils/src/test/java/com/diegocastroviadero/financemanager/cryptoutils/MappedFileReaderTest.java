@@ -0,0 +1,111 @@
+package com.diegocastroviadero.financemanager.cryptoutils;
+
+import com.diegocastroviadero.financemanager.cryptoutils.exception.CsvIOException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MappedFileReaderTest {
+    @TempDir
+    File tempDir;
+
+    @Test
+    void givenUtf8FileWithCharsSplitBetweenWindows_whenRead_thenSameCharsAsInputStreamReaderAreRead() throws IOException {
+        // Given
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (int i = 0; i < 100; i++) {
+            bytes.write(String.format("\"%d\",\"Compra en línea €\",\"💶\"\n", i).getBytes(StandardCharsets.UTF_8));
+
+            // malformed bytes are replaced
+            if (i % 10 == 0) {
+                bytes.write(new byte[] {(byte) 0xe2, (byte) 0x82});
+            }
+        }
+
+        final File file = new File(tempDir, "chars.csv");
+        Files.write(file.toPath(), bytes.toByteArray());
+
+        // When
+        final String mapped;
+        try (Reader reader = new MappedFileReader(file, 5)) {
+            mapped = readAll(reader);
+        }
+
+        // Then
+        final String expected;
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            expected = readAll(reader);
+        }
+
+        Assertions.assertEquals(expected, mapped);
+    }
+
+    @Test
+    void givenEmptyFile_whenRead_thenEndIsReached() throws IOException {
+        // Given
+        final File file = new File(tempDir, "empty.csv");
+        Files.write(file.toPath(), new byte[0]);
+
+        // When
+        final int read;
+        try (Reader reader = new MappedFileReader(file)) {
+            read = reader.read(new char[16], 0, 16);
+        }
+
+        // Then
+        Assertions.assertEquals(-1, read);
+    }
+
+    @Test
+    void givenFileBiggerThanThreshold_whenReadFromCsvFile_thenSameRowsAsWrittenAreRead() throws CsvIOException {
+        // Given
+        final List<String[]> rows = new ArrayList<>();
+        for (int i = 0; rows.size() * 40L <= CsvUtils.MAPPED_READ_THRESHOLD; i++) {
+            rows.add(new String[] {String.valueOf(i), "Compra en línea \"€\"", "multi\nline"});
+        }
+
+        final File file = new File(tempDir, "big.csv");
+        CsvUtils.persistToCsvFile(rows, file);
+
+        // When
+        final List<String[]> readRows = CsvUtils.readFromCsvFile(file);
+        final CsvText text = CsvUtils.readTextFromCsvFile(file);
+
+        // Then
+        Assertions.assertTrue(file.length() > CsvUtils.MAPPED_READ_THRESHOLD);
+        Assertions.assertEquals(rows.size(), readRows.size());
+        Assertions.assertEquals(rows.size(), text.getRowCount());
+        for (int i = 0; i < rows.size(); i++) {
+            Assertions.assertArrayEquals(rows.get(i), readRows.get(i));
+        }
+    }
+
+    /**
+     * Reads in pieces of varying length (1 char pieces included, so that surrogate pairs do not fit)
+     */
+    private static String readAll(final Reader reader) throws IOException {
+        final StringBuilder result = new StringBuilder();
+        final char[] buffer = new char[7];
+
+        int length = 1;
+        int read;
+        while (-1 != (read = reader.read(buffer, 0, length))) {
+            result.append(buffer, 0, read);
+
+            length = length % buffer.length + 1;
+        }
+
+        return result.toString();
+    }
+}
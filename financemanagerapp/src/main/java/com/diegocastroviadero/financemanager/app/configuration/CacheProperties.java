@@ -5,6 +5,10 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
 @Getter
 @Setter
 @NoArgsConstructor
@@ -14,4 +18,14 @@ public class CacheProperties {
 
     private Long cleanInterval;
     private Integer noopCleansToInvalidateSession;
+    /**
+     * Maximum estimated size in bytes of the values of the global cache, least recently used entries are evicted
+     * beyond it (256 MB when it is not set)
+     */
+    private Long maxWeight;
+    /**
+     * Time after which entries not accessed are expired, per key prefix (entries whose key matches no prefix do not
+     * expire)
+     */
+    private Map<String, Duration> idleExpiry = new HashMap<>();
 }
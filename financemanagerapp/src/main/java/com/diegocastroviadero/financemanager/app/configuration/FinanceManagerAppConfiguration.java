@@ -1,12 +1,42 @@
 package com.diegocastroviadero.financemanager.app.configuration;
 
+import com.diegocastroviadero.financemanager.cryptoutils.CryptoEngine;
+import com.diegocastroviadero.financemanager.cryptoutils.CryptoUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 
+@Slf4j
 @Configuration
 @EnableConfigurationProperties(value = {
         PersistenceProperties.class,
         BuildProperties.class,
         CacheProperties.class,
         SecurityProperties.class})
-public class FinanceManagerAppConfiguration {}
+public class FinanceManagerAppConfiguration {
+
+    /**
+     * Replaces the default crypto engine of csvcryptoutils, used to read and write the db files, when the iteration count
+     * of the key derivation is configured. The engine is global to the JVM, so it is replaced once at startup, before
+     * the other application runners. It must be replaced before any db file is read or written, otherwise the stores
+     * created meanwhile would keep the default count: nothing reads or writes them until a user logs in with their
+     * password, which takes the application to have started
+     */
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public ApplicationRunner cryptoEngineConfigurer(final PersistenceProperties persistenceProperties) {
+        return args -> {
+            final Integer kdfIterations = persistenceProperties.getDbfiles().getKdfIterations();
+
+            if (null != kdfIterations && CryptoUtils.KDF_ITERATIONS != kdfIterations) {
+                CryptoEngine.setDefault(new CryptoEngine(kdfIterations, CryptoUtils.getKeyCache()));
+
+                log.info("New master key stores will be derived with {} iterations", kdfIterations);
+            }
+        };
+    }
+}
@@ -1,5 +1,6 @@
 package com.diegocastroviadero.financemanager.app.configuration;
 
+import com.diegocastroviadero.financemanager.cryptoutils.IntegrityMode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -21,5 +22,18 @@ public class PersistenceProperties {
     @NoArgsConstructor
     public static class DbFilesProperties {
         private Path basePath;
+        /**
+         * Deflate level (0-9) of the encrypted db files, they are not compressed when it is not set
+         */
+        private Integer compressionLevel;
+        /**
+         * Integrity check of the encrypted db files on top of the GCM tag of their chunks, GCM_ONLY when it is not set
+         */
+        private IntegrityMode integrityMode;
+        /**
+         * Iteration count of the key derivation of new master key stores, 65536 when it is not set (existing stores keep
+         * the count they were created with)
+         */
+        private Integer kdfIterations;
     }
 }
@@ -97,6 +97,8 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
                     .antMatchers("/login", "/logout").permitAll()
                     // Allow all flow internal requests.
                     .requestMatchers(SecurityUtils::isFrameworkInternalRequest).permitAll()
+                    // Metrics are only for admins
+                    .antMatchers("/actuator/**").hasRole("ADMIN")
                     // Allow all requests by logged in users.
                     .anyRequest().authenticated()
                     .and()
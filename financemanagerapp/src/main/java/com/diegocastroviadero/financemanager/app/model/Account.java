@@ -1,7 +1,10 @@
 package com.diegocastroviadero.financemanager.app.model;
 
 import com.diegocastroviadero.financemanager.app.utils.Utils;
-import com.diegocastroviadero.financemanager.cryptoutils.CsvSerializationUtils;
+import com.diegocastroviadero.financemanager.cryptoutils.BinaryRowReader;
+import com.diegocastroviadero.financemanager.cryptoutils.BinaryRowWriter;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvFieldReader;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvFieldWriter;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
@@ -41,42 +44,79 @@ public class Account {
         return balanceYearMonth;
     }
 
-    public String[] toStringArray() {
-        return new String[] {
-                CsvSerializationUtils.serializeEnumToCsv(bank),
-                CsvSerializationUtils.serializeUUIDToCsv(id),
-                accountNumber,
-                alias,
-                CsvSerializationUtils.serializeEnumToCsv(purpose),
-                CsvSerializationUtils.serializeEnumToCsv(scope),
-                CsvSerializationUtils.serializeDateToCsv(balanceDate),
-                CsvSerializationUtils.serializeBigDecimalToCsv(balance),
-                CsvSerializationUtils.serializeUUIDToCsv(link == null ? null : link.getId())
-        };
+    public void toCsvRow(final CsvFieldWriter writer) {
+        writer.writeEnum(bank);
+        writer.writeUUID(id);
+        writer.writeString(accountNumber);
+        writer.writeString(alias);
+        writer.writeEnum(purpose);
+        writer.writeEnum(scope);
+        writer.writeDate(balanceDate);
+        writer.writeBigDecimal(balance);
+        writer.writeUUID(link == null ? null : link.getId());
     }
 
-    public static Account fromStringArray(final String[] rawData, final Boolean demoMode) {
-        final Bank bank = CsvSerializationUtils.parseEnumFromCsv(rawData[0], Bank.class);
-        final UUID id = CsvSerializationUtils.parseUUIDFromCsv(rawData[1]);
+    public void toBinaryRow(final BinaryRowWriter writer) {
+        writer.writeEnum(bank);
+        writer.writeUUID(id);
+        writer.writeString(accountNumber);
+        writer.writeString(alias);
+        writer.writeEnum(purpose);
+        writer.writeEnum(scope);
+        writer.writeDate(balanceDate);
+        writer.writeBigDecimal(balance);
+        writer.writeUUID(link == null ? null : link.getId());
+    }
+
+    public static Account fromBinaryRow(final BinaryRowReader reader, final Boolean demoMode) {
+        final Bank bank = reader.readEnum(Bank.class);
+        final UUID id = reader.readUUID();
+
+        String account = reader.readString();
+
+        if (demoMode) {
+            account = account.replaceAll("\\d", "X");
+        }
+
+        final String alias = reader.readString();
+        final AccountPurpose type = reader.readEnum(AccountPurpose.class);
+        final Scope scope = reader.readEnum(Scope.class);
+        final LocalDate balanceDate = reader.readDate();
+
+        BigDecimal balanceQuantity = reader.readBigDecimal();
+
+        if (demoMode) {
+            balanceQuantity = Utils.obfuscateBigDecimal(balanceQuantity);
+        }
+
+        final UUID linkedAccountId = reader.readUUID();
+        final Account linkedAccount = linkedAccountId == null ? null : Account.builder().id(linkedAccountId).build();
+
+        return new Account(bank, id, account, alias, type, scope, balanceDate, balanceQuantity, linkedAccount);
+    }
+
+    public static Account fromCsvRow(final CsvFieldReader reader, final Boolean demoMode) {
+        final Bank bank = reader.readEnum(Bank.class);
+        final UUID id = reader.readUUID();
 
-        String account = rawData[2];
+        String account = reader.readString();
 
         if (demoMode) {
             account = account.replaceAll("\\d", "X");
         }
 
-        final String alias = rawData[3];
-        final AccountPurpose type = CsvSerializationUtils.parseEnumFromCsv(rawData[4], AccountPurpose.class);
-        final Scope scope = CsvSerializationUtils.parseEnumFromCsv(rawData[5], Scope.class);
-        final LocalDate balanceDate = CsvSerializationUtils.parseDateFromCsv(rawData[6]);
+        final String alias = reader.readString();
+        final AccountPurpose type = reader.readEnum(AccountPurpose.class);
+        final Scope scope = reader.readEnum(Scope.class);
+        final LocalDate balanceDate = reader.readDate();
 
-        BigDecimal balanceQuantity = CsvSerializationUtils.parseLongAsBigDecimalFromCsv(rawData[7]);
+        BigDecimal balanceQuantity = reader.readBigDecimal();
 
         if (demoMode) {
             balanceQuantity = Utils.obfuscateBigDecimal(balanceQuantity);
         }
 
-        final UUID linkedAccountId = CsvSerializationUtils.parseUUIDFromCsv(rawData[8]);
+        final UUID linkedAccountId = reader.readUUID();
         final Account linkedAccount = linkedAccountId == null ? null : Account.builder().id(linkedAccountId).build();
 
         return new Account(bank, id, account, alias, type, scope, balanceDate, balanceQuantity, linkedAccount);
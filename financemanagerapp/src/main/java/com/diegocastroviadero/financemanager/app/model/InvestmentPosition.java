@@ -1,7 +1,10 @@
 package com.diegocastroviadero.financemanager.app.model;
 
 import com.diegocastroviadero.financemanager.app.utils.Utils;
-import com.diegocastroviadero.financemanager.cryptoutils.CsvSerializationUtils;
+import com.diegocastroviadero.financemanager.cryptoutils.BinaryRowReader;
+import com.diegocastroviadero.financemanager.cryptoutils.BinaryRowWriter;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvFieldReader;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvFieldWriter;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
@@ -37,47 +40,69 @@ public class InvestmentPosition {
         return dateYearMonth;
     }
 
-    public String[] toStringArray() {
-        return new String[] {
-                CsvSerializationUtils.serializeLongToCsv(index),
-                CsvSerializationUtils.serializeEnumToCsv(bank),
-                CsvSerializationUtils.serializeUUIDToCsv(accountId),
-                account,
-                CsvSerializationUtils.serializeDateToCsv(date),
-                CsvSerializationUtils.serializeBigDecimalToCsv(inverted),
-                CsvSerializationUtils.serializeBigDecimalToCsv(value),
-                CsvSerializationUtils.serializeBigDecimalToCsv(profitabilityPer),
-                CsvSerializationUtils.serializeBigDecimalToCsv(profitabilityQty)
-        };
+    public void toCsvRow(final CsvFieldWriter writer) {
+        writer.writeLong(index);
+        writer.writeEnum(bank);
+        writer.writeUUID(accountId);
+        writer.writeString(account);
+        writer.writeDate(date);
+        writer.writeBigDecimal(inverted);
+        writer.writeBigDecimal(value);
+        writer.writeBigDecimal(profitabilityPer);
+        writer.writeBigDecimal(profitabilityQty);
     }
 
-    public static InvestmentPosition fromStringArray(final String[] rawData, final Boolean demoMode) {
-        final Long index = CsvSerializationUtils.parseLongFromCsv(rawData[0]);
-        final Bank bank = CsvSerializationUtils.parseEnumFromCsv(rawData[1], Bank.class);
-        final UUID accountId = CsvSerializationUtils.parseUUIDFromCsv(rawData[2]);
-        final String account = rawData[3];
-        final LocalDate parsedDate = CsvSerializationUtils.parseDateFromCsv(rawData[4]);
-
-        BigDecimal parsedInverted = CsvSerializationUtils.parseLongAsBigDecimalFromCsv(rawData[5]);
+    public void toBinaryRow(final BinaryRowWriter writer) {
+        writer.writeLong(index);
+        writer.writeEnum(bank);
+        writer.writeUUID(accountId);
+        writer.writeString(account);
+        writer.writeDate(date);
+        writer.writeBigDecimal(inverted);
+        writer.writeBigDecimal(value);
+        writer.writeBigDecimal(profitabilityPer);
+        writer.writeBigDecimal(profitabilityQty);
+    }
 
-        if (demoMode) {
-            parsedInverted = Utils.obfuscateBigDecimal(parsedInverted);
-        }
+    public static InvestmentPosition fromBinaryRow(final BinaryRowReader reader, final Boolean demoMode) {
+        final Long index = reader.readLong();
+        final Bank bank = reader.readEnum(Bank.class);
+        final UUID accountId = reader.readUUID();
+        final String account = reader.readString();
+        final LocalDate date = reader.readDate();
 
-        BigDecimal parsedValue = CsvSerializationUtils.parseLongAsBigDecimalFromCsv(rawData[6]);
+        BigDecimal inverted = reader.readBigDecimal();
+        BigDecimal value = reader.readBigDecimal();
+        final BigDecimal profitabilityPer = reader.readBigDecimal();
+        BigDecimal profitabilityQty = reader.readBigDecimal();
 
         if (demoMode) {
-            parsedValue = Utils.obfuscateBigDecimal(parsedValue);
+            inverted = Utils.obfuscateBigDecimal(inverted);
+            value = Utils.obfuscateBigDecimal(value);
+            profitabilityQty = Utils.obfuscateBigDecimal(profitabilityQty);
         }
 
-        final BigDecimal parsedProfitabilityPer = CsvSerializationUtils.parseLongAsBigDecimalFromCsv(rawData[7]);
+        return new InvestmentPosition(index, bank, accountId, account, date, inverted, value, profitabilityPer, profitabilityQty);
+    }
+
+    public static InvestmentPosition fromCsvRow(final CsvFieldReader reader, final Boolean demoMode) {
+        final Long index = reader.readLong();
+        final Bank bank = reader.readEnum(Bank.class);
+        final UUID accountId = reader.readUUID();
+        final String account = reader.readString();
+        final LocalDate date = reader.readDate();
 
-        BigDecimal parsedProfitabilityQty = CsvSerializationUtils.parseLongAsBigDecimalFromCsv(rawData[8]);
+        BigDecimal inverted = reader.readBigDecimal();
+        BigDecimal value = reader.readBigDecimal();
+        final BigDecimal profitabilityPer = reader.readBigDecimal();
+        BigDecimal profitabilityQty = reader.readBigDecimal();
 
         if (demoMode) {
-            parsedProfitabilityQty = Utils.obfuscateBigDecimal(parsedProfitabilityQty);
+            inverted = Utils.obfuscateBigDecimal(inverted);
+            value = Utils.obfuscateBigDecimal(value);
+            profitabilityQty = Utils.obfuscateBigDecimal(profitabilityQty);
         }
 
-        return new InvestmentPosition(index, bank, accountId, account, parsedDate, parsedInverted, parsedValue, parsedProfitabilityPer, parsedProfitabilityQty);
+        return new InvestmentPosition(index, bank, accountId, account, date, inverted, value, profitabilityPer, profitabilityQty);
     }
 }
\ No newline at end of file
@@ -2,7 +2,10 @@ package com.diegocastroviadero.financemanager.app.model;
 
 import ch.obermuhlner.math.big.BigDecimalMath;
 import com.diegocastroviadero.financemanager.app.utils.Utils;
-import com.diegocastroviadero.financemanager.cryptoutils.CsvSerializationUtils;
+import com.diegocastroviadero.financemanager.cryptoutils.BinaryRowReader;
+import com.diegocastroviadero.financemanager.cryptoutils.BinaryRowWriter;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvFieldReader;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvFieldWriter;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
@@ -38,32 +41,57 @@ public class Movement {
         return dateYearMonth;
     }
 
-    public String[] toStringArray() {
-        return new String[] {
-                CsvSerializationUtils.serializeLongToCsv(index),
-                CsvSerializationUtils.serializeEnumToCsv(bank),
-                CsvSerializationUtils.serializeUUIDToCsv(accountId),
-                account,
-                CsvSerializationUtils.serializeDateToCsv(date),
-                concept,
-                CsvSerializationUtils.serializeBigDecimalToCsv(quantity)
-        };
+    public void toCsvRow(final CsvFieldWriter writer) {
+        writer.writeLong(index);
+        writer.writeEnum(bank);
+        writer.writeUUID(accountId);
+        writer.writeString(account);
+        writer.writeDate(date);
+        writer.writeString(concept);
+        writer.writeBigDecimal(quantity);
     }
 
-    public static Movement fromStringArray(final String[] rawData, final Boolean demoMode) {
-        final Long index = CsvSerializationUtils.parseLongFromCsv(rawData[0]);
-        final Bank bank = CsvSerializationUtils.parseEnumFromCsv(rawData[1], Bank.class);
-        final UUID accountId = CsvSerializationUtils.parseUUIDFromCsv(rawData[2]);
-        final String account = rawData[3];
-        final LocalDate parsedDate = CsvSerializationUtils.parseDateFromCsv(rawData[4]);
-        final String concept = rawData[5];
+    public void toBinaryRow(final BinaryRowWriter writer) {
+        writer.writeLong(index);
+        writer.writeEnum(bank);
+        writer.writeUUID(accountId);
+        writer.writeString(account);
+        writer.writeDate(date);
+        writer.writeString(concept);
+        writer.writeBigDecimal(quantity);
+    }
+
+    public static Movement fromBinaryRow(final BinaryRowReader reader, final Boolean demoMode) {
+        final Long index = reader.readLong();
+        final Bank bank = reader.readEnum(Bank.class);
+        final UUID accountId = reader.readUUID();
+        final String account = reader.readString();
+        final LocalDate date = reader.readDate();
+        final String concept = reader.readString();
+
+        BigDecimal quantity = reader.readBigDecimal();
+
+        if (demoMode) {
+            quantity = Utils.obfuscateBigDecimal(quantity);
+        }
+
+        return new Movement(index, bank, accountId, account, date, concept, quantity);
+    }
+
+    public static Movement fromCsvRow(final CsvFieldReader reader, final Boolean demoMode) {
+        final Long index = reader.readLong();
+        final Bank bank = reader.readEnum(Bank.class);
+        final UUID accountId = reader.readUUID();
+        final String account = reader.readString();
+        final LocalDate date = reader.readDate();
+        final String concept = reader.readString();
 
-        BigDecimal parsedQuantity = CsvSerializationUtils.parseLongAsBigDecimalFromCsv(rawData[6]);
+        BigDecimal quantity = reader.readBigDecimal();
 
         if (demoMode) {
-            parsedQuantity = Utils.obfuscateBigDecimal(parsedQuantity);
+            quantity = Utils.obfuscateBigDecimal(quantity);
         }
 
-        return new Movement(index, bank, accountId, account, parsedDate, concept, parsedQuantity);
+        return new Movement(index, bank, accountId, account, date, concept, quantity);
     }
 }
\ No newline at end of file
@@ -1,6 +1,9 @@
 package com.diegocastroviadero.financemanager.app.model;
 
-import com.diegocastroviadero.financemanager.cryptoutils.CsvSerializationUtils;
+import com.diegocastroviadero.financemanager.cryptoutils.BinaryRowReader;
+import com.diegocastroviadero.financemanager.cryptoutils.BinaryRowWriter;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvFieldReader;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvFieldWriter;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
@@ -21,22 +24,38 @@ public class PlannedExpense {
     private Month month;
     private BigDecimal quantity;
 
-    public String[] toStringArray() {
-        return new String[] {
-                CsvSerializationUtils.serializeUUIDToCsv(id),
-                concept,
-                CsvSerializationUtils.serializeEnumToCsv(scope),
-                CsvSerializationUtils.serializeEnumToCsv(month),
-                CsvSerializationUtils.serializeBigDecimalToCsv(quantity)
-        };
+    public void toCsvRow(final CsvFieldWriter writer) {
+        writer.writeUUID(id);
+        writer.writeString(concept);
+        writer.writeEnum(scope);
+        writer.writeEnum(month);
+        writer.writeBigDecimal(quantity);
     }
 
-    public static PlannedExpense fromStringArray(String[] rawData) {
-        final UUID id = CsvSerializationUtils.parseUUIDFromCsv(rawData[0]);
-        final String description = rawData[1];
-        final Scope scope = CsvSerializationUtils.parseEnumFromCsv(rawData[2], Scope.class);
-        final Month month = CsvSerializationUtils.parseEnumFromCsv(rawData[3], Month.class);
-        final BigDecimal quantity = CsvSerializationUtils.parseLongAsBigDecimalFromCsv(rawData[4]);
+    public void toBinaryRow(final BinaryRowWriter writer) {
+        writer.writeUUID(id);
+        writer.writeString(concept);
+        writer.writeEnum(scope);
+        writer.writeEnum(month);
+        writer.writeBigDecimal(quantity);
+    }
+
+    public static PlannedExpense fromBinaryRow(final BinaryRowReader reader) {
+        final UUID id = reader.readUUID();
+        final String description = reader.readString();
+        final Scope scope = reader.readEnum(Scope.class);
+        final Month month = reader.readEnum(Month.class);
+        final BigDecimal quantity = reader.readBigDecimal();
+
+        return new PlannedExpense(id, description, scope, month, quantity);
+    }
+
+    public static PlannedExpense fromCsvRow(final CsvFieldReader reader) {
+        final UUID id = reader.readUUID();
+        final String description = reader.readString();
+        final Scope scope = reader.readEnum(Scope.class);
+        final Month month = reader.readEnum(Month.class);
+        final BigDecimal quantity = reader.readBigDecimal();
 
         return new PlannedExpense(id, description, scope, month, quantity);
     }
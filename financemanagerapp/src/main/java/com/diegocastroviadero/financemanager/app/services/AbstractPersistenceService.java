@@ -1,7 +1,11 @@
 package com.diegocastroviadero.financemanager.app.services;
 
 import com.diegocastroviadero.financemanager.cryptoutils.CsvCryptoUtils;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvDecryptionResult;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvRowWriter;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvText;
 import com.diegocastroviadero.financemanager.cryptoutils.CsvUtils;
+import com.diegocastroviadero.financemanager.cryptoutils.RowCodec;
 import com.diegocastroviadero.financemanager.cryptoutils.exception.CsvCryptoIOException;
 import com.diegocastroviadero.financemanager.cryptoutils.exception.CsvIOException;
 import com.diegocastroviadero.financemanager.cryptoutils.exception.RuntimeCsvCryptoIOException;
@@ -9,25 +13,45 @@ import com.diegocastroviadero.financemanager.cryptoutils.exception.RuntimeCsvIOE
 
 import java.io.File;
 import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.ToLongFunction;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public abstract class AbstractPersistenceService {
     public static final String PERSISTENCE_CACHE_KEY_PREFIX = "FILE_";
+    public static final String YEAR_MONTH_RANGE_CACHE_KEY_PREFIX = "YEARMONTHS_";
+    public static final String ELEMENTS_CACHE_KEY_PREFIX = "ELEMENTS_";
+
+    private static final int DECRYPTION_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Rough size in bytes of a field of a decoded element besides its chars (a string, date or number object)
+     */
+    private static final long FIELD_WEIGHT_BYTES = 40L;
+
+    /**
+     * Number of elements encoded to estimate the size of a list of elements
+     */
+    private static final int WEIGHT_SAMPLE_SIZE = 32;
 
     protected final PersistencePropertiesService propertiesService;
     protected final CacheService cacheService;
+    protected final RowCodecService codecService;
 
-    public AbstractPersistenceService(final PersistencePropertiesService propertiesService, final CacheService cacheService) {
+    public AbstractPersistenceService(final PersistencePropertiesService propertiesService, final CacheService cacheService, final RowCodecService codecService) {
         this.propertiesService = propertiesService;
         this.cacheService = cacheService;
+        this.codecService = codecService;
     }
 
     protected File getFile(final String filename) {
@@ -35,7 +59,7 @@ public abstract class AbstractPersistenceService {
     }
 
     protected List<YearMonth> getYearMonthRange(final String fileFilterRegex, final Pattern yearMonthExtractorRegex) {
-        return cacheService.putIfAbsent(fileFilterRegex, () -> {
+        return cacheService.putIfAbsent(getYearMonthRangeCacheKey(fileFilterRegex), () -> {
             final FilenameFilter accountMovementsFileFilter = (dir, name) -> name.matches(fileFilterRegex);
 
             final File[] files = propertiesService.listFiles(accountMovementsFileFilter);
@@ -60,13 +84,19 @@ public abstract class AbstractPersistenceService {
         });
     }
 
-    protected List<String[]> loadData(final File file) throws CsvIOException {
+    /**
+     * Loads the elements of given plain file. The text of the file is cached, so every call decodes new elements
+     * straight from it (see {@link CsvText})
+     */
+    protected <T> List<T> load(final File file, final Class<T> type) throws CsvIOException {
         final String cacheKey = getCacheKey(file);
 
+        final CsvText text;
+
         try {
-            return cacheService.putIfAbsent(cacheKey, () -> {
+            text = cacheService.putIfAbsent(cacheKey, () -> {
                 try {
-                    return CsvUtils.readFromCsvFile(file);
+                    return CsvUtils.readTextFromCsvFile(file);
                 } catch (CsvIOException e) {
                     throw e.toUncheckedException();
                 }
@@ -74,15 +104,182 @@ public abstract class AbstractPersistenceService {
         } catch (RuntimeCsvIOException e) {
             throw e.toCheckedException();
         }
+
+        return text.read(codecService.getCodec(type));
+    }
+
+    /**
+     * Loads the elements of given encrypted file. The decrypted text of the file is cached, so every call decodes
+     * new elements straight from it (see {@link CsvText})
+     */
+    protected <T> List<T> load(final char[] password, final File file, final Class<T> type) throws CsvCryptoIOException {
+        return loadText(password, file).read(codecService.getCodec(type));
+    }
+
+    /**
+     * Loads the elements of given encrypted file as an immutable list sorted with given order. The list is cached (per
+     * demo mode), so a cache hit neither decodes nor sorts anything. Its elements are shared, so they must not be
+     * modified (see {@link #load(char[], File, Class)} to get new ones)
+     */
+    protected <T> List<T> loadSorted(final char[] password, final File file, final Class<T> type, final Comparator<? super T> order) throws CsvCryptoIOException {
+        return loadSorted(password, file, type, order, codecService.isDemoMode());
+    }
+
+    /**
+     * Loads the elements of given encrypted files as {@link #loadSorted(char[], File, Class, Comparator)}, in the same
+     * order. Files not present in the cache are decrypted concurrently and then cached
+     */
+    protected <T> List<List<T>> loadSorted(final char[] password, final List<File> files, final Class<T> type, final Comparator<? super T> order) throws CsvCryptoIOException {
+        final boolean demoMode = codecService.isDemoMode();
+
+        // peeked, so the stats only account the loads of the files below
+        final List<File> notCachedFiles = files.stream()
+                .filter(file -> null == cacheService.peek(getElementsCacheKey(file, demoMode)))
+                .filter(file -> null == cacheService.peek(getCacheKey(file)))
+                .collect(Collectors.toList());
+
+        if (!notCachedFiles.isEmpty()) {
+            CsvCryptoIOException error = null;
+
+            for (CsvDecryptionResult result : CsvCryptoUtils.decryptAllToText(notCachedFiles, password, DECRYPTION_PARALLELISM)) {
+                if (result.isSuccessful()) {
+                    cacheService.putIfAbsent(getCacheKey(result.getFile()), result::getText);
+                } else if (null == error) {
+                    error = result.getError();
+                }
+            }
+
+            if (null != error) {
+                throw error;
+            }
+        }
+
+        final List<List<T>> data = new ArrayList<>(files.size());
+
+        for (File file : files) {
+            data.add(loadSorted(password, file, type, order, demoMode));
+        }
+
+        return data;
+    }
+
+    /**
+     * Loads the last element of given encrypted file: from the cache if the file is already cached (previous rows are
+     * not decoded), otherwise only the last chunk of the file is decrypted (file is not cached). Elements must be
+     * persisted in the order they are cached (see {@link #persist(List, Class, Comparator, char[], File)})
+     */
+    protected <T> T loadLast(final char[] password, final File file, final Class<T> type) throws CsvCryptoIOException {
+        final boolean demoMode = codecService.isDemoMode();
+        final List<T> cachedElements = cacheService.get(getElementsCacheKey(file, demoMode));
+
+        if (null != cachedElements) {
+            return cachedElements.isEmpty() ? null : cachedElements.get(cachedElements.size() - 1);
+        }
+
+        final RowCodec<T> codec = codecService.getCodec(type, demoMode);
+        final CsvText cachedText = cacheService.get(getCacheKey(file));
+
+        final List<T> last = null != cachedText
+                ? cachedText.readLast(codec, 1)
+                : CsvCryptoUtils.decryptLastFromCsvFile(password, file, 1, codec);
+
+        return last.isEmpty() ? null : last.get(0);
+    }
+
+    protected <T> void persist(final List<T> elements, final Class<T> type, final File file) throws CsvIOException {
+        final RowCodec<T> codec = codecService.getCodec(type);
+        final boolean created = !file.exists();
+
+        CsvUtils.persistToCsvFile(elements, codec, file);
+        written(file, created);
+
+        cacheService.put(getCacheKey(file), CsvText.of(elements, codec));
+        invalidateElements(file);
+    }
+
+    protected <T> void persist(final List<T> elements, final Class<T> type, final char[] password, final File file) throws CsvCryptoIOException {
+        persistText(elements, type, password, file);
+    }
+
+    /**
+     * Persists the elements of given encrypted file and caches them sorted with given order (see
+     * {@link #loadSorted(char[], File, Class, Comparator)}), so they are not loaded again. Cached elements are decoded
+     * from the text just written, so given elements can still be modified afterwards
+     */
+    protected <T> void persist(final List<T> elements, final Class<T> type, final Comparator<? super T> order, final char[] password, final File file) throws CsvCryptoIOException {
+        final CsvText text = persistText(elements, type, password, file);
+
+        // elements are written as they are, so they are the elements decoded out of demo mode
+        final RowCodec<T> codec = codecService.getCodec(type, false);
+
+        cacheService.put(getElementsCacheKey(file, false), sorted(text.read(codec), order), elementsWeigher(codec));
+    }
+
+    /**
+     * Concatenates lists sorted with given order, the result is only sorted again if they overlap
+     */
+    protected static <T> List<T> concatSorted(final List<List<T>> lists, final Comparator<? super T> order) {
+        final List<T> result = new ArrayList<>(lists.stream().mapToInt(List::size).sum());
+        boolean isSorted = true;
+
+        for (List<T> list : lists) {
+            if (isSorted && !result.isEmpty() && !list.isEmpty() && order.compare(result.get(result.size() - 1), list.get(0)) > 0) {
+                isSorted = false;
+            }
+
+            result.addAll(list);
+        }
+
+        if (!isSorted) {
+            result.sort(order);
+        }
+
+        return result;
+    }
+
+    private <T> List<T> loadSorted(final char[] password, final File file, final Class<T> type, final Comparator<? super T> order, final boolean demoMode) throws CsvCryptoIOException {
+        final String cacheKey = getElementsCacheKey(file, demoMode);
+        // decoded as the demo mode of the key, even if it has just been changed
+        final RowCodec<T> codec = codecService.getCodec(type, demoMode);
+
+        try {
+            return cacheService.putIfAbsent(cacheKey, () -> {
+                try {
+                    return sorted(loadText(password, file).read(codec), order);
+                } catch (CsvCryptoIOException e) {
+                    throw e.toUncheckedException();
+                }
+            }, elementsWeigher(codec));
+        } catch (RuntimeCsvCryptoIOException e) {
+            throw e.toCheckedException();
+        }
     }
 
-    protected List<String[]> loadData(final char[] password, final File file) throws CsvCryptoIOException {
+    /**
+     * Persists the elements of given encrypted file and caches its text, which is returned
+     */
+    private <T> CsvText persistText(final List<T> elements, final Class<T> type, final char[] password, final File file) throws CsvCryptoIOException {
+        final RowCodec<T> codec = codecService.getCodec(type);
+        final boolean created = !file.exists();
+
+        CsvCryptoUtils.encryptToCsvFile(elements, codec, password, file, propertiesService.getEncryptionOptions());
+        written(file, created);
+
+        final CsvText text = CsvText.of(elements, codec);
+
+        cacheService.put(getCacheKey(file), text);
+        invalidateElements(file);
+
+        return text;
+    }
+
+    private CsvText loadText(final char[] password, final File file) throws CsvCryptoIOException {
         final String cacheKey = getCacheKey(file);
 
         try {
             return cacheService.putIfAbsent(cacheKey, () -> {
                 try {
-                    return CsvCryptoUtils.decryptFromCsvFile(password, file);
+                    return CsvCryptoUtils.decryptTextFromCsvFile(password, file);
                 } catch (CsvCryptoIOException e) {
                     throw e.toUncheckedException();
                 }
@@ -92,19 +289,128 @@ public abstract class AbstractPersistenceService {
         }
     }
 
-    protected void persistData(final List<String[]> data, final File file) throws CsvIOException {
-        CsvUtils.persistToCsvFile(data, file);
+    /**
+     * Invalidates the cached data of given file of the dbfiles folder: its text, its elements and, if the file was
+     * created or deleted, the ranges of months it belongs to
+     */
+    static void invalidateFile(final CacheService cacheService, final String filename, final boolean createdOrDeleted) {
+        cacheService.invalidate(getCacheKey(filename));
+        cacheService.invalidate(getElementsCacheKey(filename, false));
+        cacheService.invalidate(getElementsCacheKey(filename, true));
 
-        cacheService.put(getCacheKey(file), data);
+        if (createdOrDeleted) {
+            invalidateYearMonthRanges(cacheService, filename);
+        }
     }
 
-    protected void persistData(final List<String[]> data, final char[] password, final File file) throws CsvCryptoIOException {
-        CsvCryptoUtils.encryptToCsvFile(data, password, file);
+    /**
+     * Invalidates the cached data of every file of the dbfiles folder
+     */
+    static void invalidateAllFiles(final CacheService cacheService) {
+        cacheService.invalidateAllStartingWith(PERSISTENCE_CACHE_KEY_PREFIX);
+        cacheService.invalidateAllStartingWith(ELEMENTS_CACHE_KEY_PREFIX);
+        cacheService.invalidateAllStartingWith(YEAR_MONTH_RANGE_CACHE_KEY_PREFIX);
+    }
 
-        cacheService.put(getCacheKey(file), data);
+    private static void invalidateYearMonthRanges(final CacheService cacheService, final String filename) {
+        cacheService.invalidateIf(key -> key.startsWith(YEAR_MONTH_RANGE_CACHE_KEY_PREFIX)
+                && filename.matches(key.substring(YEAR_MONTH_RANGE_CACHE_KEY_PREFIX.length())));
+    }
+
+    /**
+     * Records a file just written, so that it is not taken as changed outside the app, and invalidates the ranges of
+     * months it belongs to if it is a new one
+     */
+    private void written(final File file, final boolean created) {
+        propertiesService.registerWrite(file);
+
+        if (created) {
+            invalidateYearMonthRanges(cacheService, file.getName());
+        }
+    }
+
+    private void invalidateElements(final File file) {
+        cacheService.invalidate(getElementsCacheKey(file, false));
+        cacheService.invalidate(getElementsCacheKey(file, true));
+    }
+
+    private static <T> List<T> sorted(final List<T> elements, final Comparator<? super T> order) {
+        final List<T> result = new ArrayList<>(elements);
+        result.sort(order);
+
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Returns a weigher of lists of elements by their content: the overhead of the list and its elements (see
+     * {@link CacheService#estimateWeight(Object)}) plus the chars and fields of their rows. Decoded elements hold about
+     * the chars of their rows, so a sample of the elements is encoded with given codec and the rest are weighed alike
+     */
+    private static <T> ToLongFunction<List<T>> elementsWeigher(final RowCodec<T> codec) {
+        return elements -> CacheService.estimateWeight(elements) + estimateElementsContentWeight(elements, codec);
+    }
+
+    private static <T> long estimateElementsContentWeight(final List<T> elements, final RowCodec<T> codec) {
+        if (elements.isEmpty()) {
+            return 0L;
+        }
+
+        final int step = Math.max(1, elements.size() / WEIGHT_SAMPLE_SIZE);
+        final StringBuilder row = new StringBuilder();
+        final CsvRowWriter writer = new CsvRowWriter(row);
+
+        long sampleWeight = 0L;
+        int samples = 0;
+
+        for (int i = 0; i < elements.size(); i += step) {
+            row.setLength(0);
+
+            try {
+                writer.write(elements.get(i), codec);
+            } catch (IOException e) {
+                // this exception should never be thrown because rows are written in memory
+                throw new UncheckedIOException(e);
+            }
+
+            sampleWeight += FIELD_WEIGHT_BYTES * countFields(row) + (long) Character.BYTES * row.length();
+            samples++;
+        }
+
+        return sampleWeight * elements.size() / samples;
+    }
+
+    /**
+     * Counts the fields of a csv row (separators within quoted fields are counted too, good enough for an estimate)
+     */
+    private static int countFields(final CharSequence row) {
+        int result = 1;
+
+        for (int i = 0; i < row.length(); i++) {
+            if (',' == row.charAt(i)) {
+                result++;
+            }
+        }
+
+        return result;
     }
 
     protected String getCacheKey(final File file) {
-        return String.format("%s%s", PERSISTENCE_CACHE_KEY_PREFIX, file.getName());
+        return getCacheKey(file.getName());
+    }
+
+    protected String getElementsCacheKey(final File file, final boolean demoMode) {
+        return getElementsCacheKey(file.getName(), demoMode);
+    }
+
+    private static String getCacheKey(final String filename) {
+        return String.format("%s%s", PERSISTENCE_CACHE_KEY_PREFIX, filename);
+    }
+
+    private static String getElementsCacheKey(final String filename, final boolean demoMode) {
+        return String.format("%s%s_%s", ELEMENTS_CACHE_KEY_PREFIX, demoMode ? "demo" : "plain", filename);
+    }
+
+    private static String getYearMonthRangeCacheKey(final String fileFilterRegex) {
+        return String.format("%s%s", YEAR_MONTH_RANGE_CACHE_KEY_PREFIX, fileFilterRegex);
     }
 }
@@ -23,15 +23,13 @@ import java.util.stream.Collectors;
 public class AccountService extends AbstractPersistenceService {
     private static final String ACCOUNT_INVENTORY_FILENAME = "account_inventory.ecsv";
 
-    private final UserConfigService userConfigService;
     private final List<AccountPositionCalculator> accountPositionCalculators;
     private final List<AccountPositionHistoryCalculator> accountPositionHistoryCalculators;
 
     private final ApplicationEventPublisher applicationEventPublisher;
 
-    public AccountService(final PersistencePropertiesService propertiesService, final CacheService cacheService, final UserConfigService userConfigService, final List<AccountPositionCalculator> accountPositionCalculators, final List<AccountPositionHistoryCalculator> accountPositionHistoryCalculators, final ApplicationEventPublisher applicationEventPublisher) {
-        super(propertiesService, cacheService);
-        this.userConfigService = userConfigService;
+    public AccountService(final PersistencePropertiesService propertiesService, final CacheService cacheService, final RowCodecService codecService, final List<AccountPositionCalculator> accountPositionCalculators, final List<AccountPositionHistoryCalculator> accountPositionHistoryCalculators, final ApplicationEventPublisher applicationEventPublisher) {
+        super(propertiesService, cacheService, codecService);
         this.accountPositionCalculators = accountPositionCalculators;
         this.accountPositionHistoryCalculators = accountPositionHistoryCalculators;
         this.applicationEventPublisher = applicationEventPublisher;
@@ -73,11 +71,7 @@ public class AccountService extends AbstractPersistenceService {
         List<Account> accounts;
 
         if (file.exists()) {
-            final List<String[]> rawCsvData = loadData(password, file);
-
-            accounts = rawCsvData.stream()
-                    .map(rawAccount -> Account.fromStringArray(rawAccount, userConfigService.isDemoMode()))
-                    .collect(Collectors.toList());
+            accounts = load(password, file, Account.class);
 
             accounts.forEach(account -> {
                 if (null != account.getLink() && null != account.getLink().getId()) {
@@ -104,14 +98,13 @@ public class AccountService extends AbstractPersistenceService {
     public void persistAccounts(final char[] password, final List<Account> accounts) throws CsvCryptoIOException {
         final File file = getFile(getFilename());
 
-        final List<String[]> sortedRawAccounts = accounts.stream()
+        final List<Account> sortedAccounts = accounts.stream()
                 .sorted(Comparator
                         .comparing(Account::getBank)
                         .thenComparing(Account::getAccountNumber))
-                .map(Account::toStringArray)
                 .collect(Collectors.toList());
 
-        persistData(sortedRawAccounts, password, file);
+        persist(sortedAccounts, Account.class, password, file);
     }
 
     private String getFilename() {
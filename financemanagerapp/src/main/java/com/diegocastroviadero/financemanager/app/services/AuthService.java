@@ -1,8 +1,13 @@
 package com.diegocastroviadero.financemanager.app.services;
 
 import com.diegocastroviadero.financemanager.app.views.common.AuthDialog;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvCryptoUtils;
+import com.diegocastroviadero.financemanager.cryptoutils.exception.CsvCryptoIOException;
+import com.diegocastroviadero.financemanager.cryptoutils.exception.WrongEncryptionPasswordException;
 import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.notification.Notification;
 import com.vaadin.flow.server.VaadinSession;
+import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -12,9 +17,12 @@ import java.util.function.Consumer;
 
 @Slf4j
 @Service
+@AllArgsConstructor
 public class AuthService {
     public static final String AUTHPASSWORD_ENTRY_KEY = "password";
 
+    private final PersistencePropertiesService propertiesService;
+
     private final Map<Class<? extends Component>, AuthDialog> map = new HashMap<>();
 
     public AuthDialog configureAuth(final Component component) {
@@ -38,8 +46,13 @@ public class AuthService {
                 authDialog.setOnClosedListener(password -> {
                     final char[] p = password.toCharArray();
 
-                    setAuthPassword(p);
-                    listener.accept(p);
+                    if (isPasswordWrong(p)) {
+                        Notification.show("Provided encryption password is wrong", 5000, Notification.Position.MIDDLE);
+                        authDialog.open();
+                    } else {
+                        setAuthPassword(p);
+                        listener.accept(p);
+                    }
                 });
 
                 authDialog.open();
@@ -62,6 +75,27 @@ public class AuthService {
         return passwordWillBeCleaned;
     }
 
+    /**
+     * Checks the password against the key check value of dbfiles, so that a wrong password is rejected when it is
+     * entered instead of when the first file is decrypted. The (expensive) key derivation is also done here once,
+     * instead of when the first file is loaded. Any other error is not managed here, it is detected again when any
+     * file is decrypted.
+     */
+    private boolean isPasswordWrong(final char[] password) {
+        boolean passwordWrong = false;
+
+        try {
+            CsvCryptoUtils.checkPassword(password, propertiesService.getDbfilesPath().toFile());
+        } catch (WrongEncryptionPasswordException e) {
+            log.debug("Provided encryption password is wrong");
+            passwordWrong = true;
+        } catch (CsvCryptoIOException e) {
+            log.warn("Encryption password could not be checked", e);
+        }
+
+        return passwordWrong;
+    }
+
     private char[] getAuthPassword() {
         return (char[]) VaadinSession.getCurrent().getAttribute(AUTHPASSWORD_ENTRY_KEY);
     }
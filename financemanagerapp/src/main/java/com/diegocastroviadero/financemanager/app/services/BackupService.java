@@ -100,7 +100,7 @@ public class BackupService {
 
             propertiesService.updateDbfilesPath(backupExtractedFolder);
 
-            cacheService.invalidateAllStartingWith(AbstractPersistenceService.PERSISTENCE_CACHE_KEY_PREFIX);
+            AbstractPersistenceService.invalidateAllFiles(cacheService);
         } catch (IOException e) {
             Utils.deleteFolder(backupExtractedFolder);
             throw new LoadBackupException(String.format("There was an error extracting backup '%s'", tarGzBackupFile), e);
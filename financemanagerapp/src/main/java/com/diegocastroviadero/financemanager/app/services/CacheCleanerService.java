@@ -1,47 +1,41 @@
 package com.diegocastroviadero.financemanager.app.services;
 
-import com.diegocastroviadero.financemanager.app.configuration.CacheProperties;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Slf4j
 @Service
 public class CacheCleanerService {
-    private final CacheProperties cacheProperties;
     private final CacheService cacheService;
 
     private Long lastClean;
-    private Long lastScheduledClean;
 
-    public CacheCleanerService(final CacheProperties cacheProperties, final CacheService cacheService) {
-        this.cacheProperties = cacheProperties;
+    public CacheCleanerService(final CacheService cacheService) {
         this.cacheService = cacheService;
     }
 
+    /**
+     * Expires the entries not accessed for a while (the cache is bounded by size on its own, so it is not cleared)
+     */
     @Scheduled(fixedRateString = "${financemanagerapp.cache.clean-interval}", initialDelayString = "${financemanagerapp.cache.clean-interval}")
-    public void cleanCacheScheduled() {
-        cleanCache(true);
+    public void expireCacheScheduled() {
+        cacheService.evictExpired();
     }
 
+    /**
+     * Removes every entry of the cache (manual flush)
+     */
     public void cleanCache() {
-        cleanCache(false);
-    }
-
-    public void cleanCache(final boolean scheduled) {
-        log.debug("{}Cleaning cache ...", scheduled ? "(scheduled) " : "");
+        log.debug("Cleaning cache ...");
 
         cacheService.clearCache();
 
-        log.info("{}Cache was cleaned successfully", scheduled ? "(scheduled) " : "");
+        log.info("Cache was cleaned successfully");
 
-        final long now = System.currentTimeMillis();
-
-        lastClean = now;
-
-        if (scheduled) {
-            lastScheduledClean = now;
-        }
+        lastClean = System.currentTimeMillis();
     }
 
     public String getCacheStatusLabel() {
@@ -54,15 +48,15 @@ public class CacheCleanerService {
             firstPart = String.format("Global cache was cleaned %d millis ago", elapsedFromLastClean);
         }
 
-        final String secondPart;
-        if (null == lastScheduledClean) {
-            secondPart = String.format("(scheduled each %d millis)", cacheProperties.getCleanInterval());
-        } else {
-            final long elapsedFromLastScheduledClean = System.currentTimeMillis() - lastScheduledClean;
-
-            secondPart = String.format("(next clean in %d millis)", cacheProperties.getCleanInterval() - elapsedFromLastScheduledClean);
-        }
+        final String secondPart = String.format("(%d entries, %d of %d KB in use)", cacheService.getSize(), cacheService.getWeight() / 1024L, cacheService.getMaxWeight() / 1024L);
 
         return String.format("%s %s", firstPart, secondPart);
     }
+
+    /**
+     * Returns the statistics of the global cache by key prefix
+     */
+    public List<CacheStats> getCacheStats() {
+        return cacheService.getStats();
+    }
 }
@@ -0,0 +1,95 @@
+package com.diegocastroviadero.financemanager.app.services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports the statistics of {@link CacheService} (see {@link CacheStats}) as metrics tagged with their key prefix
+ */
+@Component
+public class CacheMetrics implements MeterBinder {
+    private static final String METRIC_PREFIX = "financemanager.cache";
+
+    private final CacheService cacheService;
+
+    public CacheMetrics(final CacheService cacheService) {
+        this.cacheService = cacheService;
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        // prefixes are known as their keys are used, so their meters are registered as they appear
+        cacheService.addStatsListener(stats -> bindTo(registry, stats));
+    }
+
+    private void bindTo(final MeterRegistry registry, final CacheStats stats) {
+        final Tags tags = Tags.of("prefix", stats.getKeyPrefix());
+
+        FunctionCounter.builder(METRIC_PREFIX + ".gets", stats, CacheStats::getHits)
+                .tags(tags).tag("result", "hit")
+                .description("Requests of cached values")
+                .register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".gets", stats, CacheStats::getMisses)
+                .tags(tags).tag("result", "miss")
+                .description("Requests of cached values")
+                .register(registry);
+
+        FunctionTimer.builder(METRIC_PREFIX + ".loads", stats, CacheStats::getLoads, CacheStats::getLoadNanos, TimeUnit.NANOSECONDS)
+                .tags(tags)
+                .description("Loads of values missed")
+                .register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".load.failures", stats, CacheStats::getLoadFailures)
+                .tags(tags)
+                .description("Loads of values that failed")
+                .register(registry);
+
+        // cumulative buckets, as the histograms of micrometer
+        final long[] bounds = CacheStats.LOAD_TIME_BUCKETS_MILLIS;
+        for (int i = 0; i <= bounds.length; i++) {
+            final int bucket = i;
+            final String le = bucket < bounds.length ? String.valueOf(bounds[bucket] / 1000.0) : "+Inf";
+
+            FunctionCounter.builder(METRIC_PREFIX + ".loads.histogram", stats, s -> getCumulativeLoads(s, bucket))
+                    .tags(tags).tag("le", le)
+                    .description("Loads of values missed that took up to the given seconds")
+                    .register(registry);
+        }
+
+        FunctionCounter.builder(METRIC_PREFIX + ".evictions", stats, CacheStats::getEvictions)
+                .tags(tags).tag("cause", "size")
+                .description("Entries removed to fit the maximum weight of the cache")
+                .register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".evictions", stats, CacheStats::getExpirations)
+                .tags(tags).tag("cause", "expired")
+                .description("Entries removed for not being accessed within their idle timeout")
+                .register(registry);
+
+        Gauge.builder(METRIC_PREFIX + ".entries", stats, CacheStats::getEntries)
+                .tags(tags)
+                .description("Cached entries")
+                .register(registry);
+        Gauge.builder(METRIC_PREFIX + ".weight", stats, CacheStats::getWeight)
+                .tags(tags)
+                .baseUnit("bytes")
+                .description("Estimated size of the cached values")
+                .register(registry);
+    }
+
+    private static double getCumulativeLoads(final CacheStats stats, final int bucket) {
+        final long[] histogram = stats.getLoadTimeHistogram();
+
+        long result = 0L;
+        for (int i = 0; i <= bucket; i++) {
+            result += histogram[i];
+        }
+
+        return result;
+    }
+}
@@ -1,62 +1,550 @@
 package com.diegocastroviadero.financemanager.app.services;
 
+import com.diegocastroviadero.financemanager.app.configuration.CacheProperties;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvText;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
 
+/**
+ * In-memory cache shared by every session.
+ *
+ * Entries are loaded without holding any lock: concurrent misses on the same key wait for a single load of the value
+ * (the first one), while misses on different keys load in parallel and hits never wait for a load. A value being
+ * loaded when its key is invalidated (or the cache cleared) is returned to the callers already waiting for it, but it
+ * is not cached.
+ *
+ * The cache is bounded by the estimated size of its values (see {@link #estimateWeight(Object)}): once it is exceeded
+ * the least recently used entries are evicted, taken in order from the loaded entries kept in access order. Entries
+ * can also expire when they are not accessed for a while, with a timeout per key prefix (see {@link CacheProperties}).
+ *
+ * Hits, misses, loads, evictions and weight are accounted per key prefix (see {@link CacheStats}).
+ */
 @Slf4j
 @Service
 public class CacheService {
+    static final long DEFAULT_MAX_WEIGHT = 256L * 1024L * 1024L;
 
-    private final Map<String, Object> cache = new HashMap<>();
+    private static final long ENTRY_OVERHEAD_BYTES = 64L;
+    private static final long OBJECT_OVERHEAD_BYTES = 16L;
+    private static final long REFERENCE_BYTES = 8L;
+    private static final long STRING_OVERHEAD_BYTES = 40L;
+    private static final long MAP_ENTRY_OVERHEAD_BYTES = 32L;
 
+    private final ConcurrentMap<String, Entry> cache = new ConcurrentHashMap<>();
+    private final AtomicLong weight = new AtomicLong();
+    private final ConcurrentMap<String, CacheStats> stats = new ConcurrentHashMap<>();
+    private final List<Consumer<CacheStats>> statsListeners = new CopyOnWriteArrayList<>();
+
+    // loaded entries, least recently used first (guarded by accessOrderLock)
+    private final LinkedHashMap<String, Entry> accessOrder = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock accessOrderLock = new ReentrantLock();
+
+    private final long maxWeight;
+    private final List<Map.Entry<String, Long>> idleTimeouts;
+    private final LongSupplier clock;
+
+    public CacheService(final CacheProperties cacheProperties) {
+        this(cacheProperties, System::nanoTime);
+    }
+
+    CacheService(final CacheProperties cacheProperties, final LongSupplier clock) {
+        this.maxWeight = null == cacheProperties.getMaxWeight() ? DEFAULT_MAX_WEIGHT : cacheProperties.getMaxWeight();
+        // longest prefixes first, so that the most specific one applies
+        this.idleTimeouts = cacheProperties.getIdleExpiry().entrySet().stream()
+                .sorted(Comparator.comparing((Map.Entry<String, Duration> e) -> e.getKey().length()).reversed())
+                .map(e -> Map.entry(e.getKey(), e.getValue().toNanos()))
+                .collect(Collectors.toList());
+        this.clock = clock;
+    }
+
+    /**
+     * Removes every entry (manual flush)
+     */
     public void clearCache() {
         log.debug("Clearing all entries from cache ...");
 
-        synchronized (cache) {
-            cache.clear();
-        }
+        cache.keySet().forEach(this::remove);
     }
 
+    /**
+     * Returns the value of given key, loading it with given function if it is not cached. A failed load is not cached,
+     * its exception is thrown to every caller waiting for it
+     */
     public <T> T putIfAbsent(final String key, final Supplier<T> function) {
-        T result;
+        return putIfAbsent(key, function, CacheService::estimateWeight);
+    }
+
+    /**
+     * Same as {@link #putIfAbsent(String, Supplier)}, estimating the size of the loaded value with given function
+     */
+    public <T> T putIfAbsent(final String key, final Supplier<T> function, final ToLongFunction<? super T> weigher) {
+        Entry entry = getEntry(key);
+
+        if (null == entry) {
+            final Entry loading = new Entry(Thread.currentThread(), getIdleTimeout(key), getStats(key), clock.getAsLong());
 
-        synchronized (cache) {
-            if (cache.containsKey(key)) {
-                result = (T) cache.get(key);
-            } else {
-                result = function.get();
+            entry = cache.putIfAbsent(key, loading);
 
-                cache.put(key, result);
+            if (null == entry) {
+                loading.stats.recordMiss();
+
+                return load(key, loading, function, weigher);
             }
         }
 
-        return result;
+        // values being loaded by another thread are hits too, they are loaded only once
+        entry.stats.recordHit();
+
+        return entry.getValue(key);
+    }
+
+    /**
+     * Returns the value of given key, or null if it is not cached (or it is still being loaded)
+     */
+    public <T> T get(final String key) {
+        final Entry entry = getEntry(key);
+        final T value = null == entry ? null : entry.getValueIfLoaded();
+
+        if (null == value) {
+            getStats(key).recordMiss();
+        } else {
+            entry.stats.recordHit();
+        }
+
+        return value;
     }
 
+    /**
+     * Same as {@link #get(String)}, but the request is not accounted in the stats nor does it keep the entry from
+     * expiring, for values polled in the background or checked ahead of their request
+     */
+    public <T> T peek(final String key) {
+        final Entry entry = cache.get(key);
+
+        return null == entry || entry.isExpired(clock.getAsLong()) ? null : entry.getValueIfLoaded();
+    }
+
+    /**
+     * Caches a value, returning the previous one (null if there was none or it was still being loaded)
+     */
     public <T> T put(final String key, final T value) {
+        return put(key, value, CacheService::estimateWeight);
+    }
+
+    /**
+     * Same as {@link #put(String, Object)}, estimating the size of the value with given function
+     */
+    public <T> T put(final String key, final T value, final ToLongFunction<? super T> weigher) {
         log.debug("Storing key '{}' in cache ...", key);
 
-        synchronized (cache) {
-            return (T) cache.put(key, value);
+        final Entry entry = new Entry(null, getIdleTimeout(key), getStats(key), clock.getAsLong());
+        entry.complete(value);
+
+        final Entry previous = cache.put(key, entry);
+
+        if (null != previous) {
+            previous.release();
         }
+
+        loaded(key, entry, weigher.applyAsLong(value));
+
+        return null == previous ? null : previous.getValueIfLoaded();
     }
 
     public void invalidate(final String key) {
         log.debug("Invalidating key '{}' from cache ...", key);
 
-        synchronized (cache) {
-            cache.remove(key);
-        }
+        remove(key);
     }
 
     public void invalidateAllStartingWith(final String keyPrefix) {
-        synchronized (cache) {
-            cache.entrySet()
-                    .removeIf(e -> e.getKey().startsWith(keyPrefix));
+        invalidateIf(key -> key.startsWith(keyPrefix));
+    }
+
+    /**
+     * Removes the entries whose key matches given filter
+     */
+    public void invalidateIf(final Predicate<String> keyFilter) {
+        cache.keySet().stream()
+                .filter(keyFilter)
+                .forEach(this::remove);
+    }
+
+    /**
+     * Removes the entries not accessed within the idle timeout of their key prefix
+     * @return number of entries removed
+     */
+    public int evictExpired() {
+        final long now = clock.getAsLong();
+        int expired = 0;
+
+        for (Map.Entry<String, Entry> e : cache.entrySet()) {
+            if (e.getValue().isExpired(now) && remove(e.getKey(), e.getValue())) {
+                e.getValue().stats.recordExpiration();
+                expired++;
+            }
+        }
+
+        if (expired > 0) {
+            log.debug("Expired {} idle entries from cache", expired);
+        }
+
+        return expired;
+    }
+
+    public int getSize() {
+        return cache.size();
+    }
+
+    /**
+     * Returns the estimated size in bytes of the cached values
+     */
+    public long getWeight() {
+        return weight.get();
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Returns the statistics of every key prefix seen so far, sorted by prefix
+     */
+    public List<CacheStats> getStats() {
+        return stats.values().stream()
+                .sorted(Comparator.comparing(CacheStats::getKeyPrefix))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Registers a listener of the statistics of each key prefix, it is called for the prefixes seen so far and then
+     * for every new one (once per prefix, although it may be called twice for a prefix seen while it is registered)
+     */
+    public void addStatsListener(final Consumer<CacheStats> listener) {
+        statsListeners.add(listener);
+
+        stats.values().forEach(listener);
+    }
+
+    /**
+     * Returns the prefix a key is accounted under: the key up to its first underscore (included), or the whole key
+     * if it has none (e.g. {@code FILE_}, {@code YEARMONTHS_} or {@code dbFilesBasePath})
+     */
+    static String getKeyPrefix(final String key) {
+        final int separator = key.indexOf('_');
+
+        return -1 == separator ? key : key.substring(0, separator + 1);
+    }
+
+    /**
+     * Estimates the size in bytes of a cached value by its content: the chars of the cached texts (the bulk of the
+     * cache) and strings, the elements of collections, maps and arrays (weighed the same way) and a fixed overhead per
+     * entry and per object. Other objects only weigh their overhead, values of such types are weighed by their callers
+     * (see {@link #put(String, Object, ToLongFunction)})
+     */
+    static long estimateWeight(final Object value) {
+        return ENTRY_OVERHEAD_BYTES + estimateContentWeight(value);
+    }
+
+    private static long estimateContentWeight(final Object value) {
+        long result;
+
+        if (null == value) {
+            result = 0L;
+        } else if (value instanceof CsvText) {
+            result = OBJECT_OVERHEAD_BYTES + (long) Character.BYTES * ((CsvText) value).getLength();
+        } else if (value instanceof CharSequence) {
+            result = STRING_OVERHEAD_BYTES + (long) Character.BYTES * ((CharSequence) value).length();
+        } else if (value instanceof Object[]) {
+            final Object[] array = (Object[]) value;
+
+            result = OBJECT_OVERHEAD_BYTES + REFERENCE_BYTES * array.length;
+            for (Object element : array) {
+                result += estimateContentWeight(element);
+            }
+        } else if (value instanceof Collection) {
+            final Collection<?> collection = (Collection<?>) value;
+
+            result = OBJECT_OVERHEAD_BYTES + REFERENCE_BYTES * collection.size();
+            for (Object element : collection) {
+                result += estimateContentWeight(element);
+            }
+        } else if (value instanceof Map) {
+            final Map<?, ?> map = (Map<?, ?>) value;
+
+            result = OBJECT_OVERHEAD_BYTES + MAP_ENTRY_OVERHEAD_BYTES * map.size();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                result += estimateContentWeight(entry.getKey()) + estimateContentWeight(entry.getValue());
+            }
+        } else {
+            result = OBJECT_OVERHEAD_BYTES;
+        }
+
+        return result;
+    }
+
+    private Entry getEntry(final String key) {
+        final Entry entry = cache.get(key);
+
+        if (null == entry) {
+            return null;
+        }
+
+        final long now = clock.getAsLong();
+
+        if (entry.isExpired(now)) {
+            if (remove(key, entry)) {
+                entry.stats.recordExpiration();
+            }
+
+            return null;
+        }
+
+        entry.lastAccess = now;
+
+        if (entry.isDone()) {
+            accessOrderLock.lock();
+            try {
+                // moved to the end of the access order
+                accessOrder.get(key);
+            } finally {
+                accessOrderLock.unlock();
+            }
+        }
+
+        return entry;
+    }
+
+    private <T> T load(final String key, final Entry loading, final Supplier<T> function, final ToLongFunction<? super T> weigher) {
+        final long start = clock.getAsLong();
+        final T result;
+
+        try {
+            result = function.get();
+        } catch (RuntimeException | Error e) {
+            loading.stats.recordLoad(clock.getAsLong() - start, true);
+
+            remove(key, loading);
+            loading.completeExceptionally(e);
+
+            throw e;
+        }
+
+        loading.stats.recordLoad(clock.getAsLong() - start, false);
+
+        loading.complete(result);
+        loaded(key, loading, weigher.applyAsLong(result));
+
+        return result;
+    }
+
+    private void loaded(final String key, final Entry entry, final long valueWeight) {
+        if (!entry.charge(valueWeight)) {
+            return;
+        }
+
+        accessOrderLock.lock();
+        try {
+            // an entry released meanwhile is no longer cached, it was already removed from the access order
+            if (!entry.isReleased()) {
+                accessOrder.put(key, entry);
+            }
+        } finally {
+            accessOrderLock.unlock();
+        }
+
+        evictIfNeeded();
+    }
+
+    private void remove(final String key) {
+        final Entry entry = cache.remove(key);
+
+        if (null != entry) {
+            released(key, entry);
+        }
+    }
+
+    private boolean remove(final String key, final Entry entry) {
+        final boolean removed = cache.remove(key, entry);
+
+        if (removed) {
+            released(key, entry);
+        }
+
+        return removed;
+    }
+
+    private void released(final String key, final Entry entry) {
+        entry.release();
+
+        accessOrderLock.lock();
+        try {
+            accessOrder.remove(key, entry);
+        } finally {
+            accessOrderLock.unlock();
+        }
+    }
+
+    /**
+     * Evicts the least recently used entries until the cache fits its maximum weight, taking them from the start of the
+     * access order (so only the entries evicted are visited)
+     */
+    private void evictIfNeeded() {
+        if (weight.get() <= maxWeight) {
+            return;
+        }
+
+        int evicted = 0;
+
+        accessOrderLock.lock();
+        try {
+            final Iterator<Map.Entry<String, Entry>> candidates = accessOrder.entrySet().iterator();
+
+            while (weight.get() > maxWeight && candidates.hasNext()) {
+                final Map.Entry<String, Entry> candidate = candidates.next();
+                candidates.remove();
+
+                if (cache.remove(candidate.getKey(), candidate.getValue())) {
+                    candidate.getValue().release();
+                    candidate.getValue().stats.recordEviction();
+                    evicted++;
+                }
+            }
+        } finally {
+            accessOrderLock.unlock();
+        }
+
+        log.debug("Evicted {} entries from cache, {} of {} bytes in use", evicted, weight.get(), maxWeight);
+    }
+
+    private CacheStats getStats(final String key) {
+        final String keyPrefix = getKeyPrefix(key);
+
+        CacheStats result = stats.get(keyPrefix);
+
+        if (null == result) {
+            final CacheStats created = new CacheStats(keyPrefix);
+
+            result = stats.putIfAbsent(keyPrefix, created);
+
+            if (null == result) {
+                result = created;
+
+                statsListeners.forEach(listener -> listener.accept(created));
+            }
+        }
+
+        return result;
+    }
+
+    private long getIdleTimeout(final String key) {
+        return idleTimeouts.stream()
+                .filter(e -> key.startsWith(e.getKey()))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(0L);
+    }
+
+    /**
+     * Cached value, or value being loaded by the thread that missed it first. Its weight counts towards the weight of
+     * the cache from the moment it is loaded until it is removed from the cache (whatever comes first)
+     */
+    private class Entry extends CompletableFuture<Object> {
+        private final Thread loader;
+        private final long idleTimeout;
+        private final CacheStats stats;
+        private volatile long lastAccess;
+
+        private long entryWeight;
+        private boolean charged;
+        private boolean released;
+
+        private Entry(final Thread loader, final long idleTimeout, final CacheStats stats, final long now) {
+            this.loader = loader;
+            this.idleTimeout = idleTimeout;
+            this.stats = stats;
+            this.lastAccess = now;
+        }
+
+        private synchronized boolean charge(final long valueWeight) {
+            if (released) {
+                return false;
+            }
+
+            entryWeight = valueWeight;
+            charged = true;
+            weight.addAndGet(valueWeight);
+            stats.addEntry(valueWeight);
+
+            return true;
+        }
+
+        private synchronized boolean isReleased() {
+            return released;
+        }
+
+        private synchronized void release() {
+            if (released) {
+                return;
+            }
+
+            released = true;
+
+            if (charged) {
+                weight.addAndGet(-entryWeight);
+                stats.removeEntry(entryWeight);
+            }
+        }
+
+        private boolean isExpired(final long now) {
+            return idleTimeout > 0L && isDone() && now - lastAccess > idleTimeout;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> T getValue(final String key) {
+            if (!isDone() && Thread.currentThread() == loader) {
+                throw new IllegalStateException(String.format("Cache key '%s' is requested while it is being loaded by the same thread", key));
+            }
+
+            try {
+                return (T) join();
+            } catch (CompletionException e) {
+                final Throwable cause = e.getCause();
+
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+
+                throw e;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> T getValueIfLoaded() {
+            return isDone() && !isCompletedExceptionally() ? (T) join() : null;
         }
     }
 }
@@ -0,0 +1,154 @@
+package com.diegocastroviadero.financemanager.app.services;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of the entries of {@link CacheService} whose keys share a prefix (see {@link CacheService#getKeyPrefix(String)})
+ */
+public class CacheStats {
+    /**
+     * Upper bounds (inclusive) of the buckets of the load time histogram, in millis. Loads above the last one are
+     * counted in an extra bucket
+     */
+    public static final long[] LOAD_TIME_BUCKETS_MILLIS = {1L, 10L, 100L, 1000L, 10000L};
+
+    private final String keyPrefix;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder[] loadTimeBuckets = new LongAdder[LOAD_TIME_BUCKETS_MILLIS.length + 1];
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final AtomicLong entries = new AtomicLong();
+    private final AtomicLong weight = new AtomicLong();
+
+    CacheStats(final String keyPrefix) {
+        this.keyPrefix = keyPrefix;
+
+        for (int i = 0; i < loadTimeBuckets.length; i++) {
+            loadTimeBuckets[i] = new LongAdder();
+        }
+    }
+
+    void recordHit() {
+        hits.increment();
+    }
+
+    void recordMiss() {
+        misses.increment();
+    }
+
+    void recordLoad(final long nanos, final boolean failed) {
+        loads.increment();
+        loadNanos.add(nanos);
+
+        if (failed) {
+            loadFailures.increment();
+        }
+
+        final long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+
+        int bucket = 0;
+        while (bucket < LOAD_TIME_BUCKETS_MILLIS.length && millis > LOAD_TIME_BUCKETS_MILLIS[bucket]) {
+            bucket++;
+        }
+
+        loadTimeBuckets[bucket].increment();
+    }
+
+    void recordEviction() {
+        evictions.increment();
+    }
+
+    void recordExpiration() {
+        expirations.increment();
+    }
+
+    void addEntry(final long entryWeight) {
+        entries.incrementAndGet();
+        weight.addAndGet(entryWeight);
+    }
+
+    void removeEntry(final long entryWeight) {
+        entries.decrementAndGet();
+        weight.addAndGet(-entryWeight);
+    }
+
+    public String getKeyPrefix() {
+        return keyPrefix;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the ratio of hits among the requests of cached values, or NaN if no value was requested yet
+     */
+    public double getHitRatio() {
+        final long h = getHits();
+        final long requests = h + getMisses();
+
+        return 0L == requests ? Double.NaN : (double) h / requests;
+    }
+
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    public long getLoadFailures() {
+        return loadFailures.sum();
+    }
+
+    public long getLoadNanos() {
+        return loadNanos.sum();
+    }
+
+    /**
+     * Returns the number of loads of each bucket of {@link #LOAD_TIME_BUCKETS_MILLIS} (not cumulative), the last one
+     * being the loads above the last bound
+     */
+    public long[] getLoadTimeHistogram() {
+        final long[] histogram = new long[loadTimeBuckets.length];
+
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = loadTimeBuckets[i].sum();
+        }
+
+        return histogram;
+    }
+
+    /**
+     * Returns the number of entries evicted because the cache exceeded its maximum weight
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the number of entries expired because they were not accessed within their idle timeout
+     */
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    public long getEntries() {
+        return entries.get();
+    }
+
+    /**
+     * Returns the estimated size in bytes of the cached values
+     */
+    public long getWeight() {
+        return weight.get();
+    }
+}
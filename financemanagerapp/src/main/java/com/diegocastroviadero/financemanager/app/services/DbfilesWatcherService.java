@@ -0,0 +1,140 @@
+package com.diegocastroviadero.financemanager.app.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the active dbfiles folder (see {@link PersistencePropertiesService#getDbfilesPath()}) and invalidates the
+ * cached data of the files created, modified or deleted outside the app (e.g. by bankscrapper or crypter), so that the
+ * cache never serves stale data. The folder is checked on every poll, so the new one is watched once it is swapped
+ * (e.g. when a backup is loaded)
+ */
+@Slf4j
+@Service
+public class DbfilesWatcherService {
+    private static final long POLL_INTERVAL_MILLIS = 1000L;
+
+    private final PersistencePropertiesService propertiesService;
+    private final CacheService cacheService;
+
+    private WatchService watchService;
+    private Thread watcherThread;
+
+    private Path watchedPath;
+    private WatchKey watchKey;
+
+    public DbfilesWatcherService(final PersistencePropertiesService propertiesService, final CacheService cacheService) {
+        this.propertiesService = propertiesService;
+        this.cacheService = cacheService;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+
+        watchDbfilesPath();
+
+        watcherThread = new Thread(this::watch, "dbfiles-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        watchService.close();
+        watcherThread.interrupt();
+    }
+
+    private void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                watchDbfilesPath();
+
+                final WatchKey key = watchService.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+                if (null != key) {
+                    if (key == watchKey) {
+                        processEvents(key);
+                    } else {
+                        // events of a folder no longer active
+                        key.pollEvents();
+                        key.cancel();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // stopped
+        }
+
+        log.info("Stopped watching dbfiles folder");
+    }
+
+    /**
+     * Registers the active dbfiles folder if it is not the watched one (or it is no longer valid). The changes of a
+     * folder watched again could have been missed, so every cached file is invalidated
+     */
+    private void watchDbfilesPath() {
+        final Path dbfilesPath = propertiesService.peekDbfilesPath();
+
+        if (dbfilesPath.equals(watchedPath) && watchKey.isValid()) {
+            return;
+        }
+
+        if (null != watchKey) {
+            watchKey.cancel();
+        }
+
+        try {
+            watchKey = dbfilesPath.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            log.warn("Dbfiles folder '{}' could not be watched, it will be tried again", dbfilesPath, e);
+
+            watchKey = null;
+            watchedPath = null;
+
+            return;
+        }
+
+        if (null != watchedPath) {
+            AbstractPersistenceService.invalidateAllFiles(cacheService);
+        }
+
+        watchedPath = dbfilesPath;
+
+        log.info("Watching dbfiles folder '{}'", dbfilesPath);
+    }
+
+    private void processEvents(final WatchKey key) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (StandardWatchEventKinds.OVERFLOW == event.kind()) {
+                log.debug("Changes of dbfiles folder were lost, invalidating every cached file");
+
+                AbstractPersistenceService.invalidateAllFiles(cacheService);
+            } else {
+                final Path file = watchedPath.resolve((Path) event.context());
+
+                if (!propertiesService.isWrittenByApp(file)) {
+                    log.debug("File '{}' was changed outside the app ({}), invalidating its cached data", file.getFileName(), event.kind().name());
+
+                    AbstractPersistenceService.invalidateFile(cacheService, file.getFileName().toString(), StandardWatchEventKinds.ENTRY_MODIFY != event.kind());
+                }
+            }
+        }
+
+        key.reset();
+    }
+}
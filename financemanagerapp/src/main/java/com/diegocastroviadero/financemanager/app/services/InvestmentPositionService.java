@@ -2,7 +2,6 @@ package com.diegocastroviadero.financemanager.app.services;
 
 import com.diegocastroviadero.financemanager.app.model.InvestmentPosition;
 import com.diegocastroviadero.financemanager.app.services.events.AccountDeletedEvent;
-import com.diegocastroviadero.financemanager.cryptoutils.CsvSerializationUtils;
 import com.diegocastroviadero.financemanager.cryptoutils.exception.CsvCryptoIOException;
 import org.springframework.context.ApplicationListener;
 import org.springframework.stereotype.Service;
@@ -11,7 +10,7 @@ import java.io.File;
 import java.math.BigDecimal;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
@@ -31,11 +30,10 @@ public class InvestmentPositionService extends AbstractPersistenceService implem
     private static final String ACCOUNT_INVESTMENT_POSITIONS_FILENAME_REGEX_TEMPLATE = ACCOUNT_INVESTMENT_POSITIONS_BY_ACCOUNT_FILENAME_PREFIX + "_[0-9]{6}.ecsv";
     private static final String ACCOUNT_INVESTMENT_POSITIONS_YEARMONTH_EXTRACTOR_PATTERN_TEMPLATE = ACCOUNT_INVESTMENT_POSITIONS_BY_ACCOUNT_FILENAME_PREFIX + "_([0-9]{6}).ecsv";
 
-    private final UserConfigService userConfigService;
+    private static final Comparator<InvestmentPosition> ORDER = Comparator.comparing(InvestmentPosition::getIndex);
 
-    public InvestmentPositionService(final PersistencePropertiesService propertiesService, final CacheService cacheService, final UserConfigService userConfigService) {
-        super(propertiesService, cacheService);
-        this.userConfigService = userConfigService;
+    public InvestmentPositionService(final PersistencePropertiesService propertiesService, final CacheService cacheService, final RowCodecService codecService) {
+        super(propertiesService, cacheService, codecService);
     }
 
     public List<InvestmentPosition> getInvestmentPositionsByAccountAndMonth(final char[] password, final UUID accountId, final YearMonth yearMonth) throws CsvCryptoIOException {
@@ -44,15 +42,9 @@ public class InvestmentPositionService extends AbstractPersistenceService implem
         List<InvestmentPosition> investmentPositions;
 
         if (file.exists()) {
-            final List<String[]> rawCsvData = loadData(password, file);
-
-            investmentPositions = rawCsvData.stream()
-                    .map(rawInvestmentPosition -> InvestmentPosition.fromStringArray(rawInvestmentPosition, userConfigService.isDemoMode()))
-                    .sorted(Comparator.comparing(InvestmentPosition::getIndex))
-                    .collect(Collectors.toList());
-
+            investmentPositions = loadSorted(password, file, InvestmentPosition.class, ORDER);
         } else {
-            investmentPositions = new ArrayList<>();
+            investmentPositions = Collections.emptyList();
         }
 
         return investmentPositions;
@@ -67,15 +59,14 @@ public class InvestmentPositionService extends AbstractPersistenceService implem
                     .collect(Collectors.toList());
         }
 
-        final List<InvestmentPosition> investmentPositions = new ArrayList<>();
-
-        for (YearMonth yearMonth : yearMonths) {
-            investmentPositions.addAll(getInvestmentPositionsByAccountAndMonth(password, accountId, yearMonth));
-        }
-
-        return investmentPositions.stream()
-                .sorted(Comparator.comparing(InvestmentPosition::getIndex))
+        // oldest months first, so that their elements are already sorted by index
+        final List<File> files = yearMonths.stream()
+                .sorted()
+                .map(yearMonth -> getFile(getFilename(accountId, yearMonth)))
+                .filter(File::exists)
                 .collect(Collectors.toList());
+
+        return concatSorted(loadSorted(password, files, InvestmentPosition.class, ORDER), ORDER);
     }
 
     public InvestmentPosition getLastInvestmentPositionByAccount(final char[] password, final UUID accountId) throws CsvCryptoIOException {
@@ -89,13 +80,8 @@ public class InvestmentPositionService extends AbstractPersistenceService implem
 
 
             if (file.exists()) {
-                final List<String[]> rawCsvData = loadData(password, file);
-
-                lastInvestmentPosition = rawCsvData.stream()
-                        .map(rawInvestmentPosition -> InvestmentPosition.fromStringArray(rawInvestmentPosition, userConfigService.isDemoMode()))
-                        .sorted(Comparator.comparing(InvestmentPosition::getIndex))
-                        .reduce((first, second) -> second)
-                        .orElse(null);
+                // positions are persisted sorted by index, so the last row is the last position
+                lastInvestmentPosition = loadLast(password, file, InvestmentPosition.class);
             }
         }
 
@@ -143,11 +129,9 @@ public class InvestmentPositionService extends AbstractPersistenceService implem
         final long startIndex;
 
         if (previousMonthFile.exists()) {
-            final List<String[]> rawCsvData = loadData(password, previousMonthFile);
-
-            startIndex = rawCsvData.stream()
-                    .map(row -> row[0])
-                    .mapToLong(CsvSerializationUtils::parseLongFromCsv)
+            startIndex = loadSorted(password, previousMonthFile, InvestmentPosition.class, ORDER).stream()
+                    .map(InvestmentPosition::getIndex)
+                    .mapToLong(Long::longValue)
                     .max()
                     .orElse(0L);
         } else {
@@ -162,7 +146,8 @@ public class InvestmentPositionService extends AbstractPersistenceService implem
         File nextMonthFile;
 
         while ((nextMonthFile = getFile(getFilename(accountId, nextMonth))).exists()) {
-            final List<InvestmentPosition> accountYearMonthMovements = getInvestmentPositionsByAccountAndMonth(password, accountId, nextMonth);
+            // new elements, the cached ones must not be modified (files are persisted sorted by index)
+            final List<InvestmentPosition> accountYearMonthMovements = load(password, nextMonthFile, InvestmentPosition.class);
 
             indexInvestmentPositionsAndSave(password, accountYearMonthMovements, indexSeq, nextMonthFile);
 
@@ -173,13 +158,12 @@ public class InvestmentPositionService extends AbstractPersistenceService implem
     private void indexInvestmentPositionsAndSave(final char[] password, final List<InvestmentPosition> investmentPositions, final AtomicLong indexSeq, final File file) throws CsvCryptoIOException {
         investmentPositions.forEach(investmentPosition -> investmentPosition.setIndex(indexSeq.incrementAndGet()));
 
-        final List<String[]> rawMovements = investmentPositions.stream()
+        final List<InvestmentPosition> sortedInvestmentPositions = investmentPositions.stream()
                 .sorted(Comparator
                         .comparing(InvestmentPosition::getIndex))
-                .map(InvestmentPosition::toStringArray)
                 .collect(Collectors.toList());
 
-        persistData(rawMovements, password, file);
+        persist(sortedInvestmentPositions, InvestmentPosition.class, ORDER, password, file);
     }
 
     public Map<YearMonth, BigDecimal> getInvestmentPositionsBalanceByMonth(final BigDecimal initialBalance, final List<InvestmentPosition> investmentPositions) {
@@ -210,7 +194,10 @@ public class InvestmentPositionService extends AbstractPersistenceService implem
         final File[] filesToDelete = propertiesService.listFiles((dir, filename) -> filename.startsWith(String.format(ACCOUNT_INVESTMENT_POSITIONS_BY_ACCOUNT_FILENAME_PREFIX, accountDeletedEvent.getAccount().getId())));
 
         if (null != filesToDelete && filesToDelete.length > 0) {
-            Stream.of(filesToDelete).forEach(File::delete);
+            Stream.of(filesToDelete).forEach(file -> {
+                file.delete();
+                invalidateFile(cacheService, file.getName(), true);
+            });
         }
     }
 }
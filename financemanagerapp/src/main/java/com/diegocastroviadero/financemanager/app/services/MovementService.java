@@ -2,7 +2,8 @@ package com.diegocastroviadero.financemanager.app.services;
 
 import com.diegocastroviadero.financemanager.app.model.Movement;
 import com.diegocastroviadero.financemanager.app.services.events.AccountDeletedEvent;
-import com.diegocastroviadero.financemanager.cryptoutils.CsvSerializationUtils;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvCryptoUtils;
+import com.diegocastroviadero.financemanager.cryptoutils.WriteBatch;
 import com.diegocastroviadero.financemanager.cryptoutils.exception.CsvCryptoIOException;
 import org.springframework.context.ApplicationListener;
 import org.springframework.stereotype.Service;
@@ -10,7 +11,7 @@ import org.springframework.stereotype.Service;
 import java.io.File;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
@@ -30,11 +31,10 @@ public class MovementService extends AbstractPersistenceService implements Appli
     private static final String ACCOUNT_MOVEMENTS_FILENAME_REGEX_TEMPLATE = ACCOUNT_MOVEMENTS_BY_ACCOUNT_FILENAME_PREFIX + "_[0-9]{6}.ecsv";
     private static final String ACCOUNT_MOVEMENTS_YEARMONTH_EXTRACTOR_PATTERN_TEMPLATE = ACCOUNT_MOVEMENTS_BY_ACCOUNT_FILENAME_PREFIX + "_([0-9]{6}).ecsv";
 
-    private final UserConfigService userConfigService;
+    private static final Comparator<Movement> ORDER = Comparator.comparing(Movement::getIndex);
 
-    public MovementService(final PersistencePropertiesService persistencePropertiesService, final CacheService cacheService, final UserConfigService userConfigService) {
-        super(persistencePropertiesService, cacheService);
-        this.userConfigService = userConfigService;
+    public MovementService(final PersistencePropertiesService persistencePropertiesService, final CacheService cacheService, final RowCodecService codecService) {
+        super(persistencePropertiesService, cacheService, codecService);
     }
 
     public List<Movement> getMovementsByAccountAndMonth(final char[] password, final UUID accountId, final YearMonth yearMonth) throws CsvCryptoIOException {
@@ -43,15 +43,9 @@ public class MovementService extends AbstractPersistenceService implements Appli
         List<Movement> movements;
 
         if (file.exists()) {
-            final List<String[]> rawCsvData = loadData(password, file);
-
-            movements = rawCsvData.stream()
-                    .map(rawMovement -> Movement.fromStringArray(rawMovement, userConfigService.isDemoMode()))
-                    .sorted(Comparator.comparing(Movement::getIndex))
-                    .collect(Collectors.toList());
-
+            movements = loadSorted(password, file, Movement.class, ORDER);
         } else {
-            movements = new ArrayList<>();
+            movements = Collections.emptyList();
         }
 
         return movements;
@@ -66,18 +60,27 @@ public class MovementService extends AbstractPersistenceService implements Appli
                     .collect(Collectors.toList());
         }
 
-        final List<Movement> movements = new ArrayList<>();
-
-        for (YearMonth yearMonth : yearMonths) {
-            movements.addAll(getMovementsByAccountAndMonth(password, accountId, yearMonth));
-        }
-
-        return movements.stream()
-                .sorted(Comparator.comparing(Movement::getIndex))
+        // oldest months first, so that their elements are already sorted by index
+        final List<File> files = yearMonths.stream()
+                .sorted()
+                .map(yearMonth -> getFile(getFilename(accountId, yearMonth)))
+                .filter(File::exists)
                 .collect(Collectors.toList());
+
+        return concatSorted(loadSorted(password, files, Movement.class, ORDER), ORDER);
     }
 
+    /**
+     * Persists the movements of an account, one file per month, reindexing the movements of the following months. All
+     * the files are written in a single batch (see {@link CsvCryptoUtils#beginWriteBatch()})
+     */
     public void persistMovements(final char[] password, final UUID accountId, final List<Movement> accountMovements) throws CsvCryptoIOException {
+        try (WriteBatch batch = CsvCryptoUtils.beginWriteBatch()) {
+            persistMovementsByYearMonth(password, accountId, accountMovements);
+        }
+    }
+
+    private void persistMovementsByYearMonth(final char[] password, final UUID accountId, final List<Movement> accountMovements) throws CsvCryptoIOException {
         final Map<YearMonth, List<Movement>> accountMovementsByYearMonth = groupAccountMovementsByYearMonth(accountMovements);
 
         final AtomicLong indexSeq = new AtomicLong(-1L);
@@ -122,11 +125,9 @@ public class MovementService extends AbstractPersistenceService implements Appli
         final long startIndex;
 
         if (previousMonthFile.exists()) {
-            final List<String[]> rawCsvData = loadData(password, previousMonthFile);
-
-            startIndex = rawCsvData.stream()
-                    .map(row -> row[0])
-                    .mapToLong(CsvSerializationUtils::parseLongFromCsv)
+            startIndex = loadSorted(password, previousMonthFile, Movement.class, ORDER).stream()
+                    .map(Movement::getIndex)
+                    .mapToLong(Long::longValue)
                     .max()
                     .orElse(0L);
         } else {
@@ -141,7 +142,8 @@ public class MovementService extends AbstractPersistenceService implements Appli
         File nextMonthFile;
 
         while ((nextMonthFile = getFile(getFilename(accountId, nextMonth))).exists()) {
-            final List<Movement> accountYearMonthMovements = getMovementsByAccountAndMonth(password, accountId, nextMonth);
+            // new elements, the cached ones must not be modified (files are persisted sorted by index)
+            final List<Movement> accountYearMonthMovements = load(password, nextMonthFile, Movement.class);
 
             indexMovementsAndSave(password, accountYearMonthMovements, indexSeq, nextMonthFile);
 
@@ -152,13 +154,12 @@ public class MovementService extends AbstractPersistenceService implements Appli
     private void indexMovementsAndSave(final char[] password, final List<Movement> movements, final AtomicLong indexSeq, final File file) throws CsvCryptoIOException {
         movements.forEach(movement -> movement.setIndex(indexSeq.incrementAndGet()));
 
-        final List<String[]> rawMovements = movements.stream()
+        final List<Movement> sortedMovements = movements.stream()
                 .sorted(Comparator
                         .comparing(Movement::getIndex))
-                .map(Movement::toStringArray)
                 .collect(Collectors.toList());
 
-        persistData(rawMovements, password, file);
+        persist(sortedMovements, Movement.class, ORDER, password, file);
     }
 
     private String getAccountMovementsFilenameRegex(final UUID accountId) {
@@ -174,7 +175,10 @@ public class MovementService extends AbstractPersistenceService implements Appli
         final File[] filesToDelete = propertiesService.listFiles((dir, filename) -> filename.startsWith(String.format(ACCOUNT_MOVEMENTS_BY_ACCOUNT_FILENAME_PREFIX, event.getAccount().getId())));
 
         if (null != filesToDelete && filesToDelete.length > 0) {
-            Stream.of(filesToDelete).forEach(File::delete);
+            Stream.of(filesToDelete).forEach(file -> {
+                file.delete();
+                invalidateFile(cacheService, file.getName(), true);
+            });
         }
     }
 }
@@ -1,27 +1,45 @@
 package com.diegocastroviadero.financemanager.app.services;
 
 import com.diegocastroviadero.financemanager.app.configuration.PersistenceProperties;
-import com.diegocastroviadero.financemanager.app.services.CacheService;
 import com.diegocastroviadero.financemanager.app.utils.Utils;
+import com.diegocastroviadero.financemanager.cryptoutils.EncryptionOptions;
+import com.diegocastroviadero.financemanager.cryptoutils.IntegrityMode;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 @Slf4j
 @Service
 @AllArgsConstructor
 public class PersistencePropertiesService {
     private static final String DBFILES_BASEPATH_KEY = "dbFilesBasePath";
+    private static final String VERSION_HASH_ALGORITHM = "SHA-256";
+    private static final int VERSION_HASH_LENGTH_BYTE = 4096;
 
     private final PersistenceProperties properties;
     private final CacheService cacheService;
 
+    // version of the files last written by the app
+    private final ConcurrentMap<Path, FileVersion> writtenFiles = new ConcurrentHashMap<>();
+
     public File getFile(final String filename) {
         return getPath(filename).toFile();
     }
@@ -48,6 +66,24 @@ public class PersistencePropertiesService {
         return result;
     }
 
+    public EncryptionOptions getEncryptionOptions() {
+        final Integer compressionLevel = properties.getDbfiles().getCompressionLevel();
+        final IntegrityMode integrityMode = properties.getDbfiles().getIntegrityMode();
+
+        final EncryptionOptions.EncryptionOptionsBuilder builder = EncryptionOptions.builder();
+
+        if (null != compressionLevel) {
+            builder.compressed(true)
+                    .compressionLevel(compressionLevel);
+        }
+
+        if (null != integrityMode) {
+            builder.integrityMode(integrityMode);
+        }
+
+        return builder.build();
+    }
+
     public Path createNewFolderInDbfilesBasePath() {
         final Path newFolder = properties.getDbfiles().getBasePath()
                 .resolve(Utils.getDateTimeAsTimestamp());
@@ -65,7 +101,46 @@ public class PersistencePropertiesService {
         }
     }
 
-    private Path getDbfilesPath() {
+    /**
+     * Records the version of a file just written by the app, so that it is not taken as changed outside the app (see
+     * {@link DbfilesWatcherService}). The version is made of the key, last modified time and size of the file, which
+     * a rewrite within the resolution of the time could keep, and the hash of its first and last bytes: the header of
+     * the containers changes on every write (random key and IV, row count of the appends) and their last chunk and
+     * index on every append. Only those bytes are read, whatever the size of the file
+     */
+    public void registerWrite(final File file) {
+        final Path path = file.toPath().toAbsolutePath();
+        final FileVersion version = FileVersion.of(path);
+
+        if (null == version) {
+            writtenFiles.remove(path);
+        } else {
+            writtenFiles.put(path, version);
+        }
+    }
+
+    /**
+     * Returns whether given file is still as the app last wrote it. Its bytes are only hashed if the key, last modified
+     * time and size of the file have not changed
+     */
+    public boolean isWrittenByApp(final Path file) {
+        final Path path = file.toAbsolutePath();
+        final FileVersion writtenVersion = writtenFiles.get(path);
+
+        if (null == writtenVersion) {
+            return false;
+        }
+
+        final boolean result = writtenVersion.matches(path);
+
+        if (!result) {
+            writtenFiles.remove(path, writtenVersion);
+        }
+
+        return result;
+    }
+
+    public Path getDbfilesPath() {
         return cacheService.putIfAbsent(DBFILES_BASEPATH_KEY, () -> {
             final File[] foldersInDbfilesBasePath = properties.getDbfiles().getBasePath().toFile()
                     .listFiles(File::isDirectory);
@@ -84,4 +159,89 @@ public class PersistencePropertiesService {
             return result;
         });
     }
+
+    /**
+     * Same as {@link #getDbfilesPath()}, but the cached path is read without being accounted in the cache stats, for
+     * the checks made in the background
+     */
+    public Path peekDbfilesPath() {
+        final Path result = cacheService.peek(DBFILES_BASEPATH_KEY);
+
+        return null == result ? getDbfilesPath() : result;
+    }
+
+    private static final class FileVersion {
+        private final Object fileKey;
+        private final FileTime lastModifiedTime;
+        private final long size;
+        private final byte[] hash;
+
+        private FileVersion(final BasicFileAttributes attributes, final byte[] hash) {
+            this.fileKey = attributes.fileKey();
+            this.lastModifiedTime = attributes.lastModifiedTime();
+            this.size = attributes.size();
+            this.hash = hash;
+        }
+
+        private static FileVersion of(final Path file) {
+            final BasicFileAttributes attributes = readAttributes(file);
+            final byte[] hash = null == attributes ? null : hash(file, attributes.size());
+
+            return null == hash ? null : new FileVersion(attributes, hash);
+        }
+
+        private boolean matches(final Path file) {
+            final BasicFileAttributes attributes = readAttributes(file);
+
+            return null != attributes
+                    && Objects.equals(fileKey, attributes.fileKey())
+                    && lastModifiedTime.equals(attributes.lastModifiedTime())
+                    && size == attributes.size()
+                    && Arrays.equals(hash, hash(file, size));
+        }
+
+        private static BasicFileAttributes readAttributes(final Path file) {
+            try {
+                return Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (IOException e) {
+                // file does not exist (anymore)
+                return null;
+            }
+        }
+
+        /**
+         * Hashes the first and last bytes of given file (all of them if it is small enough)
+         */
+        private static byte[] hash(final Path file, final long size) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                final MessageDigest digest = MessageDigest.getInstance(VERSION_HASH_ALGORITHM);
+
+                if (size <= 2L * VERSION_HASH_LENGTH_BYTE) {
+                    update(digest, channel, 0L, (int) size);
+                } else {
+                    update(digest, channel, 0L, VERSION_HASH_LENGTH_BYTE);
+                    update(digest, channel, size - VERSION_HASH_LENGTH_BYTE, VERSION_HASH_LENGTH_BYTE);
+                }
+
+                return digest.digest();
+            } catch (IOException e) {
+                // file does not exist (anymore)
+                return null;
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static void update(final MessageDigest digest, final FileChannel channel, final long position, final int length) throws IOException {
+            final ByteBuffer buffer = ByteBuffer.allocate(length);
+
+            int read = 0;
+            while (buffer.hasRemaining() && -1 != read) {
+                read = channel.read(buffer, position + buffer.position());
+            }
+
+            buffer.flip();
+            digest.update(buffer);
+        }
+    }
 }
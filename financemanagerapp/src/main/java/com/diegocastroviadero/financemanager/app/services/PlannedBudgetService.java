@@ -21,8 +21,8 @@ import java.util.stream.Collectors;
 public class PlannedBudgetService extends AbstractPersistenceService {
     private static final String PLANNED_BUDGETS_FILENAME = "planned_budgets.csv";
 
-    public PlannedBudgetService(final PersistencePropertiesService propertiesService, final CacheService cacheService) {
-        super(propertiesService, cacheService);
+    public PlannedBudgetService(final PersistencePropertiesService propertiesService, final CacheService cacheService, final RowCodecService codecService) {
+        super(propertiesService, cacheService, codecService);
     }
 
     public List<PlannedBudget> getAllPlannedBudgets() throws CsvIOException {
@@ -31,12 +31,7 @@ public class PlannedBudgetService extends AbstractPersistenceService {
         List<PlannedBudget> plannedBudgets;
 
         if (file.exists()) {
-            final List<String[]> rawCsvData = loadData(file);
-
-            plannedBudgets = rawCsvData.stream()
-                    .map(PlannedBudget::fromStringArray)
-                    .collect(Collectors.toList());
-
+            plannedBudgets = load(file, PlannedBudget.class);
         } else {
             plannedBudgets = new ArrayList<>();
         }
@@ -104,15 +99,14 @@ public class PlannedBudgetService extends AbstractPersistenceService {
     public void persistPlannedBudgets(final List<PlannedBudget> plannedBudgets) throws CsvIOException {
         final File file = getFile(getFilename());
 
-        final List<String[]> sortedRawPlannedBudgets = plannedBudgets.stream()
+        final List<PlannedBudget> sortedPlannedBudgets = plannedBudgets.stream()
                 .sorted(Comparator
                         .comparing(PlannedBudget::getScope)
                         .thenComparing(PlannedBudget::getConcept)
                         .thenComparing(PlannedBudget::getMonth))
-                .map(PlannedBudget::toStringArray)
                 .collect(Collectors.toList());
 
-        persistData(sortedRawPlannedBudgets, file);
+        persist(sortedPlannedBudgets, PlannedBudget.class, file);
     }
 
     private String getFilename() {
@@ -21,8 +21,8 @@ import java.util.stream.Collectors;
 public class PlannedExpenseService extends AbstractPersistenceService {
     private static final String PLANNED_EXPENSES_FILENAME = "planned_expenses.csv";
 
-    public PlannedExpenseService(final PersistencePropertiesService propertiesService, final CacheService cacheService) {
-        super(propertiesService, cacheService);
+    public PlannedExpenseService(final PersistencePropertiesService propertiesService, final CacheService cacheService, final RowCodecService codecService) {
+        super(propertiesService, cacheService, codecService);
     }
 
     public List<PlannedExpense> getAllPlannedExpenses() throws CsvIOException {
@@ -31,12 +31,7 @@ public class PlannedExpenseService extends AbstractPersistenceService {
         List<PlannedExpense> plannedExpenses;
 
         if (file.exists()) {
-            final List<String[]> rawCsvData = loadData(file);
-
-            plannedExpenses = rawCsvData.stream()
-                    .map(PlannedExpense::fromStringArray)
-                    .collect(Collectors.toList());
-
+            plannedExpenses = load(file, PlannedExpense.class);
         } else {
             plannedExpenses = new ArrayList<>();
         }
@@ -104,15 +99,14 @@ public class PlannedExpenseService extends AbstractPersistenceService {
     public void persistPlannedExpenses(final List<PlannedExpense> plannedExpenses) throws CsvIOException {
         final File file = getFile(getFilename());
 
-        final List<String[]> sortedRawPlannedExpenses = plannedExpenses.stream()
+        final List<PlannedExpense> sortedPlannedExpenses = plannedExpenses.stream()
                 .sorted(Comparator
                         .comparing(PlannedExpense::getScope)
                         .thenComparing(PlannedExpense::getConcept)
                         .thenComparing(PlannedExpense::getMonth))
-                .map(PlannedExpense::toStringArray)
                 .collect(Collectors.toList());
 
-        persistData(sortedRawPlannedExpenses, file);
+        persist(sortedPlannedExpenses, PlannedExpense.class, file);
     }
 
     private String getFilename() {
@@ -0,0 +1,75 @@
+package com.diegocastroviadero.financemanager.app.services;
+
+import com.diegocastroviadero.financemanager.app.model.Account;
+import com.diegocastroviadero.financemanager.app.model.InvestmentPosition;
+import com.diegocastroviadero.financemanager.app.model.Movement;
+import com.diegocastroviadero.financemanager.app.model.PlannedBudget;
+import com.diegocastroviadero.financemanager.app.model.PlannedExpense;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvFieldReader;
+import com.diegocastroviadero.financemanager.cryptoutils.CsvFieldWriter;
+import com.diegocastroviadero.financemanager.cryptoutils.RowCodec;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * Codecs of the models persisted as csv rows, registered per model. Demo mode is checked when elements are decoded,
+ * so it applies to elements already cached as text. Codecs of a given demo mode are registered too, for elements
+ * cached per demo mode
+ */
+@Service
+public class RowCodecService {
+    private final Map<Class<?>, RowCodec<?>> codecs = new HashMap<>();
+    private final Map<Class<?>, RowCodec<?>> plainCodecs = new HashMap<>();
+    private final Map<Class<?>, RowCodec<?>> demoCodecs = new HashMap<>();
+
+    private final UserConfigService userConfigService;
+
+    public RowCodecService(final UserConfigService userConfigService) {
+        this.userConfigService = userConfigService;
+
+        register(Account.class, Account::toCsvRow, Account::fromCsvRow);
+        register(Movement.class, Movement::toCsvRow, Movement::fromCsvRow);
+        register(InvestmentPosition.class, InvestmentPosition::toCsvRow, InvestmentPosition::fromCsvRow);
+        register(PlannedExpense.class, PlannedExpense::toCsvRow, (reader, demoMode) -> PlannedExpense.fromCsvRow(reader));
+        register(PlannedBudget.class, PlannedBudget::toCsvRow, (reader, demoMode) -> PlannedBudget.fromCsvRow(reader));
+    }
+
+    /**
+     * Returns whether the elements decoded right now are obfuscated (demo mode)
+     */
+    public boolean isDemoMode() {
+        return userConfigService.isDemoMode();
+    }
+
+    public <T> RowCodec<T> getCodec(final Class<T> type) {
+        return getCodec(codecs, type);
+    }
+
+    /**
+     * Returns the codec decoding elements as given demo mode, whatever the current one is
+     */
+    public <T> RowCodec<T> getCodec(final Class<T> type, final boolean demoMode) {
+        return getCodec(demoMode ? demoCodecs : plainCodecs, type);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> RowCodec<T> getCodec(final Map<Class<?>, RowCodec<?>> codecs, final Class<T> type) {
+        final RowCodec<?> codec = codecs.get(type);
+
+        if (null == codec) {
+            throw new IllegalArgumentException(String.format("There is no csv row codec registered for '%s'", type.getName()));
+        }
+
+        return (RowCodec<T>) codec;
+    }
+
+    private <T> void register(final Class<T> type, final BiConsumer<T, CsvFieldWriter> writeFunction, final BiFunction<CsvFieldReader, Boolean, T> readFunction) {
+        codecs.put(type, RowCodec.of(writeFunction, reader -> readFunction.apply(reader, userConfigService.isDemoMode())));
+        plainCodecs.put(type, RowCodec.of(writeFunction, reader -> readFunction.apply(reader, false)));
+        demoCodecs.put(type, RowCodec.of(writeFunction, reader -> readFunction.apply(reader, true)));
+    }
+}
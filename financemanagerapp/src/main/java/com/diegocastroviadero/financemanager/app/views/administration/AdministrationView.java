@@ -3,6 +3,7 @@ package com.diegocastroviadero.financemanager.app.views.administration;
 import com.diegocastroviadero.financemanager.app.services.AuthCleanerService;
 import com.diegocastroviadero.financemanager.app.services.BackupService;
 import com.diegocastroviadero.financemanager.app.services.CacheCleanerService;
+import com.diegocastroviadero.financemanager.app.services.CacheStats;
 import com.diegocastroviadero.financemanager.app.services.UserConfigService;
 import com.diegocastroviadero.financemanager.app.views.common.ConfirmationDialog;
 import com.diegocastroviadero.financemanager.app.views.common.LoadBackupException;
@@ -11,6 +12,8 @@ import com.vaadin.flow.component.Component;
 import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.button.ButtonVariant;
 import com.vaadin.flow.component.checkbox.Checkbox;
+import com.vaadin.flow.component.grid.ColumnTextAlign;
+import com.vaadin.flow.component.grid.Grid;
 import com.vaadin.flow.component.html.Anchor;
 import com.vaadin.flow.component.html.H4;
 import com.vaadin.flow.component.html.Label;
@@ -28,6 +31,9 @@ import elemental.json.Json;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.access.annotation.Secured;
 
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
 @Slf4j
 @Route(value = "administration", layout = MainView.class)
 @PageTitle("AdministrationView | Finance Manager")
@@ -98,9 +104,20 @@ public class AdministrationView extends VerticalLayout {
 
         final Button cleanGlobalCacheButton = new Button("Clean");
         cleanGlobalCacheButton.addThemeVariants(ButtonVariant.LUMO_PRIMARY, ButtonVariant.LUMO_ERROR);
+        // Global cache statistics by key prefix
+        final Grid<CacheStats> cacheStatsGrid = getCacheStatsGrid();
+
+        final Button refreshCacheStatsButton = new Button("Refresh", new Icon(VaadinIcon.REFRESH));
+        refreshCacheStatsButton.addThemeVariants(ButtonVariant.LUMO_PRIMARY);
+        refreshCacheStatsButton.addClickListener(event -> {
+            globalCacheStatus.setValue(cacheCleanerService.getCacheStatusLabel());
+            cacheStatsGrid.setItems(cacheCleanerService.getCacheStats());
+        });
+
         cleanGlobalCacheButton.addClickListener(event -> {
             cacheCleanerService.cleanCache();
             globalCacheStatus.setValue(cacheCleanerService.getCacheStatusLabel());
+            cacheStatsGrid.setItems(cacheCleanerService.getCacheStats());
         });
 
         final HorizontalLayout globalCacheLayout = new HorizontalLayout(globalCacheStatus, cleanGlobalCacheButton);
@@ -116,14 +133,19 @@ public class AdministrationView extends VerticalLayout {
             authCacheStatus.setValue(authCleanerService.getAuthStatusLabel());
             cacheCleanerService.cleanCache();
             globalCacheStatus.setValue(cacheCleanerService.getCacheStatusLabel());
+            cacheStatsGrid.setItems(cacheCleanerService.getCacheStats());
         });
 
+        final HorizontalLayout cacheStatsLayout = new HorizontalLayout(refreshCacheStatsButton);
+        cacheStatsLayout.setWidthFull();
+        cacheStatsLayout.setDefaultVerticalComponentAlignment(Alignment.END);
+
         final HorizontalLayout cleanAllLayout = new HorizontalLayout(cleanAllButton);
         cleanAllLayout.setWidthFull();
         cleanAllLayout.setDefaultVerticalComponentAlignment(Alignment.END);
 
         // Clean main layout
-        final VerticalLayout layout = new VerticalLayout(new H4("Cache"), authCacheLayout, globalCacheLayout, cleanAllLayout);
+        final VerticalLayout layout = new VerticalLayout(new H4("Cache"), authCacheLayout, globalCacheLayout, new H4("Global cache statistics"), cacheStatsGrid, cacheStatsLayout, cleanAllLayout);
         layout.setWidthFull();
         layout.setPadding(Boolean.FALSE);
         layout.setSpacing(Boolean.FALSE);
@@ -131,6 +153,61 @@ public class AdministrationView extends VerticalLayout {
         return layout;
     }
 
+    private Grid<CacheStats> getCacheStatsGrid() {
+        final Grid<CacheStats> grid = new Grid<>();
+        grid.addClassName("cache-stats-grid");
+
+        grid.addColumn(CacheStats::getKeyPrefix)
+                .setHeader("Prefix");
+        grid.addColumn(CacheStats::getEntries)
+                .setHeader("Entries")
+                .setTextAlign(ColumnTextAlign.END);
+        grid.addColumn(stats -> stats.getWeight() / 1024L)
+                .setHeader("KB")
+                .setTextAlign(ColumnTextAlign.END);
+        grid.addColumn(CacheStats::getHits)
+                .setHeader("Hits")
+                .setTextAlign(ColumnTextAlign.END);
+        grid.addColumn(CacheStats::getMisses)
+                .setHeader("Misses")
+                .setTextAlign(ColumnTextAlign.END);
+        grid.addColumn(stats -> Double.isNaN(stats.getHitRatio()) ? "-" : String.format("%.1f %%", 100.0 * stats.getHitRatio()))
+                .setHeader("Hit ratio")
+                .setTextAlign(ColumnTextAlign.END);
+        grid.addColumn(CacheStats::getLoads)
+                .setHeader("Loads")
+                .setTextAlign(ColumnTextAlign.END);
+        grid.addColumn(stats -> 0L == stats.getLoads() ? "-" : String.format("%.1f", stats.getLoadNanos() / 1000000.0 / stats.getLoads()))
+                .setHeader("Avg load (ms)")
+                .setTextAlign(ColumnTextAlign.END);
+        grid.addColumn(stats -> LongStream.of(stats.getLoadTimeHistogram()).mapToObj(String::valueOf).collect(Collectors.joining(" / ")))
+                .setHeader(getLoadTimeHistogramHeader())
+                .setTextAlign(ColumnTextAlign.END);
+        grid.addColumn(CacheStats::getLoadFailures)
+                .setHeader("Failed loads")
+                .setTextAlign(ColumnTextAlign.END);
+        grid.addColumn(CacheStats::getEvictions)
+                .setHeader("Evictions")
+                .setTextAlign(ColumnTextAlign.END);
+        grid.addColumn(CacheStats::getExpirations)
+                .setHeader("Expirations")
+                .setTextAlign(ColumnTextAlign.END);
+
+        grid.getColumns().forEach(column -> column.setAutoWidth(Boolean.TRUE));
+        grid.setHeightByRows(Boolean.TRUE);
+        grid.setItems(cacheCleanerService.getCacheStats());
+
+        return grid;
+    }
+
+    private static String getLoadTimeHistogramHeader() {
+        final String bounds = LongStream.of(CacheStats.LOAD_TIME_BUCKETS_MILLIS)
+                .mapToObj(bound -> String.format("≤%d", bound))
+                .collect(Collectors.joining(" / "));
+
+        return String.format("Loads (%s / more ms)", bounds);
+    }
+
     private Component getBackupLayout() {
         final Button downloadButton = new Button("Get Backup", new Icon(VaadinIcon.DOWNLOAD_ALT));
         downloadButton.setWidthFull();
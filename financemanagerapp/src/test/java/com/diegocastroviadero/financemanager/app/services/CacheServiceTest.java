@@ -0,0 +1,349 @@
+package com.diegocastroviadero.financemanager.app.services;
+
+import com.diegocastroviadero.financemanager.app.configuration.CacheProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+public class CacheServiceTest {
+
+    private CacheService cacheService;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        cacheService = new CacheService(new CacheProperties());
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void givenConcurrentMissesOnSameKey_whenPutIfAbsent_thenValueIsLoadedOnce() throws Exception {
+        // Given
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final Future<String> first = executor.submit(() -> cacheService.putIfAbsent("FILE_a", () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+
+            return "a";
+        }));
+
+        Assertions.assertTrue(loading.await(10, TimeUnit.SECONDS));
+
+        // When
+        final List<Future<String>> others = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            others.add(executor.submit(() -> cacheService.putIfAbsent("FILE_a", () -> {
+                loads.incrementAndGet();
+
+                return "other";
+            })));
+        }
+
+        release.countDown();
+
+        // Then
+        Assertions.assertEquals("a", first.get(10, TimeUnit.SECONDS));
+        for (Future<String> other : others) {
+            Assertions.assertEquals("a", other.get(10, TimeUnit.SECONDS));
+        }
+        Assertions.assertEquals(1, loads.get());
+    }
+
+    @Test
+    void givenLoadInProgress_whenOtherKeysAreRequested_thenTheyDoNotWaitForIt() throws Exception {
+        // Given
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        cacheService.put("dbFilesBasePath", "path");
+
+        final Future<String> slow = executor.submit(() -> cacheService.putIfAbsent("FILE_a", () -> {
+            loading.countDown();
+            await(release);
+
+            return "a";
+        }));
+
+        Assertions.assertTrue(loading.await(10, TimeUnit.SECONDS));
+
+        // When
+        final Future<String> hit = executor.submit(() -> cacheService.get("dbFilesBasePath"));
+        final Future<String> otherMiss = executor.submit(() -> cacheService.putIfAbsent("FILE_b", () -> "b"));
+
+        // Then
+        Assertions.assertEquals("path", hit.get(10, TimeUnit.SECONDS));
+        Assertions.assertEquals("b", otherMiss.get(10, TimeUnit.SECONDS));
+        Assertions.assertFalse(slow.isDone());
+
+        release.countDown();
+
+        Assertions.assertEquals("a", slow.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void givenFailingLoad_whenPutIfAbsent_thenExceptionIsThrownAndNothingIsCached() {
+        // Given
+        final IllegalStateException error = new IllegalStateException("load failed");
+
+        // When
+        final IllegalStateException thrown = Assertions.assertThrows(IllegalStateException.class, () -> cacheService.putIfAbsent("FILE_a", () -> {
+            throw error;
+        }));
+
+        // Then
+        Assertions.assertSame(error, thrown);
+        Assertions.assertNull(cacheService.get("FILE_a"));
+        Assertions.assertEquals("a", cacheService.putIfAbsent("FILE_a", () -> "a"));
+    }
+
+    @Test
+    void givenLoadInProgress_whenKeyIsInvalidated_thenLoadedValueIsNotCached() throws Exception {
+        // Given
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final Future<String> load = executor.submit(() -> cacheService.putIfAbsent("FILE_a", () -> {
+            loading.countDown();
+            await(release);
+
+            return "stale";
+        }));
+
+        Assertions.assertTrue(loading.await(10, TimeUnit.SECONDS));
+
+        // When
+        cacheService.invalidateAllStartingWith("FILE_");
+        release.countDown();
+
+        // Then
+        Assertions.assertEquals("stale", load.get(10, TimeUnit.SECONDS));
+        Assertions.assertNull(cacheService.get("FILE_a"));
+        Assertions.assertEquals("fresh", cacheService.putIfAbsent("FILE_a", () -> "fresh"));
+    }
+
+    @Test
+    void givenLoaderRequestingItsOwnKey_whenPutIfAbsent_thenExceptionIsThrown() {
+        // Given
+        // When
+        // Then
+        Assertions.assertThrows(IllegalStateException.class, () -> cacheService.putIfAbsent("FILE_a", () -> cacheService.putIfAbsent("FILE_a", () -> "a")));
+        Assertions.assertNull(cacheService.get("FILE_a"));
+    }
+
+    @Test
+    void givenManyThreads_whenLoadingInvalidatingAndClearingConcurrently_thenEveryCallGetsTheValueOfItsKey() throws Exception {
+        // Given
+        final int threads = 8;
+        final int operations = 20000;
+        final CountDownLatch start = new CountDownLatch(1);
+
+        // When
+        final List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final Random random = new Random(t);
+
+            futures.add(executor.submit(() -> {
+                await(start);
+
+                int hits = 0;
+                for (int i = 0; i < operations; i++) {
+                    final String key = String.format("%s%d", random.nextBoolean() ? "FILE_" : "REGEX_", random.nextInt(16));
+
+                    switch (random.nextInt(20)) {
+                        case 0:
+                            cacheService.invalidate(key);
+                            break;
+                        case 1:
+                            cacheService.invalidateAllStartingWith("FILE_");
+                            break;
+                        case 2:
+                            cacheService.clearCache();
+                            break;
+                        case 3:
+                            cacheService.put(key, valueOf(key));
+                            break;
+                        default:
+                            final String value = cacheService.putIfAbsent(key, () -> valueOf(key));
+                            Assertions.assertEquals(valueOf(key), value);
+
+                            final String cached = cacheService.get(key);
+                            if (null != cached) {
+                                Assertions.assertEquals(valueOf(key), cached);
+                                hits++;
+                            }
+                    }
+                }
+
+                return hits;
+            }));
+        }
+
+        start.countDown();
+
+        // Then
+        int hits = 0;
+        for (Future<Integer> future : futures) {
+            hits += future.get(60, TimeUnit.SECONDS);
+        }
+
+        Assertions.assertTrue(hits > 0);
+
+        cacheService.clearCache();
+
+        Assertions.assertEquals(0L, cacheService.getWeight());
+    }
+
+    @Test
+    void givenCacheOverItsMaxWeight_whenValueIsLoaded_thenLeastRecentlyUsedEntriesAreEvicted() {
+        // Given
+        final CacheProperties cacheProperties = new CacheProperties();
+        cacheProperties.setMaxWeight(3L * CacheService.estimateWeight("value"));
+
+        final AtomicLong clock = new AtomicLong();
+        final CacheService boundedCacheService = new CacheService(cacheProperties, clock::incrementAndGet);
+
+        boundedCacheService.putIfAbsent("FILE_a", () -> "value");
+        boundedCacheService.putIfAbsent("FILE_b", () -> "value");
+        boundedCacheService.putIfAbsent("FILE_c", () -> "value");
+        boundedCacheService.get("FILE_a");
+
+        // When
+        boundedCacheService.putIfAbsent("FILE_d", () -> "value");
+
+        // Then
+        Assertions.assertEquals(3, boundedCacheService.getSize());
+        Assertions.assertNull(boundedCacheService.get("FILE_b"));
+        Assertions.assertNotNull(boundedCacheService.get("FILE_a"));
+        Assertions.assertNotNull(boundedCacheService.get("FILE_c"));
+        Assertions.assertNotNull(boundedCacheService.get("FILE_d"));
+        Assertions.assertTrue(boundedCacheService.getWeight() <= boundedCacheService.getMaxWeight());
+    }
+
+    @Test
+    void givenListsOfStrings_whenWeighed_thenCharsOfTheirElementsAreCounted() {
+        // Given
+        final List<String> shortStrings = List.of("a", "b");
+        final List<String> longStrings = List.of("a".repeat(1000), "b".repeat(1000));
+
+        // When
+        final long shortWeight = CacheService.estimateWeight(shortStrings);
+        final long longWeight = CacheService.estimateWeight(longStrings);
+
+        // Then
+        Assertions.assertEquals(2L * Character.BYTES * 999, longWeight - shortWeight);
+    }
+
+    @Test
+    void givenIdleExpiryOfPrefix_whenEntriesAreNotAccessed_thenOnlyEntriesOfThatPrefixExpire() {
+        // Given
+        final CacheProperties cacheProperties = new CacheProperties();
+        cacheProperties.getIdleExpiry().put("FILE_", Duration.ofNanos(10L));
+
+        final AtomicLong clock = new AtomicLong();
+        final CacheService expiringCacheService = new CacheService(cacheProperties, clock::get);
+
+        expiringCacheService.put("FILE_a", "a");
+        expiringCacheService.put("dbFilesBasePath", "path");
+
+        // When
+        clock.addAndGet(20L);
+        final int expired = expiringCacheService.evictExpired();
+
+        // Then
+        Assertions.assertEquals(1, expired);
+        Assertions.assertNull(expiringCacheService.get("FILE_a"));
+        Assertions.assertEquals("path", expiringCacheService.get("dbFilesBasePath"));
+        Assertions.assertEquals("b", expiringCacheService.putIfAbsent("FILE_a", () -> "b"));
+    }
+
+    @Test
+    void givenRequestsOfSeveralPrefixes_whenGettingStats_thenTheyAreAccountedByPrefix() {
+        // Given
+        cacheService.putIfAbsent("FILE_a", () -> "a");
+        cacheService.putIfAbsent("FILE_a", () -> "a");
+        cacheService.putIfAbsent("FILE_b", () -> "b");
+        cacheService.get("dbFilesBasePath");
+        cacheService.put("dbFilesBasePath", "path");
+        cacheService.get("dbFilesBasePath");
+        cacheService.invalidate("FILE_b");
+
+        // When
+        final List<CacheStats> stats = cacheService.getStats();
+
+        // Then
+        Assertions.assertEquals(2, stats.size());
+
+        final CacheStats fileStats = stats.get(0);
+        Assertions.assertEquals("FILE_", fileStats.getKeyPrefix());
+        Assertions.assertEquals(1L, fileStats.getHits());
+        Assertions.assertEquals(2L, fileStats.getMisses());
+        Assertions.assertEquals(2L, fileStats.getLoads());
+        Assertions.assertEquals(2L, LongStream.of(fileStats.getLoadTimeHistogram()).sum());
+        Assertions.assertEquals(1L, fileStats.getEntries());
+        Assertions.assertEquals(CacheService.estimateWeight("a"), fileStats.getWeight());
+
+        final CacheStats basePathStats = stats.get(1);
+        Assertions.assertEquals("dbFilesBasePath", basePathStats.getKeyPrefix());
+        Assertions.assertEquals(1L, basePathStats.getHits());
+        Assertions.assertEquals(1L, basePathStats.getMisses());
+        Assertions.assertEquals(0L, basePathStats.getLoads());
+        Assertions.assertEquals(0.5, basePathStats.getHitRatio());
+
+        Assertions.assertEquals(cacheService.getWeight(), fileStats.getWeight() + basePathStats.getWeight());
+    }
+
+    @Test
+    void givenCachedValue_whenPeekingIt_thenItIsNotAccountedInStats() {
+        // Given
+        cacheService.put("dbFilesBasePath", "path");
+
+        // When
+        final String value = cacheService.peek("dbFilesBasePath");
+
+        // Then
+        Assertions.assertEquals("path", value);
+        Assertions.assertNull(cacheService.peek("FILE_a"));
+
+        final CacheStats basePathStats = cacheService.getStats().get(0);
+        Assertions.assertEquals(0L, basePathStats.getHits());
+        Assertions.assertEquals(0L, basePathStats.getMisses());
+    }
+
+    private static String valueOf(final String key) {
+        return String.format("value of %s", key);
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Latch was not released");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.diegocastroviadero.financemanager.app.services;
+
+import com.diegocastroviadero.financemanager.app.configuration.BuildProperties;
+import com.diegocastroviadero.financemanager.app.configuration.CacheProperties;
+import com.diegocastroviadero.financemanager.app.configuration.PersistenceProperties;
+import com.diegocastroviadero.financemanager.app.model.Bank;
+import com.diegocastroviadero.financemanager.app.model.Movement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+public class DbfilesWatcherServiceTest {
+    private static final char[] PASSWORD = "password".toCharArray();
+    private static final UUID ACCOUNT_ID = new UUID(1L, 1L);
+    private static final YearMonth MONTH = YearMonth.of(2021, 1);
+
+    @TempDir
+    Path dbFilesPath;
+
+    private PersistencePropertiesService propertiesService;
+    private MovementService movementService;
+    private DbfilesWatcherService watcherService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        final PersistenceProperties.DbFilesProperties dbFilesProperties = new PersistenceProperties.DbFilesProperties();
+        dbFilesProperties.setBasePath(dbFilesPath);
+
+        final PersistenceProperties persistenceProperties = new PersistenceProperties();
+        persistenceProperties.setDbfiles(dbFilesProperties);
+
+        final CacheService cacheService = new CacheService(new CacheProperties());
+
+        propertiesService = new PersistencePropertiesService(persistenceProperties, cacheService);
+        movementService = new MovementService(propertiesService, cacheService, new RowCodecService(new UserConfigService(new BuildProperties("test", "20210101-0000"))));
+
+        watcherService = new DbfilesWatcherService(propertiesService, cacheService);
+        watcherService.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        watcherService.stop();
+    }
+
+    @Test
+    void givenCachedMovements_whenFilesAreChangedOutsideTheApp_thenTheirCachedDataIsInvalidated() throws Exception {
+        // Given
+        movementService.persistMovements(PASSWORD, ACCOUNT_ID, List.of(movement(MONTH, "a")));
+
+        final List<Movement> movements = movementService.getMovementsByAccountAndMonth(PASSWORD, ACCOUNT_ID, MONTH);
+        Assertions.assertEquals(List.of(MONTH), movementService.getYearMonthRange(ACCOUNT_ID));
+
+        final Path file = propertiesService.getPath(String.format("movements_%s_202101.ecsv", ACCOUNT_ID));
+
+        // When
+        Files.copy(file, propertiesService.getPath(String.format("movements_%s_202102.ecsv", ACCOUNT_ID)));
+        Files.write(file, Files.readAllBytes(file));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(0L));
+
+        // Then
+        awaitTrue(() -> movementService.getYearMonthRange(ACCOUNT_ID).size() == 2);
+        awaitTrue(() -> movements != getMovementsOfMonth());
+    }
+
+    @Test
+    void givenFileWrittenByApp_whenItIsRewrittenKeepingItsSizeAndModifiedTime_thenItIsNotTakenAsWrittenByApp() throws Exception {
+        // Given
+        movementService.persistMovements(PASSWORD, ACCOUNT_ID, List.of(movement(MONTH, "a")));
+
+        final Path file = propertiesService.getPath(String.format("movements_%s_202101.ecsv", ACCOUNT_ID));
+        final FileTime lastModifiedTime = Files.getLastModifiedTime(file);
+        final byte[] content = Files.readAllBytes(file);
+
+        Assertions.assertTrue(propertiesService.isWrittenByApp(file));
+
+        // When
+        content[content.length - 1] ^= 1;
+        Files.write(file, content);
+        Files.setLastModifiedTime(file, lastModifiedTime);
+
+        // Then
+        Assertions.assertFalse(propertiesService.isWrittenByApp(file));
+    }
+
+    private List<Movement> getMovementsOfMonth() {
+        try {
+            return movementService.getMovementsByAccountAndMonth(PASSWORD, ACCOUNT_ID, MONTH);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Movement movement(final YearMonth yearMonth, final String concept) {
+        return Movement.builder()
+                .bank(Bank.ING)
+                .accountId(ACCOUNT_ID)
+                .account("ES00 0000 0000 0000 0000 0000")
+                .date(yearMonth.atDay(1))
+                .concept(concept)
+                .quantity(BigDecimal.TEN)
+                .build();
+    }
+
+    private static void awaitTrue(final BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10000L;
+
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                Assertions.fail("Condition was not met within 10 seconds");
+            }
+
+            Thread.sleep(50L);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.diegocastroviadero.financemanager.app.services;
+
+import com.diegocastroviadero.financemanager.app.configuration.BuildProperties;
+import com.diegocastroviadero.financemanager.app.configuration.CacheProperties;
+import com.diegocastroviadero.financemanager.app.configuration.PersistenceProperties;
+import com.diegocastroviadero.financemanager.app.model.Bank;
+import com.diegocastroviadero.financemanager.app.model.Movement;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+public class MovementServiceTest {
+    private static final char[] PASSWORD = "password".toCharArray();
+    private static final UUID ACCOUNT_ID = new UUID(1L, 1L);
+    private static final YearMonth MONTH = YearMonth.of(2021, 1);
+
+    @TempDir
+    Path dbFilesPath;
+
+    private CacheService cacheService;
+    private UserConfigService userConfigService;
+    private MovementService movementService;
+
+    @BeforeEach
+    void setUp() {
+        final PersistenceProperties.DbFilesProperties dbFilesProperties = new PersistenceProperties.DbFilesProperties();
+        dbFilesProperties.setBasePath(dbFilesPath);
+
+        final PersistenceProperties persistenceProperties = new PersistenceProperties();
+        persistenceProperties.setDbfiles(dbFilesProperties);
+
+        cacheService = new CacheService(new CacheProperties());
+
+        userConfigService = new UserConfigService(new BuildProperties("test", "20210101-0000"));
+        movementService = new MovementService(new PersistencePropertiesService(persistenceProperties, cacheService), cacheService, new RowCodecService(userConfigService));
+    }
+
+    @Test
+    void givenPersistedMovements_whenGettingMovementsOfMonthTwice_thenSameSortedListIsReturned() throws Exception {
+        // Given
+        movementService.persistMovements(PASSWORD, ACCOUNT_ID, List.of(movement(MONTH.atDay(2), "b"), movement(MONTH.atDay(1), "a")));
+
+        // When
+        final List<Movement> movements = movementService.getMovementsByAccountAndMonth(PASSWORD, ACCOUNT_ID, MONTH);
+
+        // Then
+        Assertions.assertSame(movements, movementService.getMovementsByAccountAndMonth(PASSWORD, ACCOUNT_ID, MONTH));
+        Assertions.assertEquals(List.of(1L, 2L), movements.stream().map(Movement::getIndex).collect(Collectors.toList()));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> movements.add(movement(MONTH.atDay(3), "c")));
+    }
+
+    @Test
+    void givenPersistedMovements_whenTheyAreModifiedAfterwards_thenCachedMovementsAreNotModified() throws Exception {
+        // Given
+        final Movement movement = movement(MONTH.atDay(1), "a");
+
+        movementService.persistMovements(PASSWORD, ACCOUNT_ID, List.of(movement));
+
+        // When
+        movement.setIndex(99L);
+
+        // Then
+        final List<Movement> movements = movementService.getMovementsByAccountAndMonth(PASSWORD, ACCOUNT_ID, MONTH);
+
+        Assertions.assertNotSame(movement, movements.get(0));
+        Assertions.assertEquals(1L, movements.get(0).getIndex());
+    }
+
+    @Test
+    void givenCachedMovements_whenDemoModeIsActivated_thenObfuscatedMovementsAreCachedApart() throws Exception {
+        // Given
+        movementService.persistMovements(PASSWORD, ACCOUNT_ID, List.of(movement(MONTH.atDay(1), "a")));
+
+        final List<Movement> movements = movementService.getMovementsByAccountAndMonth(PASSWORD, ACCOUNT_ID, MONTH);
+
+        // When
+        userConfigService.setDemoMode(true);
+        final List<Movement> demoMovements = movementService.getMovementsByAccountAndMonth(PASSWORD, ACCOUNT_ID, MONTH);
+
+        // Then
+        Assertions.assertNotSame(movements, demoMovements);
+        Assertions.assertSame(demoMovements, movementService.getMovementsByAccountAndMonth(PASSWORD, ACCOUNT_ID, MONTH));
+
+        userConfigService.setDemoMode(false);
+
+        Assertions.assertSame(movements, movementService.getMovementsByAccountAndMonth(PASSWORD, ACCOUNT_ID, MONTH));
+    }
+
+    @Test
+    void givenMovementsOfSeveralMonths_whenPersistingPreviousMonth_thenFollowingMonthsAreReindexedInCache() throws Exception {
+        // Given
+        movementService.persistMovements(PASSWORD, ACCOUNT_ID, List.of(movement(MONTH.atDay(1), "a"), movement(MONTH.plusMonths(1L).atDay(1), "b")));
+        movementService.getMovementsByAccountAndFromMonth(PASSWORD, ACCOUNT_ID, null);
+
+        // When
+        movementService.persistMovements(PASSWORD, ACCOUNT_ID, List.of(movement(MONTH.atDay(1), "a"), movement(MONTH.atDay(2), "c")));
+
+        // Then
+        final List<Movement> movements = movementService.getMovementsByAccountAndFromMonth(PASSWORD, ACCOUNT_ID, null);
+
+        Assertions.assertEquals(List.of("a", "c", "b"), movements.stream().map(Movement::getConcept).collect(Collectors.toList()));
+        Assertions.assertEquals(List.of(1L, 2L, 3L), movements.stream().map(Movement::getIndex).collect(Collectors.toList()));
+    }
+
+    @Test
+    void givenCachedMovementsOfSeveralMonths_whenGettingThem_thenEachCachedMonthIsAccountedAsOneHit() throws Exception {
+        // Given
+        movementService.persistMovements(PASSWORD, ACCOUNT_ID, List.of(movement(MONTH.atDay(1), "a"), movement(MONTH.plusMonths(1L).atDay(1), "b")));
+
+        // When
+        movementService.getMovementsByAccountAndFromMonth(PASSWORD, ACCOUNT_ID, null);
+        movementService.getMovementsByAccountAndFromMonth(PASSWORD, ACCOUNT_ID, null);
+
+        // Then
+        final CacheStats elementsStats = cacheService.getStats().stream()
+                .filter(stats -> AbstractPersistenceService.ELEMENTS_CACHE_KEY_PREFIX.equals(stats.getKeyPrefix()))
+                .findFirst()
+                .orElseThrow();
+
+        Assertions.assertEquals(4L, elementsStats.getHits());
+        Assertions.assertEquals(0L, elementsStats.getMisses());
+    }
+
+    private static Movement movement(final LocalDate date, final String concept) {
+        return Movement.builder()
+                .bank(Bank.ING)
+                .accountId(ACCOUNT_ID)
+                .account("ES00 0000 0000 0000 0000 0000")
+                .date(date)
+                .concept(concept)
+                .quantity(BigDecimal.TEN)
+                .build();
+    }
+}